@@ -0,0 +1,195 @@
+package com.canvamedium.benchmark;
+
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Category;
+import com.canvamedium.model.Tag;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.scheduling.LeaderElection;
+import com.canvamedium.service.ArticleService;
+import com.canvamedium.service.impl.ArticleServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Page queries of {@link ArticleServiceImpl} against the embedded H2 database of the test
+ * profile, with 1,000 articles that each have two tags and a category.
+ * <p>
+ * Each benchmark loads a page of 20 articles and then their tags and categories, in one
+ * transaction, as a request does when the response is serialized with the session still open.
+ * H2 runs in-process, so this measures the JPA and JDBC work rather than the network.
+ * <p>
+ * {@code allArticlesPageReadWrite} loads the same page as {@code allArticlesPage} in a read-write
+ * transaction, in which Hibernate keeps a snapshot of every loaded article for dirty checking and
+ * flushes before committing. Run both with {@code -prof gc} to compare the allocations per page
+ * ({@code gc.alloc.rate.norm}) of the read-only read paths with those of a read-write one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArticlePageQueryBenchmark {
+
+    private static final int ARTICLES = 1_000;
+    private static final int BLOCKS_PER_ARTICLE = 30;
+    private static final int TAGS = 20;
+    private static final int CATEGORIES = 5;
+    private static final Pageable PAGE = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    private ConfigurableApplicationContext context;
+    private ArticleService articleService;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readWriteTransactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(QueryBenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("spring.jpa.show-sql=false",
+                        "app.events.dispatcher.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+                .run();
+        articleService = context.getBean(ArticleService.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> seed(context.getBean(EntityManager.class)));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        readWriteTransactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int publishedPage() {
+        return loadPage(() -> articleService.getPublishedArticles(PAGE));
+    }
+
+    @Benchmark
+    public int allArticlesPage() {
+        return loadPage(() -> articleService.getAllArticles(PAGE));
+    }
+
+    @Benchmark
+    public int allArticlesPageReadWrite() {
+        // The service joins the read-write transaction, so its read-only hint does not apply
+        return loadPage(readWriteTransactionTemplate, () -> articleService.getAllArticles(PAGE));
+    }
+
+    @Benchmark
+    public int searchPage() {
+        return loadPage(() -> articleService.searchArticles("benchmark", Status.PUBLISHED, null, null, PAGE));
+    }
+
+    private int loadPage(Supplier<Page<Article>> query) {
+        return loadPage(transactionTemplate, query);
+    }
+
+    private static int loadPage(TransactionTemplate transaction, Supplier<Page<Article>> query) {
+        return transaction.execute(status -> {
+            int associations = 0;
+            for (Article article : query.get()) {
+                associations += article.getTags().size() + article.getCategories().size();
+            }
+            return associations;
+        });
+    }
+
+    private static void seed(EntityManager entityManager) {
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < TAGS; i++) {
+            Tag tag = new Tag("Tag " + i, "tag-" + i);
+            entityManager.persist(tag);
+            tags.add(tag);
+        }
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = new Category("Category " + i, "category-" + i);
+            entityManager.persist(category);
+            categories.add(category);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Random random = new Random(42);
+        for (int i = 0; i < ARTICLES; i++) {
+            Article article = new Article("Query benchmark article " + i,
+                    ArticleSerializationBenchmark.content(objectMapper, BLOCKS_PER_ARTICLE, random),
+                    "Preview " + i, null, null, i % 4 == 0 ? Status.DRAFT : Status.PUBLISHED);
+            article.getTags().add(tags.get(i % TAGS));
+            article.getTags().add(tags.get((i * 7 + 3) % TAGS));
+            article.getCategories().add(categories.get(i % CATEGORIES));
+            entityManager.persist(article);
+            if (i % 100 == 99) {
+                entityManager.flush();
+                entityManager.clear();
+                tags.replaceAll(tag -> entityManager.merge(tag));
+                categories.replaceAll(category -> entityManager.merge(category));
+            }
+        }
+    }
+
+    /**
+     * The persistence layer and the article service, without the web layer and security. The
+     * event bus only takes part for the service's writes; its dispatcher is disabled.
+     */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Article.class)
+    @EnableJpaRepositories(basePackageClasses = ArticleRepository.class)
+    @Import({ArticleServiceImpl.class, ArticleEventBus.class, LeaderElection.class})
+    static class QueryBenchmarkConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.canvamedium.benchmark;
+
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Category;
+import com.canvamedium.model.Tag;
+import com.canvamedium.model.Template;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of an {@link Article} response body with a content document of
+ * {@code blocks} elements, with the object mapper configured as Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArticleSerializationBenchmark {
+
+    @Param({"10", "200", "2000"})
+    public int blocks;
+
+    private ObjectMapper objectMapper;
+    private Article article;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        Template template = new Template("Blog Post", objectMapper.createObjectNode().put("type", "container"));
+        template.setId(1L);
+        article = new Article("Serialization benchmark", content(objectMapper, blocks, new Random(42)),
+                "Preview text", "/api/media/files/thumbnail.jpg", template, Article.Status.PUBLISHED);
+        article.setId(1L);
+        article.setVersion(1L);
+        article.setPublishedAt(LocalDateTime.now());
+        for (long i = 1; i <= 3; i++) {
+            Category category = new Category("Category " + i, "category-" + i);
+            category.setId(i);
+            article.getCategories().add(category);
+            Tag tag = new Tag("Tag " + i, "tag-" + i);
+            tag.setId(i);
+            article.getTags().add(tag);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeArticle() throws Exception {
+        return objectMapper.writeValueAsBytes(article);
+    }
+
+    /**
+     * Create a content document in the format of the templates, with varied text blocks.
+     */
+    static ObjectNode content(ObjectMapper objectMapper, int blocks, Random random) {
+        ObjectNode content = objectMapper.createObjectNode();
+        content.put("type", "container");
+        ArrayNode elements = content.putArray("elements");
+        for (int i = 0; i < blocks; i++) {
+            ObjectNode block = elements.addObject();
+            block.put("id", "block-" + i);
+            block.put("type", i % 10 == 0 ? Template.ELEMENT_TYPE_HEADER : Template.ELEMENT_TYPE_TEXT);
+            block.put("align", "left");
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 60; word++) {
+                text.append(Long.toString(random.nextLong() >>> 20, 36)).append(' ');
+            }
+            block.put("text", text.toString());
+        }
+        return content;
+    }
+}
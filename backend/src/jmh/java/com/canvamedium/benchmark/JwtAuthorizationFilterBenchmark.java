@@ -0,0 +1,71 @@
+package com.canvamedium.benchmark;
+
+import com.canvamedium.security.JwtAuthorizationFilter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link JwtAuthorizationFilter} adds to each request: reading the bearer token,
+ * verifying it and building the authentication, followed by an empty chain. Requests without
+ * a token show the cost of the filter itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthorizationFilterBenchmark {
+
+    private static final String FILTERED_ATTRIBUTE = JwtAuthorizationFilter.class.getName() + ".FILTERED";
+
+    private final FilterChain noOpChain = (request, response) -> { };
+    private JwtAuthorizationFilter filter;
+    private MockHttpServletRequest authenticatedRequest;
+    private MockHttpServletRequest anonymousRequest;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        filter = new JwtAuthorizationFilter(JwtUtilsBenchmark.createJwtUtils());
+        String token = JwtUtilsBenchmark.createJwtUtils().generateJwtToken("benchmark-user", JwtUtilsBenchmark.AUTHORITIES);
+        authenticatedRequest = new MockHttpServletRequest("GET", "/api/articles");
+        authenticatedRequest.addHeader("Authorization", "Bearer " + token);
+        anonymousRequest = new MockHttpServletRequest("GET", "/api/articles");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication authenticatedRequest() throws Exception {
+        return filter(authenticatedRequest);
+    }
+
+    @Benchmark
+    public Authentication anonymousRequest() throws Exception {
+        return filter(anonymousRequest);
+    }
+
+    private Authentication filter(MockHttpServletRequest request) throws Exception {
+        filter.doFilter(request, response, noOpChain);
+        // Let the next invocation through OncePerRequestFilter again
+        request.removeAttribute(FILTERED_ATTRIBUTE);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,70 @@
+package com.canvamedium.benchmark;
+
+import com.canvamedium.security.JwtUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and validation in {@link JwtUtils}: what a login costs on top of the
+ * password check, and what validating the bearer token costs on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    static final String SECRET = "benchmark-secret-that-is-at-least-64-bytes-long-for-hs512-signing!";
+    static final List<GrantedAuthority> AUTHORITIES = List.of(
+            new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_EDITOR"));
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = createJwtUtils();
+        token = jwtUtils.generateJwtToken("benchmark-user", AUTHORITIES);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateJwtToken("benchmark-user", AUTHORITIES);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public List<String> getRolesFromToken() {
+        return jwtUtils.getRolesFromToken(token);
+    }
+
+    /**
+     * Create a {@link JwtUtils} configured as by the application properties.
+     */
+    static JwtUtils createJwtUtils() {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,56 @@
+package com.canvamedium.benchmark;
+
+import com.canvamedium.model.Template;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and writing a {@link Template} layout of {@code elements} elements, as Hibernate's
+ * JSON mapping does with the jsonb column each time a template is loaded or saved. Six
+ * elements is the size of the built-in templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateLayoutBenchmark {
+
+    @Param({"6", "100"})
+    public int elements;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String layoutJson;
+    private JsonNode layout;
+
+    @Setup
+    public void setUp() {
+        layout = ArticleSerializationBenchmark.content(objectMapper, elements, new Random(42));
+        layoutJson = layout.toString();
+    }
+
+    @Benchmark
+    public JsonNode parseLayout() throws Exception {
+        return objectMapper.readTree(layoutJson);
+    }
+
+    @Benchmark
+    public String writeLayout() throws Exception {
+        return objectMapper.writeValueAsString(layout);
+    }
+}
@@ -0,0 +1,98 @@
+package com.canvamedium.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How many virtual users are active over time, as a list of stages {@code users@duration}.
+ * Each stage ramps linearly from the user count at the end of the previous stage (0 for the
+ * first) to its own over its duration, so {@code 20@30s,100@1m,100@5m} ramps up to 20 users
+ * in 30 s, then to 100 users in a minute, and holds 100 users for 5 minutes.
+ */
+final class LoadProfile {
+
+    /**
+     * One stage of the profile.
+     *
+     * @param users    The number of users at the end of the stage
+     * @param duration The duration of the stage
+     */
+    record Stage(int users, Duration duration) {
+    }
+
+    private final List<Stage> stages;
+
+    private LoadProfile(List<Stage> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Parse a profile such as {@code 20@30s,100@1m,100@5m}.
+     *
+     * @param specification The comma-separated stages
+     * @return The profile
+     * @throws IllegalArgumentException if a stage is not {@code users@duration}
+     */
+    static LoadProfile parse(String specification) {
+        List<Stage> stages = Arrays.stream(specification.split(","))
+                .map(String::trim)
+                .map(stage -> {
+                    int at = stage.indexOf('@');
+                    if (at < 1) {
+                        throw new IllegalArgumentException("Stage must be users@duration: " + stage);
+                    }
+                    return new Stage(Integer.parseInt(stage.substring(0, at)),
+                            DurationStyle.detectAndParse(stage.substring(at + 1)));
+                })
+                .toList();
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("No stages in " + specification);
+        }
+        return new LoadProfile(stages);
+    }
+
+    /**
+     * @return The total duration of all stages
+     */
+    Duration duration() {
+        return stages.stream().map(Stage::duration).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /**
+     * @return The highest number of users of any stage
+     */
+    int maxUsers() {
+        return stages.stream().mapToInt(Stage::users).max().orElse(0);
+    }
+
+    /**
+     * Get the number of users that should be active at a point of the run.
+     *
+     * @param elapsed The time since the start of the run
+     * @return The number of users, 0 once the run is over
+     */
+    int usersAt(Duration elapsed) {
+        int previousUsers = 0;
+        long remaining = elapsed.toMillis();
+        for (Stage stage : stages) {
+            long stageMillis = stage.duration().toMillis();
+            if (remaining < stageMillis) {
+                return previousUsers + (int) Math.round(
+                        (stage.users() - previousUsers) * (double) remaining / stageMillis);
+            }
+            remaining -= stageMillis;
+            previousUsers = stage.users();
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(", ", stages.stream()
+                .map(stage -> stage.users() + " users over " + stage.duration().toSeconds() + " s")
+                .toList());
+    }
+}
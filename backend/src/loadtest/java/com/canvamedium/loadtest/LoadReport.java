@@ -0,0 +1,162 @@
+package com.canvamedium.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of a load test run, per request type (e.g. {@code feed} or
+ * {@code draft-publish}), recorded in HdrHistograms with microsecond resolution.
+ * <p>
+ * The report is printed as a table and written as JSON, so that runs can be compared.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private final ConcurrentMap<String, RequestStats> requests = new ConcurrentHashMap<>();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * Start measuring, discarding everything recorded so far.
+     */
+    void start() {
+        requests.clear();
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    /**
+     * Stop measuring; the throughput is computed over the time since {@link #start()}.
+     */
+    void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Record a completed request.
+     *
+     * @param request      The request type
+     * @param latencyNanos The time to the last byte of the response
+     * @param status       The HTTP status, or 0 if the request failed without a response
+     */
+    void record(String request, long latencyNanos, int status) {
+        RequestStats stats = requests.computeIfAbsent(request, name -> new RequestStats());
+        if (status >= 200 && status < 400) {
+            stats.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        } else {
+            stats.errors.computeIfAbsent(status, code -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * @return The number of successful requests so far
+     */
+    long successes() {
+        return requests.values().stream().mapToLong(stats -> stats.latencies.getTotalCount()).sum();
+    }
+
+    /**
+     * @return The number of failed requests so far
+     */
+    long errors() {
+        return requests.values().stream().mapToLong(RequestStats::errorCount).sum();
+    }
+
+    /**
+     * Print one line per request type, and the total.
+     *
+     * @param out The stream to print to
+     */
+    void print(PrintStream out) {
+        double seconds = elapsedSeconds();
+        out.printf("%-14s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "request", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<String, RequestStats> entry : new TreeMap<>(requests).entrySet()) {
+            Histogram latencies = entry.getValue().latencies.copy();
+            total.add(latencies);
+            totalErrors += entry.getValue().errorCount();
+            print(out, entry.getKey(), latencies, entry.getValue().errorCount(), seconds);
+        }
+        print(out, "total", total, totalErrors, seconds);
+    }
+
+    private static void print(PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+        out.printf("%-14s %9d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, latencies.getTotalCount(), errors,
+                latencies.getTotalCount() / seconds, millis(latencies, 50), millis(latencies, 95),
+                millis(latencies, 99), millis(latencies, 99.9), latencies.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Write the report as JSON: the duration and, per request type, the count, the errors by
+     * status, the throughput and the latency percentiles in milliseconds.
+     *
+     * @param file         The file to write
+     * @param objectMapper The object mapper
+     * @param settings     The settings of the run, included as they are
+     * @throws IOException if the file cannot be written
+     */
+    void writeJson(Path file, ObjectMapper objectMapper, Map<String, Object> settings) throws IOException {
+        double seconds = elapsedSeconds();
+        ObjectNode report = objectMapper.createObjectNode();
+        report.set("settings", objectMapper.valueToTree(settings));
+        report.put("durationSeconds", seconds);
+        ArrayNode requestsNode = report.putArray("requests");
+        new TreeMap<>(requests).forEach((name, stats) -> {
+            Histogram latencies = stats.latencies.copy();
+            ObjectNode node = requestsNode.addObject();
+            node.put("name", name);
+            node.put("count", latencies.getTotalCount());
+            node.put("throughput", latencies.getTotalCount() / seconds);
+            ObjectNode errors = node.putObject("errors");
+            new TreeMap<>(stats.errors).forEach((status, count) -> errors.put(String.valueOf(status), count.sum()));
+            ObjectNode latency = node.putObject("latencyMs");
+            latency.put("mean", latencies.getMean() / 1000.0);
+            for (double percentile : PERCENTILES) {
+                latency.put("p" + (percentile % 1 == 0 ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                        millis(latencies, percentile));
+            }
+            latency.put("max", latencies.getMaxValue() / 1000.0);
+        });
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    }
+
+    private double elapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return Math.max(1, end - startNanos) / 1e9;
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Latencies of successful requests and counts of failed ones, by status.
+     */
+    private static final class RequestStats {
+
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        private final ConcurrentMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private long errorCount() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+}
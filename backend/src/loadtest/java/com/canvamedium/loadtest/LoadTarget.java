@@ -0,0 +1,98 @@
+package com.canvamedium.loadtest;
+
+import com.canvamedium.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The instance under load and its database.
+ * <p>
+ * Without {@code loadtest.base-url} the application is started in this JVM on a random port,
+ * on the PostgreSQL database at {@code loadtest.jdbc.url} (migrated by Flyway) or, if none is
+ * given, on the in-memory H2 database of the test profile. Rate limiting is turned off so
+ * that the limits do not shape the traffic.
+ * <p>
+ * With {@code loadtest.base-url} the requests go to that running instance, and seed data can
+ * only be written if its database is given as {@code loadtest.jdbc.url}.
+ */
+final class LoadTarget implements AutoCloseable {
+
+    private final String baseUrl;
+    private final DataSource dataSource;
+    private final ConfigurableApplicationContext context;
+
+    private LoadTarget(String baseUrl, DataSource dataSource, ConfigurableApplicationContext context) {
+        this.baseUrl = baseUrl;
+        this.dataSource = dataSource;
+        this.context = context;
+    }
+
+    /**
+     * Start or connect to the instance configured by the system properties.
+     *
+     * @return The target
+     */
+    static LoadTarget fromSystemProperties() {
+        String baseUrl = System.getProperty("loadtest.base-url", "");
+        String jdbcUrl = System.getProperty("loadtest.jdbc.url", "");
+        String username = System.getProperty("loadtest.jdbc.username", "postgres");
+        String password = System.getProperty("loadtest.jdbc.password", "postgres");
+
+        if (!baseUrl.isEmpty()) {
+            DataSource dataSource = jdbcUrl.isEmpty() ? null : new DriverManagerDataSource(jdbcUrl, username, password);
+            return new LoadTarget(baseUrl, dataSource, null);
+        }
+
+        // As arguments, so that they take precedence over the profile's properties
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--app.rate-limit.enabled=false",
+                "--media.upload.path=target/load-test/media",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.canvamedium=INFO",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.org.apache.catalina.loader.WebappClassLoaderBase=ERROR"));
+        SpringApplicationBuilder application = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.SERVLET);
+        if (jdbcUrl.isEmpty()) {
+            // The H2 console servlet makes the security configuration's path matchers ambiguous
+            arguments.add("--spring.h2.console.enabled=false");
+            application.profiles("test");
+        } else {
+            arguments.add("--spring.datasource.url=" + jdbcUrl);
+            arguments.add("--spring.datasource.username=" + username);
+            arguments.add("--spring.datasource.password=" + password);
+        }
+        ConfigurableApplicationContext context = application.run(arguments.toArray(String[]::new));
+        String port = context.getEnvironment().getProperty("local.server.port");
+        return new LoadTarget("http://localhost:" + port, context.getBean(DataSource.class), context);
+    }
+
+    /**
+     * @return The base URL of the instance, without a trailing slash
+     */
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return The database of the instance, or null if it is not known
+     */
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+}
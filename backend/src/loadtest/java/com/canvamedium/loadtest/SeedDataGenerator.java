@@ -0,0 +1,240 @@
+package com.canvamedium.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes articles for a load test straight to the database, in JDBC batches, so that seeding
+ * a million articles takes minutes rather than hours through the API.
+ * <p>
+ * Titles, preview texts and content are made of words from a fixed vocabulary, which
+ * {@link #vocabulary()} returns for search terms. Nine in ten articles are published, one in
+ * a hundred is featured, creation dates are spread over the last year, and each article has
+ * one of {@value #CATEGORIES} categories and two of {@value #TAGS} tags. Categories and tags
+ * are created once and reused by later runs against the same database.
+ */
+final class SeedDataGenerator {
+
+    private static final int CATEGORIES = 10;
+    private static final int TAGS = 50;
+    private static final int VOCABULARY_SIZE = 2_000;
+    private static final int WORDS_PER_BLOCK = 30;
+    private static final int BATCH_SIZE = 500;
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "te", "vo", "zi", "pa", "do", "fe", "gu", "ha", "ji", "be"};
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final List<String> vocabulary;
+    private final Random random;
+
+    /**
+     * Create a generator.
+     *
+     * @param dataSource   The database of the instance under load
+     * @param objectMapper The object mapper for the content documents
+     * @param seed         The seed of the random content
+     */
+    SeedDataGenerator(DataSource dataSource, ObjectMapper objectMapper, long seed) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.vocabulary = vocabulary(VOCABULARY_SIZE);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * The words the seeded texts are made of. The same for every run, so that search terms
+     * also match articles seeded by earlier runs.
+     *
+     * @return The words
+     */
+    List<String> vocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Insert articles.
+     *
+     * @param articles         The number of articles to insert
+     * @param blocksPerArticle The number of text blocks in each article's content
+     * @throws SQLException if the articles cannot be written
+     */
+    void seed(int articles, int blocksPerArticle) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            List<Long> categories = ensureRows(connection, "categories", CATEGORIES);
+            List<Long> tags = ensureRows(connection, "tags", TAGS);
+            String json = connection.getMetaData().getDatabaseProductName().equals("H2") ? "? FORMAT JSON" : "CAST(? AS jsonb)";
+            String insertArticle = "INSERT INTO article (title, content, preview_text, status, featured, published_at, "
+                    + "created_at, updated_at, version) VALUES (?, " + json + ", ?, ?, ?, ?, ?, ?, 0)";
+
+            LocalDateTime now = LocalDateTime.now();
+            long started = System.nanoTime();
+            try (PreparedStatement articleInsert = connection.prepareStatement(insertArticle, new String[] {"id"});
+                 PreparedStatement categoryInsert = connection.prepareStatement(
+                         "INSERT INTO article_categories (article_id, category_id) VALUES (?, ?)");
+                 PreparedStatement tagInsert = connection.prepareStatement(
+                         "INSERT INTO article_tags (article_id, tag_id) VALUES (?, ?)")) {
+                for (int done = 0; done < articles; done += BATCH_SIZE) {
+                    int batch = Math.min(BATCH_SIZE, articles - done);
+                    for (int i = 0; i < batch; i++) {
+                        boolean published = random.nextInt(10) != 0;
+                        LocalDateTime created = now.minusMinutes(random.nextInt(365 * 24 * 60));
+                        articleInsert.setString(1, words(random, 4 + random.nextInt(5)));
+                        articleInsert.setString(2, content(random, blocksPerArticle).toString());
+                        articleInsert.setString(3, words(random, 20));
+                        articleInsert.setString(4, published ? "PUBLISHED" : "DRAFT");
+                        articleInsert.setBoolean(5, published && random.nextInt(100) == 0);
+                        articleInsert.setTimestamp(6, published ? Timestamp.valueOf(created.plusHours(1)) : null);
+                        articleInsert.setTimestamp(7, Timestamp.valueOf(created));
+                        articleInsert.setTimestamp(8, Timestamp.valueOf(created.plusHours(1)));
+                        articleInsert.addBatch();
+                    }
+                    articleInsert.executeBatch();
+                    try (ResultSet keys = articleInsert.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            long id = keys.getLong(1);
+                            addPair(categoryInsert, id, categories.get(random.nextInt(CATEGORIES)));
+                            int firstTag = random.nextInt(TAGS);
+                            addPair(tagInsert, id, tags.get(firstTag));
+                            addPair(tagInsert, id, tags.get((firstTag + 1 + random.nextInt(TAGS - 1)) % TAGS));
+                        }
+                    }
+                    categoryInsert.executeBatch();
+                    tagInsert.executeBatch();
+                    connection.commit();
+                    if ((done / BATCH_SIZE) % 200 == 199) {
+                        System.out.printf("Seeded %d of %d articles%n", done + batch, articles);
+                    }
+                }
+            }
+            System.out.printf("Seeded %d articles in %.1f s%n", articles, (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    /**
+     * Get the ids of all published articles, in id order.
+     *
+     * @return The ids
+     * @throws SQLException if the ids cannot be read
+     */
+    long[] publishedArticleIds() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id FROM article WHERE status = 'PUBLISHED' ORDER BY id")) {
+            statement.setFetchSize(10_000);
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    ids.add(rows.getLong(1));
+                }
+            }
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * Create a content document in the format of the templates.
+     *
+     * @param random The source of the words
+     * @param blocks The number of text blocks
+     * @return The document
+     */
+    ObjectNode content(Random random, int blocks) {
+        ObjectNode content = objectMapper.createObjectNode();
+        content.put("type", "container");
+        ArrayNode elements = content.putArray("elements");
+        for (int i = 0; i < blocks; i++) {
+            ObjectNode block = elements.addObject();
+            block.put("id", "block-" + i);
+            block.put("type", i == 0 ? "HEADER" : "TEXT");
+            block.put("align", "left");
+            block.put("text", words(random, i == 0 ? 6 : WORDS_PER_BLOCK));
+        }
+        return content;
+    }
+
+    /**
+     * Pick words from the vocabulary.
+     *
+     * @param random The source of the words
+     * @param count  The number of words
+     * @return The words, separated by spaces
+     */
+    String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            words.append(i > 0 ? " " : "").append(vocabulary.get(random.nextInt(vocabulary.size())));
+        }
+        return words.toString();
+    }
+
+    /**
+     * Find or create the categories or tags named {@code loadtest-<table>-<n>}.
+     */
+    private List<Long> ensureRows(Connection connection, String table, int count) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id FROM " + table + " WHERE slug = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                     + " (name, slug, created_at, updated_at) VALUES (?, ?, ?, ?)", new String[] {"id"})) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < count; i++) {
+                String slug = "loadtest-" + table + "-" + i;
+                select.setString(1, slug);
+                try (ResultSet existing = select.executeQuery()) {
+                    if (existing.next()) {
+                        ids.add(existing.getLong(1));
+                        continue;
+                    }
+                }
+                insert.setString(1, "Load test " + table + " " + i);
+                insert.setString(2, slug);
+                insert.setTimestamp(3, now);
+                insert.setTimestamp(4, now);
+                insert.executeUpdate();
+                try (ResultSet key = insert.getGeneratedKeys()) {
+                    key.next();
+                    ids.add(key.getLong(1));
+                }
+            }
+        }
+        connection.commit();
+        return ids;
+    }
+
+    private static void addPair(PreparedStatement statement, long articleId, long otherId) throws SQLException {
+        statement.setLong(1, articleId);
+        statement.setLong(2, otherId);
+        statement.addBatch();
+    }
+
+    /**
+     * Make pronounceable words of two to four syllables, the same for every call.
+     */
+    private static List<String> vocabulary(int size) {
+        Random random = new Random(0);
+        List<String> words = new ArrayList<>(size);
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            if (!words.contains(word.toString())) {
+                words.add(word.toString());
+            }
+        }
+        return words;
+    }
+}
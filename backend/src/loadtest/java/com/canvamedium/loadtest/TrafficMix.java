@@ -0,0 +1,133 @@
+package com.canvamedium.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * The share of each scenario in the traffic. The default mix is read-heavy, like the
+ * production traffic: mostly feed pages and article reads, some searches, and a few logins,
+ * editing sessions and uploads. It can be changed with weights such as
+ * {@code feed:50,read:30,search:20}; scenarios that are not listed are left out.
+ */
+final class TrafficMix {
+
+    /**
+     * What a virtual user does in one iteration.
+     */
+    enum Scenario {
+
+        /** Page through the feed of published articles, mostly its first pages. */
+        FEED(40, VirtualUser::browseFeed),
+        /** Open an article, mostly one of the recent ones. */
+        READ(30, VirtualUser::readArticle),
+        /** Search published articles for a word. */
+        SEARCH(12, VirtualUser::search),
+        /** Log in and refresh the token. */
+        AUTH(5, VirtualUser::logInAndRefresh),
+        /** Create a draft, update it and publish it. */
+        DRAFTS(8, VirtualUser::editDraft),
+        /** Upload an image with a thumbnail. */
+        UPLOAD(5, VirtualUser::uploadImage);
+
+        private final int defaultWeight;
+        private final Action action;
+
+        Scenario(int defaultWeight, Action action) {
+            this.defaultWeight = defaultWeight;
+            this.action = action;
+        }
+
+        /**
+         * Run one iteration of the scenario.
+         *
+         * @param user The virtual user running it
+         * @throws Exception if a request cannot be sent
+         */
+        void run(VirtualUser user) throws Exception {
+            action.run(user);
+        }
+    }
+
+    /**
+     * The requests of a scenario.
+     */
+    @FunctionalInterface
+    interface Action {
+
+        void run(VirtualUser user) throws Exception;
+    }
+
+    private final Scenario[] scenarios;
+    private final int[] cumulativeWeights;
+
+    private TrafficMix(Map<Scenario, Integer> weights) {
+        this.scenarios = weights.keySet().toArray(Scenario[]::new);
+        this.cumulativeWeights = new int[scenarios.length];
+        int total = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            total += weights.get(scenarios[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The traffic mix has no weights");
+        }
+    }
+
+    /**
+     * Parse a mix such as {@code feed:50,read:30,search:20}, or get the default mix for an
+     * empty specification.
+     *
+     * @param specification The comma-separated weights per scenario
+     * @return The mix
+     * @throws IllegalArgumentException if a scenario is unknown or a weight is not a number
+     */
+    static TrafficMix parse(String specification) {
+        Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+        if (specification.isBlank()) {
+            for (Scenario scenario : Scenario.values()) {
+                weights.put(scenario, scenario.defaultWeight);
+            }
+        } else {
+            for (String entry : specification.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Weight must be scenario:weight: " + entry);
+                }
+                weights.put(Scenario.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        return new TrafficMix(weights);
+    }
+
+    /**
+     * Pick a scenario according to the weights.
+     *
+     * @param random The source of randomness
+     * @return The scenario
+     */
+    Scenario next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < scenarios.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return scenarios[i];
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(scenarios)
+                .map(scenario -> scenario.name().toLowerCase(Locale.ROOT) + ":" + weight(scenario))
+                .collect(Collectors.joining(","));
+    }
+
+    private int weight(Scenario scenario) {
+        int index = Arrays.asList(scenarios).indexOf(scenario);
+        return cumulativeWeights[index] - (index > 0 ? cumulativeWeights[index - 1] : 0);
+    }
+}
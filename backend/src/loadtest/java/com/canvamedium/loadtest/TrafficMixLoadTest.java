@@ -0,0 +1,221 @@
+package com.canvamedium.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test with the traffic mix of production: feed paging, article reads,
+ * search, login and token refresh, draft editing and publishing, and image uploads.
+ * <p>
+ * Runs with the {@code load-test} profile, which only runs this test:
+ * <pre>
+ * mvn -Pload-test verify \
+ *     -Dloadtest.articles=100000 -Dloadtest.stages=50@30s,200@1m,200@5m [-Dloadtest.mix=feed:60,read:40]
+ * </pre>
+ * By default it starts the application in the same JVM on H2 (see {@link LoadTarget} for
+ * PostgreSQL or a running instance), seeds {@code loadtest.articles} articles, ramps the
+ * virtual users through {@code loadtest.stages} (see {@link LoadProfile}), and reports
+ * throughput and latency percentiles per request type, on the console and as JSON in
+ * {@code loadtest.report}. The test fails if more than {@code loadtest.max-error-ratio} of the
+ * requests failed.
+ * <p>
+ * The in-memory H2 database holds around 100,000 articles in the default heap; seed a
+ * million against PostgreSQL ({@code -Dloadtest.jdbc.url=...}). Seeding is additive, so
+ * later runs against the same database can use {@code -Dloadtest.articles=0}.
+ */
+public class TrafficMixLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void trafficMix() throws Exception {
+        int articles = Integer.getInteger("loadtest.articles", 10_000);
+        int blocksPerArticle = Integer.getInteger("loadtest.blocks", 4);
+        int accountCount = Integer.getInteger("loadtest.accounts", 20);
+        LoadProfile profile = LoadProfile.parse(System.getProperty("loadtest.stages", "10@10s,50@20s,50@1m"));
+        TrafficMix mix = TrafficMix.parse(System.getProperty("loadtest.mix", ""));
+        Duration thinkTime = Duration.ofMillis(Long.getLong("loadtest.think-time-ms", 0));
+        double maxErrorRatio = Double.parseDouble(System.getProperty("loadtest.max-error-ratio", "0.01"));
+        Path reportFile = Path.of(System.getProperty("loadtest.report", "target/load-test/report.json"));
+
+        try (LoadTarget target = LoadTarget.fromSystemProperties()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            SeedDataGenerator seedData = new SeedDataGenerator(target.dataSource(), objectMapper,
+                    Long.getLong("loadtest.seed", 42));
+            List<String> accounts = registerAccounts(client, target.baseUrl(), accountCount);
+            long[] publishedIds;
+            if (target.dataSource() != null) {
+                if (articles > 0) {
+                    seedData.seed(articles, blocksPerArticle);
+                }
+                publishedIds = seedData.publishedArticleIds();
+            } else {
+                publishedIds = publishedIdsFromApi(client, target.baseUrl(), accounts.get(0));
+            }
+
+            LoadReport report = new LoadReport();
+            VirtualUser.Workload workload = new VirtualUser.Workload(target.baseUrl(), client, objectMapper, report, mix,
+                    publishedIds, seedData, images(), accounts, PASSWORD, thinkTime);
+            System.out.printf("Load test against %s with %d published articles: %s; mix %s%n",
+                    target.baseUrl(), publishedIds.length, profile, mix);
+            run(workload, profile, report);
+
+            report.print(System.out);
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("baseUrl", target.baseUrl());
+            settings.put("publishedArticles", publishedIds.length);
+            settings.put("stages", System.getProperty("loadtest.stages", "10@10s,50@20s,50@1m"));
+            settings.put("mix", mix.toString());
+            settings.put("thinkTimeMs", thinkTime.toMillis());
+            report.writeJson(reportFile, objectMapper, settings);
+            System.out.println("Report written to " + reportFile.toAbsolutePath());
+
+            long requests = report.successes() + report.errors();
+            assertTrue(requests > 0, "No requests were sent");
+            assertTrue(report.errors() <= requests * maxErrorRatio,
+                    report.errors() + " of " + requests + " requests failed");
+        }
+    }
+
+    /**
+     * Start and stop virtual users to follow the profile, printing the progress every ten
+     * seconds, then wait for the last scenarios to finish.
+     */
+    private void run(VirtualUser.Workload workload, LoadProfile profile, LoadReport report) throws InterruptedException {
+        List<VirtualUser> users = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        report.start();
+        long start = System.nanoTime();
+        long nextProgress = 10;
+        while (true) {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            if (elapsed.compareTo(profile.duration()) >= 0) {
+                break;
+            }
+            int target = profile.usersAt(elapsed);
+            while (users.size() < target) {
+                VirtualUser user = new VirtualUser(workload, users.size());
+                Thread thread = new Thread(user, "load-test-user-" + users.size());
+                thread.setDaemon(true);
+                thread.start();
+                users.add(user);
+                threads.add(thread);
+            }
+            while (users.size() > target) {
+                users.remove(users.size() - 1).stop();
+            }
+            if (elapsed.toSeconds() >= nextProgress) {
+                System.out.printf("%4d s: %4d users, %d requests, %d errors%n",
+                        elapsed.toSeconds(), users.size(), report.successes(), report.errors());
+                nextProgress += 10;
+            }
+            Thread.sleep(100);
+        }
+        users.forEach(VirtualUser::stop);
+        for (Thread thread : threads) {
+            thread.join(Duration.ofSeconds(60).toMillis());
+        }
+        report.stop();
+    }
+
+    /**
+     * Register the load test accounts, unless they exist from an earlier run.
+     */
+    private List<String> registerAccounts(HttpClient client, String baseUrl, int count) throws Exception {
+        List<String> accounts = IntStream.range(0, count).mapToObj(i -> "loadtest" + i).toList();
+        for (String username : accounts) {
+            String body = objectMapper.createObjectNode()
+                    .put("username", username)
+                    .put("email", username + "@loadtest.example.com")
+                    .put("password", PASSWORD)
+                    .put("fullName", "Load Test " + username)
+                    .toString();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(response.statusCode() == 201 || response.statusCode() == 409,
+                    "Registration of " + username + " failed: " + response.body());
+        }
+        return accounts;
+    }
+
+    /**
+     * Collect the ids of the newest published articles through the API, for a running
+     * instance whose database is not known.
+     */
+    private long[] publishedIdsFromApi(HttpClient client, String baseUrl, String username) throws Exception {
+        String credentials = objectMapper.createObjectNode()
+                .put("username", username)
+                .put("password", PASSWORD)
+                .toString();
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode(), "Login failed: " + login.body());
+        String authorization = "Bearer " + objectMapper.readTree(login.body()).get("token").asText();
+
+        List<Long> ids = new ArrayList<>();
+        for (int page = 0; page < 50; page++) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/api/articles/search?status=PUBLISHED&sortBy=createdAt&size=100&page=" + page))
+                    .header("Authorization", authorization)
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode articles = objectMapper.readTree(response.body()).path("articles");
+            articles.forEach(article -> ids.add(article.get("id").asLong()));
+            if (articles.size() < 100) {
+                break;
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Create a few photo-sized PNG images with enough detail not to compress away.
+     */
+    private static List<byte[]> images() throws Exception {
+        Random random = new Random(7);
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            BufferedImage image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            for (int shape = 0; shape < 400; shape++) {
+                graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                graphics.fillOval(random.nextInt(1024), random.nextInt(768), 20 + random.nextInt(200), 20 + random.nextInt(200));
+            }
+            graphics.dispose();
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            images.add(png.toByteArray());
+        }
+        return images;
+    }
+}
@@ -0,0 +1,225 @@
+package com.canvamedium.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One simulated client: logs in with one of the load test accounts and then runs scenarios
+ * of the {@link TrafficMix} back to back (closed loop), with an optional think time between
+ * them, until it is stopped. Each request is timed to the last byte of the response and
+ * recorded in the {@link LoadReport} under its request type.
+ */
+final class VirtualUser implements Runnable {
+
+    private static final int PAGE_SIZE = 20;
+    private static final String BOUNDARY = "----canvamedium-load-test";
+
+    /**
+     * What the virtual users share.
+     *
+     * @param baseUrl       The base URL of the instance under load
+     * @param client        The HTTP client
+     * @param objectMapper  The object mapper for request and response bodies
+     * @param report        Where requests are recorded
+     * @param mix           The traffic mix
+     * @param publishedIds  The ids of the published articles, in ascending order
+     * @param seedData      The generator of texts and of content documents
+     * @param images        The images to upload
+     * @param accounts      The user names of the load test accounts
+     * @param password      The password of the accounts
+     * @param thinkTime     The pause between two scenarios
+     */
+    record Workload(String baseUrl, HttpClient client, ObjectMapper objectMapper, LoadReport report, TrafficMix mix,
+                    long[] publishedIds, SeedDataGenerator seedData, List<byte[]> images, List<String> accounts,
+                    String password, Duration thinkTime) {
+    }
+
+    private final Workload workload;
+    private final String username;
+    private final Random random;
+    private volatile boolean stopped;
+    private String token;
+    private String refreshToken;
+
+    /**
+     * Create a virtual user.
+     *
+     * @param workload The shared workload
+     * @param number   The number of the user, which picks its account and random seed
+     */
+    VirtualUser(Workload workload, int number) {
+        this.workload = workload;
+        this.username = workload.accounts().get(number % workload.accounts().size());
+        this.random = new Random(number);
+    }
+
+    /**
+     * Let the user finish its current scenario and end.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            try {
+                if (token == null) {
+                    logIn(null);
+                }
+                workload.mix().next(random).run(this);
+                if (!workload.thinkTime().isZero()) {
+                    Thread.sleep(workload.thinkTime().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Recorded as a failed request; go on with the next scenario
+            }
+        }
+    }
+
+    void browseFeed() throws Exception {
+        int pages = Math.max(1, workload.publishedIds().length / PAGE_SIZE);
+        // Most readers stay on the first pages, a few scroll far down
+        int page = random.nextInt(10) == 0
+                ? random.nextInt(pages)
+                : Math.min(pages - 1, (int) (-Math.log(1 - random.nextDouble()) * 2));
+        send("feed", get("/api/articles/published?page=" + page + "&size=" + PAGE_SIZE));
+    }
+
+    void readArticle() throws Exception {
+        long[] ids = workload.publishedIds();
+        if (ids.length == 0) {
+            return;
+        }
+        // Skewed towards the most recent articles
+        int index = ids.length - 1 - (int) (ids.length * Math.pow(random.nextDouble(), 3));
+        send("read", get("/api/articles/" + ids[Math.max(0, index)]));
+    }
+
+    void search() throws Exception {
+        List<String> vocabulary = workload.seedData().vocabulary();
+        String query = vocabulary.get(random.nextInt(vocabulary.size()));
+        send("search", get("/api/articles/search?query=" + query + "&status=PUBLISHED&size=10"));
+    }
+
+    void logInAndRefresh() throws Exception {
+        logIn("login");
+        ObjectNode body = workload.objectMapper().createObjectNode().put("refreshToken", refreshToken);
+        JsonNode tokens = json(send("refresh", post("/api/auth/refresh", body)));
+        if (tokens != null) {
+            readTokens(tokens);
+        }
+    }
+
+    void editDraft() throws Exception {
+        SeedDataGenerator seedData = workload.seedData();
+        ObjectNode draft = workload.objectMapper().createObjectNode();
+        draft.put("title", seedData.words(random, 6));
+        draft.put("previewText", seedData.words(random, 20));
+        draft.set("content", seedData.content(random, 4));
+        JsonNode created = json(send("draft-create", post("/api/articles/drafts", draft)));
+        if (created == null) {
+            return;
+        }
+        long id = created.get("id").asLong();
+        draft.put("title", seedData.words(random, 6));
+        draft.set("content", seedData.content(random, 6));
+        if (send("draft-update", authorized("/api/articles/" + id)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(draft.toString()))) != null) {
+            send("draft-publish", authorized("/api/articles/" + id + "/publish")
+                    .PUT(HttpRequest.BodyPublishers.noBody()));
+        }
+    }
+
+    void uploadImage() throws Exception {
+        byte[] image = workload.images().get(random.nextInt(workload.images().size()));
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 256);
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load-test.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(image);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        send("upload", authorized("/api/media/upload-with-thumbnail")
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())));
+    }
+
+    /**
+     * Log in and keep the tokens.
+     *
+     * @param request The request type to record the login under, or null to not record it
+     */
+    private void logIn(String request) throws Exception {
+        ObjectNode credentials = workload.objectMapper().createObjectNode()
+                .put("username", username)
+                .put("password", workload.password());
+        HttpRequest.Builder login = HttpRequest.newBuilder(URI.create(workload.baseUrl() + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials.toString()));
+        HttpResponse<String> response = request != null
+                ? send(request, login)
+                : workload.client().send(login.build(), HttpResponse.BodyHandlers.ofString());
+        if (response == null || response.statusCode() != 200) {
+            throw new IOException("Login of " + username + " failed");
+        }
+        readTokens(workload.objectMapper().readTree(response.body()));
+    }
+
+    private void readTokens(JsonNode tokens) {
+        token = (tokens.has("accessToken") ? tokens.get("accessToken") : tokens.get("token")).asText();
+        refreshToken = tokens.get("refreshToken").asText();
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return authorized(path).GET();
+    }
+
+    private HttpRequest.Builder post(String path, JsonNode body) {
+        return authorized(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(URI.create(workload.baseUrl() + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * Send a request and record its latency and status.
+     *
+     * @return The response if it was successful, otherwise null
+     */
+    private HttpResponse<String> send(String request, HttpRequest.Builder builder) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = workload.client().send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            workload.report().record(request, System.nanoTime() - start, response.statusCode());
+            return response.statusCode() < 400 ? response : null;
+        } catch (IOException e) {
+            workload.report().record(request, System.nanoTime() - start, 0);
+            return null;
+        }
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws IOException {
+        return response != null ? workload.objectMapper().readTree(response.body()) : null;
+    }
+}
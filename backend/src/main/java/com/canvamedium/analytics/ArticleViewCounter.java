@@ -0,0 +1,200 @@
+package com.canvamedium.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts article views in memory and adds them to the article rows in batches, instead of
+ * writing to the database on every read.
+ * <p>
+ * Each article has a {@link LongAdder}, whose cells spread concurrent increments of a popular
+ * article over several cache lines. Every {@code app.views.flush-interval} the views counted
+ * since the last flush are added to {@code article.view_count} and {@code article.trending_score}
+ * with one JDBC batch; instances flush independently, as the updates only add. Counters that have
+ * seen no views for a while are dropped, which can lose the rare view that races with the drop.
+ * <p>
+ * The trending score decays views with a half-life of {@code app.views.half-life} without ever
+ * rewriting the scores of articles that are no longer read: a view at time t adds
+ * {@code 2^((t - epoch) / half-life)} to a sum kept as its log2, so newer views weigh
+ * exponentially more, the ranking by score is the ranking by decayed views at any time, and the
+ * column grows by only one per half-life. The sum of logs is updated with
+ * {@code log2(2^a + 2^b) = max(a, b) + log2(1 + 2^-|a - b|)}. Changing the half-life only
+ * affects later views.
+ * <p>
+ * Meters: {@code article.views.recorded}, {@code article.views.flushed},
+ * {@code article.views.flush} and {@code article.views.pending} (articles with counters).
+ */
+@Component
+public class ArticleViewCounter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleViewCounter.class);
+
+    /**
+     * The time trending scores are measured from.
+     */
+    static final LocalDateTime TRENDING_EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String FLUSH_SQL = "UPDATE article SET view_count = view_count + ?, "
+            + "trending_score = GREATEST(trending_score, ?) + LN(1 + EXP(-ABS(trending_score - ?) * LN(2))) / LN(2) "
+            + "WHERE id = ?";
+
+    /**
+     * Flushes without views after which the counter of an article is dropped.
+     */
+    private static final int IDLE_FLUSHES = 6;
+
+    private static final class ViewCount {
+        final LongAdder views = new LongAdder();
+        // Guarded by flush
+        long flushed;
+        int idleFlushes;
+    }
+
+    private record Flush(Long articleId, ViewCount count, long views) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration halfLife;
+    private final int batchSize;
+    private final Map<Long, ViewCount> counts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Counter recorded;
+    private final Counter flushedViews;
+    private final Timer flushTimer;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param jdbcTemplate  The template the batched updates are run with
+     * @param meterRegistry The registry for the view metrics
+     * @param flushInterval The interval between two flushes
+     * @param halfLife      The time after which a view counts half as much for the trending score
+     * @param batchSize     The most articles updated per JDBC batch
+     */
+    @Autowired
+    public ArticleViewCounter(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.views.flush-interval:10s}") Duration flushInterval,
+                              @Value("${app.views.half-life:24h}") Duration halfLife,
+                              @Value("${app.views.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.halfLife = halfLife;
+        this.batchSize = batchSize;
+        this.recorded = Counter.builder("article.views.recorded").register(meterRegistry);
+        this.flushedViews = Counter.builder("article.views.flushed").register(meterRegistry);
+        this.flushTimer = Timer.builder("article.views.flush")
+                .description("Time to write the counted views to the database")
+                .register(meterRegistry);
+        Gauge.builder("article.views.pending", counts, Map::size)
+                .description("Articles with an in-memory view counter")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "article-views-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count a view of an article.
+     *
+     * @param articleId The ID of the article
+     */
+    public void record(Long articleId) {
+        ViewCount count = counts.get(articleId);
+        if (count == null) {
+            count = counts.computeIfAbsent(articleId, id -> new ViewCount());
+        }
+        count.views.increment();
+        recorded.increment();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // The views stay counted and are written by the next flush
+            logger.error("Flushing article views failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Add the views counted since the last flush, as if they all happened at the given time.
+     *
+     * @param now The time of the views
+     */
+    synchronized void flush(LocalDateTime now) {
+        List<Flush> pending = new ArrayList<>();
+        Iterator<Map.Entry<Long, ViewCount>> entries = counts.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, ViewCount> entry = entries.next();
+            ViewCount count = entry.getValue();
+            long views = count.views.sum() - count.flushed;
+            if (views > 0) {
+                pending.add(new Flush(entry.getKey(), count, views));
+                count.idleFlushes = 0;
+            } else if (++count.idleFlushes >= IDLE_FLUSHES) {
+                entries.remove();
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        double halfLives = Duration.between(TRENDING_EPOCH, now).toMillis() / (double) halfLife.toMillis();
+        flushTimer.record(() -> {
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                List<Flush> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (statement, flush) -> {
+                    double score = halfLives + Math.log(flush.views()) / Math.log(2);
+                    statement.setLong(1, flush.views());
+                    statement.setDouble(2, score);
+                    statement.setDouble(3, score);
+                    statement.setLong(4, flush.articleId());
+                });
+                // Only counted as written once the batch has been
+                long written = 0;
+                for (Flush flush : batch) {
+                    flush.count().flushed += flush.views();
+                    written += flush.views();
+                }
+                flushedViews.increment(written);
+            }
+        });
+        logger.debug("Flushed the views of {} articles", pending.size());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        try {
+            flush(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            logger.warn("Flushing article views on shutdown failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.canvamedium.analytics;
+
+import com.canvamedium.event.ArticleEventListener;
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.RebuildProgress;
+import com.canvamedium.model.RelatedArticle;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.repository.RebuildProgressRepository;
+import com.canvamedium.repository.RelatedArticleRepository;
+import com.canvamedium.scheduling.LeaderElection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the precomputed lists of related articles up to date, so that reading the articles related
+ * to an article is a single index lookup of at most {@code app.related.neighbours} rows.
+ * <p>
+ * Two published articles are related if they share tags or categories, and ranked by the cosine
+ * similarity of their tag and category sets (see {@link RelatedArticleRepository#findSimilarArticles}).
+ * The lists are maintained incrementally from the {@link ArticleLifecycleEvent}s: a published
+ * article, or one whose tags or categories changed, gets its own list and is merged into the lists
+ * of up to {@code app.related.max-candidates} of its most similar articles where it ranks high
+ * enough; an unpublished, archived or deleted article loses its list and the lists it appeared in
+ * are recomputed. Each event is handled in one transaction and handling it again gives the same
+ * lists. Events are handled one at a time, as lists are shared between articles.
+ * <p>
+ * The lists are rebuilt from scratch by the one instance that takes the {@value #REBUILD_LEASE}
+ * lease when the application starts before a rebuild has completed, e.g. after the migration that
+ * added them. The rebuild records its progress in the {@link RebuildProgress} of the same name,
+ * so one interrupted by a restart resumes after the last article it rebuilt.
+ * <p>
+ * Meters: {@code articles.related.update} (time to handle an event) and
+ * {@code articles.related.lists} (lists rewritten).
+ */
+@Component
+public class RelatedArticleIndex implements ArticleEventListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedArticleIndex.class);
+
+    /**
+     * The lease held by the instance rebuilding the lists, and the name of the rebuild's progress.
+     */
+    static final String REBUILD_LEASE = "related-articles-rebuild";
+
+    private static final Duration REBUILD_LEASE_DURATION = Duration.ofHours(1);
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    /**
+     * The ranking of the lists: most similar first, then the newest article.
+     */
+    private static final Comparator<RelatedArticle> RANKING = Comparator
+            .comparingDouble(RelatedArticle::getScore).reversed()
+            .thenComparing(RelatedArticle::getRelatedId, Comparator.reverseOrder());
+
+    private final RelatedArticleRepository relatedArticleRepository;
+    private final ArticleRepository articleRepository;
+    private final RebuildProgressRepository rebuildProgressRepository;
+    private final LeaderElection leaderElection;
+    private final TransactionTemplate transaction;
+    private final int neighbours;
+    private final int maxCandidates;
+    private final boolean rebuildOnStart;
+    private final ExecutorService rebuilder;
+    private final Timer updateTimer;
+    private final Counter listsWritten;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param relatedArticleRepository  The repository of the related article lists
+     * @param articleRepository         The article repository
+     * @param rebuildProgressRepository The repository recording how far the rebuild has got
+     * @param leaderElection            Elects the instance that rebuilds the lists
+     * @param transactionManager        The transaction manager each update runs in
+     * @param meterRegistry             The registry for the index metrics
+     * @param neighbours                The length of the list of each article
+     * @param maxCandidates             The most similar articles whose lists a newly published article may join
+     * @param rebuildOnStart            Whether to build the lists when the application starts before a rebuild has completed
+     */
+    @Autowired
+    public RelatedArticleIndex(RelatedArticleRepository relatedArticleRepository,
+                               ArticleRepository articleRepository,
+                               RebuildProgressRepository rebuildProgressRepository,
+                               LeaderElection leaderElection,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.related.neighbours:10}") int neighbours,
+                               @Value("${app.related.max-candidates:100}") int maxCandidates,
+                               @Value("${app.related.rebuild-on-start:true}") boolean rebuildOnStart) {
+        this.relatedArticleRepository = relatedArticleRepository;
+        this.articleRepository = articleRepository;
+        this.rebuildProgressRepository = rebuildProgressRepository;
+        this.leaderElection = leaderElection;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.neighbours = neighbours;
+        this.maxCandidates = Math.max(maxCandidates, neighbours);
+        this.rebuildOnStart = rebuildOnStart;
+        this.updateTimer = Timer.builder("articles.related.update")
+                .description("Time to update the related article lists for an article event")
+                .register(meterRegistry);
+        this.listsWritten = Counter.builder("articles.related.lists")
+                .description("Related article lists rewritten")
+                .register(meterRegistry);
+
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "related-articles-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Build the lists in the background unless a rebuild has completed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (rebuildOnStart) {
+            rebuilder.execute(this::rebuildIfIncomplete);
+        }
+    }
+
+    /**
+     * Get the IDs of the articles related to an article.
+     *
+     * @param articleId The article ID
+     * @return The related article IDs, most similar first
+     */
+    public List<Long> getRelatedIds(Long articleId) {
+        return relatedArticleRepository.findRelatedIds(articleId);
+    }
+
+    @Override
+    public void onArticleEvent(ArticleLifecycleEvent event) {
+        switch (event.type()) {
+            case PUBLISHED, TAGS_CHANGED -> index(event.articleId());
+            case UNPUBLISHED, ARCHIVED, DELETED -> remove(event.articleId());
+            default -> {
+                // Featuring does not change what an article is related to
+            }
+        }
+    }
+
+    /**
+     * Compute the list of a published article and add it to the lists of the articles it ranks
+     * high enough for. Removes the article from all lists if it is not published (anymore).
+     *
+     * @param articleId The article ID
+     */
+    synchronized void index(Long articleId) {
+        updateTimer.record(() -> transaction.executeWithoutResult(status -> {
+            if (!articleRepository.existsByIdAndStatus(articleId, Status.PUBLISHED)) {
+                removeFromLists(articleId);
+                return;
+            }
+
+            List<RelatedArticle> similar = findSimilar(articleId, maxCandidates);
+            replaceList(articleId, similar.subList(0, Math.min(neighbours, similar.size())));
+
+            Map<Long, List<RelatedArticle>> lists = findLists(similar.stream().map(RelatedArticle::getRelatedId).toList());
+            Set<Long> listedFor = new HashSet<>(relatedArticleRepository.findArticleIdsByRelatedId(articleId));
+            for (RelatedArticle entry : similar) {
+                Long otherId = entry.getRelatedId();
+                List<RelatedArticle> current = lists.getOrDefault(otherId, List.of());
+                List<RelatedArticle> updated = new ArrayList<>(current);
+                updated.removeIf(other -> other.getRelatedId().equals(articleId));
+                updated.add(new RelatedArticle(otherId, articleId, entry.getScore()));
+                updated.sort(RANKING);
+                updated = updated.subList(0, Math.min(neighbours, updated.size()));
+
+                boolean listed = listedFor.remove(otherId);
+                if (updated.stream().anyMatch(other -> other.getRelatedId().equals(articleId))) {
+                    replaceList(otherId, updated);
+                } else if (listed) {
+                    // Dropped out with a lower score than before: the next best is not known here
+                    refreshList(otherId);
+                }
+            }
+            // Listed for articles it is no longer among the most similar to
+            for (Long otherId : listedFor) {
+                refreshList(otherId);
+            }
+        }));
+    }
+
+    /**
+     * Remove an article from all lists and recompute the lists it appeared in.
+     *
+     * @param articleId The article ID
+     */
+    synchronized void remove(Long articleId) {
+        updateTimer.record(() -> transaction.executeWithoutResult(status -> removeFromLists(articleId)));
+    }
+
+    /**
+     * Recompute the lists of all published articles, one transaction per article, resuming after
+     * the last article of an incomplete rebuild. The progress is recorded after each page.
+     */
+    void rebuild() {
+        long started = System.nanoTime();
+        RebuildProgress progress = rebuildProgressRepository.findById(REBUILD_LEASE)
+                .filter(recorded -> !recorded.isCompleted())
+                .orElseGet(() -> new RebuildProgress(REBUILD_LEASE));
+        Long resumedAfter = progress.getLastId();
+        int rebuilt = 0;
+        List<Long> ids;
+        while (!(ids = articleRepository.findPublishedIdsAfter(progress.getLastId(), PageRequest.of(0, REBUILD_PAGE_SIZE))).isEmpty()) {
+            for (Long id : ids) {
+                synchronized (this) {
+                    transaction.executeWithoutResult(status -> refreshList(id));
+                }
+            }
+            rebuilt += ids.size();
+            progress.advance(ids.get(ids.size() - 1));
+            progress = rebuildProgressRepository.save(progress);
+        }
+        progress.complete(LocalDateTime.now());
+        rebuildProgressRepository.save(progress);
+        logger.info("Rebuilt the related articles of {} published articles after ID {} in {} ms",
+                rebuilt, resumedAfter, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Rebuild the lists unless a rebuild has completed or another instance is rebuilding them.
+     */
+    void rebuildIfIncomplete() {
+        try {
+            if (isRebuilt() || !leaderElection.tryAcquire(REBUILD_LEASE, REBUILD_LEASE_DURATION)) {
+                return;
+            }
+            try {
+                // Another instance may have completed it before releasing the lease
+                if (!isRebuilt()) {
+                    rebuild();
+                }
+            } finally {
+                leaderElection.release(REBUILD_LEASE);
+            }
+        } catch (RuntimeException e) {
+            // The lists are still built up by the events
+            logger.error("Rebuilding the related articles failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isRebuilt() {
+        return rebuildProgressRepository.findById(REBUILD_LEASE).map(RebuildProgress::isCompleted).orElse(false);
+    }
+
+    private void removeFromLists(Long articleId) {
+        relatedArticleRepository.deleteByArticleId(articleId);
+        List<Long> listedFor = relatedArticleRepository.findArticleIdsByRelatedId(articleId);
+        relatedArticleRepository.deleteByRelatedId(articleId);
+        for (Long otherId : listedFor) {
+            refreshList(otherId);
+        }
+    }
+
+    private void refreshList(Long articleId) {
+        replaceList(articleId, findSimilar(articleId, neighbours));
+    }
+
+    private void replaceList(Long articleId, List<RelatedArticle> entries) {
+        relatedArticleRepository.deleteByArticleId(articleId);
+        relatedArticleRepository.saveAll(entries);
+        listsWritten.increment();
+    }
+
+    private List<RelatedArticle> findSimilar(Long articleId, int limit) {
+        List<RelatedArticle> similar = new ArrayList<>();
+        for (Object[] row : relatedArticleRepository.findSimilarArticles(articleId, limit)) {
+            similar.add(new RelatedArticle(articleId, ((Number) row[0]).longValue(), ((Number) row[1]).doubleValue()));
+        }
+        return similar;
+    }
+
+    private Map<Long, List<RelatedArticle>> findLists(List<Long> articleIds) {
+        Map<Long, List<RelatedArticle>> lists = new HashMap<>();
+        if (articleIds.isEmpty()) {
+            return lists;
+        }
+        for (Object[] row : relatedArticleRepository.findEntriesByArticleIdIn(articleIds)) {
+            RelatedArticle entry = new RelatedArticle((Long) row[0], (Long) row[1], (Double) row[2]);
+            lists.computeIfAbsent(entry.getArticleId(), id -> new ArrayList<>()).add(entry);
+        }
+        return lists;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        rebuilder.shutdownNow();
+        rebuilder.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,186 @@
+package com.canvamedium.cache;
+
+import com.canvamedium.event.ContentChangedEvent;
+import com.canvamedium.model.Article;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized published articles, so that a hot article is served as ready-made bytes
+ * instead of being loaded by Hibernate and written by Jackson on every read.
+ * <p>
+ * Entries are keyed by article ID and version. A version only ever describes one state of an
+ * article, so the caller looks up the version it read with the article's {@link
+ * com.canvamedium.model.Revision}. A change to a tag, category or template embedded in the
+ * article JSON leaves the version alone, so entries of an article are dropped when it changes,
+ * and all entries are dropped when a category, tag or template changes, as they are no longer
+ * current. Like {@link ResponseCache}, the cache counts changes
+ * in a generation: an article loaded before a change is not kept, as the entries may have been
+ * dropped for that change before the article was put. Entries also expire
+ * ({@code app.article-cache.ttl}), so that a missed invalidation does not last.
+ * <p>
+ * Bodies of at least {@link #GZIP_MIN_SIZE} bytes are also kept gzip-compressed, so
+ * clients that accept gzip are served without compressing on every request. The cache is
+ * bounded by the total size of the cached bytes ({@code app.article-cache.maximum-size}).
+ * Its hit ratio is published as the Micrometer {@code cache.*} meters with
+ * {@code cache=articles.serialized}.
+ */
+@Component
+public class PublishedArticleCache {
+    
+    public static final String NAME = "articles.serialized";
+    
+    /**
+     * Bodies smaller than this are not worth compressing (the same threshold as
+     * {@code server.compression.min-response-size}).
+     */
+    public static final int GZIP_MIN_SIZE = 2048;
+    
+    private final Cache<Key, SerializedArticle> articles;
+    private final AtomicLong generation = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param objectMapper  The object mapper used for HTTP responses
+     * @param meterRegistry The registry for the cache metrics
+     * @param maximumSize   The maximum total size of the cached bodies
+     * @param ttl           How long a body is kept after it was cached
+     */
+    @Autowired
+    public PublishedArticleCache(ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.article-cache.maximum-size:64MB}") DataSize maximumSize,
+                                 @Value("${app.article-cache.ttl:10m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.articles = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((Key key, SerializedArticle article) -> article.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, articles, NAME);
+    }
+    
+    /**
+     * Get the serialized form of an article version.
+     *
+     * @param id      The article ID
+     * @param version The article version
+     * @return The serialized article, or empty if that version is not cached
+     */
+    public Optional<SerializedArticle> get(Long id, Long version) {
+        if (id == null || version == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(articles.getIfPresent(new Key(id, version)));
+    }
+    
+    /**
+     * Get the current generation, to be passed to {@link #put} for an article loaded afterwards.
+     *
+     * @return The number of content changes seen so far
+     */
+    public long generation() {
+        return generation.get();
+    }
+    
+    /**
+     * Serialize an article and cache it if it is published and no content has changed since
+     * it was loaded. Lazy associations of the article must still be loadable.
+     *
+     * @param article    The article
+     * @param generation The {@link #generation()} from before the article was loaded
+     * @return The serialized article
+     */
+    public SerializedArticle put(Article article, long generation) {
+        SerializedArticle serialized = serialize(article);
+        if (article.getStatus() == Article.Status.PUBLISHED && article.getId() != null && article.getVersion() != null) {
+            Key key = new Key(article.getId(), article.getVersion());
+            articles.put(key, serialized);
+            // A change after the load may have been invalidated before the put: undo it
+            if (this.generation.get() != generation) {
+                articles.asMap().remove(key, serialized);
+            }
+        }
+        return serialized;
+    }
+    
+    /**
+     * Drop cached bodies once a change of published content has been committed.
+     *
+     * @param event The content change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (!event.published()) {
+            // Only published articles are cached
+            return;
+        }
+        generation.incrementAndGet();
+        if (event.entityType() != Article.class) {
+            articles.invalidateAll();
+        } else if (event.id() != null) {
+            articles.asMap().keySet().removeIf(key -> key.id().equals(event.id()));
+        }
+    }
+    
+    private SerializedArticle serialize(Article article) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(article);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+        }
+        byte[] gzip = json.length >= GZIP_MIN_SIZE ? gzip(json) : null;
+        return new SerializedArticle(json, gzip, article.getVersion(), article.getUpdatedAt());
+    }
+    
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * A serialized article and the validators of the version it was written from.
+     *
+     * @param json      The JSON body
+     * @param gzip      The gzip-compressed JSON body, or null if the body is too small to compress
+     * @param version   The article version
+     * @param updatedAt The article's last update time
+     */
+    public record SerializedArticle(byte[] json, byte[] gzip, Long version, LocalDateTime updatedAt) {
+        
+        int size() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+    
+    private record Key(Long id, Long version) {
+    }
+}
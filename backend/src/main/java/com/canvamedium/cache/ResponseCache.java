@@ -0,0 +1,171 @@
+package com.canvamedium.cache;
+
+import com.canvamedium.event.ContentChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Server-side cache for public responses that are the same for every user, such as the
+ * published article feed or the featured categories.
+ * <p>
+ * Responses are cached as serialized JSON, so a hit neither touches the database nor
+ * re-serializes entities, and cached data never holds on to detached Hibernate entities.
+ * Each region is a Caffeine cache with:
+ * <ul>
+ *     <li>a time-to-live ({@code app.response-cache.ttl}) and a bound on the total size of
+ *     the cached bodies ({@code app.response-cache.maximum-size}) per region;</li>
+ *     <li>request coalescing: concurrent misses for the same key wait for a single load
+ *     instead of each running the query;</li>
+ *     <li>invalidation on {@link ContentChangedEvent}, after the writing transaction has
+ *     committed.</li>
+ * </ul>
+ * The cached payloads embed each other (articles carry their categories and tags, categories
+ * and tags carry their articles), so every change of published content clears all regions;
+ * changes of articles that neither were nor are published (draft edits) are ignored. Loads
+ * that started before the change belong to an older generation and are never served afterwards.
+ * <p>
+ * Paged endpoints reject page sizes above {@link #MAX_PAGE_SIZE} with 400 instead of caching
+ * them, so that a client cannot fill a region with a few huge pages.
+ * <p>
+ * Hit/miss counts and evictions are published per region as the Micrometer {@code cache.*}
+ * meters, load times as the {@code response.cache.load} timer; all are tagged with
+ * {@code cache=<region>}.
+ */
+@Component
+public class ResponseCache {
+    
+    public static final String PUBLISHED_ARTICLES = "articles.published";
+    public static final String FEATURED_ARTICLES = "articles.featured";
+    public static final String FEATURED_CATEGORIES = "categories.featured";
+    public static final String TOP_LEVEL_CATEGORIES = "categories.top-level";
+    public static final String POPULAR_TAGS = "tags.popular";
+    
+    /**
+     * The largest page size of a cached paged response.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+    
+    private static final List<String> REGIONS = List.of(
+            PUBLISHED_ARTICLES, FEATURED_ARTICLES, FEATURED_CATEGORIES, TOP_LEVEL_CATEGORIES, POPULAR_TAGS);
+    
+    private final Map<String, Region> regions = new HashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param objectMapper       The object mapper used for HTTP responses
+     * @param transactionManager The transaction manager
+     * @param meterRegistry      The registry for the cache metrics
+     * @param ttl                How long a response is served from the cache
+     * @param maximumSize        The maximum total size of the cached bodies per region
+     */
+    @Autowired
+    public ResponseCache(ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.response-cache.ttl:30s}") Duration ttl,
+                         @Value("${app.response-cache.maximum-size:16MB}") DataSize maximumSize) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        
+        for (String region : REGIONS) {
+            Cache<Key, byte[]> cache = Caffeine.newBuilder()
+                    .expireAfterWrite(ttl)
+                    .maximumWeight(maximumSize.toBytes())
+                    .weigher((Key key, byte[] body) -> body.length)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, region);
+            
+            // CaffeineCacheMetrics only reports load times for loading caches
+            Timer loadTimer = Timer.builder("response.cache.load")
+                    .description("Time spent loading and serializing responses on cache misses")
+                    .tag("cache", region)
+                    .register(meterRegistry);
+            regions.put(region, new Region(cache, loadTimer));
+        }
+    }
+    
+    /**
+     * Get a cached JSON response, loading it on a miss.
+     *
+     * @param region   The cache region, one of the constants of this class
+     * @param loader   Produces the response body; runs in a read-only transaction
+     * @param keyParts The request parameters the response depends on
+     * @return ResponseEntity with status 200 and the serialized body
+     */
+    public ResponseEntity<byte[]> get(String region, Supplier<?> loader, Object... keyParts) {
+        Region cache = regions.get(region);
+        if (cache == null) {
+            throw new IllegalArgumentException("Unknown response cache region: " + region);
+        }
+        
+        byte[] body = cache.responses().get(new Key(generation.get(), List.of(keyParts)),
+                key -> cache.loadTimer().record(() -> load(loader)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
+    /**
+     * Drop all cached responses.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        regions.values().forEach(region -> region.responses().invalidateAll());
+    }
+    
+    /**
+     * Invalidate the cache once a change of published content has been committed. Changes
+     * made outside a transaction invalidate immediately.
+     *
+     * @param event The content change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.published()) {
+            invalidateAll();
+        }
+    }
+    
+    private byte[] load(Supplier<?> loader) {
+        // Serialize inside the transaction, so lazy associations are still loadable
+        return readOnlyTransaction.execute(status -> {
+            try {
+                return objectMapper.writeValueAsBytes(loader.get());
+            } catch (JsonProcessingException e) {
+                throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+            }
+        });
+    }
+    
+    private record Region(Cache<Key, byte[]> responses, Timer loadTimer) {
+    }
+    
+    private record Key(long generation, List<Object> parts) {
+    }
+}
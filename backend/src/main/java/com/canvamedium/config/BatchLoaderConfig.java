@@ -0,0 +1,44 @@
+package com.canvamedium.config;
+
+import com.canvamedium.model.Revision;
+import com.canvamedium.service.ArticleService;
+import com.canvamedium.util.BatchLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Batch loaders that merge concurrent single-entity lookups into one query.
+ */
+@Configuration
+public class BatchLoaderConfig {
+
+    /**
+     * Merges the revision lookups of concurrent {@code GET /api/articles/{id}} requests.
+     * Every such request starts with one, including those answered from the serialized
+     * article cache or with 304 Not Modified, so under load most single-article reads share
+     * an {@code id IN (...)} query instead of each running their own.
+     *
+     * @param articleService The article service
+     * @param window         How long a batch waits for more lookups
+     * @param maxBatchSize   The number of IDs after which a batch is loaded right away
+     * @param threads        The number of threads loading batches
+     * @param timeout        How long a request waits for its revision
+     * @param meterRegistry  The registry for the batch size metrics
+     * @return The revision loader
+     */
+    @Bean
+    public BatchLoader<Long, Revision> articleRevisionLoader(
+            ArticleService articleService,
+            @Value("${app.article-batch.window:2ms}") Duration window,
+            @Value("${app.article-batch.max-size:100}") int maxBatchSize,
+            @Value("${app.article-batch.threads:2}") int threads,
+            @Value("${app.article-batch.timeout:2s}") Duration timeout,
+            MeterRegistry meterRegistry) {
+        return new BatchLoader<>("article-revisions", articleService::getArticleRevisions,
+                window, maxBatchSize, threads, timeout, meterRegistry);
+    }
+}
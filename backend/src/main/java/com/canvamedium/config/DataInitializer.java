@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -83,8 +84,13 @@ public class DataInitializer implements CommandLineRunner {
             logger.info("Creating new template: {}", name);
             creationMethod.run();
         } else {
-            logger.info("Updating existing template: {}", name);
             Template template = existingTemplates.get(0);
+            if (Objects.equals(template.getDescription(), description)
+                    && Objects.equals(template.getThumbnailUrl(), thumbnailUrl)) {
+                // Leave version and updatedAt alone so cached copies stay valid across restarts
+                return;
+            }
+            logger.info("Updating existing template: {}", name);
             template.setDescription(description);
             template.setThumbnailUrl(thumbnailUrl);
             template.setUpdatedAt(LocalDateTime.now());
@@ -1,9 +1,16 @@
 package com.canvamedium.config;
 
+import com.canvamedium.security.BoundedPasswordEncoder;
 import com.canvamedium.security.JwtAuthorizationFilter;
 import com.canvamedium.security.JwtAuthenticationFilter;
+import com.canvamedium.security.RateLimitFilter;
+import com.canvamedium.security.SessionTokenFilter;
 import com.canvamedium.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -22,6 +29,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.util.Arrays;
 
@@ -34,20 +42,31 @@ import java.util.Arrays;
 public class SecurityConfig {
     
     private final UserService userService;
-    private final JwtAuthorizationFilter jwtAuthorizationFilter;
+    private final OncePerRequestFilter tokenFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final int managementPort;
     
     /**
      * Constructor with dependencies injection.
      *
-     * @param userService           The user service
-     * @param jwtAuthorizationFilter The JWT authorization filter
+     * @param userService            The user service
+     * @param jwtAuthorizationFilter The JWT authorization filter, unless opaque tokens are used
+     * @param sessionTokenFilter     The opaque token filter, if opaque tokens are used
+     * @param rateLimitFilter        The per-client rate limiting filter
+     * @param managementPort         The internal port of the actuator endpoints, or -1 to serve them on the API port
      */
     @Autowired
     public SecurityConfig(
             @Lazy UserService userService,
-            JwtAuthorizationFilter jwtAuthorizationFilter) {
+            ObjectProvider<JwtAuthorizationFilter> jwtAuthorizationFilter,
+            ObjectProvider<SessionTokenFilter> sessionTokenFilter,
+            RateLimitFilter rateLimitFilter,
+            @Value("${management.server.port:-1}") int managementPort) {
         this.userService = userService;
-        this.jwtAuthorizationFilter = jwtAuthorizationFilter;
+        SessionTokenFilter opaqueTokenFilter = sessionTokenFilter.getIfAvailable();
+        this.tokenFilter = opaqueTokenFilter != null ? opaqueTokenFilter : jwtAuthorizationFilter.getObject();
+        this.rateLimitFilter = rateLimitFilter;
+        this.managementPort = managementPort;
     }
     
     /**
@@ -63,17 +82,29 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(authorize -> authorize
+                // Async dispatches complete requests that were authorized when they came in
+                // (e.g. streamed article lists); the JWT filter does not run on them again
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
                 .requestMatchers("/dev-tools/**").permitAll() // Allow access to dev tools
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html", "/api-docs/**").permitAll()
                 .requestMatchers("/error").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // The scraper reaches the internal management port only; the meters expose routes,
+                // pool state and auth failures, so they need ADMIN anywhere else
+                .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort
+                        && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
-            .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(tokenFilter, UsernamePasswordAuthenticationFilter.class)
+            // Runs once the user is known, so authenticated clients are limited per user
+            .addFilterAfter(rateLimitFilter, tokenFilter.getClass());
         
         return http.build();
     }
@@ -87,9 +118,9 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:8080", "http://localhost:3000"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "If-Match", "If-None-Match"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -99,25 +130,38 @@ public class SecurityConfig {
     }
     
     /**
-     * Creates a BCrypt password encoder.
+     * Creates a BCrypt password encoder that hashes on a bounded pool, so that a burst of
+     * logins cannot take all request threads and cores.
      *
+     * @param strength      The BCrypt cost; raising it rehashes passwords on their next login
+     * @param threads       The number of hashing threads, 0 for half the available processors
+     * @param queueCapacity The number of hashes that may wait for a thread
+     * @param meterRegistry The registry for the pool metrics
      * @return The password encoder
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.auth.bcrypt-strength:10}") int strength,
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:200}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, meterRegistry);
     }
     
     /**
      * Creates a DAO authentication provider.
+     * Passwords hashed with a lower cost than configured are rehashed on login.
      *
+     * @param passwordEncoder The password encoder
      * @return The authentication provider
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userService);
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
     
@@ -0,0 +1,47 @@
+package com.canvamedium.config;
+
+import com.canvamedium.repository.AuthSessionRepository;
+import com.canvamedium.security.SessionTokenStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Opt-in mode that issues opaque session tokens instead of JWTs
+ * ({@code app.auth.token-mode=opaque}).
+ * <p>
+ * JWTs are checked by verifying their HMAC on every request and cannot be revoked before
+ * they expire; the roles they carry stay as they were at login. Opaque tokens are looked up
+ * in a {@link SessionTokenStore} instead, which makes logout, refresh token rotation and
+ * revocation on account changes possible. Login, refresh and logout keep their endpoints and
+ * response format.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.auth.token-mode", havingValue = "opaque")
+public class SessionTokenConfig {
+
+    /**
+     * Creates the session token store.
+     *
+     * @param repository The repository for stored sessions
+     * @param persistent Whether sessions are written through to the database, so that they
+     *                   survive restarts and are shared between instances
+     * @param accessTtl  How long an access token is valid
+     * @param refreshTtl How long a refresh token is valid
+     * @param recheck    How long a stored session is trusted from memory before it is looked
+     *                   up again, i.e. how soon a revocation on another instance takes effect
+     * @return The session token store
+     */
+    @Bean
+    public SessionTokenStore sessionTokenStore(
+            AuthSessionRepository repository,
+            @Value("${app.auth.session-store.persistent:false}") boolean persistent,
+            @Value("${app.auth.session-store.access-ttl:24h}") Duration accessTtl,
+            @Value("${app.auth.session-store.refresh-ttl:7d}") Duration refreshTtl,
+            @Value("${app.auth.session-store.recheck-interval:30s}") Duration recheck) {
+        return new SessionTokenStore(persistent ? repository : null, accessTtl, refreshTtl, recheck);
+    }
+}
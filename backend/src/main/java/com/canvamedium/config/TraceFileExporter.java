@@ -0,0 +1,76 @@
+package com.canvamedium.config;
+
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
+/**
+ * Span exporter that appends spans to a file as OTLP JSON, one export request per line. This
+ * is the format the OpenTelemetry Collector's {@code otlpjsonfile} receiver reads, so a local
+ * collector can pick the traces up later.
+ * <p>
+ * {@link OtlpJsonLoggingSpanExporter} writes the spans of each resource as a record to a
+ * {@code java.util.logging} logger; this exporter sends that logger's records to the file
+ * instead of the application log, each wrapped in an export request.
+ */
+public class TraceFileExporter implements SpanExporter {
+
+    private final SpanExporter delegate = OtlpJsonLoggingSpanExporter.create();
+    // java.util.logging only holds weak references to loggers, which would lose the handler
+    private final Logger logger = Logger.getLogger(OtlpJsonLoggingSpanExporter.class.getName());
+    private final StreamHandler handler;
+
+    /**
+     * Creates an exporter appending to the given file.
+     *
+     * @param file The file spans are appended to
+     * @throws IOException if the file cannot be opened
+     */
+    public TraceFileExporter(Path file) throws IOException {
+        handler = new StreamHandler(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return "{\"resourceSpans\":[" + record.getMessage() + "]}\n";
+                    }
+                });
+        handler.setEncoding(StandardCharsets.UTF_8.name());
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        CompletableResultCode result = delegate.export(spans);
+        handler.flush();
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        handler.flush();
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        delegate.shutdown();
+        logger.removeHandler(handler);
+        handler.close();
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,106 @@
+package com.canvamedium.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+
+/**
+ * Tracing of requests down to the queries and I/O they cause.
+ * <p>
+ * Spring Boot traces each HTTP request; on top of that there are spans for
+ * {@code @Observed} service methods, for JSON serialization of response bodies (which is also
+ * where lazy associations are loaded), for each JDBC query with its row count (from
+ * datasource-micrometer) and for the phases of media processing. Trace and span ids are added
+ * to every log line.
+ * <p>
+ * Spans are exported according to {@code app.tracing.exporter}: {@code otlp} sends them to an
+ * OpenTelemetry collector over HTTP, {@code file} appends them to a file as OTLP JSON, and
+ * {@code none} keeps them in-process only.
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Creates spans for methods of {@code @Observed} beans.
+     *
+     * @param observationRegistry The observation registry
+     * @return The aspect
+     */
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    /**
+     * Replaces Spring Boot's JSON message converter with one that creates a span for each
+     * response body it writes.
+     *
+     * @param objectMapper        The object mapper
+     * @param observationRegistry The observation registry
+     * @return The message converter
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+        return new ObservedJsonConverter(objectMapper, observationRegistry);
+    }
+
+    /**
+     * Exports spans to an OpenTelemetry collector over OTLP/HTTP.
+     *
+     * @param endpoint The traces endpoint of the collector
+     * @return The span exporter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "otlp")
+    public OtlpHttpSpanExporter otlpHttpSpanExporter(
+            @Value("${app.tracing.otlp.endpoint:http://localhost:4318/v1/traces}") String endpoint) {
+        return OtlpHttpSpanExporter.builder().setEndpoint(endpoint).build();
+    }
+
+    /**
+     * Exports spans to a file as OTLP JSON.
+     *
+     * @param file The file spans are appended to
+     * @return The span exporter
+     * @throws IOException if the file cannot be opened
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "file")
+    public TraceFileExporter traceFileExporter(@Value("${app.tracing.file:traces.jsonl}") Path file) throws IOException {
+        return new TraceFileExporter(file);
+    }
+
+    /**
+     * JSON message converter that observes the serialization of each body.
+     */
+    static class ObservedJsonConverter extends MappingJackson2HttpMessageConverter {
+
+        private final ObservationRegistry observationRegistry;
+
+        ObservedJsonConverter(ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+            super(objectMapper);
+            this.observationRegistry = observationRegistry;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            Observation.createNotStarted("http.response.serialization", observationRegistry)
+                    .contextualName("serialize response")
+                    .lowCardinalityKeyValue("type", object == null ? "null" : object.getClass().getSimpleName())
+                    .observeChecked(() -> super.writeInternal(object, type, outputMessage));
+        }
+    }
+}
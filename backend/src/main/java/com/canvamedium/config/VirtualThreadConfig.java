@@ -0,0 +1,103 @@
+package com.canvamedium.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in mode that runs request handling and application tasks on virtual threads
+ * ({@code app.threads.virtual.enabled=true}, needs Java 21 or later).
+ * <p>
+ * Request threads mostly wait on JDBC and on file I/O in the media service. With virtual
+ * threads a blocked request no longer holds one of Tomcat's 200 platform threads, so load
+ * beyond that number queues in the database pool instead of in the connector. The
+ * application task executor, used for {@code @Async} methods and async MVC requests, gets
+ * the same treatment.
+ * <p>
+ * The backend is built for Java 17 (or for 21 with {@code -Pjava21}), so the virtual thread
+ * API is looked up reflectively; starting the mode on an older JVM fails fast. A virtual
+ * thread that blocks inside a {@code synchronized} block pins its carrier thread, which
+ * {@link VirtualThreadPinningMonitor} reports.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+    
+    /**
+     * Runs Tomcat's request processing on one new virtual thread per request.
+     *
+     * @return The protocol handler customizer
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor("http-vt-");
+        logger.info("Handling HTTP requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+    
+    /**
+     * Runs {@code @Async} methods and async MVC requests on virtual threads. Replaces the
+     * pooled executor Spring Boot would otherwise configure.
+     *
+     * @return The application task executor
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(newVirtualThreadPerTaskExecutor("task-vt-"));
+    }
+    
+    /**
+     * Reports virtual threads that stay pinned to their carrier thread.
+     *
+     * @param meterRegistry The registry for the pinning counter
+     * @param threshold     Pinning shorter than this is not reported
+     * @return The pinning monitor
+     */
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${app.threads.virtual.pinned-threshold:20ms}") Duration threshold) {
+        return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+    }
+    
+    /**
+     * Create an executor that starts a new, named virtual thread for every task
+     * ({@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())}).
+     *
+     * @param namePrefix The prefix of the thread names, followed by a counter
+     * @return The executor
+     * @throws IllegalStateException if the JVM does not support virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("app.threads.virtual.enabled requires Java 21 or later, running on Java "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
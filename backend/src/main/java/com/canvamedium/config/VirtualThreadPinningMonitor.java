@@ -0,0 +1,96 @@
+package com.canvamedium.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Detects virtual threads that are pinned to their carrier thread, e.g. while blocking on I/O
+ * inside a {@code synchronized} block of a JDBC driver or library. A pinned virtual thread
+ * blocks a carrier (there is one per CPU core), so a few of them can stall all requests.
+ * <p>
+ * Listens to the JFR {@code jdk.VirtualThreadPinned} event in-process. Every pinning longer
+ * than the threshold is logged with the top of its stack and counted in the
+ * {@code jvm.threads.virtual.pinned} meter. Locally, {@code -Djdk.tracePinnedThreads=short}
+ * gives a similar report on standard output.
+ */
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final int LOGGED_FRAMES = 8;
+    
+    private final Counter pinnedCounter;
+    private final Duration threshold;
+    private RecordingStream stream;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param meterRegistry The registry for the pinning counter
+     * @param threshold     Pinning shorter than this is not reported
+     */
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+        this.threshold = threshold;
+    }
+    
+    @Override
+    public synchronized void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+    
+    @Override
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+    
+    @Override
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+    
+    /**
+     * Record one pinning event.
+     *
+     * @param event The {@code jdk.VirtualThreadPinned} event
+     */
+    void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        logger.warn("Virtual thread pinned for {} ms:\n{}", event.getDuration().toMillis(), topFrames(event.getStackTrace()));
+    }
+    
+    private static String topFrames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t(no stack trace)";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::format)
+                .collect(Collectors.joining("\n"));
+    }
+    
+    private static String format(RecordedFrame frame) {
+        return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.io.File;
 
@@ -24,8 +26,14 @@ public class WebConfig implements WebMvcConfigurer {
             uploadDir.mkdirs();
         }
         
-        // Map "/uploads/**" to the physical path where files are stored
+        // Map "/uploads/**" to the physical path where files are stored. The gzip variant
+        // MediaService stores next to a compressible upload (<name>.gz) is served to clients
+        // that accept gzip, with Content-Encoding and Vary set. Resolutions are not cached,
+        // since uploads are added and deleted at runtime.
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadDir.getAbsolutePath() + "/");
+                .addResourceLocations("file:" + uploadDir.getAbsolutePath() + "/")
+                .resourceChain(false)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
     }
 } 
\ No newline at end of file
@@ -1,8 +1,19 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.analytics.ArticleViewCounter;
+import com.canvamedium.analytics.RelatedArticleIndex;
+import com.canvamedium.cache.PublishedArticleCache;
+import com.canvamedium.cache.PublishedArticleCache.SerializedArticle;
+import com.canvamedium.cache.ResponseCache;
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
+import com.canvamedium.monitoring.QueryBudget;
 import com.canvamedium.service.ArticleService;
+import com.canvamedium.service.TemplateService;
+import com.canvamedium.util.BatchLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,37 +23,114 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 /**
  * REST controller for managing Article entities.
+ * <p>
+ * Single-article responses carry the article version as {@code ETag} and its update
+ * time as {@code Last-Modified}. Reads answer 304 Not Modified for a current copy
+ * without loading the article; updates accept the ETag back in {@code If-Match} and
+ * fail with 412 Precondition Failed when the article has been changed in the meantime.
+ * <p>
+ * The published, featured and search lists can also be fetched in full as a stream of
+ * newline-delimited JSON ({@code .../stream}), read from the database in keyset-paged
+ * chunks and written as it is read instead of page by page. At most
+ * {@code app.articles.stream.max-concurrent} streams are written at a time; further stream
+ * requests are answered 503.
+ * <p>
+ * Clients that need several known articles fetch them in one request with
+ * {@code GET /api/articles?ids=...} or {@code POST /api/articles/batch-get}, and the
+ * articles related to one with {@code GET /api/articles/{id}/related}.
  */
 @RestController
+@Validated
 @RequestMapping("/api/articles")
 @Tag(name = "Article", description = "Article management API")
 public class ArticleController {
     
+    /**
+     * The maximum number of articles fetched by one batch request.
+     */
+    public static final int MAX_BATCH_IDS = 100;
+    
+    private static final String POPULARITY = "popularity";
+    
+    /**
+     * The properties search results can be streamed in the order of: keyset positions need
+     * sort keys that are never null. {@code publishedAt} is only set on published articles.
+     */
+    private static final Set<String> STREAM_SORT_PROPERTIES = Set.of("title", "createdAt", "updatedAt");
+    
     private final ArticleService articleService;
+    private final TemplateService templateService;
+    private final ResponseCache responseCache;
+    private final PublishedArticleCache publishedArticleCache;
+    private final ObjectMapper objectMapper;
+    private final BatchLoader<Long, Revision> articleRevisionLoader;
+    private final ArticleViewCounter articleViewCounter;
+    private final RelatedArticleIndex relatedArticleIndex;
+    private final Semaphore streamPermits;
     
     /**
      * Constructor with service dependency injection.
      *
-     * @param articleService The article service
+     * @param articleService        The article service
+     * @param templateService       The template service
+     * @param responseCache         The cache for public feed responses
+     * @param publishedArticleCache The cache of serialized published articles
+     * @param objectMapper          The mapper for streamed responses
+     * @param articleRevisionLoader Batches the revision lookups of single-article reads
+     * @param articleViewCounter    Counts the single-article reads as views
+     * @param relatedArticleIndex   Looks up the precomputed related articles
+     * @param maxConcurrentStreams  The most article streams written at a time
      */
     @Autowired
-    public ArticleController(ArticleService articleService) {
+    public ArticleController(ArticleService articleService, TemplateService templateService,
+                             ResponseCache responseCache, PublishedArticleCache publishedArticleCache,
+                             ObjectMapper objectMapper, BatchLoader<Long, Revision> articleRevisionLoader,
+                             ArticleViewCounter articleViewCounter, RelatedArticleIndex relatedArticleIndex,
+                             @Value("${app.articles.stream.max-concurrent:8}") int maxConcurrentStreams) {
         this.articleService = articleService;
+        this.templateService = templateService;
+        this.responseCache = responseCache;
+        this.publishedArticleCache = publishedArticleCache;
+        this.objectMapper = objectMapper;
+        this.articleRevisionLoader = articleRevisionLoader;
+        this.articleViewCounter = articleViewCounter;
+        this.relatedArticleIndex = relatedArticleIndex;
+        this.streamPermits = new Semaphore(maxConcurrentStreams);
     }
     
     /**
@@ -58,6 +146,7 @@ public class ArticleController {
      * @return ResponseEntity containing the list of articles
      */
     @GetMapping
+    @QueryBudget(6)
     @Operation(summary = "Get all articles", description = "Get a list of all articles with pagination, sorting, and filtering")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved articles"),
@@ -66,15 +155,22 @@ public class ArticleController {
     public ResponseEntity<Map<String, Object>> getAllArticles(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
-            @Parameter(description = "Sort field") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort field, or popularity") @RequestParam(defaultValue = "createdAt") String sortBy,
             @Parameter(description = "Sort direction (asc or desc)") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "Sort field and direction as field,direction (overrides sortBy and sortDir)")
+                @RequestParam(required = false) String sort,
             @Parameter(description = "Filter by article title") @RequestParam(required = false) String title,
             @Parameter(description = "Filter by template ID") @RequestParam(required = false) Long templateId,
             @Parameter(description = "Filter by article status (DRAFT, PUBLISHED, ARCHIVED)") 
                 @RequestParam(required = false) Status status) {
         
+        if (sort != null && !sort.isBlank()) {
+            String[] parts = sort.split(",");
+            sortBy = parts[0].trim();
+            sortDir = parts.length > 1 ? parts[1].trim() : "asc";
+        }
         Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        PageRequest pageRequest = PageRequest.of(page, size, sortOf(direction, sortBy));
         
         Page<Article> articlePage;
         
@@ -107,35 +203,50 @@ public class ArticleController {
      * Get all published articles.
      *
      * @param page    Page number (optional, default 0)
-     * @param size    Page size (optional, default 10)
+     * @param size    Page size (optional, default 10, at most {@value ResponseCache#MAX_PAGE_SIZE})
      * @param sortBy  Field to sort by (optional, default "publishedAt")
      * @param sortDir Sort direction (optional, default "desc")
      * @return ResponseEntity containing the list of published articles
      */
     @GetMapping("/published")
+    @QueryBudget(6)
     @Operation(summary = "Get all published articles", description = "Get a list of all published articles with pagination and sorting")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved published articles"),
+            @ApiResponse(responseCode = "400", description = "Page size above " + ResponseCache.MAX_PAGE_SIZE),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Map<String, Object>> getPublishedArticles(
+    public ResponseEntity<byte[]> getPublishedArticles(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
-            @Parameter(description = "Sort field") @RequestParam(defaultValue = "publishedAt") String sortBy,
+            @Parameter(description = "Page size, at most " + ResponseCache.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "10") @Min(1) @Max(ResponseCache.MAX_PAGE_SIZE) int size,
+            @Parameter(description = "Sort field, or popularity") @RequestParam(defaultValue = "publishedAt") String sortBy,
             @Parameter(description = "Sort direction (asc or desc)") @RequestParam(defaultValue = "desc") String sortDir) {
         
         Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, sortBy));
-        
-        Page<Article> articlePage = articleService.getPublishedArticles(pageRequest);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("articles", articlePage.getContent());
-        response.put("currentPage", articlePage.getNumber());
-        response.put("totalItems", articlePage.getTotalElements());
-        response.put("totalPages", articlePage.getTotalPages());
+        PageRequest pageRequest = PageRequest.of(page, size, sortOf(direction, sortBy));
         
-        return ResponseEntity.ok(response);
+        return responseCache.get(ResponseCache.PUBLISHED_ARTICLES,
+                () -> toPageResponse(articleService.getPublishedArticles(pageRequest)),
+                page, size, sortBy, direction);
+    }
+    
+    /**
+     * Stream all published articles, newest first, as newline-delimited JSON.
+     *
+     * @param request The current request
+     * @return ResponseEntity streaming one article per line
+     */
+    @GetMapping(value = "/published/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream published articles", description = "Stream all published articles as newline-delimited JSON, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming published articles"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many streams in progress")
+    })
+    public ResponseEntity<StreamingResponseBody> streamPublishedArticles(NativeWebRequest request) {
+        return NdjsonResponses.<Article>stream(objectMapper, streamPermits, request,
+                articleService::forEachPublishedArticle);
     }
     
     /**
@@ -148,6 +259,7 @@ public class ArticleController {
      * @return ResponseEntity containing the list of draft articles
      */
     @GetMapping("/drafts")
+    @QueryBudget(6)
     @Operation(summary = "Get all draft articles", description = "Get a list of all draft articles with pagination and sorting")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved draft articles"),
@@ -175,24 +287,134 @@ public class ArticleController {
     
     /**
      * Get an article by ID.
+     * <p>
+     * Published articles are answered from their cached serialized form when the current
+     * version has been read before, gzip-compressed if the client accepts it. The revision
+     * lookup is batched with those of concurrent requests, so cached and not modified
+     * articles cost no query of their own. A view is counted only when a published article
+     * is served with its body, not for drafts or 304 revalidations.
      *
-     * @param id The article ID
-     * @return ResponseEntity containing the article
+     * @param id      The article ID
+     * @param request The current request, checked for If-None-Match / If-Modified-Since
+     * @return ResponseEntity containing the article, or 304 if the client's copy is current
      */
     @GetMapping("/{id}")
+    @QueryBudget(4)
     @Operation(summary = "Get article by ID", description = "Get a specific article by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved article",
                     content = @Content(schema = @Schema(implementation = Article.class))),
+            @ApiResponse(responseCode = "304", description = "Article not modified"),
             @ApiResponse(responseCode = "404", description = "Article not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Article> getArticleById(
-            @Parameter(description = "Article ID", required = true) @PathVariable Long id) {
+    public ResponseEntity<?> getArticleById(
+            @Parameter(description = "Article ID", required = true) @PathVariable Long id,
+            WebRequest request) {
+        
+        Optional<Revision> revision = articleRevisionLoader.get(id);
+        if (revision.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ConditionalResponses.isNotModified(request, revision.get())) {
+            return ConditionalResponses.notModified(request, revision.get());
+        }
+        
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        Optional<SerializedArticle> cached = publishedArticleCache.get(id, revision.get().version());
+        if (cached.isPresent()) {
+            // Only published articles are cached
+            articleViewCounter.record(id);
+            return okSerialized(cached.get(), gzip);
+        }
+        
+        long generation = publishedArticleCache.generation();
+        Optional<Article> article = articleService.getArticleById(id);
+        if (article.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (article.get().getStatus() == Status.PUBLISHED) {
+            articleViewCounter.record(id);
+            return okSerialized(publishedArticleCache.put(article.get(), generation), gzip);
+        }
+        return okWithValidators(article.get());
+    }
+    
+    /**
+     * Get several articles by their IDs.
+     *
+     * @param ids The article IDs, at most {@value #MAX_BATCH_IDS}
+     * @return ResponseEntity containing the articles in the requested order and the IDs that were not found
+     */
+    @GetMapping(params = "ids")
+    @QueryBudget(4)
+    @Operation(summary = "Get articles by IDs", description = "Get several articles by their IDs with a single lookup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved articles"),
+            @ApiResponse(responseCode = "400", description = "No or too many IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<Map<String, Object>> getArticlesByIds(
+            @Parameter(description = "Comma-separated article IDs", required = true) @RequestParam List<Long> ids) {
         
-        return articleService.getArticleById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Between 1 and " + MAX_BATCH_IDS + " ids are required"));
+        }
+        return ResponseEntity.ok(toBatchResponse(ids));
+    }
+    
+    /**
+     * Get several articles by their IDs, for ID lists too long for a query string.
+     *
+     * @param request The article IDs, at most {@value #MAX_BATCH_IDS}
+     * @return ResponseEntity containing the articles in the requested order and the IDs that were not found
+     */
+    @PostMapping("/batch-get")
+    @QueryBudget(4)
+    @Operation(summary = "Get articles by IDs", description = "Get several articles by their IDs with a single lookup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved articles"),
+            @ApiResponse(responseCode = "400", description = "No or too many IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<Map<String, Object>> batchGetArticles(
+            @Parameter(description = "Article IDs", required = true) @Valid @RequestBody BatchGetRequest request) {
+        
+        return ResponseEntity.ok(toBatchResponse(request.getIds()));
+    }
+    
+    /**
+     * Get the published articles related to an article by shared tags and categories.
+     * <p>
+     * The related articles are precomputed, so this is one lookup of their IDs and one batch
+     * load of the articles.
+     *
+     * @param id    The article ID
+     * @param limit The most articles to return (optional, default 10, capped by app.related.neighbours)
+     * @return ResponseEntity containing the related articles, most similar first
+     */
+    @GetMapping("/{id}/related")
+    @QueryBudget(4)
+    @Operation(summary = "Get related articles", description = "Get the published articles sharing the most tags and categories with an article")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved related articles"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<Map<String, Object>> getRelatedArticles(
+            @Parameter(description = "Article ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Maximum number of articles") @RequestParam(defaultValue = "10") int limit) {
+        
+        if (articleRevisionLoader.get(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<Long> relatedIds = relatedArticleIndex.getRelatedIds(id);
+        // Leaves out articles unpublished since the lists were last updated
+        List<Article> articles = relatedIds.isEmpty() ? List.of() : articleService.getArticlesByIds(relatedIds, Status.PUBLISHED).stream()
+                .limit(Math.max(limit, 0))
+                .toList();
+        return ResponseEntity.ok(Map.of("articles", articles));
     }
     
     /**
@@ -290,6 +512,62 @@ public class ArticleController {
         }
     }
     
+    /**
+     * Schedule a draft article to be published at a given time.
+     *
+     * @param id        The ID of the draft article
+     * @param publishAt When to publish the article
+     * @return ResponseEntity containing the scheduled article
+     */
+    @PutMapping("/{id}/schedule")
+    @Operation(summary = "Schedule a draft article", description = "Publish a draft article automatically at the given time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Article successfully scheduled",
+                    content = @Content(schema = @Schema(implementation = Article.class))),
+            @ApiResponse(responseCode = "400", description = "Article is not in draft status or the time is not in the future"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> schedulePublication(
+            @Parameter(description = "Draft article ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Publication time (ISO-8601, server time zone)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime publishAt) {
+        
+        try {
+            Article scheduledArticle = articleService.schedulePublication(id, publishAt);
+            return ResponseEntity.ok(scheduledArticle);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Cancel the scheduled publication of an article.
+     *
+     * @param id The ID of the article
+     * @return ResponseEntity containing the article, no longer scheduled
+     */
+    @DeleteMapping("/{id}/schedule")
+    @Operation(summary = "Cancel a scheduled publication", description = "Keep a scheduled draft article from being published automatically")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Scheduled publication cancelled",
+                    content = @Content(schema = @Schema(implementation = Article.class))),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> cancelScheduledPublication(
+            @Parameter(description = "Article ID", required = true) @PathVariable Long id) {
+        
+        try {
+            Article article = articleService.cancelScheduledPublication(id);
+            return ResponseEntity.ok(article);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     /**
      * Archive an article.
      *
@@ -319,27 +597,111 @@ public class ArticleController {
      * Update an existing article.
      *
      * @param id      The ID of the article to update
+     * @param ifMatch The ETag of the version the client edited (optional)
      * @param article The updated article data
      * @return ResponseEntity containing the updated article
      */
     @PutMapping("/{id}")
-    @Operation(summary = "Update an existing article", description = "Update an article with the provided data")
+    @Operation(summary = "Update an existing article", description = "Update an article with the provided data. "
+            + "Send the article's ETag in If-Match to reject the update if the article has changed since.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Article successfully updated",
                     content = @Content(schema = @Schema(implementation = Article.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
             @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "409", description = "Article was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "Article no longer matches If-Match"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<Article> updateArticle(
             @Parameter(description = "Article ID", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag of the article version being edited") 
+                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Parameter(description = "Updated article data", required = true) @Valid @RequestBody Article article) {
         
         try {
-            Article updatedArticle = articleService.updateArticle(id, article);
-            return ResponseEntity.ok(updatedArticle);
+            Article updatedArticle = articleService.updateArticle(id, article, ConditionalResponses.parseIfMatch(ifMatch));
+            return okWithValidators(updatedArticle);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (NumberFormatException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(conflictStatus(ifMatch)).build();
+        }
+    }
+    
+    /**
+     * Partially update an article with a JSON Patch.
+     *
+     * @param id      The ID of the article to patch
+     * @param ifMatch The ETag of the version the client edited (optional)
+     * @param patch   The JSON Patch operations
+     * @return ResponseEntity containing the patched article
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch an article", description = "Apply JSON Patch (RFC 6902) operations to the title, "
+            + "previewText, thumbnailUrl and content of an article, so only changed content blocks are sent")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Article successfully patched",
+                    content = @Content(schema = @Schema(implementation = Article.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid patch or patched article"),
+            @ApiResponse(responseCode = "404", description = "Article not found"),
+            @ApiResponse(responseCode = "409", description = "Article was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "Article no longer matches If-Match"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> patchArticle(
+            @Parameter(description = "Article ID", required = true) @PathVariable Long id,
+            @Parameter(description = "ETag of the article version being edited") 
+                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(description = "JSON Patch operations", required = true) @RequestBody JsonNode patch) {
+        
+        try {
+            Article patchedArticle = articleService.patchArticle(id, patch, ConditionalResponses.parseIfMatch(ifMatch));
+            return okWithValidators(patchedArticle);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (NumberFormatException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(conflictStatus(ifMatch)).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Update a single content block of an article in place.
+     *
+     * @param id      The ID of the article
+     * @param blockId The ID of the block in the article content
+     * @param ifMatch The ETag of the version the client edited (optional)
+     * @param changes The block fields to set
+     * @return ResponseEntity with no content and the new ETag
+     */
+    @PatchMapping(value = "/{id}/blocks/{blockId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Update an article content block", description = "Merge the given fields into the "
+            + "content block with the given ID, without sending or rewriting the rest of the article content")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Block successfully updated"),
+            @ApiResponse(responseCode = "400", description = "Changes are not a JSON object"),
+            @ApiResponse(responseCode = "404", description = "Article or block not found"),
+            @ApiResponse(responseCode = "412", description = "Article no longer matches If-Match"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> updateArticleBlock(
+            @Parameter(description = "Article ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Content block ID", required = true) @PathVariable String blockId,
+            @Parameter(description = "ETag of the article version being edited") 
+                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(description = "Block fields to set", required = true) @RequestBody JsonNode changes) {
+        
+        try {
+            Long version = articleService.updateArticleBlock(id, blockId, changes, ConditionalResponses.parseIfMatch(ifMatch));
+            return ResponseEntity.noContent().eTag(ConditionalResponses.eTag(version)).build();
         } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (NumberFormatException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(conflictStatus(ifMatch)).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
@@ -371,33 +733,48 @@ public class ArticleController {
      * Get featured articles.
      *
      * @param page    Page number (optional, default 0)
-     * @param size    Page size (optional, default 10)
+     * @param size    Page size (optional, default 10, at most {@value ResponseCache#MAX_PAGE_SIZE})
      * @param sortDir Sort direction (optional, default "desc")
      * @return ResponseEntity containing the list of featured articles
      */
     @GetMapping("/featured")
+    @QueryBudget(4)
     @Operation(summary = "Get featured articles", description = "Get a list of featured articles")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved featured articles"),
+            @ApiResponse(responseCode = "400", description = "Page size above " + ResponseCache.MAX_PAGE_SIZE),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Map<String, Object>> getFeaturedArticles(
+    public ResponseEntity<byte[]> getFeaturedArticles(
             @Parameter(description = "Page number") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Page size, at most " + ResponseCache.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "10") @Min(1) @Max(ResponseCache.MAX_PAGE_SIZE) int size,
             @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
         
         Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, "publishedAt"));
         
-        Page<Article> articlePage = articleService.getFeaturedArticles(pageRequest);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("articles", articlePage.getContent());
-        response.put("currentPage", articlePage.getNumber());
-        response.put("totalItems", articlePage.getTotalElements());
-        response.put("totalPages", articlePage.getTotalPages());
-        
-        return ResponseEntity.ok(response);
+        return responseCache.get(ResponseCache.FEATURED_ARTICLES,
+                () -> toPageResponse(articleService.getFeaturedArticles(pageRequest)),
+                page, size, direction);
+    }
+    
+    /**
+     * Stream all featured articles, newest first, as newline-delimited JSON.
+     *
+     * @param request The current request
+     * @return ResponseEntity streaming one article per line
+     */
+    @GetMapping(value = "/featured/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream featured articles", description = "Stream all featured articles as newline-delimited JSON, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming featured articles"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many streams in progress")
+    })
+    public ResponseEntity<StreamingResponseBody> streamFeaturedArticles(NativeWebRequest request) {
+        return NdjsonResponses.<Article>stream(objectMapper, streamPermits, request,
+                articleService::forEachFeaturedArticle);
     }
     
     /**
@@ -414,6 +791,7 @@ public class ArticleController {
      * @return ResponseEntity containing the search results
      */
     @GetMapping("/search")
+    @QueryBudget(6)
     @Operation(summary = "Search articles", description = "Search articles with multiple criteria")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved search results"),
@@ -443,7 +821,53 @@ public class ArticleController {
         
         return ResponseEntity.ok(response);
     }
-
+    
+    /**
+     * Stream all search results as newline-delimited JSON.
+     *
+     * @param query      Search query for title and content (optional)
+     * @param status     Article status filter (optional)
+     * @param templateId Template ID filter (optional)
+     * @param featured   Featured article filter (optional)
+     * @param sortBy     Field to sort by: title, createdAt, updatedAt, or publishedAt for
+     *                   published articles (optional, default "updatedAt")
+     * @param sortDir    Sort direction (optional, default "desc")
+     * @param request    The current request
+     * @return ResponseEntity streaming one article per line
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream search results", description = "Stream all articles matching the search criteria as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming search results"),
+            @ApiResponse(responseCode = "400", description = "Invalid search parameters"),
+            @ApiResponse(responseCode = "404", description = "Template not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many streams in progress")
+    })
+    public ResponseEntity<StreamingResponseBody> streamSearchResults(
+            @Parameter(description = "Search query for title and content") @RequestParam(required = false) String query,
+            @Parameter(description = "Article status filter") @RequestParam(required = false) Status status,
+            @Parameter(description = "Template ID filter") @RequestParam(required = false) Long templateId,
+            @Parameter(description = "Featured article filter") @RequestParam(required = false) Boolean featured,
+            @Parameter(description = "Sort field") @RequestParam(defaultValue = "updatedAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir,
+            NativeWebRequest request) {
+        
+        // Fail before the stream has started; afterwards the status cannot be changed
+        if (!STREAM_SORT_PROPERTIES.contains(sortBy) && !(sortBy.equals("publishedAt") && status == Status.PUBLISHED)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (templateId != null && templateService.getTemplateById(templateId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, sortBy);
+        
+        return NdjsonResponses.<Article>stream(objectMapper, streamPermits, request,
+                sink -> articleService.forEachSearchResult(query, status, templateId, featured, sort, sink));
+    }
+    
     /**
      * Get articles by category.
      *
@@ -455,6 +879,7 @@ public class ArticleController {
      * @return Response entity containing the page of articles
      */
     @GetMapping("/category/{categoryId}")
+    @QueryBudget(6)
     @Operation(summary = "Get articles by category", description = "Returns articles in a specific category")
     public ResponseEntity<Page<Article>> getArticlesByCategory(
             @PathVariable Long categoryId,
@@ -469,7 +894,7 @@ public class ArticleController {
         
         return ResponseEntity.ok(articles);
     }
-
+    
     /**
      * Get articles by tag.
      *
@@ -481,6 +906,7 @@ public class ArticleController {
      * @return Response entity containing the page of articles
      */
     @GetMapping("/tag/{tagId}")
+    @QueryBudget(6)
     @Operation(summary = "Get articles by tag", description = "Returns articles with a specific tag")
     public ResponseEntity<Page<Article>> getArticlesByTag(
             @PathVariable Long tagId,
@@ -495,7 +921,7 @@ public class ArticleController {
         
         return ResponseEntity.ok(articles);
     }
-
+    
     /**
      * Set featured status for an article.
      *
@@ -513,4 +939,142 @@ public class ArticleController {
         Article article = articleService.setFeaturedStatus(id, featured);
         return ResponseEntity.ok(article);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Build the sort for a sort field given by a client, where popularity stands for the
+     * precomputed trending score.
+     *
+     * @param direction The sort direction
+     * @param sortBy    The sort field
+     * @return The sort
+     */
+    private static Sort sortOf(Sort.Direction direction, String sortBy) {
+        return Sort.by(direction, POPULARITY.equalsIgnoreCase(sortBy) ? "trendingScore" : sortBy);
+    }
+    
+    /**
+     * Build a 200 response for a single article, tagged with its version.
+     *
+     * @param article The article
+     * @return ResponseEntity containing the article and its validators
+     */
+    private static ResponseEntity<Article> okWithValidators(Article article) {
+        return ConditionalResponses.ok(article, article.getVersion(), article.getUpdatedAt());
+    }
+    
+    /**
+     * Build a 200 response from a serialized article.
+     *
+     * @param article The serialized article
+     * @param gzip    Whether the client accepts a gzip-encoded body
+     * @return ResponseEntity containing the JSON bytes and the article's validators
+     */
+    private static ResponseEntity<byte[]> okSerialized(SerializedArticle article, boolean gzip) {
+        if (gzip && article.gzip() != null) {
+            // A strong ETag stands for one sequence of bytes
+            return ConditionalResponses.gzipOkBuilder(article.version(), article.updatedAt())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(article.gzip());
+        }
+        return ConditionalResponses.okBuilder(article.version(), article.updatedAt())
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(article.json());
+    }
+    
+    /**
+     * Check whether an Accept-Encoding header allows gzip.
+     *
+     * @param acceptEncoding The Accept-Encoding header value, may be null
+     * @return true if gzip (or any encoding) is accepted with a non-zero quality
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * A stale If-Match is a failed precondition; without one, a concurrent write is a conflict.
+     *
+     * @param ifMatch The If-Match header value, may be null
+     * @return The status to report
+     */
+    private static HttpStatus conflictStatus(String ifMatch) {
+        return ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+    }
+    
+    /**
+     * Build the body of a batch lookup.
+     *
+     * @param ids The requested article IDs
+     * @return The found articles in the requested order and the IDs that were not found
+     */
+    private Map<String, Object> toBatchResponse(List<Long> ids) {
+        List<Article> articles = articleService.getArticlesByIds(ids);
+        
+        Set<Long> found = new HashSet<>();
+        articles.forEach(article -> found.add(article.getId()));
+        List<Long> missing = ids.stream()
+                .distinct()
+                .filter(id -> !found.contains(id))
+                .toList();
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("articles", articles);
+        response.put("missing", missing);
+        return response;
+    }
+    
+    /**
+     * Build the paged response body used by the article list endpoints.
+     *
+     * @param articlePage The page of articles
+     * @return Map with the articles and the pagination details
+     */
+    private static Map<String, Object> toPageResponse(Page<Article> articlePage) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("articles", articlePage.getContent());
+        response.put("currentPage", articlePage.getNumber());
+        response.put("totalItems", articlePage.getTotalElements());
+        response.put("totalPages", articlePage.getTotalPages());
+        return response;
+    }
+    
+    /**
+     * DTO for batch article lookups.
+     */
+    public static class BatchGetRequest {
+        @NotEmpty(message = "At least one id is required")
+        @Size(max = MAX_BATCH_IDS, message = "At most " + MAX_BATCH_IDS + " ids can be fetched at once")
+        private List<Long> ids;
+        
+        /**
+         * Get the article IDs.
+         *
+         * @return The IDs of the articles to fetch
+         */
+        public List<Long> getIds() {
+            return ids;
+        }
+        
+        /**
+         * Set the article IDs.
+         *
+         * @param ids The IDs of the articles to fetch
+         */
+        public void setIds(List<Long> ids) {
+            this.ids = ids;
+        }
+    }
+}
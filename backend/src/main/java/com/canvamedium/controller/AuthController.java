@@ -2,16 +2,20 @@ package com.canvamedium.controller;
 
 import com.canvamedium.model.User;
 import com.canvamedium.security.JwtUtils;
+import com.canvamedium.security.SessionTokenStore;
 import com.canvamedium.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,6 +30,8 @@ import java.util.Optional;
 
 /**
  * REST controller for authentication requests.
+ * Issues JWTs, or opaque session tokens if a {@link SessionTokenStore} is configured
+ * ({@code app.auth.token-mode=opaque}); only session tokens can be revoked on logout.
  */
 @RestController
 @RequestMapping("/api/auth")
@@ -37,6 +43,7 @@ public class AuthController {
     private final UserService userService;
     private final JwtUtils jwtUtils;
     private final AuthenticationManager authenticationManager;
+    private final SessionTokenStore sessionTokenStore;
     
     /**
      * Constructor with dependencies injection.
@@ -44,12 +51,15 @@ public class AuthController {
      * @param userService           The user service
      * @param jwtUtils              The JWT utility
      * @param authenticationManager The authentication manager
+     * @param sessionTokenStore     The session token store, if opaque tokens are used
      */
     @Autowired
-    public AuthController(UserService userService, JwtUtils jwtUtils, AuthenticationManager authenticationManager) {
+    public AuthController(UserService userService, JwtUtils jwtUtils, AuthenticationManager authenticationManager,
+                          ObjectProvider<SessionTokenStore> sessionTokenStore) {
         this.userService = userService;
         this.jwtUtils = jwtUtils;
         this.authenticationManager = authenticationManager;
+        this.sessionTokenStore = sessionTokenStore.getIfAvailable();
     }
     
     /**
@@ -63,38 +73,26 @@ public class AuthController {
     @Operation(summary = "Authenticate user", description = "Authenticate user with username/email and password, then generate JWT token")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
-            logger.debug("Login attempt for username/email: {}", loginRequest.getUsername());
-            
             Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
             );
             
-            logger.debug("Authentication successful for: {}", loginRequest.getUsername());
-            
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = jwtUtils.generateJwtToken(authentication);
-            String refreshToken = jwtUtils.generateRefreshToken(loginRequest.getUsername());
-            
-            // Get token expiry time in milliseconds
-            Date expiryDate = jwtUtils.getExpirationDateFromToken(jwt);
-            long expiryTimeMs = expiryDate.getTime();
+            Map<String, Object> response;
+            if (sessionTokenStore != null) {
+                UserDetails principal = (UserDetails) authentication.getPrincipal();
+                response = tokenResponse(sessionTokenStore.issue(principal.getUsername(), principal.getAuthorities()));
+            } else {
+                String jwt = jwtUtils.generateJwtToken(authentication);
+                String refreshToken = jwtUtils.generateRefreshToken(loginRequest.getUsername());
+                response = tokenResponse(jwt, refreshToken, jwtUtils.getExpirationDateFromToken(jwt).getTime());
+            }
             
             // Record login
             userService.recordLogin(loginRequest.getUsername());
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", jwt);
-            response.put("refreshToken", refreshToken);
-            response.put("expiry", expiryTimeMs);
-            
-            // Add user details to response - try to find by email first, then by username
-            Optional<User> userOptional = userService.findByEmail(loginRequest.getUsername());
-            
-            if (userOptional.isEmpty()) {
-                userOptional = userService.findByUsername(loginRequest.getUsername());
-            }
-            
-            userOptional.ifPresent(user -> {
+            // Add user details to response
+            userService.findByUsernameOrEmail(loginRequest.getUsername()).ifPresent(user -> {
                 Map<String, Object> userDetails = new HashMap<>();
                 userDetails.put("id", user.getId());
                 userDetails.put("username", user.getUsername());
@@ -105,6 +103,13 @@ public class AuthController {
             });
             
             return ResponseEntity.ok(response);
+        } catch (AuthenticationServiceException e) {
+            // The password could not be checked, e.g. because too many logins are being hashed
+            logger.warn("Authentication unavailable for username/email: {}, reason: {}",
+                    loginRequest.getUsername(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", "Login is temporarily unavailable, please retry"));
         } catch (Exception e) {
             logger.error("Authentication failed for username/email: {}, reason: {}", 
                     loginRequest.getUsername(), e.getMessage());
@@ -169,6 +174,10 @@ public class AuthController {
     public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
         String refreshToken = refreshRequest.getRefreshToken();
         
+        if (sessionTokenStore != null) {
+            return refreshSessionToken(refreshToken);
+        }
+        
         if (!jwtUtils.validateJwtToken(refreshToken)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Invalid refresh token"));
         }
@@ -184,19 +193,67 @@ public class AuthController {
             
             // Get token expiry time in milliseconds
             Date expiryDate = jwtUtils.getExpirationDateFromToken(newToken);
-            long expiryTimeMs = expiryDate.getTime();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", newToken);
-            response.put("refreshToken", newRefreshToken);
-            response.put("expiry", expiryTimeMs);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(tokenResponse(newToken, newRefreshToken, expiryDate.getTime()));
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not found"));
+        }
+    }
+    
+    /**
+     * Revoke the session of the presented token, with all access and refresh tokens issued
+     * for the same login. Only supported with opaque session tokens; JWTs stay valid until
+     * they expire.
+     *
+     * @param authorization The Authorization header with the access or refresh token as bearer token
+     * @return 204 No Content if the session was revoked, 401 if the token is unknown
+     */
+    @PostMapping("/logout")
+    @Operation(summary = "Log out", description = "Revoke the session of the bearer token (opaque token mode only)")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (sessionTokenStore == null) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", "Tokens can only be revoked with app.auth.token-mode=opaque"));
+        }
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Missing bearer token"));
+        }
+        
+        if (!sessionTokenStore.revoke(authorization.substring(7))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Invalid token"));
+        }
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Exchange a refresh token for new session tokens, with the user's current roles.
+     *
+     * @param refreshToken The refresh token
+     * @return The response entity with the new tokens
+     */
+    private ResponseEntity<?> refreshSessionToken(String refreshToken) {
+        try {
+            return sessionTokenStore.rotate(refreshToken, username -> userService.loadUserByUsername(username).getAuthorities())
+                .<ResponseEntity<?>>map(tokens -> ResponseEntity.ok(tokenResponse(tokens)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Invalid refresh token")));
         } catch (UsernameNotFoundException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "User not found"));
         }
     }
     
+    private static Map<String, Object> tokenResponse(SessionTokenStore.Tokens tokens) {
+        return tokenResponse(tokens.accessToken(), tokens.refreshToken(), tokens.expiresAt().toEpochMilli());
+    }
+    
+    private static Map<String, Object> tokenResponse(String token, String refreshToken, long expiryTimeMs) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token);
+        response.put("refreshToken", refreshToken);
+        response.put("expiry", expiryTimeMs);
+        return response;
+    }
+    
     /**
      * Check if a username is available.
      *
@@ -1,5 +1,6 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.cache.ResponseCache;
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Category;
 import com.canvamedium.service.ArticleService;
@@ -9,6 +10,8 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -17,6 +20,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -26,23 +30,28 @@ import java.util.Map;
  * REST controller for category operations.
  */
 @RestController
+@Validated
 @RequestMapping("/api/categories")
 @Tag(name = "Categories", description = "Category management API")
 public class CategoryController {
 
     private final CategoryService categoryService;
     private final ArticleService articleService;
+    private final ResponseCache responseCache;
 
     /**
      * Constructor with dependencies injection.
      *
      * @param categoryService The category service
      * @param articleService  The article service
+     * @param responseCache   The cache for public category responses
      */
     @Autowired
-    public CategoryController(CategoryService categoryService, ArticleService articleService) {
+    public CategoryController(CategoryService categoryService, ArticleService articleService,
+                              ResponseCache responseCache) {
         this.categoryService = categoryService;
         this.articleService = articleService;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -186,14 +195,14 @@ public class CategoryController {
      */
     @GetMapping("/featured")
     @Operation(summary = "Get featured categories", description = "Returns a paginated list of featured categories")
-    public ResponseEntity<Page<Category>> getFeaturedCategories(
+    public ResponseEntity<byte[]> getFeaturedCategories(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+            @Parameter(description = "Page size, at most " + ResponseCache.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "10") @Min(1) @Max(ResponseCache.MAX_PAGE_SIZE) int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Category> categories = categoryService.getFeaturedCategories(pageable);
-        
-        return ResponseEntity.ok(categories);
+        return responseCache.get(ResponseCache.FEATURED_CATEGORIES,
+                () -> categoryService.getFeaturedCategories(pageable), page, size);
     }
 
     /**
@@ -216,9 +225,8 @@ public class CategoryController {
      */
     @GetMapping("/top-level")
     @Operation(summary = "Get top-level categories", description = "Returns categories without a parent")
-    public ResponseEntity<List<Category>> getTopLevelCategories() {
-        List<Category> categories = categoryService.getTopLevelCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getTopLevelCategories() {
+        return responseCache.get(ResponseCache.TOP_LEVEL_CATEGORIES, categoryService::getTopLevelCategories);
     }
 
     /**
@@ -0,0 +1,203 @@
+package com.canvamedium.controller;
+
+import com.canvamedium.model.Revision;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * HTTP validators (ETag / Last-Modified) for single-entity responses.
+ * <p>
+ * The ETag is the entity's optimistic locking version. It is strong ({@code "3"}), as
+ * If-Match compares ETags strongly (RFC 7232); Tomcat therefore does not compress these
+ * responses, and bodies that are sent pre-compressed get an ETag of their own
+ * ({@code "3-gzip"}). The version of an article covers its own
+ * fields only: a renamed tag, category or template embedded in its JSON sets the article's
+ * update time (Last-Modified) but keeps its ETag, so that an editor's If-Match is not
+ * rejected for a change they did not make. Clients revalidate cached copies with
+ * {@code If-None-Match} / {@code If-Modified-Since}, and send the ETag back in
+ * {@code If-Match} to make an update conditional.
+ */
+final class ConditionalResponses {
+    
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private static final String GZIP_SUFFIX = "-gzip";
+    
+    private ConditionalResponses() {
+    }
+    
+    /**
+     * Build the ETag for an entity version.
+     *
+     * @param version The entity version
+     * @return The strong ETag
+     */
+    static String eTag(Number version) {
+        return "\"" + version + "\"";
+    }
+    
+    /**
+     * Build the ETag for the gzip-compressed body of an entity version.
+     *
+     * @param version The entity version
+     * @return The strong ETag of the compressed body
+     */
+    static String gzipETag(Number version) {
+        return "\"" + version + GZIP_SUFFIX + "\"";
+    }
+    
+    /**
+     * Check the request's preconditions against an entity revision. If-None-Match compares
+     * weakly, so the ETags of the plain and of the compressed body of the revision both match;
+     * If-Modified-Since only counts without If-None-Match (RFC 7232, section 6). Nothing is
+     * written to the response, which carries the ETag of the body finally sent.
+     *
+     * @param request  The current request
+     * @param revision The revision of the requested entity
+     * @return true if the client's copy is still current
+     */
+    static boolean isNotModified(WebRequest request, Revision revision) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchingETag(ifNoneMatch, revision.version()) != null;
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        long lastModified = toEpochMilli(revision.updatedAt());
+        if (ifModifiedSince == null || lastModified == -1) {
+            return false;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        long since = headers.getIfModifiedSince();
+        // HTTP dates have a precision of seconds
+        return since != -1 && lastModified / 1000 * 1000 <= since;
+    }
+    
+    /**
+     * Build the 304 response after {@link #isNotModified} returned true, with the ETag the
+     * client's copy was sent with.
+     *
+     * @param request  The current request
+     * @param revision The revision of the requested entity
+     * @param <T>      The body type of the endpoint
+     * @return ResponseEntity with status 304
+     */
+    static <T> ResponseEntity<T> notModified(WebRequest request, Revision revision) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String eTag = ifNoneMatch != null ? matchingETag(ifNoneMatch, revision.version()) : null;
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(REVALIDATE)
+                .eTag(eTag != null ? eTag : eTag(revision.version()));
+        if (revision.updatedAt() != null) {
+            builder.lastModified(toEpochMilli(revision.updatedAt()));
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Find the ETag of a version in an If-None-Match header, comparing weakly.
+     *
+     * @param ifNoneMatch The If-None-Match header value
+     * @param version     The current entity version
+     * @return The matching strong ETag, or null if none of the listed ETags matches
+     */
+    private static String matchingETag(String ifNoneMatch, Number version) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return eTag(version);
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag(version)) || tag.equals(gzipETag(version))) {
+                return tag;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Build a 200 response for an entity, tagged with its version and update time.
+     *
+     * @param body      The entity
+     * @param version   The entity version, may be null
+     * @param updatedAt The entity's last update time, may be null
+     * @param <T>       The body type
+     * @return ResponseEntity containing the entity and its validators
+     */
+    static <T> ResponseEntity<T> ok(T body, Number version, LocalDateTime updatedAt) {
+        return okBuilder(version, updatedAt).body(body);
+    }
+    
+    /**
+     * Start a 200 response carrying the validators of an entity version, for responses that
+     * need further headers.
+     *
+     * @param version   The entity version, may be null
+     * @param updatedAt The entity's last update time, may be null
+     * @return The response builder
+     */
+    static ResponseEntity.BodyBuilder okBuilder(Number version, LocalDateTime updatedAt) {
+        return okBuilder(version != null ? eTag(version) : null, updatedAt);
+    }
+    
+    /**
+     * Start a 200 response carrying the validators of an entity version, for a body that is
+     * sent gzip-compressed.
+     *
+     * @param version   The entity version, may be null
+     * @param updatedAt The entity's last update time, may be null
+     * @return The response builder
+     */
+    static ResponseEntity.BodyBuilder gzipOkBuilder(Number version, LocalDateTime updatedAt) {
+        return okBuilder(version != null ? gzipETag(version) : null, updatedAt);
+    }
+    
+    private static ResponseEntity.BodyBuilder okBuilder(String eTag, LocalDateTime updatedAt) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(REVALIDATE);
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        if (updatedAt != null) {
+            builder.lastModified(toEpochMilli(updatedAt));
+        }
+        return builder;
+    }
+    
+    /**
+     * Parse the entity version out of an If-Match header.
+     * If-Match compares strongly, so weak ETags never match and are rejected; the ETags of the
+     * plain and the compressed body of a version both stand for that version.
+     *
+     * @param ifMatch The If-Match header value, may be null
+     * @return The expected version, or null if no precondition was given
+     * @throws NumberFormatException if the header does not hold a strong ETag issued by this API
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new NumberFormatException("Weak ETag in If-Match: " + tag);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        if (tag.endsWith(GZIP_SUFFIX)) {
+            tag = tag.substring(0, tag.length() - GZIP_SUFFIX.length());
+        }
+        return Long.valueOf(tag);
+    }
+    
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
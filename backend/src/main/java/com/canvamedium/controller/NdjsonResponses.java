@@ -0,0 +1,130 @@
+package com.canvamedium.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Streamed {@code application/x-ndjson} responses: one JSON document per line, written
+ * while the producer is still reading its results.
+ * <p>
+ * The body is written on the MVC async executor, so the request thread is released right
+ * away. Writing blocks while the client is not reading, which in turn holds back the
+ * producer (e.g. between two chunks of a keyset-paged read): the server only ever holds
+ * what fits into the response and socket buffers, however long the result is. Lines are
+ * flushed in batches of {@value #FLUSH_EVERY}.
+ * <p>
+ * Each stream occupies an async executor thread for as long as the client takes to read
+ * it, so the number of concurrent streams is capped by a {@link Semaphore}: a request
+ * that finds no permit is answered 503 right away. The permit is released when the body
+ * has been written or the async request ends otherwise (timeout, error, or a body that was
+ * never run).
+ */
+final class NdjsonResponses {
+
+    static final int FLUSH_EVERY = 50;
+
+    private static final String PERMIT_RELEASE = NdjsonResponses.class.getName() + ".permit";
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * Build a 200 response that streams everything the producer passes to its sink.
+     *
+     * @param objectMapper The mapper to serialize the elements with
+     * @param producer     Passes the elements one at a time to the given sink
+     * @param <T>          The element type
+     * @return ResponseEntity with the streaming body
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Consumer<Consumer<T>> producer) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                int[] unflushed = {0};
+                producer.accept(element -> {
+                    try {
+                        writer.writeValue(generator, element);
+                        generator.writeRaw('\n');
+                        if (++unflushed[0] == FLUSH_EVERY) {
+                            generator.flush();
+                            unflushed[0] = 0;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Build a 200 response that streams everything the producer passes to its sink, or a
+     * 503 response if as many streams as there are permits are already being written.
+     *
+     * @param objectMapper The mapper to serialize the elements with
+     * @param permits      The permits for concurrent streams
+     * @param request      The current request, whose async processing holds the permit
+     * @param producer     Passes the elements one at a time to the given sink
+     * @param <T>          The element type
+     * @return ResponseEntity with the streaming body, or 503 Service Unavailable
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Semaphore permits,
+                                                           NativeWebRequest request, Consumer<Consumer<T>> producer) {
+        if (!permits.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.getAndSet(false)) {
+                permits.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(PERMIT_RELEASE,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <C> void afterCompletion(NativeWebRequest webRequest, Callable<C> task) {
+                        release.run();
+                    }
+                });
+
+        StreamingResponseBody body = stream(objectMapper, producer).getBody();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> {
+                    try {
+                        body.writeTo(out);
+                    } finally {
+                        release.run();
+                    }
+                });
+    }
+}
@@ -0,0 +1,159 @@
+package com.canvamedium.controller;
+
+import com.canvamedium.monitoring.JfrProfiler;
+import com.canvamedium.monitoring.JfrProfiler.AllocationSummary;
+import com.canvamedium.monitoring.JfrProfiler.Mode;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * REST controller for profiling the running application with Java Flight Recorder.
+ * Unlike the development tools, it is for production use and restricted to administrators.
+ */
+@RestController
+@RequestMapping("/api/admin/profiling")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Profiling", description = "CPU and allocation profiles of the running application (ADMIN)")
+public class ProfilingController {
+    
+    private final JfrProfiler profiler;
+    private final List<String> articleReadPath;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param profiler        The profiler
+     * @param articleReadPath The frames of the article read path that allocations are summarized under
+     */
+    @Autowired
+    public ProfilingController(
+            JfrProfiler profiler,
+            @Value("${app.profiling.article-read-path:com.canvamedium.controller.ArticleController.getArticleById}")
+            List<String> articleReadPath) {
+        this.profiler = profiler;
+        this.articleReadPath = articleReadPath;
+    }
+    
+    /**
+     * Record a profile for the given time and return it, as collapsed stacks for a flame graph
+     * or as the JFR file.
+     *
+     * @param seconds How long to record
+     * @param mode    cpu or allocation, for collapsed stacks
+     * @param focus   The frame prefix to focus the collapsed stacks on; empty for all stacks
+     * @param format  collapsed or jfr
+     * @return The profile, 400 for invalid parameters, or 409 if another recording is running
+     * @throws IOException          if the recording cannot be written or read
+     * @throws InterruptedException if the request thread is interrupted while recording
+     */
+    @PostMapping("/recordings")
+    @Operation(summary = "Record a profile",
+            description = "Records CPU and allocation samples for the given time. Returns collapsed stacks "
+                    + "(flamegraph.pl, speedscope) of one mode, by default focused on the application's frames, "
+                    + "or the JFR file for JDK Mission Control")
+    public ResponseEntity<?> record(
+            @Parameter(description = "Recording time in seconds") @RequestParam(defaultValue = "30") int seconds,
+            @Parameter(description = "cpu or allocation") @RequestParam(defaultValue = "cpu") String mode,
+            @Parameter(description = "Frame prefix to focus on, empty for all stacks") @RequestParam(required = false) String focus,
+            @Parameter(description = "collapsed or jfr") @RequestParam(defaultValue = "collapsed") String format)
+            throws IOException, InterruptedException {
+        
+        Mode profileMode;
+        try {
+            profileMode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return badRequest("Mode must be cpu or allocation");
+        }
+        if (!format.equals("collapsed") && !format.equals("jfr")) {
+            return badRequest("Format must be collapsed or jfr");
+        }
+        
+        Path file;
+        try {
+            file = profiler.record(Duration.ofSeconds(seconds));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        } catch (IllegalStateException e) {
+            return conflict(e.getMessage());
+        }
+        try {
+            if (format.equals("jfr")) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.attachment().filename("profile.jfr").build().toString())
+                        .body(Files.readAllBytes(file));
+            }
+            String stacks = profiler.collapse(file, profileMode, focus != null ? focus : profiler.getApplicationPackage());
+            return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(stacks);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Record allocations for the given time and summarize the top allocation sites of article reads.
+     *
+     * @param seconds How long to record
+     * @param limit   The number of sites to return
+     * @return The summary, 400 for invalid parameters, or 409 if another recording is running
+     * @throws IOException          if the recording cannot be written or read
+     * @throws InterruptedException if the request thread is interrupted while recording
+     */
+    @PostMapping("/article-read-allocations")
+    @Operation(summary = "Top allocation sites of article reads",
+            description = "Records allocation samples for the given time and summarizes those made while reading "
+                    + "single articles by allocating line and object class")
+    public ResponseEntity<?> articleReadAllocations(
+            @Parameter(description = "Recording time in seconds") @RequestParam(defaultValue = "30") int seconds,
+            @Parameter(description = "Number of sites") @RequestParam(defaultValue = "20") int limit)
+            throws IOException, InterruptedException {
+        
+        if (limit <= 0) {
+            return badRequest("Limit must be positive");
+        }
+        Path file;
+        try {
+            file = profiler.record(Duration.ofSeconds(seconds));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        } catch (IllegalStateException e) {
+            return conflict(e.getMessage());
+        }
+        try {
+            AllocationSummary summary = profiler.allocationSites(file, articleReadPath, limit);
+            return ResponseEntity.ok(summary);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static ResponseEntity<Map<String, String>> badRequest(String message) {
+        return ResponseEntity.badRequest().body(Map.of("message", message));
+    }
+    
+    private static ResponseEntity<Map<String, String>> conflict(String message) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", message));
+    }
+}
@@ -1,11 +1,14 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.cache.ResponseCache;
 import com.canvamedium.model.Tag;
 import com.canvamedium.service.TagService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,6 +17,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -23,20 +27,24 @@ import java.util.Map;
  * REST controller for tag operations.
  */
 @RestController
+@Validated
 @RequestMapping("/api/tags")
 @io.swagger.v3.oas.annotations.tags.Tag(name = "Tags", description = "Tag management API")
 public class TagController {
 
     private final TagService tagService;
+    private final ResponseCache responseCache;
 
     /**
      * Constructor with dependencies injection.
      *
-     * @param tagService The tag service
+     * @param tagService    The tag service
+     * @param responseCache The cache for public tag responses
      */
     @Autowired
-    public TagController(TagService tagService) {
+    public TagController(TagService tagService, ResponseCache responseCache) {
         this.tagService = tagService;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -178,14 +186,13 @@ public class TagController {
      */
     @GetMapping("/popular")
     @Operation(summary = "Get popular tags", description = "Returns tags ordered by popularity")
-    public ResponseEntity<Page<Tag>> getPopularTags(
+    public ResponseEntity<byte[]> getPopularTags(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+            @Parameter(description = "Page size, at most " + ResponseCache.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "10") @Min(1) @Max(ResponseCache.MAX_PAGE_SIZE) int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Tag> tags = tagService.getPopularTags(pageable);
-        
-        return ResponseEntity.ok(tags);
+        return responseCache.get(ResponseCache.POPULAR_TAGS, () -> tagService.getPopularTags(pageable), page, size);
     }
 
     /**
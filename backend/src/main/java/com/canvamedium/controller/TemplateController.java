@@ -1,5 +1,6 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import com.canvamedium.service.TemplateService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,10 +27,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST controller for managing Template entities.
@@ -96,22 +99,33 @@ public class TemplateController {
     /**
      * Get a template by ID.
      *
-     * @param id The template ID
-     * @return ResponseEntity containing the template
+     * @param id      The template ID
+     * @param request The current request, checked for If-None-Match / If-Modified-Since
+     * @return ResponseEntity containing the template, or 304 if the client's copy is current
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get template by ID", description = "Get a specific template by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved template",
                     content = @Content(schema = @Schema(implementation = Template.class))),
+            @ApiResponse(responseCode = "304", description = "Template not modified"),
             @ApiResponse(responseCode = "404", description = "Template not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<Template> getTemplateById(
-            @Parameter(description = "Template ID", required = true) @PathVariable Long id) {
+            @Parameter(description = "Template ID", required = true) @PathVariable Long id,
+            WebRequest request) {
+        
+        Optional<Revision> revision = templateService.getTemplateRevision(id);
+        if (revision.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ConditionalResponses.isNotModified(request, revision.get())) {
+            return ConditionalResponses.notModified(request, revision.get());
+        }
         
         return templateService.getTemplateById(id)
-                .map(ResponseEntity::ok)
+                .map(template -> ConditionalResponses.ok(template, template.getVersion(), template.getUpdatedAt()))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -0,0 +1,421 @@
+package com.canvamedium.event;
+
+import com.canvamedium.model.ArticleOutboxEvent;
+import com.canvamedium.repository.ArticleOutboxEventRepository;
+import com.canvamedium.scheduling.LeaderElection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Internal event bus for article lifecycle changes, with transactional outbox semantics.
+ * <p>
+ * {@link #append} writes the event to the {@code article_event_outbox} table in the
+ * transaction of the change, so an event exists if and only if its change was committed, and
+ * the write itself only pays for one insert. After the commit a dispatcher thread picks up the
+ * next due event of each article, in the order they were written, and hands them to a bounded
+ * pool of {@code app.events.threads} delivery threads, one task per article. An article's next
+ * event is only read once the one before it has been delivered, after which the outbox is polled
+ * again right away, so the events of an article are delivered one after the other and in order
+ * while different articles are delivered in parallel, and an article waiting for a retry does
+ * not hold up the others. A full pool leaves the events in the outbox for the next poll, every
+ * {@code app.events.poll-interval}, which also picks up events that were written by an instance
+ * that stopped before delivering them.
+ * <p>
+ * Each event is delivered to every {@link ArticleEventListener}. If one throws, the event is
+ * retried with exponential backoff, and the later events of the article wait for it, until
+ * {@code app.events.max-attempts} attempts have failed; the event is then marked failed and
+ * skipped. Delivery is at least once.
+ * <p>
+ * Only the instance holding the {@value #LEASE_NAME} lease dispatches; the others append events
+ * and try to take the lease every third of {@code app.events.lease-duration}, so one of them
+ * takes over within a lease duration once the dispatcher stops. The dispatcher is thus the only
+ * one claiming events, and events left in flight with none of its deliveries running were left
+ * by a failed delivery or by a previous dispatcher whose lease has expired; they are released
+ * for the next poll. {@code app.events.dispatcher.enabled=false} keeps an instance out of the
+ * election altogether.
+ * <p>
+ * Meters: {@code article.events.lag} (time from the change to its delivery),
+ * {@code article.events.undelivered} and {@code article.events.oldest.age} (the backlog),
+ * {@code article.events.delivered}, {@code article.events.retries} and
+ * {@code article.events.failed}.
+ */
+@Component
+public class ArticleEventBus implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleEventBus.class);
+
+    /**
+     * The lease held by the dispatching instance.
+     */
+    static final String LEASE_NAME = "article-events-dispatcher";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    private final ArticleOutboxEventRepository repository;
+    private final ObjectProvider<ArticleEventListener> listenerProvider;
+    private final LeaderElection leaderElection;
+    private final boolean dispatcherEnabled;
+    private final Duration leaseDuration;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration retention;
+    private final ThreadPoolExecutor delivery;
+    private final ScheduledExecutorService dispatcher;
+    private final Set<Long> articlesInFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private final AtomicLong undelivered = new AtomicLong();
+    private final AtomicLong oldestUndeliveredAgeMillis = new AtomicLong();
+    private final Timer lag;
+    private final Counter delivered;
+    private final Counter retries;
+    private final Counter failed;
+    private volatile List<ArticleEventListener> listeners;
+    private volatile boolean leader;
+    private long leaseValidUntilNanos;
+    private long lastLeaseAttemptNanos;
+    private boolean leaseAttempted;
+    private LocalDateTime lastPurge = LocalDateTime.MIN;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param repository        The outbox repository
+     * @param listenerProvider  The listeners, resolved once the application has started
+     * @param meterRegistry     The registry for the delivery metrics
+     * @param leaderElection    Elects the instance that delivers the events
+     * @param dispatcherEnabled Whether this instance may deliver events
+     * @param leaseDuration     How long the dispatcher holds its lease without renewing it
+     * @param threads           The number of delivery threads
+     * @param queueCapacity     The most articles waiting for a delivery thread
+     * @param pollInterval      The interval between two polls of the outbox
+     * @param batchSize         The most events read per poll
+     * @param maxAttempts       The attempts after which an event is given up on
+     * @param retryBackoff      The delay before the first retry, doubled for each further one
+     * @param maxRetryBackoff   The longest delay between retries
+     * @param retention         How long delivered events are kept
+     */
+    @Autowired
+    public ArticleEventBus(ArticleOutboxEventRepository repository,
+                           ObjectProvider<ArticleEventListener> listenerProvider,
+                           MeterRegistry meterRegistry,
+                           LeaderElection leaderElection,
+                           @Value("${app.events.dispatcher.enabled:true}") boolean dispatcherEnabled,
+                           @Value("${app.events.lease-duration:30s}") Duration leaseDuration,
+                           @Value("${app.events.threads:4}") int threads,
+                           @Value("${app.events.queue-capacity:1000}") int queueCapacity,
+                           @Value("${app.events.poll-interval:1s}") Duration pollInterval,
+                           @Value("${app.events.batch-size:500}") int batchSize,
+                           @Value("${app.events.max-attempts:10}") int maxAttempts,
+                           @Value("${app.events.retry-backoff:1s}") Duration retryBackoff,
+                           @Value("${app.events.max-retry-backoff:5m}") Duration maxRetryBackoff,
+                           @Value("${app.events.retention:7d}") Duration retention) {
+        this.repository = repository;
+        this.listenerProvider = listenerProvider;
+        this.leaderElection = leaderElection;
+        this.dispatcherEnabled = dispatcherEnabled;
+        this.leaseDuration = leaseDuration;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.retention = retention;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.delivery = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "article-events-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "article-events-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.lag = Timer.builder("article.events.lag")
+                .description("Time from an article change to the delivery of its event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.delivered = Counter.builder("article.events.delivered").register(meterRegistry);
+        this.retries = Counter.builder("article.events.retries").register(meterRegistry);
+        this.failed = Counter.builder("article.events.failed").register(meterRegistry);
+        Gauge.builder("article.events.undelivered", undelivered, AtomicLong::get)
+                .description("Events written to the outbox and not delivered yet")
+                .register(meterRegistry);
+        Gauge.builder("article.events.oldest.age", oldestUndeliveredAgeMillis, age -> age.get() / 1000.0)
+                .description("Age of the oldest undelivered event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("article.events.executor.queued", delivery, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Write an event in the current transaction, to be delivered once it commits.
+     *
+     * @param articleId The ID of the article
+     * @param type      What happened to the article
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Long articleId, ArticleLifecycleEvent.Type type) {
+        repository.save(new ArticleOutboxEvent(articleId, type, LocalDateTime.now()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestPoll();
+            }
+        });
+    }
+
+    /**
+     * Start delivering once the application, and with it every listener, is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!dispatcherEnabled) {
+            return;
+        }
+        listeners = listenerProvider.orderedStream().toList();
+        logger.info("Delivering article events to {} listeners", listeners.size());
+        dispatcher.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Poll the outbox now instead of at the next interval, e.g. after a commit. Requests made
+     * while a poll is waiting to run are merged into it.
+     */
+    void requestPoll() {
+        if (listeners != null && pollRequested.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> {
+                    pollRequested.set(false);
+                    poll();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Check whether this instance currently delivers the events.
+     *
+     * @return true if it holds the dispatcher lease
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Hand the pending events to the delivery threads, grouped by article, if this instance holds
+     * the dispatcher lease. Runs on the dispatcher thread only.
+     */
+    void poll() {
+        try {
+            if (!holdLease()) {
+                return;
+            }
+            // Articles that were being delivered before the read may have changed their events
+            // since; they are left to the next poll. Articles not in this set have no task, so
+            // their events are read as their last delivery left them.
+            Set<Long> busy = new HashSet<>(articlesInFlight);
+            if (busy.isEmpty()) {
+                // Only the lease holder claims events, so in-flight events were left by a failed
+                // task or by a previous dispatcher whose lease has expired
+                repository.releaseAll();
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (ArticleOutboxEvent event : repository.findPending(now, PageRequest.of(0, batchSize))) {
+                if (busy.contains(event.getArticleId())) {
+                    continue;
+                }
+                if (!submit(event.getArticleId(), List.of(event))) {
+                    break;
+                }
+            }
+
+            undelivered.set(repository.countUndelivered());
+            LocalDateTime oldest = repository.findOldestUndeliveredCreatedAt();
+            oldestUndeliveredAgeMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, now).toMillis()));
+            if (lastPurge.plus(PURGE_INTERVAL).isBefore(now)) {
+                int purged = repository.deleteDispatchedBefore(now.minus(retention));
+                logger.debug("Purged {} delivered article events", purged);
+                lastPurge = now;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Polling the article event outbox failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Take or renew the dispatcher lease, at most every third of its duration so that polls
+     * requested by commits do not each write the lease.
+     *
+     * @return true if this instance holds the lease
+     */
+    private boolean holdLease() {
+        long now = System.nanoTime();
+        if (leaseAttempted && now - lastLeaseAttemptNanos < leaseDuration.toNanos() / 3) {
+            return leader;
+        }
+        leaseAttempted = true;
+        lastLeaseAttemptNanos = now;
+        try {
+            if (leaderElection.tryAcquire(LEASE_NAME, leaseDuration)) {
+                leaseValidUntilNanos = now + leaseDuration.toNanos();
+                if (!leader) {
+                    leader = true;
+                    logger.info("Delivering article events as {}", leaderElection.getOwner());
+                }
+            } else if (leader) {
+                leader = false;
+                logger.warn("No longer delivering article events: the lease was taken over");
+            }
+        } catch (RuntimeException e) {
+            // Keep delivering until the lease runs out
+            logger.error("Renewing the article events lease failed: {}", e.getMessage(), e);
+            if (leader && System.nanoTime() - leaseValidUntilNanos > 0) {
+                leader = false;
+                logger.warn("No longer delivering article events: the lease could not be renewed");
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Claim the events of an article and hand them to a delivery thread.
+     *
+     * @return false if the delivery threads are saturated
+     */
+    private boolean submit(Long articleId, List<ArticleOutboxEvent> events) {
+        List<Long> ids = events.stream().map(ArticleOutboxEvent::getId).toList();
+        articlesInFlight.add(articleId);
+        repository.claim(ids);
+        try {
+            delivery.execute(() -> deliver(articleId, events, ids));
+            return true;
+        } catch (RejectedExecutionException e) {
+            repository.release(ids);
+            articlesInFlight.remove(articleId);
+            return false;
+        }
+    }
+
+    /**
+     * Deliver the events of one article in order, stopping at the first that is to be retried.
+     */
+    private void deliver(Long articleId, List<ArticleOutboxEvent> events, List<Long> ids) {
+        int done = 0;
+        try {
+            while (done < events.size() && deliver(events.get(done))) {
+                done++;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Delivering the events of article {} failed: {}", articleId, e.getMessage(), e);
+        } finally {
+            try {
+                if (done < events.size()) {
+                    repository.release(ids.subList(done, ids.size()));
+                }
+            } finally {
+                articlesInFlight.remove(articleId);
+            }
+            if (done == events.size()) {
+                // The next event of the article, if any, is due now
+                requestPoll();
+            }
+        }
+    }
+
+    /**
+     * Deliver one event to every listener and record the outcome.
+     *
+     * @return true if the event is done with, delivered or given up on
+     */
+    private boolean deliver(ArticleOutboxEvent outboxEvent) {
+        ArticleLifecycleEvent event = outboxEvent.toEvent();
+        try {
+            for (ArticleEventListener listener : listeners) {
+                listener.onArticleEvent(event);
+            }
+        } catch (Exception e) {
+            int attempts = outboxEvent.getAttempts() + 1;
+            String error = e.toString().length() > MAX_ERROR_LENGTH ? e.toString().substring(0, MAX_ERROR_LENGTH) : e.toString();
+            if (attempts >= maxAttempts) {
+                logger.error("Giving up on article event {} ({} of article {}) after {} attempts: {}",
+                        event.sequence(), event.type(), event.articleId(), attempts, error);
+                repository.markFailed(outboxEvent.getId(), attempts, error);
+                failed.increment();
+                return true;
+            }
+            Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+            if (backoff.compareTo(maxRetryBackoff) > 0) {
+                backoff = maxRetryBackoff;
+            }
+            logger.warn("Article event {} ({} of article {}) failed, attempt {}; retrying in {}: {}",
+                    event.sequence(), event.type(), event.articleId(), attempts, backoff, error);
+            repository.markRetry(outboxEvent.getId(), attempts, LocalDateTime.now().plus(backoff), error);
+            retries.increment();
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        repository.markDispatched(outboxEvent.getId(), now);
+        lag.record(Duration.between(event.occurredAt(), now));
+        delivered.increment();
+        return true;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        dispatcher.shutdownNow();
+        delivery.shutdown();
+        if (!delivery.awaitTermination(10, TimeUnit.SECONDS)) {
+            delivery.shutdownNow();
+        }
+        if (leader) {
+            leader = false;
+            try {
+                leaderElection.release(LEASE_NAME);
+            } catch (RuntimeException e) {
+                logger.warn("Releasing the article events lease failed: {}", e.getMessage());
+            }
+        }
+    }
+}
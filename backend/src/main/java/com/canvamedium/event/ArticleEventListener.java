@@ -0,0 +1,20 @@
+package com.canvamedium.event;
+
+/**
+ * A side effect of article lifecycle changes, run asynchronously after the change has been
+ * committed. Every bean implementing this interface gets every {@link ArticleLifecycleEvent}.
+ * <p>
+ * If a listener throws, the event is delivered again to all listeners after a backoff, and the
+ * later events of that article wait for it, so listeners must be idempotent.
+ */
+@FunctionalInterface
+public interface ArticleEventListener {
+
+    /**
+     * Handle an event.
+     *
+     * @param event The event
+     * @throws Exception if the event could not be handled and should be retried
+     */
+    void onArticleEvent(ArticleLifecycleEvent event) throws Exception;
+}
@@ -0,0 +1,32 @@
+package com.canvamedium.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change in the lifecycle of an article, delivered by the {@link ArticleEventBus} to the
+ * {@link ArticleEventListener}s after the change has been committed. Events of one article are
+ * delivered in the order they happened; an event may be delivered more than once.
+ *
+ * @param sequence   The position of the event in the outbox, increasing with each event
+ * @param articleId  The ID of the article
+ * @param type       What happened to the article
+ * @param occurredAt When the change was made
+ */
+public record ArticleLifecycleEvent(long sequence, Long articleId, Type type, LocalDateTime occurredAt) {
+
+    /**
+     * Enum defining the lifecycle changes.
+     */
+    public enum Type {
+        PUBLISHED,
+        UNPUBLISHED,
+        ARCHIVED,
+        FEATURED,
+        UNFEATURED,
+        /**
+         * The tags or categories of a published article changed.
+         */
+        TAGS_CHANGED,
+        DELETED
+    }
+}
@@ -0,0 +1,14 @@
+package com.canvamedium.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the article service when a draft has been scheduled for publication, so that the
+ * scheduler of this instance can pick it up without waiting for its next refresh. Listeners
+ * should handle it with {@link org.springframework.transaction.event.TransactionalEventListener}.
+ *
+ * @param articleId The ID of the draft
+ * @param publishAt When the draft is to be published
+ */
+public record ArticlePublicationScheduledEvent(Long articleId, LocalDateTime publishAt) {
+}
@@ -0,0 +1,24 @@
+package com.canvamedium.event;
+
+/**
+ * Published by the services when an article, category, tag or template has been created,
+ * updated or deleted. Listeners that depend on the change being visible to other transactions should handle it with
+ * {@link org.springframework.transaction.event.TransactionalEventListener}.
+ *
+ * @param entityType The type of the changed entity
+ * @param id         The ID of the changed entity, may be null if it was never persisted
+ * @param published  Whether the change can show in public responses: false for an article that
+ *                   was not published before and is not published after the change
+ */
+public record ContentChangedEvent(Class<?> entityType, Long id, boolean published) {
+
+    /**
+     * Create an event for a change that can show in public responses.
+     *
+     * @param entityType The type of the changed entity
+     * @param id         The ID of the changed entity, may be null if it was never persisted
+     */
+    public ContentChangedEvent(Class<?> entityType, Long id) {
+        this(entityType, id, true);
+    }
+}
@@ -0,0 +1,11 @@
+package com.canvamedium.event;
+
+/**
+ * Published by the user service when the password, roles or enabled state of an account has
+ * changed, or the account has been deleted, so that sessions issued before the change can be
+ * revoked.
+ *
+ * @param username The username of the changed account
+ */
+public record UserAccountChangedEvent(String username) {
+}
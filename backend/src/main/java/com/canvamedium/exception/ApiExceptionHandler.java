@@ -2,6 +2,8 @@ package com.canvamedium.exception;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -37,6 +39,40 @@ public class ApiExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.NOT_FOUND);
     }
     
+    /**
+     * Handle optimistic locking failures caused by concurrent modifications.
+     *
+     * @param ex The exception
+     * @return ResponseEntity with error details
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        ApiError apiError = new ApiError(
+                HttpStatus.CONFLICT.value(),
+                "The resource was modified concurrently, reload it and try again",
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+    
+    /**
+     * Handle pessimistic locking failures, such as an update of an article whose status a
+     * concurrent transaction changed, which moves its row to another partition of the article
+     * table (SQLState 40001 on PostgreSQL). The update can be retried once the article is reloaded.
+     *
+     * @param ex The exception
+     * @return ResponseEntity with error details
+     */
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handlePessimisticLockingFailure(PessimisticLockingFailureException ex) {
+        ApiError apiError = new ApiError(
+                HttpStatus.CONFLICT.value(),
+                "The resource was modified concurrently, reload it and try again",
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+    
     /**
      * Handle validation exceptions from @Valid annotations.
      *
@@ -1,5 +1,7 @@
 package com.canvamedium.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -16,9 +18,11 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -91,6 +95,9 @@ public class Article {
     @Column(name = "published_at")
     private LocalDateTime publishedAt;
     
+    @Column(name = "scheduled_publish_at")
+    private LocalDateTime scheduledPublishAt;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -100,6 +107,25 @@ public class Article {
     @Column(name = "featured", nullable = false)
     private boolean featured = false;
     
+    // Written only by ArticleViewCounter, so that saving an article never overwrites its views.
+    // Views do not change the version, so cached bodies and ETags would serve stale counts
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "view_count", nullable = false, insertable = false, updatable = false)
+    private long viewCount;
+    
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "trending_score", nullable = false, insertable = false, updatable = false)
+    private double trendingScore;
+    
+    // Server-controlled: clients send the version they edited in If-Match, never in the body,
+    // and a version set on a new article would make Hibernate treat it as detached
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     /**
      * Default constructor for JPA.
      */
@@ -373,6 +399,24 @@ public class Article {
         this.publishedAt = publishedAt;
     }
     
+    /**
+     * Gets the time this draft is scheduled to be published at.
+     *
+     * @return The scheduled publication time, or null if the article is not scheduled
+     */
+    public LocalDateTime getScheduledPublishAt() {
+        return scheduledPublishAt;
+    }
+    
+    /**
+     * Sets the time this draft is scheduled to be published at.
+     *
+     * @param scheduledPublishAt The scheduled publication time, or null to unschedule it
+     */
+    public void setScheduledPublishAt(LocalDateTime scheduledPublishAt) {
+        this.scheduledPublishAt = scheduledPublishAt;
+    }
+    
     /**
      * Gets the article creation timestamp.
      *
@@ -427,6 +471,36 @@ public class Article {
         this.featured = featured;
     }
     
+    /**
+     * Gets the number of views, as of the last flush of the view counters.
+     * Not part of the article JSON.
+     *
+     * @return The view count
+     */
+    public long getViewCount() {
+        return viewCount;
+    }
+    
+    /**
+     * Gets the trending score: the log2 of the views, each weighted by how recent it is. Only
+     * meaningful for comparing articles; {@code sort=popularity} sorts by it.
+     *
+     * @return The trending score
+     */
+    public double getTrendingScore() {
+        return trendingScore;
+    }
+    
+    /**
+     * Gets the optimistic locking version of the article.
+     * The version is incremented by Hibernate on every update.
+     *
+     * @return The article version
+     */
+    public Long getVersion() {
+        return version;
+    }
+    
     /**
      * Pre-persist hook to set creation and update timestamps.
      */
@@ -445,23 +519,25 @@ public class Article {
     }
     
     /**
-     * Publishes this article if it is currently in DRAFT status.
+     * Publishes this article if it is currently in DRAFT status, clearing any scheduled publication.
      */
     public void publish() {
         if (this.status == Status.DRAFT) {
             this.status = Status.PUBLISHED;
             this.publishedAt = LocalDateTime.now();
             this.updatedAt = LocalDateTime.now();
+            this.scheduledPublishAt = null;
         }
     }
     
     /**
-     * Archives this article.
+     * Archives this article, clearing any scheduled publication.
      */
     public void archive() {
         if (this.status != Status.ARCHIVED) {
             this.status = Status.ARCHIVED;
             this.updatedAt = LocalDateTime.now();
+            this.scheduledPublishAt = null;
         }
     }
     
@@ -0,0 +1,167 @@
+package com.canvamedium.model;
+
+import com.canvamedium.event.ArticleLifecycleEvent;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing an article lifecycle event in the transactional outbox, written in the
+ * same transaction as the change and delivered after commit by the
+ * {@link com.canvamedium.event.ArticleEventBus}.
+ */
+@Entity
+@Table(name = "article_event_outbox")
+public class ArticleOutboxEvent {
+
+    /**
+     * Enum defining the delivery states of an event.
+     */
+    public enum Status {
+        PENDING,
+        /** Handed to the delivery executor. */
+        IN_FLIGHT,
+        DISPATCHED,
+        /** Given up on after the maximum number of attempts. */
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private ArticleLifecycleEvent.Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public ArticleOutboxEvent() {
+    }
+
+    /**
+     * Constructor for a new pending event.
+     *
+     * @param articleId The ID of the article
+     * @param type      What happened to the article
+     * @param createdAt When it happened
+     */
+    public ArticleOutboxEvent(Long articleId, ArticleLifecycleEvent.Type type, LocalDateTime createdAt) {
+        this.articleId = articleId;
+        this.type = type;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Converts the row to the event delivered to listeners.
+     *
+     * @return The event
+     */
+    public ArticleLifecycleEvent toEvent() {
+        return new ArticleLifecycleEvent(id, articleId, type, createdAt);
+    }
+
+    /**
+     * Gets the ID, which orders the events.
+     *
+     * @return The ID
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the article ID.
+     *
+     * @return The ID of the article
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * Gets the type.
+     *
+     * @return What happened to the article
+     */
+    public ArticleLifecycleEvent.Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the delivery status.
+     *
+     * @return The status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the number of failed delivery attempts.
+     *
+     * @return The number of attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Gets the creation time.
+     *
+     * @return When the change was made
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets the time of the next delivery attempt after a failure.
+     *
+     * @return The time, or null if the event has not failed
+     */
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    /**
+     * Gets the delivery time.
+     *
+     * @return When the event was delivered, or null
+     */
+    public LocalDateTime getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+    /**
+     * Gets the error of the last failed attempt.
+     *
+     * @return The error message, or null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
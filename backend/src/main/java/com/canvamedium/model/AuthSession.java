@@ -0,0 +1,145 @@
+package com.canvamedium.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a stored opaque access or refresh token.
+ * Only the SHA-256 hash of the token is stored, so a leaked table does not leak sessions.
+ */
+@Entity
+@Table(name = "auth_session")
+public class AuthSession implements Persistable<String> {
+
+    /**
+     * Enum defining the kinds of tokens.
+     */
+    public enum Kind {
+        ACCESS,
+        REFRESH,
+        /** A refresh token that has been exchanged; using it again revokes its family. */
+        ROTATED
+    }
+
+    @Id
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private Kind kind;
+
+    @Column(name = "family_id", nullable = false)
+    private String familyId;
+
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "roles", nullable = false)
+    private String roles;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public AuthSession() {
+    }
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param tokenHash The hex SHA-256 hash of the token
+     * @param kind      The kind of token
+     * @param familyId  The ID shared by the tokens of one login
+     * @param username  The username of the user
+     * @param roles     The comma-separated roles of the user
+     * @param expiresAt When the token expires
+     */
+    public AuthSession(String tokenHash, Kind kind, String familyId, String username, String roles,
+                       LocalDateTime expiresAt) {
+        this.tokenHash = tokenHash;
+        this.kind = kind;
+        this.familyId = familyId;
+        this.username = username;
+        this.roles = roles;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the token hash.
+     *
+     * @return The hex SHA-256 hash of the token
+     */
+    @Override
+    public String getId() {
+        return tokenHash;
+    }
+
+    /**
+     * Tells Spring Data to insert new sessions without looking them up first.
+     *
+     * @return true until the session has been persisted or loaded
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    /**
+     * Gets the kind of token.
+     *
+     * @return The kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the family ID.
+     *
+     * @return The ID shared by the tokens of one login
+     */
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    /**
+     * Gets the username.
+     *
+     * @return The username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the roles.
+     *
+     * @return The comma-separated roles
+     */
+    public String getRoles() {
+        return roles;
+    }
+
+    /**
+     * Gets the expiry time.
+     *
+     * @return When the token expires
+     */
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
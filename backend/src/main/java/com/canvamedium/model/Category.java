@@ -1,5 +1,6 @@
 package com.canvamedium.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -43,6 +44,7 @@ public class Category {
     @Column(name = "parent_id")
     private Long parentId;
 
+    @JsonIgnore
     @ManyToMany(mappedBy = "categories")
     private Set<Article> articles = new HashSet<>();
 
@@ -0,0 +1,93 @@
+package com.canvamedium.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a named lease held by one application instance at a time, used to elect
+ * the instance that runs a cluster-wide task. The holder renews the lease before it expires;
+ * another instance can take it over once it has.
+ */
+@Entity
+@Table(name = "leader_lease")
+public class LeaderLease implements Persistable<String> {
+
+    @Id
+    @Column(name = "name", nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public LeaderLease() {
+    }
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param name      The name of the task the lease is for
+     * @param owner     The ID of the holding instance
+     * @param expiresAt When the lease expires unless renewed
+     */
+    public LeaderLease(String name, String owner, LocalDateTime expiresAt) {
+        this.name = name;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return The name of the task the lease is for
+     */
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    /**
+     * Tells Spring Data to insert new leases without looking them up first, so that two
+     * instances creating the same lease fail on the primary key instead of overwriting each other.
+     *
+     * @return true until the lease has been persisted or loaded
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    /**
+     * Gets the owner.
+     *
+     * @return The ID of the holding instance
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the expiry time.
+     *
+     * @return When the lease expires unless renewed
+     */
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,95 @@
+package com.canvamedium.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording how far a named rebuild that walks the articles in ID order has got, so that
+ * a rebuild interrupted by a restart resumes after the last article it finished instead of being
+ * taken for complete or started over.
+ */
+@Entity
+@Table(name = "rebuild_progress")
+public class RebuildProgress {
+
+    @Id
+    @Column(name = "name", nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public RebuildProgress() {
+    }
+
+    /**
+     * Constructor for a rebuild that has not started yet.
+     *
+     * @param name The name of the rebuild
+     */
+    public RebuildProgress(String name) {
+        this.name = name;
+        this.lastId = 0L;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return The name of the rebuild
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the last ID.
+     *
+     * @return The ID of the last article rebuilt, or 0 if none has been
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Gets the completion time.
+     *
+     * @return When the rebuild completed, or null if it has not
+     */
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * Checks whether the rebuild completed.
+     *
+     * @return true if every article has been rebuilt
+     */
+    public boolean isCompleted() {
+        return completedAt != null;
+    }
+
+    /**
+     * Record that the articles up to an ID have been rebuilt.
+     *
+     * @param lastId The ID of the last article rebuilt
+     */
+    public void advance(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    /**
+     * Record that every article has been rebuilt.
+     *
+     * @param completedAt When the rebuild completed
+     */
+    public void complete(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,141 @@
+package com.canvamedium.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Entity representing one entry of the precomputed list of articles related to an article: a
+ * published article that shares tags or categories with it, and how similar the two are. The
+ * entries are only ever inserted and deleted, never updated.
+ */
+@Entity
+@Table(name = "article_related")
+@IdClass(RelatedArticle.Key.class)
+public class RelatedArticle implements Persistable<RelatedArticle.Key> {
+
+    @Id
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+
+    @Id
+    @Column(name = "related_id", nullable = false)
+    private Long relatedId;
+
+    @Column(name = "score", nullable = false)
+    private double score;
+
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public RelatedArticle() {
+    }
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param articleId The ID of the article the entry belongs to
+     * @param relatedId The ID of the related article
+     * @param score     The similarity of the two articles, between 0 and 1
+     */
+    public RelatedArticle(Long articleId, Long relatedId, double score) {
+        this.articleId = articleId;
+        this.relatedId = relatedId;
+        this.score = score;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(articleId, relatedId);
+    }
+
+    /**
+     * Tells Spring Data to insert new entries without looking them up first.
+     *
+     * @return true until the entry has been persisted or loaded
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    /**
+     * Gets the article ID.
+     *
+     * @return The ID of the article the entry belongs to
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * Gets the related article ID.
+     *
+     * @return The ID of the related article
+     */
+    public Long getRelatedId() {
+        return relatedId;
+    }
+
+    /**
+     * Gets the score.
+     *
+     * @return The similarity of the two articles, between 0 and 1
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * The primary key of an entry.
+     */
+    public static class Key implements Serializable {
+
+        private Long articleId;
+        private Long relatedId;
+
+        /**
+         * Default constructor for JPA.
+         */
+        public Key() {
+        }
+
+        /**
+         * Constructor with all fields.
+         *
+         * @param articleId The ID of the article the entry belongs to
+         * @param relatedId The ID of the related article
+         */
+        public Key(Long articleId, Long relatedId) {
+            this.articleId = articleId;
+            this.relatedId = relatedId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(articleId, key.articleId) && Objects.equals(relatedId, key.relatedId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(articleId, relatedId);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.canvamedium.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The version and last update time of an entity, read without loading the entity itself.
+ * Used to answer conditional requests (ETag / Last-Modified) before fetching large JSON content.
+ *
+ * @param version   The optimistic locking version
+ * @param updatedAt The last update timestamp
+ */
+public record Revision(Long version, LocalDateTime updatedAt) {
+}
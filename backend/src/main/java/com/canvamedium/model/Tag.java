@@ -1,5 +1,6 @@
 package com.canvamedium.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -27,6 +28,7 @@ public class Tag {
     @Column(name = "slug", nullable = false, unique = true)
     private String slug;
 
+    @JsonIgnore
     @ManyToMany(mappedBy = "tags")
     private Set<Article> articles = new HashSet<>();
 
@@ -7,6 +7,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.JdbcTypeCode;
@@ -53,7 +54,8 @@ public class Template {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
-    @Column(name = "version")
+    @Version
+    @Column(name = "version", nullable = false)
     private Integer version = 1;
     
     @Column(name = "thumbnail_url")
@@ -209,6 +211,7 @@ public class Template {
     
     /**
      * Gets the template version.
+     * The version is used for optimistic locking and is incremented by Hibernate on every update.
      *
      * @return The template version
      */
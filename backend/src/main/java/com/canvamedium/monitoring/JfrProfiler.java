@@ -0,0 +1,288 @@
+package com.canvamedium.monitoring;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Time-boxed Java Flight Recorder profiles of the running application.
+ * <p>
+ * A recording samples the executing threads every {@code app.profiling.cpu-sampling-interval}
+ * and the allocations at up to {@code app.profiling.allocation-samples-per-second}, so it can
+ * run under production load. Only one recording runs at a time and none runs longer than
+ * {@code app.profiling.max-duration}.
+ * <p>
+ * Profiles are returned as raw JFR files (for JDK Mission Control) or as collapsed stacks, one
+ * line per distinct stack with its frames from the root, separated by {@code ;}, and its
+ * sample count or allocated bytes, the input of flamegraph.pl and speedscope. JFR records at
+ * most 64 frames per stack unless the JVM is started with
+ * {@code -XX:FlightRecorderOptions:stackdepth=256}; the root end of deeper stacks is cut off.
+ */
+@Component
+public class JfrProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrProfiler.class);
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String TRUNCATED_FRAME = "[truncated]";
+    private static final String LAMBDA = "$$Lambda";
+
+    /**
+     * What a profile measures.
+     */
+    public enum Mode {
+
+        /** Where the threads spend their time, in samples. */
+        CPU,
+        /** Where memory is allocated, in bytes. */
+        ALLOCATION
+    }
+
+    /**
+     * An allocation site in the sampled allocations.
+     *
+     * @param frame            The allocating method and line
+     * @param objectClass      The class of the allocated objects
+     * @param applicationFrame The innermost application method on the way to it, or null
+     * @param bytes            The estimated bytes allocated
+     * @param samples          The number of samples
+     * @param share            The share of the bytes in the summarized allocations
+     */
+    public record AllocationSite(String frame, String objectClass, String applicationFrame, long bytes,
+                                 long samples, double share) {
+    }
+
+    /**
+     * The top allocation sites under some entry frames.
+     *
+     * @param entryFrames  The frames the allocations were summarized under
+     * @param totalBytes   The estimated bytes allocated by the whole application
+     * @param matchedBytes The estimated bytes allocated under the entry frames
+     * @param sites        The sites with the most bytes, in descending order
+     */
+    public record AllocationSummary(List<String> entryFrames, long totalBytes, long matchedBytes,
+                                    List<AllocationSite> sites) {
+    }
+
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private final Duration maxDuration;
+    private final Duration cpuSamplingInterval;
+    private final int allocationSamplesPerSecond;
+    private final String applicationPackage;
+
+    /**
+     * Create the profiler.
+     *
+     * @param maxDuration                The longest recording allowed
+     * @param cpuSamplingInterval        The interval between two samples of a running thread
+     * @param allocationSamplesPerSecond The most allocation samples per second
+     * @param applicationPackage         The package prefix of the application's own frames
+     */
+    public JfrProfiler(
+            @Value("${app.profiling.max-duration:5m}") Duration maxDuration,
+            @Value("${app.profiling.cpu-sampling-interval:10ms}") Duration cpuSamplingInterval,
+            @Value("${app.profiling.allocation-samples-per-second:300}") int allocationSamplesPerSecond,
+            @Value("${app.profiling.application-package:com.canvamedium}") String applicationPackage) {
+        this.maxDuration = maxDuration;
+        this.cpuSamplingInterval = cpuSamplingInterval;
+        this.allocationSamplesPerSecond = allocationSamplesPerSecond;
+        this.applicationPackage = applicationPackage;
+    }
+
+    /**
+     * @return The package prefix of the application's own frames
+     */
+    public String getApplicationPackage() {
+        return applicationPackage;
+    }
+
+    /**
+     * Record CPU and allocation samples for the given time, blocking until it has passed.
+     *
+     * @param duration How long to record
+     * @return The JFR file, which the caller deletes
+     * @throws IllegalArgumentException if the duration is not positive or over the maximum
+     * @throws IllegalStateException    if another recording is running
+     * @throws IOException              if the recording cannot be written
+     * @throws InterruptedException     if the thread is interrupted while recording
+     */
+    public Path record(Duration duration) throws IOException, InterruptedException {
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + maxDuration);
+        }
+        if (!recording.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another recording is running");
+        }
+        try {
+            Path file = Files.createTempFile("canvamedium-profile-", ".jfr");
+            try (Recording jfr = new Recording()) {
+                jfr.setName("canvamedium-profile");
+                jfr.setToDisk(true);
+                jfr.enable(EXECUTION_SAMPLE).withPeriod(cpuSamplingInterval).withStackTrace();
+                jfr.enable(ALLOCATION_SAMPLE).with("throttle", allocationSamplesPerSecond + "/s").withStackTrace();
+                logger.info("Recording a profile for {}", duration);
+                jfr.start();
+                Thread.sleep(duration.toMillis());
+                jfr.stop();
+                jfr.dump(file);
+                return file;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    /**
+     * Collapse the stacks of a recording into the input format of flame graph tools.
+     * <p>
+     * With a focus, only stacks through a frame whose {@code class.method} name starts with
+     * it are kept, and their frames below the outermost such frame (threads, servlet
+     * container, filters) are dropped.
+     *
+     * @param file  The JFR file
+     * @param mode  Whether to collapse the CPU samples (counted) or allocation samples (in bytes)
+     * @param focus The frame prefix to focus on, or empty for all stacks
+     * @return One line per distinct stack, {@code root;...;leaf value}, heaviest first
+     * @throws IOException if the file cannot be read
+     */
+    public String collapse(Path file, Mode mode, String focus) throws IOException {
+        Map<String, Long> stacks = new HashMap<>();
+        String eventType = mode == Mode.CPU ? EXECUTION_SAMPLE : ALLOCATION_SAMPLE;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (!event.getEventType().getName().equals(eventType) || event.getStackTrace() == null) {
+                continue;
+            }
+            List<String> frames = rootFirst(event.getStackTrace());
+            if (!focus.isEmpty()) {
+                int outermost = outermostMatch(frames, List.of(focus));
+                if (outermost < 0) {
+                    continue;
+                }
+                frames = frames.subList(outermost, frames.size());
+            }
+            long value = mode == Mode.CPU ? 1 : event.getLong("weight");
+            stacks.merge(String.join(";", frames), value, Long::sum);
+        }
+        return stacks.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .map(stack -> stack.getKey() + " " + stack.getValue())
+                .collect(Collectors.joining("\n", "", stacks.isEmpty() ? "" : "\n"));
+    }
+
+    /**
+     * Summarize the sampled allocations of a recording under some entry frames, e.g. the
+     * handler of article reads, by allocating line and object class.
+     *
+     * @param file        The JFR file
+     * @param entryFrames The {@code class.method} prefixes of the frames to summarize under
+     * @param limit       The number of sites to return
+     * @return The summary
+     * @throws IOException if the file cannot be read
+     */
+    public AllocationSummary allocationSites(Path file, List<String> entryFrames, int limit) throws IOException {
+        Map<List<String>, long[]> sites = new LinkedHashMap<>();
+        Map<List<String>, String> applicationFrames = new HashMap<>();
+        long totalBytes = 0;
+        long matchedBytes = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (!event.getEventType().getName().equals(ALLOCATION_SAMPLE) || event.getStackTrace() == null) {
+                continue;
+            }
+            long weight = event.getLong("weight");
+            totalBytes += weight;
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            if (frames.isEmpty() || outermostMatch(rootFirst(event.getStackTrace()), entryFrames) < 0) {
+                continue;
+            }
+            matchedBytes += weight;
+            RecordedFrame top = frames.get(0);
+            List<String> key = List.of(name(top) + ":" + top.getLineNumber(), event.getClass("objectClass").getName());
+            long[] totals = sites.computeIfAbsent(key, k -> new long[2]);
+            totals[0] += weight;
+            totals[1]++;
+            applicationFrames.computeIfAbsent(key, k -> innermostApplicationFrame(frames));
+        }
+        long summarized = matchedBytes;
+        List<AllocationSite> top = new ArrayList<>();
+        sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<List<String>, long[]> site) -> site.getValue()[0]).reversed())
+                .limit(limit)
+                .forEach(site -> top.add(new AllocationSite(site.getKey().get(0), site.getKey().get(1),
+                        applicationFrames.get(site.getKey()), site.getValue()[0], site.getValue()[1],
+                        summarized == 0 ? 0 : (double) site.getValue()[0] / summarized)));
+        return new AllocationSummary(entryFrames, totalBytes, matchedBytes, top);
+    }
+
+    private String innermostApplicationFrame(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String name = name(frame);
+            if (name.startsWith(applicationPackage)) {
+                return name + ":" + frame.getLineNumber();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The index of the frame nearest the root that starts with one of the prefixes, or -1
+     */
+    private static int outermostMatch(List<String> rootFirstFrames, List<String> prefixes) {
+        for (int i = 0; i < rootFirstFrames.size(); i++) {
+            String frame = rootFirstFrames.get(i);
+            for (String prefix : prefixes) {
+                if (frame.startsWith(prefix)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> rootFirst(RecordedStackTrace stackTrace) {
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        List<String> names = new ArrayList<>(frames.size() + 1);
+        if (stackTrace.isTruncated()) {
+            names.add(TRUNCATED_FRAME);
+        }
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            names.add(name(frames.get(i)));
+        }
+        return names;
+    }
+
+    /**
+     * @return The {@code class.method} name of the frame, with the per-run suffix of lambda
+     *         classes removed so that their stacks merge
+     */
+    private static String name(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        int lambda = type.indexOf(LAMBDA);
+        if (lambda >= 0) {
+            type = type.substring(0, lambda + LAMBDA.length());
+        }
+        return type + "." + frame.getMethod().getName();
+    }
+}
@@ -0,0 +1,28 @@
+package com.canvamedium.monitoring;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements one request to the annotated endpoint may run, including those of
+ * the security filters and of serializing the response. An annotation on the method takes
+ * precedence over one on the controller class.
+ * <p>
+ * {@link QueryInspector} warns about requests over their budget; in test mode integration
+ * tests fail on them.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface QueryBudget {
+
+    /**
+     * The maximum number of statements per request.
+     *
+     * @return The maximum number of statements
+     */
+    int value();
+}
@@ -0,0 +1,303 @@
+package com.canvamedium.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Request-scoped inspector of the SQL statements the application runs.
+ * <p>
+ * As a filter it opens a scope for each request; as a datasource-proxy listener (registered
+ * with the data source by datasource-micrometer) it sees every statement. For each request
+ * it
+ * <ul>
+ *     <li>records the number of statements in {@code http.server.requests.queries}, by route</li>
+ *     <li>warns about statements run {@code app.query-inspector.repeat-threshold} or more times
+ *     with only their parameters changing, the signature of N+1 lazy loading</li>
+ *     <li>warns about endpoints that run more statements than their {@link QueryBudget}</li>
+ * </ul>
+ * Only statements on the request thread are counted, so streamed responses count the
+ * statements before streaming starts. Statements slower than
+ * {@code app.query-inspector.slow-query-threshold}, in a request or not, are logged with their
+ * parameters and, for queries, their plan.
+ * <p>
+ * In test mode ({@code app.query-inspector.test-mode=true}) budget violations are also kept
+ * until {@link #drainBudgetViolations()}, which integration tests use to fail.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryInspector extends OncePerRequestFilter implements QueryExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryInspector.class);
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|with)\\b", Pattern.CASE_INSENSITIVE);
+    private static final int NO_BUDGET = -1;
+    private static final int MAX_LOGGED_LENGTH = 200;
+
+    private final ThreadLocal<RequestQueries> currentRequest = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> explaining = new ThreadLocal<>();
+    private final Map<Method, Integer> budgets = new ConcurrentHashMap<>();
+    private final Queue<String> budgetViolations = new ConcurrentLinkedQueue<>();
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+    private final long slowQueryThresholdMs;
+    private final boolean explainSlowQueries;
+    private final boolean testMode;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param meterRegistry      The registry for the statement counts, the global registry if
+     *                           there is none (e.g. in web slice tests)
+     * @param repeatThreshold    How often one statement may run in a request before it is
+     *                           reported as a possible N+1
+     * @param slowQueryThreshold Statements taking at least this long are logged
+     * @param explainSlowQueries Whether the plans of slow queries are logged
+     * @param testMode           Whether budget violations are kept for tests
+     */
+    @Autowired
+    public QueryInspector(ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${app.query-inspector.repeat-threshold:3}") int repeatThreshold,
+                          @Value("${app.query-inspector.slow-query-threshold:200ms}") Duration slowQueryThreshold,
+                          @Value("${app.query-inspector.explain-slow-queries:true}") boolean explainSlowQueries,
+                          @Value("${app.query-inspector.test-mode:false}") boolean testMode) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), repeatThreshold, slowQueryThreshold,
+                explainSlowQueries, testMode);
+    }
+
+    /**
+     * Constructor for an explicit meter registry.
+     *
+     * @param meterRegistry      The registry for the statement counts
+     * @param repeatThreshold    How often one statement may run in a request before it is
+     *                           reported as a possible N+1
+     * @param slowQueryThreshold Statements taking at least this long are logged
+     * @param explainSlowQueries Whether the plans of slow queries are logged
+     * @param testMode           Whether budget violations are kept for tests
+     */
+    QueryInspector(MeterRegistry meterRegistry, int repeatThreshold, Duration slowQueryThreshold,
+                   boolean explainSlowQueries, boolean testMode) {
+        this.meterRegistry = meterRegistry;
+        this.repeatThreshold = repeatThreshold;
+        this.slowQueryThresholdMs = slowQueryThreshold.toMillis();
+        this.explainSlowQueries = explainSlowQueries;
+        this.testMode = testMode;
+    }
+
+    /**
+     * Get and clear the budget violations recorded in test mode.
+     *
+     * @return One description per request over its budget
+     */
+    public List<String> drainBudgetViolations() {
+        List<String> violations = new ArrayList<>();
+        for (String violation; (violation = budgetViolations.poll()) != null; ) {
+            violations.add(violation);
+        }
+        return violations;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestQueries queries = new RequestQueries(request);
+        currentRequest.set(queries);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            currentRequest.remove();
+            report(queries);
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (explaining.get() != null) {
+            return;
+        }
+        RequestQueries queries = currentRequest.get();
+        if (queries != null) {
+            for (QueryInfo query : queryInfoList) {
+                queries.statements.merge(query.getQuery(), 1, Integer::sum);
+                queries.total++;
+            }
+            checkBudget(queries);
+        }
+        if (execInfo.getElapsedTime() >= slowQueryThresholdMs) {
+            for (QueryInfo query : queryInfoList) {
+                logSlowQuery(execInfo, query);
+            }
+        }
+    }
+
+    /**
+     * Record a budget violation once the request runs more statements than its budget.
+     * Checked as statements run, so that the violation is known before the response is.
+     */
+    private void checkBudget(RequestQueries queries) {
+        if (queries.budget == null) {
+            Object handler = queries.request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if (!(handler instanceof HandlerMethod handlerMethod)) {
+                return;
+            }
+            queries.budget = budgets.computeIfAbsent(handlerMethod.getMethod(), method -> {
+                QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(method, QueryBudget.class);
+                if (budget == null) {
+                    budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+                }
+                return budget != null ? budget.value() : NO_BUDGET;
+            });
+        }
+        if (queries.budget != NO_BUDGET && queries.total > queries.budget && !queries.overBudget) {
+            queries.overBudget = true;
+            if (testMode) {
+                budgetViolations.add(String.format("%s %s ran more than its budget of %d statements: %s",
+                        queries.request.getMethod(), route(queries.request), queries.budget, describe(queries.statements)));
+            }
+        }
+    }
+
+    private void report(RequestQueries queries) {
+        String method = queries.request.getMethod();
+        String route = route(queries.request);
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("SQL statements run per request")
+                .baseUnit("statements")
+                .tag("method", method)
+                .tag("uri", route)
+                .register(meterRegistry)
+                .record(queries.total);
+
+        queries.statements.forEach((sql, count) -> {
+            if (count >= repeatThreshold) {
+                logger.warn("{} {} ran the same statement {} times, possible N+1: {}", method, route, count, abbreviate(sql));
+            }
+        });
+        if (queries.overBudget) {
+            logger.warn("{} {} ran {} statements, over its budget of {}", method, route, queries.total, queries.budget);
+        } else {
+            logger.debug("{} {} ran {} statements", method, route, queries.total);
+        }
+    }
+
+    private void logSlowQuery(ExecutionInfo execInfo, QueryInfo query) {
+        List<ParameterSetOperation> parameters = query.getParametersList().isEmpty()
+                ? List.of() : query.getParametersList().get(0);
+        String plan = explainSlowQueries ? explain(execInfo, query.getQuery(), parameters) : null;
+        logger.warn("Slow query ({} ms): {}, parameters {}{}", execInfo.getElapsedTime(), query.getQuery(),
+                parameters.stream().map(QueryInspector::parameterValue).collect(Collectors.toList()),
+                plan != null ? "\n" + plan : "");
+    }
+
+    /**
+     * Get the plan of a query by running {@code EXPLAIN} with the same parameters on the same
+     * connection. Only successful queries are explained: a failing statement would abort the
+     * surrounding transaction.
+     *
+     * @return The plan, or null if the statement is no query or could not be explained
+     */
+    private String explain(ExecutionInfo execInfo, String sql, List<ParameterSetOperation> parameters) {
+        if (!execInfo.isSuccess() || execInfo.isBatch() || execInfo.getStatementType() == StatementType.CALLABLE
+                || !EXPLAINABLE.matcher(sql).find()) {
+            return null;
+        }
+        explaining.set(Boolean.TRUE);
+        try (PreparedStatement statement = execInfo.getStatement().getConnection().prepareStatement("EXPLAIN " + sql)) {
+            for (ParameterSetOperation parameter : parameters) {
+                parameter.getMethod().invoke(statement, parameter.getArgs());
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(plan.length() > 0 ? "\n" : "").append(rows.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (Exception e) {
+            logger.debug("Could not explain slow query: {}", e.getMessage());
+            return null;
+        } finally {
+            explaining.remove();
+        }
+    }
+
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+    private static String describe(Map<String, Integer> statements) {
+        return statements.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(entry -> entry.getValue() + "x " + abbreviate(entry.getKey()))
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String parameterValue(ParameterSetOperation parameter) {
+        if (ParameterSetOperation.isSetNullParameterOperation(parameter)) {
+            return "null";
+        }
+        Object[] args = parameter.getArgs();
+        return args.length > 1 ? abbreviate(String.valueOf(args[1])) : "?";
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() > MAX_LOGGED_LENGTH ? text.substring(0, MAX_LOGGED_LENGTH) + "..." : text;
+    }
+
+    /**
+     * Statements run by one request.
+     */
+    private static class RequestQueries {
+
+        private final HttpServletRequest request;
+        private final Map<String, Integer> statements = new HashMap<>();
+        private int total;
+        private Integer budget;
+        private boolean overBudget;
+
+        private RequestQueries(HttpServletRequest request) {
+            this.request = request;
+        }
+    }
+}
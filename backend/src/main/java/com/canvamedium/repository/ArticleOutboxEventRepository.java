@@ -0,0 +1,154 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.ArticleOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the article event outbox. Events are appended in the service
+ * transactions; the delivery updates are made by the event bus outside of them, so they run
+ * in their own transaction. The statuses are written as literals so that the queries match
+ * the partial index on undelivered events.
+ */
+@Repository
+public interface ArticleOutboxEventRepository extends JpaRepository<ArticleOutboxEvent, Long> {
+    
+    /**
+     * Find the next event to deliver of each article whose next event is due: the oldest
+     * undelivered event of the article, if it is pending and not waiting for a retry. The later
+     * events of an article wait until it has been delivered, and the events of articles that
+     * wait for a retry do not take up the page.
+     *
+     * @param now      The current time
+     * @param pageable The number of events to return
+     * @return At most one event per article, in the order they were written
+     */
+    @Query("SELECT e FROM ArticleOutboxEvent e "
+            + "WHERE e.status = com.canvamedium.model.ArticleOutboxEvent$Status.PENDING "
+            + "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) "
+            + "AND NOT EXISTS (SELECT 1 FROM ArticleOutboxEvent earlier "
+            + "WHERE earlier.articleId = e.articleId AND earlier.id < e.id AND earlier.status IN ("
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.PENDING, "
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT)) "
+            + "ORDER BY e.id")
+    List<ArticleOutboxEvent> findPending(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Count the events that have not been delivered yet.
+     *
+     * @return The number of pending and in-flight events
+     */
+    @Query("SELECT COUNT(e) FROM ArticleOutboxEvent e WHERE e.status IN ("
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.PENDING, "
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT)")
+    long countUndelivered();
+    
+    /**
+     * Find the creation time of the oldest event that has not been delivered yet.
+     *
+     * @return The time, or null if all events have been delivered
+     */
+    @Query("SELECT MIN(e.createdAt) FROM ArticleOutboxEvent e WHERE e.status IN ("
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.PENDING, "
+            + "com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT)")
+    LocalDateTime findOldestUndeliveredCreatedAt();
+    
+    /**
+     * Hand pending events to the delivery executor.
+     *
+     * @param ids The IDs of the events
+     * @return The number of events claimed
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT "
+            + "WHERE e.id IN :ids AND e.status = com.canvamedium.model.ArticleOutboxEvent$Status.PENDING")
+    int claim(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Return in-flight events that were not delivered to the pending events.
+     *
+     * @param ids The IDs of the events
+     * @return The number of events released
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.PENDING "
+            + "WHERE e.id IN :ids AND e.status = com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT")
+    int release(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Return all in-flight events to the pending events, e.g. those of a previous run that
+     * stopped before delivering them.
+     *
+     * @return The number of events released
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.PENDING "
+            + "WHERE e.status = com.canvamedium.model.ArticleOutboxEvent$Status.IN_FLIGHT")
+    int releaseAll();
+    
+    /**
+     * Mark an event as delivered.
+     *
+     * @param id  The ID of the event
+     * @param now The delivery time
+     * @return The number of events updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.DISPATCHED, "
+            + "e.dispatchedAt = :now, e.lastError = NULL WHERE e.id = :id")
+    int markDispatched(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Record a failed delivery, to be retried.
+     *
+     * @param id            The ID of the event
+     * @param attempts      The number of failed attempts so far
+     * @param nextAttemptAt When to retry
+     * @param error         The error of the attempt
+     * @return The number of events updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.PENDING, "
+            + "e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error WHERE e.id = :id")
+    int markRetry(@Param("id") Long id, @Param("attempts") int attempts,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+    
+    /**
+     * Record the last failed delivery of an event that is given up on.
+     *
+     * @param id       The ID of the event
+     * @param attempts The number of failed attempts
+     * @param error    The error of the last attempt
+     * @return The number of events updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArticleOutboxEvent e SET e.status = com.canvamedium.model.ArticleOutboxEvent$Status.FAILED, "
+            + "e.attempts = :attempts, e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts, @Param("error") String error);
+    
+    /**
+     * Delete the events delivered before the given time.
+     *
+     * @param before The oldest delivery time to keep
+     * @return The number of events deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ArticleOutboxEvent e WHERE e.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") LocalDateTime before);
+}
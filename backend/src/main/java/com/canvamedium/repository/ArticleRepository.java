@@ -2,21 +2,50 @@ package com.canvamedium.repository;
 
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Article entity operations.
+ * The feed and search queries carry the Hibernate read-only hint so that the
+ * loaded articles are never snapshotted for dirty-checking, even when called
+ * from inside a read-write transaction.
+ * <p>
+ * The article table is list-partitioned by status, so queries that filter on a
+ * fixed status (the feeds, drafts, featured articles) only read one partition
+ * and its indexes. Lookups by ID alone probe every partition's primary key.
+ * <p>
+ * The {@code findFirst100...} methods read a list in chunks of {@value #STREAM_CHUNK_SIZE}
+ * articles, each one after the keyset position of the last article of the previous chunk,
+ * so that every chunk is an index range scan however far into the list it is and can be
+ * read in its own short transaction. Keyset positions need non-null sort keys; the ID is
+ * added to the order to make it unique.
  */
 @Repository
-public interface ArticleRepository extends JpaRepository<Article, Long> {
+public interface ArticleRepository extends JpaRepository<Article, Long>, JpaSpecificationExecutor<Article> {
+    
+    /**
+     * Number of articles per chunk of a list read by keyset position.
+     */
+    int STREAM_CHUNK_SIZE = 100;
     
     /**
      * Find articles by title containing the given text (case-insensitive).
@@ -25,6 +54,7 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      * @param pageable Pagination information
      * @return A page of articles matching the search criteria
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
     Page<Article> findByTitleContainingIgnoreCase(String title, Pageable pageable);
     
     /**
@@ -59,6 +89,7 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      * @param pageable Pagination information
      * @return A page of articles with the specified status
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
     Page<Article> findByStatus(Status status, Pageable pageable);
     
     /**
@@ -75,8 +106,19 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      * @param pageable Pagination information
      * @return A page of published articles ordered by publication date
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
     Page<Article> findByStatusOrderByPublishedAtDesc(Status status, Pageable pageable);
     
+    /**
+     * Find the next chunk of articles with a status, ordered by publication date (descending).
+     *
+     * @param status   The article status
+     * @param position The position after the last article of the previous chunk
+     * @return At most {@value #STREAM_CHUNK_SIZE} articles and the position after them
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Window<Article> findFirst100ByStatusOrderByPublishedAtDesc(Status status, ScrollPosition position);
+    
     /**
      * Find articles by status and title containing the given text (case-insensitive).
      *
@@ -114,8 +156,21 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      * @param pageable Pagination information
      * @return A page of featured articles with the specified status
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
     Page<Article> findByFeaturedAndStatus(boolean featured, Status status, Pageable pageable);
     
+    /**
+     * Find the next chunk of featured articles with a status, ordered by publication date (descending).
+     *
+     * @param featured The featured flag
+     * @param status   The article status
+     * @param position The position after the last article of the previous chunk
+     * @return At most {@value #STREAM_CHUNK_SIZE} articles and the position after them
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Window<Article> findFirst100ByFeaturedAndStatusOrderByPublishedAtDesc(boolean featured, Status status,
+                                                                          ScrollPosition position);
+    
     /**
      * Find articles by content containing the given text.
      * Note: This is a JSONB path search for Postgres.
@@ -138,7 +193,7 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      */
     Page<Article> findByTitleContainingIgnoreCaseOrPreviewTextContainingIgnoreCase(
             String searchTerm, String sameSearchTerm, Pageable pageable);
-            
+    
     /**
      * Find articles by template and featured flag.
      *
@@ -172,6 +227,7 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
      * @param pageable   Pagination information
      * @return A page of articles matching all criteria
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
     @Query("SELECT a FROM Article a WHERE " +
            "(:query IS NULL OR LOWER(a.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(a.previewText) LIKE LOWER(CONCAT('%', :query, '%'))) AND " +
@@ -184,4 +240,197 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
             @Param("template") Template template,
             @Param("featured") Boolean featured,
             Pageable pageable);
-} 
\ No newline at end of file
+    
+    /**
+     * Find the version and last update time of an article without loading its content.
+     *
+     * @param id The article ID
+     * @return An Optional containing the revision, or empty if the article does not exist
+     */
+    @Query("SELECT new com.canvamedium.model.Revision(a.version, a.updatedAt) FROM Article a WHERE a.id = :id")
+    Optional<Revision> findRevisionById(@Param("id") Long id);
+    
+    /**
+     * Find the IDs, versions and last update times of several articles without loading them.
+     *
+     * @param ids The article IDs
+     * @return One {@code [id, version, updatedAt]} row per existing article
+     */
+    @Query("SELECT a.id, a.version, a.updatedAt FROM Article a WHERE a.id IN :ids")
+    List<Object[]> findRevisionsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find the drafts scheduled to be published up to the given time, soonest first, without
+     * loading them. Served by the partial index on the scheduled drafts.
+     *
+     * @param until    The latest scheduled time to include
+     * @param pageable The most rows to return
+     * @return One {@code [id, scheduledPublishAt]} row per scheduled draft
+     */
+    @Query("SELECT a.id, a.scheduledPublishAt FROM Article a "
+            + "WHERE a.status = com.canvamedium.model.Article$Status.DRAFT AND a.scheduledPublishAt <= :until "
+            + "ORDER BY a.scheduledPublishAt")
+    List<Object[]> findScheduledPublications(@Param("until") LocalDateTime until, Pageable pageable);
+    
+    /**
+     * Find which of the given articles are drafts whose scheduled publication time has come.
+     *
+     * @param ids The article IDs
+     * @param now The current time
+     * @return The articles due for publication
+     */
+    @Query("SELECT a FROM Article a WHERE a.id IN :ids "
+            + "AND a.status = com.canvamedium.model.Article$Status.DRAFT AND a.scheduledPublishAt <= :now")
+    List<Article> findDueForPublication(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    /**
+     * Find the current optimistic locking version of an article without loading it.
+     *
+     * @param id The article ID
+     * @return An Optional containing the version, or empty if the article does not exist
+     */
+    @Query("SELECT a.version FROM Article a WHERE a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    /**
+     * Find the current status of an article without loading it.
+     *
+     * @param id The article ID
+     * @return An Optional containing the status, or empty if the article does not exist
+     */
+    @Query("SELECT a.status FROM Article a WHERE a.id = :id")
+    Optional<Status> findStatusById(@Param("id") Long id);
+    
+    /**
+     * Find an article by ID if it has the given status. The status is part of the primary key of
+     * the partitioned article table, so this reads a single partition; prefer it to
+     * {@link #findById} wherever the expected status is known.
+     *
+     * @param id     The article ID
+     * @param status The status the article must have
+     * @return An Optional containing the article, or empty if it does not exist with that status
+     */
+    Optional<Article> findByIdAndStatus(Long id, Status status);
+    
+    /**
+     * Find the articles with the given IDs that have the given status, reading a single partition.
+     *
+     * @param ids    The article IDs
+     * @param status The status the articles must have
+     * @return The matching articles, in no particular order
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Article> findByIdInAndStatus(Collection<Long> ids, Status status);
+    
+    /**
+     * Check whether an article exists with the given status, reading a single partition.
+     *
+     * @param id     The article ID
+     * @param status The status
+     * @return true if the article exists with that status
+     */
+    boolean existsByIdAndStatus(Long id, Status status);
+    
+    /**
+     * Find the IDs of the published articles after a given ID, in ID order, to walk all published
+     * articles page by page without an offset.
+     *
+     * @param afterId  The last ID of the previous page, or 0 for the first page
+     * @param pageable The most IDs to return
+     * @return The IDs
+     */
+    @Query("SELECT a.id FROM Article a "
+            + "WHERE a.status = com.canvamedium.model.Article$Status.PUBLISHED AND a.id > :afterId ORDER BY a.id")
+    List<Long> findPublishedIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Find the IDs of the published articles with a tag.
+     *
+     * @param tagId The tag ID
+     * @return The article IDs
+     */
+    @Query("SELECT a.id FROM Article a JOIN a.tags t "
+            + "WHERE t.id = :tagId AND a.status = com.canvamedium.model.Article$Status.PUBLISHED")
+    List<Long> findPublishedIdsByTagId(@Param("tagId") Long tagId);
+    
+    /**
+     * Find the IDs of the published articles in a category.
+     *
+     * @param categoryId The category ID
+     * @return The article IDs
+     */
+    @Query("SELECT a.id FROM Article a JOIN a.categories c "
+            + "WHERE c.id = :categoryId AND a.status = com.canvamedium.model.Article$Status.PUBLISHED")
+    List<Long> findPublishedIdsByCategoryId(@Param("categoryId") Long categoryId);
+    
+    /**
+     * Merge changes into a single block of an article's content in place.
+     * The block is the element of {@code content.elements} whose {@code id} matches; its
+     * top-level fields are overwritten by {@code changes} (except {@code id}) with
+     * {@code jsonb_set}, so the document is never loaded or re-sent by the application.
+     * The article version is incremented like a regular entity update.
+     *
+     * @param id              The article ID
+     * @param blockId         The ID of the content block to change
+     * @param changes         A JSON object with the block fields to set
+     * @param expectedVersion The version the article must be at, or null to skip the check
+     * @param updatedAt       The new update timestamp
+     * @return The number of articles updated, 0 if the article, block or version did not match
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE article SET " +
+           "content = jsonb_set(content, ARRAY['elements', b.idx], " +
+           "(content -> 'elements' -> CAST(b.idx AS int)) || (CAST(:changes AS jsonb) - 'id')), " +
+           "updated_at = :updatedAt, " +
+           "version = version + 1 " +
+           "FROM (SELECT CAST(e.ord - 1 AS text) AS idx " +
+           "FROM article x, jsonb_array_elements(x.content -> 'elements') WITH ORDINALITY AS e(block, ord) " +
+           "WHERE x.id = :id AND e.block ->> 'id' = :blockId LIMIT 1) b " +
+           "WHERE article.id = :id AND article.version = COALESCE(CAST(:expectedVersion AS bigint), article.version)",
+           nativeQuery = true)
+    int updateContentBlock(@Param("id") Long id,
+                           @Param("blockId") String blockId,
+                           @Param("changes") String changes,
+                           @Param("expectedVersion") Long expectedVersion,
+                           @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Mark the articles with a tag as changed, because the tag is embedded in their JSON: their
+     * update timestamp is set, so that Last-Modified dates of the previous JSON no longer match.
+     * The version is left alone, as it guards the article's own fields: an editor's If-Match
+     * stays valid when a tag is renamed. Cached bodies are dropped on the tag's
+     * {@link com.canvamedium.event.ContentChangedEvent}.
+     *
+     * @param tagId     The tag ID
+     * @param updatedAt The new update timestamp
+     * @return The number of articles updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.updatedAt = :updatedAt "
+            + "WHERE a.id IN (SELECT x.id FROM Article x JOIN x.tags t WHERE t.id = :tagId)")
+    int touchByTagId(@Param("tagId") Long tagId, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Mark the articles in a category as changed, like {@link #touchByTagId}.
+     *
+     * @param categoryId The category ID
+     * @param updatedAt  The new update timestamp
+     * @return The number of articles updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.updatedAt = :updatedAt "
+            + "WHERE a.id IN (SELECT x.id FROM Article x JOIN x.categories c WHERE c.id = :categoryId)")
+    int touchByCategoryId(@Param("categoryId") Long categoryId, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Mark the articles using a template as changed, like {@link #touchByTagId}.
+     *
+     * @param templateId The template ID
+     * @param updatedAt  The new update timestamp
+     * @return The number of articles updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Article a SET a.updatedAt = :updatedAt "
+            + "WHERE a.template.id = :templateId")
+    int touchByTemplateId(@Param("templateId") Long templateId, @Param("updatedAt") LocalDateTime updatedAt);
+}
\ No newline at end of file
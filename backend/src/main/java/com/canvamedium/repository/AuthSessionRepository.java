@@ -0,0 +1,79 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.AuthSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for stored opaque tokens. Used by the session token store, outside
+ * of service transactions, so the updates run in their own transaction.
+ */
+@Repository
+public interface AuthSessionRepository extends JpaRepository<AuthSession, String> {
+    
+    /**
+     * Change the kind of a token, if it still has the expected kind.
+     *
+     * @param tokenHash The hash of the token
+     * @param expected  The kind the token must have
+     * @param kind      The new kind
+     * @return The number of tokens updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AuthSession s SET s.kind = :kind WHERE s.tokenHash = :tokenHash AND s.kind = :expected")
+    int updateKind(@Param("tokenHash") String tokenHash,
+                   @Param("expected") AuthSession.Kind expected,
+                   @Param("kind") AuthSession.Kind kind);
+    
+    /**
+     * Delete all tokens of a family.
+     *
+     * @param familyId The family ID
+     * @return The number of tokens deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.familyId = :familyId")
+    int deleteByFamily(@Param("familyId") String familyId);
+    
+    /**
+     * Delete the tokens of one kind of a family.
+     *
+     * @param familyId The family ID
+     * @param kind     The kind of the tokens to delete
+     * @return The number of tokens deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.familyId = :familyId AND s.kind = :kind")
+    int deleteByFamilyAndKind(@Param("familyId") String familyId, @Param("kind") AuthSession.Kind kind);
+    
+    /**
+     * Delete all tokens of a user.
+     *
+     * @param username The username
+     * @return The number of tokens deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.username = :username")
+    int deleteByUser(@Param("username") String username);
+    
+    /**
+     * Delete the tokens that expired before the given time.
+     *
+     * @param now The current time
+     * @return The number of tokens deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
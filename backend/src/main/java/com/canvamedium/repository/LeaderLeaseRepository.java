@@ -0,0 +1,49 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.LeaderLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for leader leases. Used by the schedulers outside of service
+ * transactions, so the updates run in their own transaction.
+ */
+@Repository
+public interface LeaderLeaseRepository extends JpaRepository<LeaderLease, String> {
+    
+    /**
+     * Take or renew a lease, if it is free, expired or already held by the given owner. The
+     * check and the update are a single statement, so at most one owner succeeds.
+     *
+     * @param name      The name of the lease
+     * @param owner     The ID of the instance taking the lease
+     * @param now       The current time
+     * @param expiresAt When the lease expires unless renewed again
+     * @return 1 if the owner holds the lease, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LeaderLease l SET l.owner = :owner, l.expiresAt = :expiresAt "
+            + "WHERE l.name = :name AND (l.owner = :owner OR l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    /**
+     * Give up a lease, so another instance can take it without waiting for it to expire.
+     *
+     * @param name  The name of the lease
+     * @param owner The ID of the holding instance
+     * @param now   The current time
+     * @return The number of leases released
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LeaderLease l SET l.expiresAt = :now WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
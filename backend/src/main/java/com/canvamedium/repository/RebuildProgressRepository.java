@@ -0,0 +1,13 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.RebuildProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the progress of the rebuilds. Only the instance holding the lease of
+ * a rebuild writes its progress.
+ */
+@Repository
+public interface RebuildProgressRepository extends JpaRepository<RebuildProgress, String> {
+}
@@ -0,0 +1,100 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.RelatedArticle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the precomputed related articles. The lists are ranked by score,
+ * then by the newest related article, in every query that reads or computes them.
+ */
+@Repository
+public interface RelatedArticleRepository extends JpaRepository<RelatedArticle, RelatedArticle.Key> {
+    
+    /**
+     * Find the IDs of the articles related to an article, most similar first.
+     *
+     * @param articleId The article ID
+     * @return The related article IDs
+     */
+    @Query("SELECT r.relatedId FROM RelatedArticle r WHERE r.articleId = :articleId "
+            + "ORDER BY r.score DESC, r.relatedId DESC")
+    List<Long> findRelatedIds(@Param("articleId") Long articleId);
+    
+    /**
+     * Find the lists of several articles without loading them as entities.
+     *
+     * @param articleIds The article IDs
+     * @return One {@code [articleId, relatedId, score]} row per entry
+     */
+    @Query("SELECT r.articleId, r.relatedId, r.score FROM RelatedArticle r WHERE r.articleId IN :articleIds")
+    List<Object[]> findEntriesByArticleIdIn(@Param("articleIds") Collection<Long> articleIds);
+    
+    /**
+     * Find the articles whose lists contain an article.
+     *
+     * @param relatedId The ID of the related article
+     * @return The IDs of the articles it is listed for
+     */
+    @Query("SELECT r.articleId FROM RelatedArticle r WHERE r.relatedId = :relatedId")
+    List<Long> findArticleIdsByRelatedId(@Param("relatedId") Long relatedId);
+    
+    /**
+     * Delete the list of an article.
+     *
+     * @param articleId The article ID
+     * @return The number of entries deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM RelatedArticle r WHERE r.articleId = :articleId")
+    int deleteByArticleId(@Param("articleId") Long articleId);
+    
+    /**
+     * Remove an article from all lists it appears in.
+     *
+     * @param relatedId The ID of the related article
+     * @return The number of entries deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM RelatedArticle r WHERE r.relatedId = :relatedId")
+    int deleteByRelatedId(@Param("relatedId") Long relatedId);
+    
+    /**
+     * Find the published articles most similar to an article, by the cosine similarity of their
+     * sets of tags and categories: the number of shared tags and categories divided by the
+     * geometric mean of the number each article has. Only articles sharing at least one are
+     * considered, found through the tag and category indexes of the join tables. The score is
+     * computed as the root of a quotient of exact integers, so that equal similarities are equal
+     * doubles and tie in the same way here and when lists are merged in memory.
+     *
+     * @param articleId The article ID
+     * @param limit     The most articles to return
+     * @return One {@code [id, score]} row per similar article, most similar first
+     */
+    @Query(value = "SELECT s.article_id, SQRT(CAST(s.shared * s.shared AS DOUBLE PRECISION) / CAST("
+            + "((SELECT COUNT(*) FROM article_tags t WHERE t.article_id = :articleId) "
+            + "+ (SELECT COUNT(*) FROM article_categories c WHERE c.article_id = :articleId)) "
+            + "* ((SELECT COUNT(*) FROM article_tags t WHERE t.article_id = s.article_id) "
+            + "+ (SELECT COUNT(*) FROM article_categories c WHERE c.article_id = s.article_id)) "
+            + "AS DOUBLE PRECISION)) AS score "
+            + "FROM (SELECT f.article_id, COUNT(*) AS shared FROM ("
+            + "SELECT other.article_id FROM article_tags mine "
+            + "JOIN article_tags other ON other.tag_id = mine.tag_id "
+            + "WHERE mine.article_id = :articleId AND other.article_id <> :articleId "
+            + "UNION ALL "
+            + "SELECT other.article_id FROM article_categories mine "
+            + "JOIN article_categories other ON other.category_id = mine.category_id "
+            + "WHERE mine.article_id = :articleId AND other.article_id <> :articleId"
+            + ") f GROUP BY f.article_id) s "
+            + "JOIN article a ON a.id = s.article_id AND a.status = 'PUBLISHED' "
+            + "ORDER BY score DESC, s.article_id DESC "
+            + "LIMIT :limit",
+           nativeQuery = true)
+    List<Object[]> findSimilarArticles(@Param("articleId") Long articleId, @Param("limit") int limit);
+}
@@ -1,12 +1,16 @@
 package com.canvamedium.repository;
 
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Template entity operations.
@@ -37,4 +41,13 @@ public interface TemplateRepository extends JpaRepository<Template, Long> {
      * @return List of templates ordered by creation date
      */
     List<Template> findAllByOrderByCreatedAtDesc();
-} 
\ No newline at end of file
+    
+    /**
+     * Find the version and last update time of a template without loading its layout.
+     *
+     * @param id The template ID
+     * @return An Optional containing the revision, or empty if the template does not exist
+     */
+    @Query("SELECT new com.canvamedium.model.Revision(CAST(t.version AS Long), t.updatedAt) FROM Template t WHERE t.id = :id")
+    Optional<Revision> findRevisionById(@Param("id") Long id);
+}
\ No newline at end of file
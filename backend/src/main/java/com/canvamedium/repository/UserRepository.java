@@ -3,9 +3,15 @@ package com.canvamedium.repository;
 import com.canvamedium.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -30,6 +36,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
     
+    /**
+     * Find the users whose username or email matches, with their roles, in a single query.
+     * Usernames and emails are each unique, but one user's username may be another user's
+     * email, so there can be two results.
+     *
+     * @param username The username to search for
+     * @param email    The email to search for
+     * @return The matching users
+     */
+    @EntityGraph(attributePaths = "roles")
+    List<User> findByUsernameOrEmail(String username, String email);
+    
     /**
      * Check if a username exists.
      *
@@ -81,4 +99,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return A page of users matching the search criteria
      */
     Page<User> findByEmailVerified(boolean emailVerified, Pageable pageable);
+    
+    /**
+     * Set the last login timestamp of the user matching the given username or email,
+     * without loading the entity.
+     *
+     * @param usernameOrEmail The username or email of the user
+     * @param loginAt         The login timestamp to record
+     * @return The number of users updated
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.lastLoginAt = :loginAt WHERE u.email = :usernameOrEmail OR u.username = :usernameOrEmail")
+    int updateLastLoginAt(@Param("usernameOrEmail") String usernameOrEmail, @Param("loginAt") LocalDateTime loginAt);
+    
+    /**
+     * Replace the password hash of a user, without loading the entity.
+     *
+     * @param username The username of the user
+     * @param password The new password hash
+     * @return The number of users updated
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 } 
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.canvamedium.scheduling;
+
+import com.canvamedium.model.LeaderLease;
+import com.canvamedium.repository.LeaderLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Elects one instance of the application to run a cluster-wide task, using a lease row per task
+ * in the {@code leader_lease} table as the lock.
+ * <p>
+ * An instance holds the lease until it expires; it has to renew it well before then, e.g. every
+ * third of its duration, and must stop acting as the leader if a renewal fails and the lease has
+ * run out. Expiry is compared across instances, so their clocks are assumed to be in sync to
+ * within a small fraction of the lease duration.
+ */
+@Component
+public class LeaderElection {
+
+    private final LeaderLeaseRepository repository;
+    private final String owner;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param repository The lease repository
+     */
+    @Autowired
+    public LeaderElection(LeaderLeaseRepository repository) {
+        this.repository = repository;
+        this.owner = hostName() + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Take or renew a lease.
+     *
+     * @param name     The name of the lease
+     * @param duration How long the lease is held unless renewed
+     * @return true if this instance holds the lease until {@code duration} from now
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        if (repository.acquire(name, owner, now, now.plus(duration)) == 1) {
+            return true;
+        }
+        if (repository.existsById(name)) {
+            return false;
+        }
+        try {
+            repository.saveAndFlush(new LeaderLease(name, owner, now.plus(duration)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the lease first
+            return false;
+        }
+    }
+
+    /**
+     * Give up a lease held by this instance.
+     *
+     * @param name The name of the lease
+     */
+    public void release(String name) {
+        repository.release(name, owner, LocalDateTime.now());
+    }
+
+    /**
+     * Get the ID this instance holds leases under.
+     *
+     * @return The owner ID
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
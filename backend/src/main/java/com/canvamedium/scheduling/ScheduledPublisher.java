@@ -0,0 +1,328 @@
+package com.canvamedium.scheduling;
+
+import com.canvamedium.event.ArticlePublicationScheduledEvent;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.service.ArticleService;
+import com.canvamedium.util.TimerWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes scheduled drafts at their scheduled time.
+ * <p>
+ * One instance, elected through the {@code scheduled-publisher} {@link LeaderElection} lease,
+ * does the publishing. While it holds the lease it keeps the drafts scheduled within the next
+ * {@code app.scheduling.horizon} in a {@link TimerWheel} that ticks every
+ * {@code app.scheduling.tick}, so finding the due drafts costs nothing per tick and the articles
+ * table is not polled. The due drafts are published in transactions of up to
+ * {@code app.scheduling.batch-size} articles. The window is re-read from the partial index on
+ * scheduled drafts when the instance becomes the leader, which also picks up drafts whose time
+ * passed while no instance was running, and every {@code app.scheduling.refresh-interval} after
+ * that. Drafts scheduled on this instance are added to the wheel as soon as the schedule commits;
+ * those scheduled on another instance are picked up by the next refresh.
+ * <p>
+ * Entries are not removed from the wheel when a draft is unscheduled, rescheduled or published by
+ * hand: the publishing transaction only publishes drafts whose scheduled time has actually come,
+ * so stale entries are skipped, and so are drafts that a former leader published in the meantime.
+ * <p>
+ * Meters: {@code articles.scheduled.published}, {@code articles.scheduled.delay} (time from the
+ * scheduled time to the publication), {@code articles.scheduled.pending} (drafts in the wheel)
+ * and {@code articles.scheduled.leader}.
+ */
+@Component
+public class ScheduledPublisher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledPublisher.class);
+
+    static final String LEASE_NAME = "scheduled-publisher";
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private record Scheduled(Long articleId, LocalDateTime publishAt) {
+    }
+
+    private final ArticleService articleService;
+    private final ArticleRepository articleRepository;
+    private final LeaderElection leaderElection;
+    private final boolean enabled;
+    private final Duration tick;
+    private final Duration horizon;
+    private final Duration refreshInterval;
+    private final Duration leaseDuration;
+    private final int batchSize;
+    private final int maxLoaded;
+    private final ScheduledExecutorService scheduler;
+    private final Counter published;
+    private final Timer delay;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Confined to the scheduler thread
+    private final TimerWheel<Scheduled> wheel;
+    private final Map<Long, LocalDateTime> pending = new HashMap<>();
+    private final List<Scheduled> due = new ArrayList<>();
+    private long leaseValidUntilNanos;
+    private long lastRefreshNanos;
+
+    private volatile boolean leader;
+
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param articleService    The service that publishes the drafts
+     * @param articleRepository The repository the scheduled drafts are read from
+     * @param leaderElection    The election of the publishing instance
+     * @param meterRegistry     The registry for the publishing metrics
+     * @param enabled           Whether this instance takes part in the election
+     * @param tick              The resolution of the timer wheel
+     * @param horizon           How far ahead scheduled drafts are kept in the wheel
+     * @param refreshInterval   The interval between two reads of the scheduled drafts
+     * @param leaseDuration     How long the leader holds its lease without renewing it
+     * @param batchSize         The most drafts published per transaction
+     * @param maxLoaded         The most drafts read per refresh
+     */
+    @Autowired
+    public ScheduledPublisher(ArticleService articleService,
+                              ArticleRepository articleRepository,
+                              LeaderElection leaderElection,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.scheduling.enabled:true}") boolean enabled,
+                              @Value("${app.scheduling.tick:100ms}") Duration tick,
+                              @Value("${app.scheduling.horizon:10m}") Duration horizon,
+                              @Value("${app.scheduling.refresh-interval:1m}") Duration refreshInterval,
+                              @Value("${app.scheduling.lease-duration:30s}") Duration leaseDuration,
+                              @Value("${app.scheduling.batch-size:100}") int batchSize,
+                              @Value("${app.scheduling.max-loaded:100000}") int maxLoaded) {
+        this.articleService = articleService;
+        this.articleRepository = articleRepository;
+        this.leaderElection = leaderElection;
+        this.enabled = enabled;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.refreshInterval = refreshInterval;
+        this.leaseDuration = leaseDuration;
+        this.batchSize = batchSize;
+        this.maxLoaded = maxLoaded;
+        this.wheel = new TimerWheel<>(tick.toMillis(), WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "article-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.published = Counter.builder("articles.scheduled.published").register(meterRegistry);
+        this.delay = Timer.builder("articles.scheduled.delay")
+                .description("Time from the scheduled publication time to the publication")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("articles.scheduled.pending", pendingCount, AtomicInteger::get)
+                .description("Scheduled drafts waiting in the timer wheel")
+                .register(meterRegistry);
+        Gauge.builder("articles.scheduled.leader", this, publisher -> publisher.leader ? 1 : 0)
+                .description("Whether this instance publishes the scheduled drafts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start taking part in the election once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::renewLease, 0, leaseDuration.toMillis() / 3, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add a draft scheduled on this instance to the wheel once its schedule has committed.
+     *
+     * @param event The scheduling event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPublicationScheduled(ArticlePublicationScheduledEvent event) {
+        if (!leader) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> add(event.articleId(), event.publishAt(), LocalDateTime.now()));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Check whether this instance currently publishes the scheduled drafts.
+     *
+     * @return true if it holds the lease
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Take or renew the lease, and load the scheduled drafts when it is taken or a refresh is due.
+     */
+    private void renewLease() {
+        try {
+            long renewedAt = System.nanoTime();
+            if (leaderElection.tryAcquire(LEASE_NAME, leaseDuration)) {
+                leaseValidUntilNanos = renewedAt + leaseDuration.toNanos();
+                if (!leader) {
+                    leader = true;
+                    logger.info("Publishing scheduled articles as {}", leaderElection.getOwner());
+                    refresh();
+                } else if (System.nanoTime() - lastRefreshNanos >= refreshInterval.toNanos()) {
+                    refresh();
+                }
+            } else if (leader) {
+                stepDown("the lease was taken over");
+            }
+        } catch (RuntimeException e) {
+            // Stay the leader until the lease runs out; tick() checks it
+            logger.error("Renewing the scheduled publishing lease failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the drafts scheduled within the horizon, including overdue ones, into the wheel.
+     */
+    private void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = articleRepository.findScheduledPublications(now.plus(horizon), PageRequest.of(0, maxLoaded));
+        for (Object[] row : rows) {
+            add((Long) row[0], (LocalDateTime) row[1], now);
+        }
+        lastRefreshNanos = System.nanoTime();
+        pendingCount.set(pending.size());
+        logger.debug("Loaded {} scheduled articles, {} waiting", rows.size(), pending.size());
+    }
+
+    private void add(Long articleId, LocalDateTime publishAt, LocalDateTime now) {
+        if (!leader || publishAt.isAfter(now.plus(horizon)) || publishAt.equals(pending.get(articleId))) {
+            return;
+        }
+        pending.put(articleId, publishAt);
+        wheel.schedule(new Scheduled(articleId, publishAt), toEpochMillis(publishAt));
+        pendingCount.set(pending.size());
+    }
+
+    /**
+     * Advance the wheel and publish the drafts that have become due.
+     */
+    private void tick() {
+        try {
+            // Advanced even while empty, so it is at the current time when this instance is elected
+            List<Scheduled> expiredEntries = wheel.advance(System.currentTimeMillis());
+            if (!leader) {
+                return;
+            }
+            for (Scheduled expired : expiredEntries) {
+                // Entries replaced by a later schedule of the same draft are dropped here
+                if (expired.publishAt().equals(pending.get(expired.articleId()))) {
+                    pending.remove(expired.articleId());
+                    due.add(expired);
+                }
+            }
+            while (!due.isEmpty()) {
+                if (System.nanoTime() - leaseValidUntilNanos > 0) {
+                    stepDown("the lease could not be renewed");
+                    return;
+                }
+                List<Scheduled> batch = due.subList(0, Math.min(batchSize, due.size()));
+                publish(new ArrayList<>(batch));
+                batch.clear();
+            }
+            pendingCount.set(pending.size());
+        } catch (RuntimeException e) {
+            logger.error("Publishing scheduled articles failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Publish a batch in one transaction, falling back to one transaction per draft if it fails,
+     * e.g. because one of the drafts was edited concurrently. Drafts that still fail stay
+     * scheduled and are retried after the next refresh.
+     */
+    private void publish(List<Scheduled> batch) {
+        List<Long> ids = batch.stream().map(Scheduled::articleId).toList();
+        List<Long> publishedIds;
+        try {
+            publishedIds = articleService.publishScheduledArticles(ids);
+        } catch (RuntimeException e) {
+            logger.warn("Publishing a batch of {} scheduled articles failed, publishing them one by one: {}",
+                    ids.size(), e.getMessage());
+            publishedIds = new ArrayList<>();
+            for (Long id : ids) {
+                try {
+                    publishedIds.addAll(articleService.publishScheduledArticles(List.of(id)));
+                } catch (RuntimeException articleFailure) {
+                    logger.error("Publishing scheduled article {} failed: {}", id, articleFailure.getMessage());
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Scheduled scheduled : batch) {
+            if (publishedIds.contains(scheduled.articleId())) {
+                delay.record(Duration.between(scheduled.publishAt(), now));
+            }
+        }
+        published.increment(publishedIds.size());
+        logger.debug("Published {} of {} scheduled articles", publishedIds.size(), ids.size());
+    }
+
+    private void stepDown(String reason) {
+        leader = false;
+        wheel.clear();
+        pending.clear();
+        due.clear();
+        pendingCount.set(0);
+        logger.warn("No longer publishing scheduled articles: {}", reason);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        // Round up, so that the wheel never fires before the time stored in the database
+        return instant.toEpochMilli() + (instant.getNano() % 1_000_000 == 0 ? 0 : 1);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        if (leader) {
+            leader = false;
+            try {
+                leaderElection.release(LEASE_NAME);
+            } catch (RuntimeException e) {
+                logger.warn("Releasing the scheduled publishing lease failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.canvamedium.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Password encoder that runs the hashing of another encoder on a small, dedicated pool.
+ * <p>
+ * A BCrypt hash takes tens of milliseconds of CPU by design. When many clients log in at
+ * once, e.g. after an outage, hashing on the request threads would take every core and
+ * starve all other requests. Here at most {@code threads} hashes run at the same time and
+ * up to {@code queueCapacity} more wait for a thread; beyond that, the encoder fails fast
+ * with an {@link AuthenticationServiceException}, which the login endpoint answers with
+ * 503 Service Unavailable.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+    
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    
+    /**
+     * Create the encoder and its pool.
+     *
+     * @param delegate      The encoder that does the hashing
+     * @param threads       The maximum number of hashes computed at the same time
+     * @param queueCapacity The maximum number of hashes waiting for a thread
+     * @param meterRegistry The registry for the pool metrics
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+    }
+    
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+    
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+    
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only parses the hash prefix, no need to go through the pool
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+    
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new AuthenticationServiceException("Too many password checks in progress", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while waiting for a password check", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -20,8 +21,10 @@ import java.util.stream.Collectors;
  * Filter for JWT authorization.
  * This filter validates the JWT token in the request and sets the authentication
  * in the SecurityContext if the token is valid.
+ * Not used when {@code app.auth.token-mode=opaque}; see {@link SessionTokenFilter}.
  */
 @Component
+@ConditionalOnProperty(name = "app.auth.token-mode", havingValue = "jwt", matchIfMissing = true)
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
     
     private final JwtUtils jwtUtils;
@@ -8,8 +8,13 @@ import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -28,6 +33,8 @@ import java.util.stream.Collectors;
 
 /**
  * Utility class for JWT token operations.
+ * <p>
+ * Counts token validations by result in {@code auth.jwt.validations}.
  */
 @Component
 public class JwtUtils {
@@ -43,6 +50,33 @@ public class JwtUtils {
     @Value("${app.jwt.refresh-expiration:604800000}")
     private int jwtRefreshExpirationMs;
     
+    private final Counter validTokens;
+    private final Counter expiredTokens;
+    private final Counter invalidTokens;
+    
+    /**
+     * Creates the utility with its counters in the global meter registry.
+     */
+    public JwtUtils() {
+        this(Metrics.globalRegistry);
+    }
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param meterRegistry The registry for the validation counters, if there is one
+     */
+    @Autowired
+    public JwtUtils(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+    
+    private JwtUtils(MeterRegistry meterRegistry) {
+        this.validTokens = validationCounter(meterRegistry, "valid");
+        this.expiredTokens = validationCounter(meterRegistry, "expired");
+        this.invalidTokens = validationCounter(meterRegistry, "invalid");
+    }
+    
     /**
      * Generates a JWT token for the authenticated user.
      *
@@ -201,13 +235,16 @@ public class JwtUtils {
     public boolean validateJwtToken(String token) {
         try {
             Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
+            validTokens.increment();
             return true;
+        } catch (ExpiredJwtException e) {
+            expiredTokens.increment();
+            logger.error("JWT token is expired: {}", e.getMessage());
+            return false;
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
-        } catch (ExpiredJwtException e) {
-            logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
@@ -216,6 +253,7 @@ public class JwtUtils {
             logger.error("JWT validation error: {}", e.getMessage());
         }
         
+        invalidTokens.increment();
         return false;
     }
     
@@ -233,4 +271,18 @@ public class JwtUtils {
             return true;
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Creates the counter of token validations with one result.
+     *
+     * @param meterRegistry The meter registry
+     * @param result        The result (valid, expired or invalid)
+     * @return The counter
+     */
+    private static Counter validationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.jwt.validations")
+                .description("JWT validations by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
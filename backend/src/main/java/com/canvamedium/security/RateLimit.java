@@ -0,0 +1,40 @@
+package com.canvamedium.security;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+/**
+ * A request rate: at most {@code capacity} requests per {@code period}, which may all come
+ * in one burst.
+ *
+ * @param capacity The number of requests allowed per period
+ * @param period   The period over which the capacity refills
+ */
+public record RateLimit(int capacity, Duration period) {
+    
+    /**
+     * Validate the limit.
+     */
+    public RateLimit {
+        if (capacity < 1 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("A rate limit needs a positive capacity and period");
+        }
+    }
+    
+    /**
+     * Parse a limit written as {@code capacity/period}, e.g. {@code 10/1m} or {@code 600/60s}.
+     *
+     * @param value The limit
+     * @return The parsed limit
+     * @throws IllegalArgumentException if the value is not a valid limit
+     */
+    public static RateLimit parse(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Rate limit must be written as capacity/period: " + value);
+        }
+        return new RateLimit(Integer.parseInt(value.substring(0, slash).trim()),
+                DurationStyle.detectAndParse(value.substring(slash + 1).trim()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.canvamedium.security;
+
+import com.canvamedium.exception.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Filter that rate-limits requests per client with token buckets.
+ * <p>
+ * Each request is matched against the rules below, the first match wins, and takes a token
+ * from that rule's bucket for the client. Authenticated clients are identified by their
+ * user name (the filter runs after {@link JwtAuthorizationFilter}), all others by their IP
+ * address; logins and registrations are always limited per IP. A request without a token
+ * is answered with 429 Too Many Requests and a {@code Retry-After} header.
+ * <ul>
+ *     <li>{@code auth}: {@code /api/auth/**} POSTs, each of which checks a BCrypt hash</li>
+ *     <li>{@code upload}: media uploads, which write to disk</li>
+ *     <li>{@code search}: the search endpoints, which scan the tables</li>
+ *     <li>{@code default}: all other requests</li>
+ * </ul>
+ * The limits are configured as {@code capacity/period} in {@code app.rate-limit.*}. Buckets
+ * live in a bounded map that drops buckets not used for a full period, which is when they
+ * would be full again anyway. Behind a reverse proxy, set {@code server.forward-headers-strategy}
+ * so that the client address is taken from {@code X-Forwarded-For}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private final List<Rule> rules;
+    private final Cache<String, TokenBucket> buckets;
+    private final LongSupplier clock;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param objectMapper  The mapper for error responses
+     * @param meterRegistry The registry for the bucket map and rejection metrics, the global
+     *                      registry if there is none (e.g. in web slice tests)
+     * @param enabled       Whether requests are limited at all
+     * @param auth          The limit for login, registration and token refresh
+     * @param upload        The limit for media uploads
+     * @param search        The limit for searches
+     * @param defaultLimit  The limit for all other requests
+     * @param maxClients    The maximum number of buckets kept
+     */
+    @Autowired
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           ObjectProvider<MeterRegistry> meterRegistry,
+                           @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.auth:10/1m}") String auth,
+                           @Value("${app.rate-limit.upload:30/1m}") String upload,
+                           @Value("${app.rate-limit.search:60/1m}") String search,
+                           @Value("${app.rate-limit.default:600/1m}") String defaultLimit,
+                           @Value("${app.rate-limit.max-clients:100000}") long maxClients) {
+        this(objectMapper, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), enabled, List.of(
+                new Rule("auth", new AntPathRequestMatcher("/api/auth/**", HttpMethod.POST.name()), RateLimit.parse(auth), true),
+                new Rule("upload", new AntPathRequestMatcher("/api/media/**", HttpMethod.POST.name()), RateLimit.parse(upload), false),
+                new Rule("search", new AntPathRequestMatcher("/api/*/search/**"), RateLimit.parse(search), false),
+                new Rule("default", new AntPathRequestMatcher("/**"), RateLimit.parse(defaultLimit), false)),
+                maxClients, System::nanoTime);
+    }
+    
+    /**
+     * Constructor for explicit rules and clock.
+     *
+     * @param objectMapper  The mapper for error responses
+     * @param meterRegistry The registry for the bucket map and rejection metrics
+     * @param enabled       Whether requests are limited at all
+     * @param rules         The rules, the first matching one applies
+     * @param maxClients    The maximum number of buckets kept
+     * @param clock         The nanosecond clock
+     */
+    RateLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry, boolean enabled, List<Rule> rules,
+                    long maxClients, LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.rules = rules;
+        this.clock = clock;
+        Duration longestPeriod = rules.stream()
+                .map(rule -> rule.limit().period())
+                .max(Duration::compareTo)
+                .orElse(Duration.ofMinutes(1));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(longestPeriod)
+                .ticker(clock::getAsLong)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate-limit.buckets");
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Rule rule = matchingRule(request);
+        if (rule != null) {
+            long now = clock.getAsLong();
+            String key = rule.name() + ':' + clientKey(request, rule);
+            long waitNanos = buckets.get(key, k -> new TokenBucket(rule.limit(), now)).tryConsume(now);
+            if (waitNanos > 0) {
+                reject(response, rule, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private Rule matchingRule(HttpServletRequest request) {
+        for (Rule rule : rules) {
+            if (rule.matcher().matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+    
+    private static String clientKey(HttpServletRequest request, Rule rule) {
+        if (!rule.perIp()) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.isAuthenticated()
+                    && !(authentication instanceof AnonymousAuthenticationToken)) {
+                return "user:" + authentication.getName();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+    
+    private void reject(HttpServletResponse response, Rule rule, long waitNanos) throws IOException {
+        meterRegistry.counter("rate-limit.rejected", "rule", rule.name()).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiError(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too many requests, retry in " + retryAfterSeconds + " s", LocalDateTime.now()));
+    }
+    
+    /**
+     * A rate limit for the requests a matcher selects.
+     *
+     * @param name    The rule name, used in bucket keys and metrics
+     * @param matcher Selects the requests the rule applies to
+     * @param limit   The limit per client
+     * @param perIp   Whether clients are always identified by IP address, even when authenticated
+     */
+    record Rule(String name, RequestMatcher matcher, RateLimit limit, boolean perIp) {
+    }
+}
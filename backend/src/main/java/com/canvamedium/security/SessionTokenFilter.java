@@ -0,0 +1,67 @@
+package com.canvamedium.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter for opaque token authorization, used instead of {@link JwtAuthorizationFilter}
+ * when {@code app.auth.token-mode=opaque}.
+ * This filter looks up the bearer token in the {@link SessionTokenStore} and sets the
+ * authentication in the SecurityContext if it belongs to a live session.
+ */
+@Component
+@ConditionalOnProperty(name = "app.auth.token-mode", havingValue = "opaque")
+public class SessionTokenFilter extends OncePerRequestFilter {
+    
+    private final SessionTokenStore sessionTokenStore;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param sessionTokenStore The session token store
+     */
+    @Autowired
+    public SessionTokenFilter(SessionTokenStore sessionTokenStore) {
+        this.sessionTokenStore = sessionTokenStore;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = parseToken(request);
+        if (token != null) {
+            sessionTokenStore.authenticate(token).ifPresent(session -> SecurityContextHolder.getContext()
+                    .setAuthentication(new UsernamePasswordAuthenticationToken(
+                            session.username(), null, session.authorities())));
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    /**
+     * Parses the bearer token from the Authorization header.
+     *
+     * @param request The HTTP request
+     * @return The token, or null if not found
+     */
+    private String parseToken(HttpServletRequest request) {
+        String headerAuth = request.getHeader("Authorization");
+        
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+        
+        return null;
+    }
+}
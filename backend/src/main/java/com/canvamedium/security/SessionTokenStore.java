@@ -0,0 +1,424 @@
+package com.canvamedium.security;
+
+import com.canvamedium.event.UserAccountChangedEvent;
+import com.canvamedium.model.AuthSession;
+import com.canvamedium.model.AuthSession.Kind;
+import com.canvamedium.repository.AuthSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Store of opaque access and refresh tokens, used instead of JWTs when
+ * {@code app.auth.token-mode=opaque}.
+ * <p>
+ * Tokens are 256 random bits, base64url-encoded. Checking an access token is a single hash
+ * lookup in memory, without parsing or verifying a signature, and the user's roles are those
+ * of the session rather than copies frozen into a signed token. Tokens can therefore be
+ * revoked: on logout, and for all sessions of a user when the account changes (see
+ * {@link UserAccountChangedEvent}).
+ * <p>
+ * The tokens of one login form a family. Each refresh exchanges the refresh token for a new
+ * pair and retires the old access token; presenting an exchanged refresh token again means
+ * it was stolen or replayed, and revokes the whole family.
+ * <p>
+ * Sessions live in a Caffeine map with per-token expiry. With a repository, every change is
+ * also written through to the {@code auth_session} table (by token hash) so that sessions
+ * survive restarts and are shared between instances: a token missing from memory is looked
+ * up there and then served from memory for at most the recheck interval, after which it is
+ * looked up again. A session revoked or rotated on another instance therefore stops working
+ * here within that interval. Refresh tokens are exchanged with a conditional update of their
+ * row, so that only one instance can exchange a token; a refresh token that another instance
+ * has already exchanged counts as reused and revokes its family.
+ */
+public class SessionTokenStore implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenStore.class);
+    
+    private static final int TOKEN_BYTES = 32;
+    private static final int FAMILY_ID_BYTES = 16;
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+    private static final Duration DEFAULT_RECHECK_INTERVAL = Duration.ofSeconds(30);
+    
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Cache<String, Session> sessions;
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private final AuthSessionRepository repository;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final Duration recheckInterval;
+    private final Clock clock;
+    private final ScheduledExecutorService purger;
+    
+    /**
+     * Create a store.
+     *
+     * @param repository The repository to write sessions through to, or null to keep them in memory only
+     * @param accessTtl  How long an access token is valid
+     * @param refreshTtl How long a refresh token is valid
+     */
+    public SessionTokenStore(AuthSessionRepository repository, Duration accessTtl, Duration refreshTtl) {
+        this(repository, accessTtl, refreshTtl, DEFAULT_RECHECK_INTERVAL);
+    }
+    
+    /**
+     * Create a store.
+     *
+     * @param repository      The repository to write sessions through to, or null to keep them in memory only
+     * @param accessTtl       How long an access token is valid
+     * @param refreshTtl      How long a refresh token is valid
+     * @param recheckInterval How long a stored session is served from memory before it is looked up again
+     */
+    public SessionTokenStore(AuthSessionRepository repository, Duration accessTtl, Duration refreshTtl,
+                             Duration recheckInterval) {
+        this(repository, accessTtl, refreshTtl, recheckInterval, Clock.systemDefaultZone(), Ticker.systemTicker());
+    }
+    
+    /**
+     * Create a store with an explicit clock.
+     *
+     * @param repository      The repository to write sessions through to, or null to keep them in memory only
+     * @param accessTtl       How long an access token is valid
+     * @param refreshTtl      How long a refresh token is valid
+     * @param recheckInterval How long a stored session is served from memory before it is looked up again
+     * @param clock           The clock for token expiry times
+     * @param ticker          The ticker for the in-memory expiry, advancing with the clock
+     */
+    SessionTokenStore(AuthSessionRepository repository, Duration accessTtl, Duration refreshTtl,
+                      Duration recheckInterval, Clock clock, Ticker ticker) {
+        this.repository = repository;
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.recheckInterval = recheckInterval;
+        this.clock = clock;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfter(new SessionExpiry())
+                .ticker(ticker)
+                .removalListener(this::onRemoval)
+                .build();
+        
+        if (repository != null) {
+            this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.purger.scheduleWithFixedDelay(this::purgeExpired,
+                    PURGE_INTERVAL.toMillis(), PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.purger = null;
+        }
+    }
+    
+    /**
+     * Start a new session for a user who has just logged in.
+     *
+     * @param username    The username
+     * @param authorities The user's authorities
+     * @return The access and refresh tokens
+     */
+    public Tokens issue(String username, Collection<? extends GrantedAuthority> authorities) {
+        return issue(newToken(FAMILY_ID_BYTES), username, List.copyOf(authorities));
+    }
+    
+    /**
+     * Look up the session of an access token.
+     *
+     * @param accessToken The access token
+     * @return The session, or empty if the token is unknown, expired, revoked or not an access token
+     */
+    public Optional<Session> authenticate(String accessToken) {
+        return lookup(accessToken).filter(session -> session.kind() == Kind.ACCESS);
+    }
+    
+    /**
+     * Exchange a refresh token for a new access and refresh token pair in the same family.
+     * The refresh token and the family's access tokens stop working. If the refresh token has
+     * already been exchanged, the whole family is revoked.
+     *
+     * @param refreshToken The refresh token
+     * @param authorities  Loads the user's current authorities by username
+     * @return The new tokens, or empty if the refresh token is not valid
+     */
+    public Optional<Tokens> rotate(String refreshToken,
+                                   Function<String, Collection<? extends GrantedAuthority>> authorities) {
+        Session session = lookup(refreshToken).orElse(null);
+        if (session == null || session.kind() == Kind.ACCESS) {
+            return Optional.empty();
+        }
+        if (session.kind() == Kind.ROTATED) {
+            logger.warn("Refresh token of user {} was used twice, revoking its session", session.username());
+            revokeFamily(session.familyId());
+            return Optional.empty();
+        }
+        
+        List<GrantedAuthority> current = List.copyOf(authorities.apply(session.username()));
+        // Only one of several concurrent exchanges of the same token wins
+        if (!sessions.asMap().replace(refreshToken, session, session.withKind(Kind.ROTATED))) {
+            return Optional.empty();
+        }
+        // Exchanged or revoked on another instance since it was read from the table
+        if (repository != null && repository.updateKind(hash(refreshToken), Kind.REFRESH, Kind.ROTATED) == 0) {
+            logger.warn("Refresh token of user {} was already exchanged, revoking its session", session.username());
+            revokeFamily(session.familyId());
+            return Optional.empty();
+        }
+        retireAccessTokens(session.familyId());
+        Tokens tokens = issue(session.familyId(), session.username(), current);
+        
+        // The family may have been revoked, here or on another instance, while the new pair was issued
+        if (sessions.getIfPresent(refreshToken) == null
+                || (repository != null && !repository.existsById(hash(refreshToken)))) {
+            revokeFamily(session.familyId());
+            return Optional.empty();
+        }
+        return Optional.of(tokens);
+    }
+    
+    /**
+     * Revoke the session (the whole token family) a token belongs to.
+     *
+     * @param token An access or refresh token
+     * @return true if the token was known
+     */
+    public boolean revoke(String token) {
+        Optional<Session> session = lookup(token);
+        session.ifPresent(s -> revokeFamily(s.familyId()));
+        return session.isPresent();
+    }
+    
+    /**
+     * Revoke all sessions of a user.
+     *
+     * @param username The username
+     */
+    public void revokeAll(String username) {
+        families.entrySet().stream()
+                .filter(entry -> entry.getValue().username().equals(username))
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(this::revokeFamily);
+        if (repository != null) {
+            repository.deleteByUser(username);
+        }
+    }
+    
+    /**
+     * Revoke the sessions of a user whose password, roles or enabled state has changed.
+     *
+     * @param event The account change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        revokeAll(event.username());
+    }
+    
+    @Override
+    public void close() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+    }
+    
+    private Tokens issue(String familyId, String username, List<GrantedAuthority> authorities) {
+        Instant now = clock.instant();
+        String accessToken = newToken(TOKEN_BYTES);
+        String refreshToken = newToken(TOKEN_BYTES);
+        Session access = new Session(username, authorities, familyId, Kind.ACCESS, now.plus(accessTtl));
+        Session refresh = new Session(username, authorities, familyId, Kind.REFRESH, now.plus(refreshTtl));
+        
+        if (repository != null) {
+            repository.saveAll(List.of(toEntity(accessToken, access), toEntity(refreshToken, refresh)));
+        }
+        register(accessToken, access);
+        register(refreshToken, refresh);
+        return new Tokens(accessToken, refreshToken, access.expiresAt());
+    }
+    
+    private Optional<Session> lookup(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        Session session = sessions.getIfPresent(token);
+        if (session == null && repository != null) {
+            session = repository.findById(hash(token))
+                    .map(this::toSession)
+                    .filter(s -> s.expiresAt().isAfter(clock.instant()))
+                    .orElse(null);
+            if (session != null) {
+                register(token, session);
+            }
+        }
+        return Optional.ofNullable(session);
+    }
+    
+    private void register(String token, Session session) {
+        families.computeIfAbsent(session.familyId(), id -> new Family(session.username(), ConcurrentHashMap.newKeySet()))
+                .tokens().add(token);
+        sessions.put(token, session);
+    }
+    
+    private void retireAccessTokens(String familyId) {
+        Family family = families.get(familyId);
+        if (family != null) {
+            for (String token : family.tokens()) {
+                Session session = sessions.getIfPresent(token);
+                if (session != null && session.kind() == Kind.ACCESS) {
+                    sessions.invalidate(token);
+                }
+            }
+        }
+        // Including those issued or cached by other instances
+        if (repository != null) {
+            repository.deleteByFamilyAndKind(familyId, Kind.ACCESS);
+        }
+    }
+    
+    private void revokeFamily(String familyId) {
+        Family family = families.remove(familyId);
+        if (family != null) {
+            sessions.invalidateAll(family.tokens());
+        }
+        if (repository != null) {
+            repository.deleteByFamily(familyId);
+        }
+    }
+    
+    private void onRemoval(String token, Session session, RemovalCause cause) {
+        if (token == null || session == null || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        families.computeIfPresent(session.familyId(), (id, family) -> {
+            family.tokens().remove(token);
+            return family.tokens().isEmpty() ? null : family;
+        });
+    }
+    
+    private void purgeExpired() {
+        try {
+            int purged = repository.deleteExpired(LocalDateTime.now(clock));
+            logger.debug("Purged {} expired session tokens", purged);
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge expired session tokens: {}", e.getMessage());
+        }
+    }
+    
+    private String newToken(int bytes) {
+        byte[] token = new byte[bytes];
+        random.nextBytes(token);
+        return encoder.encodeToString(token);
+    }
+    
+    private AuthSession toEntity(String token, Session session) {
+        String roles = session.authorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        return new AuthSession(hash(token), session.kind(), session.familyId(), session.username(), roles,
+                LocalDateTime.ofInstant(session.expiresAt(), clock.getZone()));
+    }
+    
+    private Session toSession(AuthSession entity) {
+        List<GrantedAuthority> authorities = Arrays.stream(entity.getRoles().split(","))
+                .filter(role -> !role.isEmpty())
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        return new Session(entity.getUsername(), authorities, entity.getFamilyId(), entity.getKind(),
+                entity.getExpiresAt().atZone(clock.getZone()).toInstant());
+    }
+    
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Expires each session at its own expiry time, or after the recheck interval if it is
+     * stored in the table.
+     */
+    private class SessionExpiry implements Expiry<String, Session> {
+        
+        @Override
+        public long expireAfterCreate(String token, Session session, long currentTime) {
+            long untilExpiry = Math.max(0, Duration.between(clock.instant(), session.expiresAt()).toNanos());
+            return repository != null ? Math.min(untilExpiry, recheckInterval.toNanos()) : untilExpiry;
+        }
+        
+        @Override
+        public long expireAfterUpdate(String token, Session session, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, session, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String token, Session session, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+    
+    /**
+     * The tokens of one login and the user they belong to.
+     */
+    private record Family(String username, Set<String> tokens) {
+    }
+    
+    /**
+     * What a token stands for.
+     *
+     * @param username    The username of the user
+     * @param authorities The user's authorities when the token was issued
+     * @param familyId    The ID shared by the tokens of one login
+     * @param kind        The kind of token
+     * @param expiresAt   When the token expires
+     */
+    public record Session(String username, List<GrantedAuthority> authorities, String familyId, Kind kind,
+                          Instant expiresAt) {
+        
+        Session withKind(Kind newKind) {
+            return new Session(username, authorities, familyId, newKind, expiresAt);
+        }
+    }
+    
+    /**
+     * A newly issued token pair.
+     *
+     * @param accessToken  The access token
+     * @param refreshToken The refresh token
+     * @param expiresAt    When the access token expires
+     */
+    public record Tokens(String accessToken, String refreshToken, Instant expiresAt) {
+    }
+}
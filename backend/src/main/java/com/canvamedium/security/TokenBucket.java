@@ -0,0 +1,52 @@
+package com.canvamedium.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket.
+ * <p>
+ * The bucket holds up to {@code capacity} tokens and refills one token every
+ * {@code period / capacity}. Instead of a token count and a refill timestamp, which would
+ * have to be updated together, it keeps a single value: the time at which the bucket will
+ * be full again (the "theoretical arrival time" of the generic cell rate algorithm). Taking
+ * a token moves that time forward by one token's worth, so a request is one compare-and-set
+ * on an {@link AtomicLong}, and a rejected request learns right away how long it has to wait.
+ */
+public class TokenBucket {
+    
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+    
+    /**
+     * Create a full bucket.
+     *
+     * @param limit The capacity and refill period
+     * @param now   The current time in nanoseconds, e.g. {@link System#nanoTime()}
+     */
+    public TokenBucket(RateLimit limit, long now) {
+        this.nanosPerToken = Math.max(1, limit.period().toNanos() / limit.capacity());
+        this.capacityNanos = nanosPerToken * limit.capacity();
+        this.fullAt = new AtomicLong(now);
+    }
+    
+    /**
+     * Take one token if there is one.
+     *
+     * @param now The current time in nanoseconds, on the same clock as at creation
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    public long tryConsume(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long wait = next - now - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
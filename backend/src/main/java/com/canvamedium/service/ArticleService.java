@@ -2,11 +2,18 @@ package com.canvamedium.service;
 
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service interface for Article operations.
@@ -36,6 +43,40 @@ public interface ArticleService {
      */
     Optional<Article> getArticleById(Long id);
     
+    /**
+     * Get several articles by their IDs with a single query.
+     *
+     * @param ids The article IDs
+     * @return The existing articles in the order of their IDs; unknown IDs are left out
+     */
+    List<Article> getArticlesByIds(List<Long> ids);
+    
+    /**
+     * Get the articles with a given status among several IDs with a single query, which reads only
+     * the partition of that status.
+     *
+     * @param ids    The article IDs
+     * @param status The status the articles must have
+     * @return The articles with that status in the order of their IDs; other IDs are left out
+     */
+    List<Article> getArticlesByIds(List<Long> ids, Status status);
+    
+    /**
+     * Get the version and last update time of an article without loading its content.
+     *
+     * @param id The article ID
+     * @return Optional containing the revision if the article exists
+     */
+    Optional<Revision> getArticleRevision(Long id);
+    
+    /**
+     * Get the revisions of several articles without loading their content.
+     *
+     * @param ids The article IDs
+     * @return The revisions by article ID; unknown IDs are left out
+     */
+    Map<Long, Revision> getArticleRevisions(Collection<Long> ids);
+    
     /**
      * Create a new article.
      *
@@ -62,6 +103,49 @@ public interface ArticleService {
      */
     Article updateArticle(Long id, Article article);
     
+    /**
+     * Update an existing article if it is still at the expected version.
+     *
+     * @param id              The ID of the article to update
+     * @param article         The updated article data
+     * @param expectedVersion The version the client last saw, or null to skip the check
+     * @return The updated article
+     * @throws RuntimeException if the article with the given ID is not found
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the article has been modified since
+     */
+    Article updateArticle(Long id, Article article, Long expectedVersion);
+    
+    /**
+     * Apply a JSON Patch (RFC 6902) to an article.
+     * The patch addresses a document with the editable fields {@code title}, {@code previewText},
+     * {@code thumbnailUrl} and {@code content}, so a client can replace a single content block
+     * with e.g. {@code [{"op": "replace", "path": "/content/elements/2/text", "value": "..."}]}.
+     *
+     * @param id              The ID of the article to patch
+     * @param patch           The JSON Patch operations
+     * @param expectedVersion The version the client last saw, or null to skip the check
+     * @return The patched article
+     * @throws RuntimeException if the article with the given ID is not found
+     * @throws IllegalArgumentException if the patch is invalid or cannot be applied
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the article has been modified since
+     */
+    Article patchArticle(Long id, JsonNode patch, Long expectedVersion);
+    
+    /**
+     * Update a single content block of an article in the database, without loading
+     * or rewriting the rest of the content document.
+     *
+     * @param id              The ID of the article
+     * @param blockId         The ID of the block in {@code content.elements}
+     * @param changes         A JSON object with the block fields to set
+     * @param expectedVersion The version the client last saw, or null to skip the check
+     * @return The new version of the article
+     * @throws RuntimeException if the article or block is not found
+     * @throws IllegalArgumentException if the changes are not a JSON object
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the article has been modified since
+     */
+    Long updateArticleBlock(Long id, String blockId, JsonNode changes, Long expectedVersion);
+    
     /**
      * Publish a draft article.
      *
@@ -80,6 +164,36 @@ public interface ArticleService {
      */
     Article archiveArticle(Long id);
     
+    /**
+     * Schedule a draft article to be published at the given time.
+     *
+     * @param id        The ID of the draft article
+     * @param publishAt When to publish it, in the future
+     * @return The scheduled article
+     * @throws jakarta.persistence.EntityNotFoundException if the article is not found
+     * @throws IllegalStateException if the article is not in DRAFT status
+     * @throws IllegalArgumentException if the time is not in the future
+     */
+    Article schedulePublication(Long id, LocalDateTime publishAt);
+    
+    /**
+     * Cancel the scheduled publication of an article.
+     *
+     * @param id The ID of the article
+     * @return The article, no longer scheduled
+     * @throws jakarta.persistence.EntityNotFoundException if the article is not found
+     */
+    Article cancelScheduledPublication(Long id);
+    
+    /**
+     * Publish those of the given articles that are drafts whose scheduled time has come, in one
+     * transaction. Articles that have been published, unscheduled or rescheduled since are skipped.
+     *
+     * @param ids The IDs of the articles
+     * @return The IDs of the articles published
+     */
+    List<Long> publishScheduledArticles(Collection<Long> ids);
+    
     /**
      * Create a draft copy of an existing article.
      *
@@ -180,6 +294,43 @@ public interface ArticleService {
      */
     Page<Article> searchArticles(String query, Status status, Long templateId, Boolean featured, Pageable pageable);
     
+    /**
+     * Pass all published articles, newest first, to an action one at a time.
+     * The articles are read in chunks, each in its own short read-only transaction with
+     * their tags, categories and template, and passed to the action outside of it, so
+     * neither memory use nor the time a connection is held grows with the number of
+     * articles or with a slow action. The method must not be called inside a transaction.
+     *
+     * @param action The action to perform for each article
+     * @return The number of articles passed to the action
+     */
+    long forEachPublishedArticle(Consumer<? super Article> action);
+    
+    /**
+     * Pass all featured published articles, newest first, to an action one at a time.
+     *
+     * @param action The action to perform for each article
+     * @return The number of articles passed to the action
+     * @see #forEachPublishedArticle
+     */
+    long forEachFeaturedArticle(Consumer<? super Article> action);
+    
+    /**
+     * Pass all articles matching the criteria of
+     * {@link #searchArticles(String, Status, Long, Boolean, Pageable)} to an action one at a time.
+     *
+     * @param query      The search query to look for in title and preview text
+     * @param status     Optional filter by article status
+     * @param templateId Optional filter by template ID
+     * @param featured   Optional filter for featured articles
+     * @param sort       The order of the results, by properties that are never null
+     * @param action     The action to perform for each article
+     * @return The number of articles passed to the action
+     * @see #forEachPublishedArticle
+     */
+    long forEachSearchResult(String query, Status status, Long templateId, Boolean featured, Sort sort,
+                             Consumer<? super Article> action);
+    
     /**
      * Search for articles.
      *
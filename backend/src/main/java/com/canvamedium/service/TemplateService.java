@@ -1,5 +1,6 @@
 package com.canvamedium.service;
 
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -35,6 +36,14 @@ public interface TemplateService {
      */
     Optional<Template> getTemplateById(Long id);
     
+    /**
+     * Get the version and last update time of a template without loading its layout.
+     *
+     * @param id The template ID
+     * @return Optional containing the revision if the template exists
+     */
+    Optional<Revision> getTemplateRevision(Long id);
+    
     /**
      * Create a new template.
      *
@@ -3,14 +3,17 @@ package com.canvamedium.service;
 import com.canvamedium.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.util.Optional;
 
 /**
  * Service interface for User operations.
+ * As a {@link UserDetailsPasswordService}, it stores the new hash when a login finds the
+ * password hashed with a weaker cost than the configured one.
  */
-public interface UserService extends UserDetailsService {
+public interface UserService extends UserDetailsService, UserDetailsPasswordService {
     
     /**
      * Finds a user by their ID.
@@ -36,6 +39,14 @@ public interface UserService extends UserDetailsService {
      */
     Optional<User> findByEmail(String email);
     
+    /**
+     * Finds a user by their email or, if no user has that email, by their username.
+     *
+     * @param usernameOrEmail The email or username
+     * @return An Optional containing the found user, or empty if not found
+     */
+    Optional<User> findByUsernameOrEmail(String usernameOrEmail);
+    
     /**
      * Registers a new user in the system.
      *
@@ -1,41 +1,108 @@
 package com.canvamedium.service.impl;
 
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.event.ArticlePublicationScheduledEvent;
+import com.canvamedium.event.ContentChangedEvent;
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.TemplateRepository;
 import com.canvamedium.service.ArticleService;
+import com.canvamedium.util.JsonPatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.criteria.Predicate;
+import io.micrometer.observation.annotation.Observed;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Implementation of the Article service.
+ * <p>
+ * Read paths run in read-only transactions: Hibernate loads entities without
+ * dirty-checking snapshots of their JSON content and the session is switched
+ * to {@code FlushMode.MANUAL}, so nothing is flushed at commit. Write methods
+ * override this with their own {@link Transactional} declaration.
+ * <p>
+ * Articles are versioned, so concurrent edits are detected when the second
+ * writer flushes instead of silently overwriting the first one. Updates can
+ * additionally be made conditional on the version the client last read.
+ * <p>
+ * Every write publishes a {@link ContentChangedEvent}, which listeners such as
+ * the public response cache act on once the transaction has committed; it is
+ * marked as published only if the article was or is published.
+ * Publishing, archiving, featuring and deleting also append an
+ * {@link ArticleLifecycleEvent} to the {@link ArticleEventBus} outbox in the
+ * same transaction; its listeners run asynchronously after the commit.
+ * Drafts can be scheduled for publication; the
+ * {@link com.canvamedium.scheduling.ScheduledPublisher} publishes them in
+ * batches once their time has come.
+ * <p>
+ * Each method call is observed as an {@code article.service} span (and timer).
  */
 @Service
+@Observed(name = "article.service")
+@Transactional(readOnly = true)
 public class ArticleServiceImpl implements ArticleService {
     
     private final ArticleRepository articleRepository;
     private final TemplateRepository templateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ArticleEventBus articleEventBus;
+    private final EntityManager entityManager;
+    private final TransactionTemplate chunkTransaction;
     
     /**
      * Constructor with repository dependencies injection.
      *
      * @param articleRepository  The article repository
      * @param templateRepository The template repository
+     * @param eventPublisher     The publisher for article change events
+     * @param articleEventBus    The outbox for article lifecycle events
+     * @param entityManager      The entity manager, used to detach streamed articles
+     * @param transactionManager The transaction manager each chunk of a streamed list is read in
      */
     @Autowired
-    public ArticleServiceImpl(ArticleRepository articleRepository, TemplateRepository templateRepository) {
+    public ArticleServiceImpl(ArticleRepository articleRepository, TemplateRepository templateRepository,
+                              ApplicationEventPublisher eventPublisher, ArticleEventBus articleEventBus,
+                              EntityManager entityManager, PlatformTransactionManager transactionManager) {
         this.articleRepository = articleRepository;
         this.templateRepository = templateRepository;
+        this.eventPublisher = eventPublisher;
+        this.articleEventBus = articleEventBus;
+        this.entityManager = entityManager;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setReadOnly(true);
     }
     
     @Override
@@ -53,6 +120,30 @@ public class ArticleServiceImpl implements ArticleService {
         return articleRepository.findById(id);
     }
     
+    @Override
+    public List<Article> getArticlesByIds(List<Long> ids) {
+        return inRequestOrder(ids, articleRepository.findAllById(ids));
+    }
+    
+    @Override
+    public List<Article> getArticlesByIds(List<Long> ids, Status status) {
+        return inRequestOrder(ids, articleRepository.findByIdInAndStatus(ids, status));
+    }
+    
+    @Override
+    public Optional<Revision> getArticleRevision(Long id) {
+        return articleRepository.findRevisionById(id);
+    }
+    
+    @Override
+    public Map<Long, Revision> getArticleRevisions(Collection<Long> ids) {
+        Map<Long, Revision> revisions = new HashMap<>();
+        for (Object[] row : articleRepository.findRevisionsByIdIn(ids)) {
+            revisions.put((Long) row[0], new Revision((Long) row[1], (LocalDateTime) row[2]));
+        }
+        return revisions;
+    }
+    
     @Override
     @Transactional
     public Article createArticle(Article article) {
@@ -64,7 +155,11 @@ public class ArticleServiceImpl implements ArticleService {
             article.setStatus(Status.PUBLISHED);
         }
         
-        return articleRepository.save(article);
+        Article saved = articleRepository.save(article);
+        if (saved.getStatus() == Status.PUBLISHED) {
+            articleEventBus.append(saved.getId(), ArticleLifecycleEvent.Type.PUBLISHED);
+        }
+        return changed(saved);
     }
     
     @Override
@@ -73,14 +168,20 @@ public class ArticleServiceImpl implements ArticleService {
         article.setCreatedAt(LocalDateTime.now());
         article.setUpdatedAt(LocalDateTime.now());
         article.setStatus(Status.DRAFT);
-        return articleRepository.save(article);
+        return changed(articleRepository.save(article));
     }
     
     @Override
     @Transactional
     public Article updateArticle(Long id, Article articleDetails) {
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        return updateArticle(id, articleDetails, null);
+    }
+    
+    @Override
+    @Transactional
+    public Article updateArticle(Long id, Article articleDetails, Long expectedVersion) {
+        Article article = findArticleAtVersion(id, expectedVersion);
+        boolean wasPublished = article.getStatus() == Status.PUBLISHED;
         
         article.setTitle(articleDetails.getTitle());
         article.setContent(articleDetails.getContent());
@@ -96,31 +197,87 @@ public class ArticleServiceImpl implements ArticleService {
         
         // Update status if changed
         if (articleDetails.getStatus() != null && articleDetails.getStatus() != article.getStatus()) {
+            Status previous = article.getStatus();
             article.setStatus(articleDetails.getStatus());
             
             // Set publishedAt if transitioning to PUBLISHED
             if (articleDetails.getStatus() == Status.PUBLISHED && article.getPublishedAt() == null) {
                 article.setPublishedAt(LocalDateTime.now());
             }
+            if (articleDetails.getStatus() == Status.PUBLISHED) {
+                articleEventBus.append(id, ArticleLifecycleEvent.Type.PUBLISHED);
+            } else if (articleDetails.getStatus() == Status.ARCHIVED) {
+                articleEventBus.append(id, ArticleLifecycleEvent.Type.ARCHIVED);
+            } else if (previous == Status.PUBLISHED) {
+                articleEventBus.append(id, ArticleLifecycleEvent.Type.UNPUBLISHED);
+            }
         }
         
         article.setUpdatedAt(LocalDateTime.now());
         
-        return articleRepository.save(article);
+        return changed(articleRepository.save(article), wasPublished);
     }
     
     @Override
     @Transactional
-    public Article publishArticle(Long id) {
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+    public Article patchArticle(Long id, JsonNode patch, Long expectedVersion) {
+        Article article = findArticleAtVersion(id, expectedVersion);
+        
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        document.put("title", article.getTitle());
+        document.put("previewText", article.getPreviewText());
+        document.put("thumbnailUrl", article.getThumbnailUrl());
+        document.set("content", article.getContent());
         
-        if (article.getStatus() != Status.DRAFT) {
-            throw new IllegalStateException("Only draft articles can be published. Current status: " + article.getStatus());
+        JsonNode patched = JsonPatch.apply(patch, document);
+        if (!patched.isObject()) {
+            throw new IllegalArgumentException("Patched article must be a JSON object");
         }
         
+        article.setTitle(textOrNull(patched, "title"));
+        article.setPreviewText(textOrNull(patched, "previewText"));
+        article.setThumbnailUrl(textOrNull(patched, "thumbnailUrl"));
+        JsonNode content = patched.get("content");
+        article.setContent(content == null || content.isNull() ? null : content);
+        article.setUpdatedAt(LocalDateTime.now());
+        
+        // Flush now so bean validation and version conflicts surface from this call
+        return changed(articleRepository.saveAndFlush(article));
+    }
+    
+    @Override
+    @Transactional
+    public Long updateArticleBlock(Long id, String blockId, JsonNode changes, Long expectedVersion) {
+        if (changes == null || !changes.isObject()) {
+            throw new IllegalArgumentException("Block changes must be a JSON object");
+        }
+        
+        int updated = articleRepository.updateContentBlock(
+                id, blockId, changes.toString(), expectedVersion, LocalDateTime.now());
+        
+        // The new version becomes the client's ETag; when nothing matched it tells us why
+        Long version = articleRepository.findVersionById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        if (updated == 0) {
+            if (expectedVersion != null && !expectedVersion.equals(version)) {
+                throw new OptimisticLockingFailureException("Article " + id + " is at version "
+                        + version + ", expected " + expectedVersion);
+            }
+            throw new EntityNotFoundException("Block " + blockId + " not found in article with id: " + id);
+        }
+        eventPublisher.publishEvent(new ContentChangedEvent(Article.class, id));
+        return version;
+    }
+    
+    @Override
+    @Transactional
+    public Article publishArticle(Long id) {
+        Article article = articleRepository.findByIdAndStatus(id, Status.DRAFT)
+                .orElseThrow(() -> notDraft(id, "published"));
+        
         article.publish();
-        return articleRepository.save(article);
+        articleEventBus.append(id, ArticleLifecycleEvent.Type.PUBLISHED);
+        return changed(articleRepository.save(article));
     }
     
     @Override
@@ -129,8 +286,52 @@ public class ArticleServiceImpl implements ArticleService {
         Article article = articleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
         
+        boolean wasPublished = article.getStatus() == Status.PUBLISHED;
         article.archive();
-        return articleRepository.save(article);
+        articleEventBus.append(id, ArticleLifecycleEvent.Type.ARCHIVED);
+        return changed(articleRepository.save(article), wasPublished);
+    }
+    
+    @Override
+    @Transactional
+    public Article schedulePublication(Long id, LocalDateTime publishAt) {
+        Article article = articleRepository.findByIdAndStatus(id, Status.DRAFT)
+                .orElseThrow(() -> notDraft(id, "scheduled"));
+        
+        if (!publishAt.isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("The publication time must be in the future");
+        }
+        
+        article.setScheduledPublishAt(publishAt);
+        Article saved = articleRepository.save(article);
+        eventPublisher.publishEvent(new ArticlePublicationScheduledEvent(id, publishAt));
+        return changed(saved);
+    }
+    
+    @Override
+    @Transactional
+    public Article cancelScheduledPublication(Long id) {
+        Article article = articleRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        
+        if (article.getScheduledPublishAt() == null) {
+            return article;
+        }
+        article.setScheduledPublishAt(null);
+        return changed(articleRepository.save(article));
+    }
+    
+    @Override
+    @Transactional
+    public List<Long> publishScheduledArticles(Collection<Long> ids) {
+        List<Long> published = new ArrayList<>();
+        for (Article article : articleRepository.findDueForPublication(ids, LocalDateTime.now())) {
+            article.publish();
+            articleEventBus.append(article.getId(), ArticleLifecycleEvent.Type.PUBLISHED);
+            changed(articleRepository.save(article));
+            published.add(article.getId());
+        }
+        return published;
     }
     
     @Override
@@ -140,7 +341,7 @@ public class ArticleServiceImpl implements ArticleService {
                 .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
         
         Article draftCopy = originalArticle.createDraftCopy();
-        return articleRepository.save(draftCopy);
+        return changed(articleRepository.save(draftCopy));
     }
     
     @Override
@@ -150,6 +351,8 @@ public class ArticleServiceImpl implements ArticleService {
                 .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
         
         articleRepository.delete(article);
+        articleEventBus.append(id, ArticleLifecycleEvent.Type.DELETED);
+        eventPublisher.publishEvent(new ContentChangedEvent(Article.class, id, article.getStatus() == Status.PUBLISHED));
     }
     
     @Override
@@ -209,20 +412,51 @@ public class ArticleServiceImpl implements ArticleService {
         
         return articleRepository.searchArticles(query, status, template, featured, pageable);
     }
-
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long forEachPublishedArticle(Consumer<? super Article> action) {
+        return forEachChunk(position -> articleRepository.findFirst100ByStatusOrderByPublishedAtDesc(
+                Status.PUBLISHED, position), action);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long forEachFeaturedArticle(Consumer<? super Article> action) {
+        return forEachChunk(position -> articleRepository.findFirst100ByFeaturedAndStatusOrderByPublishedAtDesc(
+                true, Status.PUBLISHED, position), action);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long forEachSearchResult(String query, Status status, Long templateId, Boolean featured, Sort sort,
+                                    Consumer<? super Article> action) {
+        Template template = null;
+        if (templateId != null) {
+            template = templateRepository.findById(templateId)
+                    .orElseThrow(() -> new EntityNotFoundException("Template not found with id: " + templateId));
+        }
+        
+        Specification<Article> criteria = searchCriteria(query, status, template, featured);
+        return forEachChunk(position -> articleRepository.findBy(criteria, results -> results
+                .sortBy(sort)
+                .limit(ArticleRepository.STREAM_CHUNK_SIZE)
+                .scroll(position)), action);
+    }
+    
     @Override
     public Page<Article> searchArticles(String query, Pageable pageable) {
         // Implement search logic based on query (e.g., title or content)
         return articleRepository.findByTitleContainingIgnoreCase(query, pageable);
     }
-
+    
     @Override
     public Page<Article> getArticlesByTemplate(Long templateId, Pageable pageable) {
         Template template = templateRepository.findById(templateId)
                 .orElseThrow(() -> new EntityNotFoundException("Template not found with id: " + templateId));
         return articleRepository.findByTemplate(template, pageable);
     }
-
+    
     @Override
     public Page<Article> getArticlesByCategory(Long categoryId, Pageable pageable) {
         // This method requires CategoryRepository and logic to find articles by category
@@ -230,7 +464,7 @@ public class ArticleServiceImpl implements ArticleService {
         // You would typically inject CategoryRepository and use it here.
         throw new UnsupportedOperationException("getArticlesByCategory not yet implemented as Category entity is not fully integrated.");
     }
-
+    
     @Override
     public Page<Article> getArticlesByTag(Long tagId, Pageable pageable) {
         // This method requires TagRepository and logic to find articles by tag
@@ -238,16 +472,171 @@ public class ArticleServiceImpl implements ArticleService {
         // You would typically inject TagRepository and use it here.
         throw new UnsupportedOperationException("getArticlesByTag not yet implemented as Tag entity is not fully integrated.");
     }
-
+    
     @Override
     @Transactional
     public Article setFeaturedStatus(Long id, boolean featured) {
         Article article = articleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
         
+        if (article.isFeatured() != featured) {
+            articleEventBus.append(id, featured ? ArticleLifecycleEvent.Type.FEATURED : ArticleLifecycleEvent.Type.UNFEATURED);
+        }
         article.setFeatured(featured);
         article.setUpdatedAt(LocalDateTime.now()); // Update timestamp when featured status changes
         
-        return articleRepository.save(article);
+        return changed(articleRepository.save(article));
+    }
+    
+    /**
+     * Order loaded articles as their IDs were requested.
+     *
+     * @param ids   The requested IDs
+     * @param found The articles found, in any order
+     * @return The found articles in the order of their IDs, without duplicates
+     */
+    private static List<Article> inRequestOrder(List<Long> ids, Iterable<Article> found) {
+        Map<Long, Article> articles = new HashMap<>();
+        for (Article article : found) {
+            articles.put(article.getId(), article);
+        }
+        return ids.stream()
+                .distinct()
+                .map(articles::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    /**
+     * The exception for an article that was looked up as a draft and not found: it does not exist
+     * or has another status, which is only read in that case.
+     *
+     * @param id     The article ID
+     * @param action What only drafts can be, for the message
+     * @return An EntityNotFoundException or an IllegalStateException
+     */
+    private RuntimeException notDraft(Long id, String action) {
+        return articleRepository.findStatusById(id)
+                .<RuntimeException>map(status -> new IllegalStateException(
+                        "Only draft articles can be " + action + ". Current status: " + status))
+                .orElseGet(() -> new EntityNotFoundException("Article not found with id: " + id));
+    }
+    
+    /**
+     * Load an article and check it against the version the client expects.
+     *
+     * @param id              The article ID
+     * @param expectedVersion The expected version, or null to skip the check
+     * @return The article
+     */
+    private Article findArticleAtVersion(Long id, Long expectedVersion) {
+        Article article = articleRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Article not found with id: " + id));
+        
+        if (expectedVersion != null && !expectedVersion.equals(article.getVersion())) {
+            throw new OptimisticLockingFailureException("Article " + id + " is at version "
+                    + article.getVersion() + ", expected " + expectedVersion);
+        }
+        return article;
+    }
+    
+    /**
+     * Pass the articles of a list read in keyset-paged chunks to an action. Each chunk is
+     * read in its own read-only transaction, with the tags, categories and template of its
+     * articles (a batch fetch per association, not a query per article), and detached
+     * before the transaction ends, so that the action runs without holding a connection
+     * and the persistence context does not keep every article of the list.
+     *
+     * @param query  Reads the chunk after a position
+     * @param action The action to perform for each article
+     * @return The number of articles passed to the action
+     */
+    private long forEachChunk(Function<ScrollPosition, Window<Article>> query, Consumer<? super Article> action) {
+        long count = 0;
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Article> chunk;
+        do {
+            ScrollPosition after = position;
+            chunk = chunkTransaction.execute(status -> {
+                Window<Article> articles = query.apply(after);
+                for (Article article : articles) {
+                    Hibernate.initialize(article.getTags());
+                    Hibernate.initialize(article.getCategories());
+                    Hibernate.initialize(article.getTemplate());
+                    entityManager.detach(article);
+                }
+                return articles;
+            });
+            for (Article article : chunk) {
+                action.accept(article);
+                count++;
+            }
+            if (!chunk.isEmpty()) {
+                position = chunk.positionAt(chunk.size() - 1);
+            }
+        } while (chunk.hasNext());
+        return count;
+    }
+    
+    /**
+     * The criteria of {@link ArticleRepository#searchArticles}, for reading its results by
+     * keyset position.
+     *
+     * @param query    The search query for title and preview text, or null
+     * @param status   The article status, or null
+     * @param template The template, or null
+     * @param featured The featured flag, or null
+     * @return The criteria
+     */
+    private static Specification<Article> searchCriteria(String query, Status status, Template template,
+                                                         Boolean featured) {
+        return (root, criteriaQuery, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (query != null) {
+                String pattern = "%" + query.toLowerCase() + "%";
+                predicates.add(builder.or(
+                        builder.like(builder.lower(root.get("title")), pattern),
+                        builder.like(builder.lower(root.get("previewText")), pattern)));
+            }
+            if (status != null) {
+                predicates.add(builder.equal(root.get("status"), status));
+            }
+            if (template != null) {
+                predicates.add(builder.equal(root.get("template"), template));
+            }
+            if (featured != null) {
+                predicates.add(builder.equal(root.get("featured"), featured));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    /**
+     * Publish a {@link ContentChangedEvent} for a saved article whose status did not change.
+     *
+     * @param article The saved article
+     * @return The same article
+     */
+    private Article changed(Article article) {
+        return changed(article, false);
+    }
+    
+    /**
+     * Publish a {@link ContentChangedEvent} for a saved article, marked as published if the
+     * article was or is published, so that edits of drafts leave the public caches alone.
+     *
+     * @param article      The saved article
+     * @param wasPublished Whether the article was published before the change
+     * @return The same article
+     */
+    private Article changed(Article article, boolean wasPublished) {
+        boolean published = wasPublished || article.getStatus() == Status.PUBLISHED;
+        eventPublisher.publishEvent(new ContentChangedEvent(Article.class, article.getId(), published));
+        return article;
+    }
+    
+    private static String textOrNull(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
     }
 }
@@ -1,10 +1,15 @@
 package com.canvamedium.service.impl;
 
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.event.ContentChangedEvent;
 import com.canvamedium.model.Category;
+import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.CategoryRepository;
 import com.canvamedium.service.CategoryService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -16,20 +21,37 @@ import java.util.Optional;
 
 /**
  * Implementation of the CategoryService interface.
+ * <p>
+ * Writes publish a {@link ContentChangedEvent} so that cached responses
+ * embedding category data are invalidated after commit. Other writes than
+ * creation also set the update time of the articles in the category, whose
+ * JSON embeds it; their version, which editors send back in If-Match, is left alone. Deleting a category appends a {@code TAGS_CHANGED} lifecycle
+ * event for each published article in it.
  */
 @Service
+@Transactional(readOnly = true)
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ArticleRepository articleRepository;
+    private final ArticleEventBus articleEventBus;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Constructor with dependencies injection.
      *
      * @param categoryRepository The category repository
+     * @param articleRepository  The article repository
+     * @param articleEventBus    The bus for the lifecycle events of the articles in a category
+     * @param eventPublisher     The publisher for category change events
      */
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, ArticleRepository articleRepository,
+                               ArticleEventBus articleEventBus, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.articleRepository = articleRepository;
+        this.articleEventBus = articleEventBus;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -62,7 +84,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setCreatedAt(LocalDateTime.now());
         category.setUpdatedAt(LocalDateTime.now());
         
-        return categoryRepository.save(category);
+        return changed(categoryRepository.save(category));
     }
 
     @Override
@@ -94,7 +116,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setParentId(categoryDetails.getParentId());
         category.setUpdatedAt(LocalDateTime.now());
         
-        return categoryRepository.save(category);
+        return changedWithArticles(categoryRepository.save(category));
     }
 
     @Override
@@ -109,7 +131,14 @@ public class CategoryServiceImpl implements CategoryService {
             throw new IllegalStateException("Cannot delete category with child categories");
         }
         
-        categoryRepository.delete(category);
+        // Their similarity to other articles changes with the category
+        for (Long articleId : articleRepository.findPublishedIdsByCategoryId(id)) {
+            articleEventBus.append(articleId, ArticleLifecycleEvent.Type.TAGS_CHANGED);
+        }
+        articleRepository.touchByCategoryId(id, LocalDateTime.now());
+        // The touch cleared the persistence context, so the category is deleted re-loaded
+        categoryRepository.deleteById(category.getId());
+        eventPublisher.publishEvent(new ContentChangedEvent(Category.class, id));
     }
 
     @Override
@@ -146,7 +175,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setFeatured(featured);
         category.setUpdatedAt(LocalDateTime.now());
         
-        return categoryRepository.save(category);
+        return changedWithArticles(categoryRepository.save(category));
     }
 
     @Override
@@ -174,4 +203,27 @@ public class CategoryServiceImpl implements CategoryService {
             throw new IllegalArgumentException("Category slug already exists: " + category.getSlug());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Publish a {@link ContentChangedEvent} for a saved category.
+     *
+     * @param category The saved category
+     * @return The same category
+     */
+    private Category changed(Category category) {
+        eventPublisher.publishEvent(new ContentChangedEvent(Category.class, category.getId()));
+        return category;
+    }
+
+    /**
+     * Set the update time of the articles in a saved category and publish a
+     * {@link ContentChangedEvent} for it.
+     *
+     * @param category The saved category
+     * @return The same category
+     */
+    private Category changedWithArticles(Category category) {
+        articleRepository.touchByCategoryId(category.getId(), category.getUpdatedAt());
+        return changed(category);
+    }
+}
@@ -1,6 +1,11 @@
 package com.canvamedium.service.impl;
 
 import com.canvamedium.service.MediaService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -13,20 +18,32 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Implementation of the MediaService interface for handling media operations.
+ * <p>
+ * Text-based uploads (SVG, JSON, text...) are additionally stored gzip-compressed next to
+ * the original ({@code <name>.gz}), which the {@code /uploads} resource handler serves to
+ * clients that accept gzip instead of compressing the file on every request.
+ * <p>
+ * Reports {@code media.thumbnails.generated} and {@code media.stored.bytes}, the bytes written
+ * per variant (original, gzip, thumbnail). Image decoding, resizing, encoding and file writes
+ * are observed as {@code media.processing} spans, tagged by phase.
  */
 @Service
 public class MediaServiceImpl implements MediaService {
-
+    
     @Value("${media.upload.path:media-uploads}")
     private String uploadPath;
     
@@ -35,7 +52,35 @@ public class MediaServiceImpl implements MediaService {
     
     private static final int THUMBNAIL_WIDTH = 400;
     private static final int THUMBNAIL_HEIGHT = 225;
-
+    
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS =
+            Set.of("svg", "json", "txt", "csv", "xml", "html", "css", "js", "md");
+    private static final long PRECOMPRESS_MIN_SIZE = 2048;
+    private static final String GZIP_SUFFIX = ".gz";
+    
+    private final Counter thumbnailsGenerated;
+    private final Counter originalBytesStored;
+    private final Counter gzipBytesStored;
+    private final Counter thumbnailBytesStored;
+    private final ObservationRegistry observationRegistry;
+    
+    /**
+     * Constructor with dependencies injection.
+     *
+     * @param meterRegistry       The registry for the media counters
+     * @param observationRegistry The registry for the processing phase spans
+     */
+    @Autowired
+    public MediaServiceImpl(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.thumbnailsGenerated = Counter.builder("media.thumbnails.generated")
+                .description("Thumbnails generated for uploaded images")
+                .register(meterRegistry);
+        this.originalBytesStored = storedBytesCounter(meterRegistry, "original");
+        this.gzipBytesStored = storedBytesCounter(meterRegistry, "gzip");
+        this.thumbnailBytesStored = storedBytesCounter(meterRegistry, "thumbnail");
+    }
+    
     @Override
     public String storeFile(MultipartFile file) throws IOException {
         // Create uploads directory if it doesn't exist
@@ -51,7 +96,14 @@ public class MediaServiceImpl implements MediaService {
         
         // Copy file to the target location
         Path targetLocation = Paths.get(uploadPath).resolve(filename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        long size = observe("write", () ->
+                Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING));
+        originalBytesStored.increment(size);
+        
+        if (COMPRESSIBLE_EXTENSIONS.contains(fileExtension.toLowerCase(Locale.ROOT))
+                && size >= PRECOMPRESS_MIN_SIZE) {
+            writeGzipVariant(targetLocation);
+        }
         
         // Return the URL to access the file
         return baseUrl + "/uploads/" + filename;
@@ -79,32 +131,85 @@ public class MediaServiceImpl implements MediaService {
         }
         
         // Read the original image
-        BufferedImage originalImage = ImageIO.read(filePath.toFile());
+        BufferedImage originalImage = observe("decode", () -> ImageIO.read(filePath.toFile()));
         
         // Create a thumbnail
-        BufferedImage thumbnailImage = createThumbnail(originalImage);
+        BufferedImage thumbnailImage = observe("resize", () -> createThumbnail(originalImage));
         
-        // Save the thumbnail
+        // Encode and save the thumbnail
         String fileExtension = getFileExtension(filename);
         String thumbnailFilename = "thumb_" + UUID.randomUUID().toString() + "." + fileExtension;
         Path thumbnailPath = Paths.get(uploadPath).resolve(thumbnailFilename);
         
-        ImageIO.write(thumbnailImage, fileExtension, thumbnailPath.toFile());
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        if (observe("encode", () -> ImageIO.write(thumbnailImage, fileExtension, encoded))) {
+            observe("write", () -> Files.write(thumbnailPath, encoded.toByteArray()));
+            thumbnailsGenerated.increment();
+            thumbnailBytesStored.increment(encoded.size());
+        }
         
         // Return the URL to access the thumbnail
         return baseUrl + "/uploads/" + thumbnailFilename;
     }
-
+    
     @Override
     public boolean deleteFile(String filename) {
         try {
             Path filePath = Paths.get(uploadPath).resolve(filename);
+            Files.deleteIfExists(Paths.get(uploadPath).resolve(filename + GZIP_SUFFIX));
             return Files.deleteIfExists(filePath);
         } catch (IOException e) {
             return false;
         }
     }
     
+    /**
+     * Writes a gzip-compressed copy of a stored file next to it.
+     *
+     * @param file The stored file
+     * @throws IOException if the compressed copy cannot be written
+     */
+    private void writeGzipVariant(Path file) throws IOException {
+        Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+        observe("compress", () -> {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+                return Files.copy(file, out);
+            }
+        });
+        gzipBytesStored.increment(Files.size(gzipFile));
+    }
+    
+    /**
+     * Runs one phase of media processing in a {@code media.processing} observation.
+     *
+     * @param phase The phase (decode, resize, encode, compress or write)
+     * @param work  The work of the phase
+     * @param <T>   The result type
+     * @return The result of the work
+     * @throws IOException if the work fails
+     */
+    private <T> T observe(String phase, Observation.CheckedCallable<T, IOException> work) throws IOException {
+        return Observation.createNotStarted("media.processing", observationRegistry)
+                .contextualName("media " + phase)
+                .lowCardinalityKeyValue("phase", phase)
+                .observeChecked(work);
+    }
+    
+    /**
+     * Creates the counter of bytes stored for one variant of uploaded files.
+     *
+     * @param meterRegistry The meter registry
+     * @param variant       The variant (original, gzip or thumbnail)
+     * @return The counter
+     */
+    private static Counter storedBytesCounter(MeterRegistry meterRegistry, String variant) {
+        return Counter.builder("media.stored.bytes")
+                .description("Bytes written to the media upload directory")
+                .baseUnit("bytes")
+                .tag("variant", variant)
+                .register(meterRegistry);
+    }
+    
     /**
      * Gets the file extension from a filename.
      *
@@ -1,10 +1,15 @@
 package com.canvamedium.service.impl;
 
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.event.ContentChangedEvent;
 import com.canvamedium.model.Tag;
+import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.TagRepository;
 import com.canvamedium.service.TagService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -16,20 +21,38 @@ import java.util.Optional;
 
 /**
  * Implementation of the TagService interface.
+ * <p>
+ * Writes publish a {@link ContentChangedEvent} so that cached responses
+ * embedding tag data are invalidated after commit. Updates and deletions also
+ * set the update time of the articles with the tag, whose JSON embeds it; their
+ * version, which editors send back in If-Match, is left alone.
+ * Deleting a tag appends a {@code TAGS_CHANGED} lifecycle event for each
+ * published article that had it.
  */
 @Service
+@Transactional(readOnly = true)
 public class TagServiceImpl implements TagService {
 
     private final TagRepository tagRepository;
+    private final ArticleRepository articleRepository;
+    private final ArticleEventBus articleEventBus;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Constructor with dependencies injection.
      *
      * @param tagRepository The tag repository
+     * @param articleRepository The article repository
+     * @param articleEventBus The bus for the lifecycle events of the articles with a tag
+     * @param eventPublisher The publisher for tag change events
      */
     @Autowired
-    public TagServiceImpl(TagRepository tagRepository) {
+    public TagServiceImpl(TagRepository tagRepository, ArticleRepository articleRepository,
+                          ArticleEventBus articleEventBus, ApplicationEventPublisher eventPublisher) {
         this.tagRepository = tagRepository;
+        this.articleRepository = articleRepository;
+        this.articleEventBus = articleEventBus;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -62,7 +85,7 @@ public class TagServiceImpl implements TagService {
         tag.setCreatedAt(LocalDateTime.now());
         tag.setUpdatedAt(LocalDateTime.now());
         
-        return tagRepository.save(tag);
+        return changed(tagRepository.save(tag));
     }
 
     @Override
@@ -88,7 +111,7 @@ public class TagServiceImpl implements TagService {
         
         tag.setUpdatedAt(LocalDateTime.now());
         
-        return tagRepository.save(tag);
+        return changedWithArticles(tagRepository.save(tag));
     }
 
     @Override
@@ -97,7 +120,14 @@ public class TagServiceImpl implements TagService {
         Tag tag = tagRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Tag not found with id: " + id));
         
-        tagRepository.delete(tag);
+        // Their similarity to other articles changes with the tag
+        for (Long articleId : articleRepository.findPublishedIdsByTagId(id)) {
+            articleEventBus.append(articleId, ArticleLifecycleEvent.Type.TAGS_CHANGED);
+        }
+        articleRepository.touchByTagId(id, LocalDateTime.now());
+        // The touch cleared the persistence context, so the tag is deleted re-loaded
+        tagRepository.deleteById(tag.getId());
+        eventPublisher.publishEvent(new ContentChangedEvent(Tag.class, id));
     }
 
     @Override
@@ -140,4 +170,27 @@ public class TagServiceImpl implements TagService {
             throw new IllegalArgumentException("Tag slug already exists: " + tag.getSlug());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Publish a {@link ContentChangedEvent} for a saved tag.
+     *
+     * @param tag The saved tag
+     * @return The same tag
+     */
+    private Tag changed(Tag tag) {
+        eventPublisher.publishEvent(new ContentChangedEvent(Tag.class, tag.getId()));
+        return tag;
+    }
+
+    /**
+     * Set the update time of the articles with a saved tag and publish a
+     * {@link ContentChangedEvent} for it.
+     *
+     * @param tag The saved tag
+     * @return The same tag
+     */
+    private Tag changedWithArticles(Tag tag) {
+        articleRepository.touchByTagId(tag.getId(), tag.getUpdatedAt());
+        return changed(tag);
+    }
+}
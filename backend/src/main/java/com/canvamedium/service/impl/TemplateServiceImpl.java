@@ -1,10 +1,14 @@
 package com.canvamedium.service.impl;
 
+import com.canvamedium.event.ContentChangedEvent;
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
+import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.TemplateRepository;
 import com.canvamedium.service.TemplateService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -16,20 +20,32 @@ import java.util.Optional;
 
 /**
  * Implementation of the Template service.
+ * Read methods inherit the class-level read-only transaction. Updates set the
+ * update time of the articles using the template, whose JSON embeds it, leaving
+ * their version alone, and writes publish a {@link ContentChangedEvent} so that
+ * cached responses embedding the template are invalidated after commit.
  */
 @Service
+@Transactional(readOnly = true)
 public class TemplateServiceImpl implements TemplateService {
     
     private final TemplateRepository templateRepository;
+    private final ArticleRepository articleRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Constructor with repository dependency injection.
      *
      * @param templateRepository The template repository
+     * @param articleRepository  The article repository
+     * @param eventPublisher     The publisher for template change events
      */
     @Autowired
-    public TemplateServiceImpl(TemplateRepository templateRepository) {
+    public TemplateServiceImpl(TemplateRepository templateRepository, ArticleRepository articleRepository,
+                               ApplicationEventPublisher eventPublisher) {
         this.templateRepository = templateRepository;
+        this.articleRepository = articleRepository;
+        this.eventPublisher = eventPublisher;
     }
     
     @Override
@@ -47,6 +63,11 @@ public class TemplateServiceImpl implements TemplateService {
         return templateRepository.findById(id);
     }
     
+    @Override
+    public Optional<Revision> getTemplateRevision(Long id) {
+        return templateRepository.findRevisionById(id);
+    }
+    
     @Override
     @Transactional
     public Template createTemplate(Template template) {
@@ -65,7 +86,10 @@ public class TemplateServiceImpl implements TemplateService {
         template.setLayout(templateDetails.getLayout());
         template.setUpdatedAt(LocalDateTime.now());
         
-        return templateRepository.save(template);
+        Template saved = templateRepository.save(template);
+        articleRepository.touchByTemplateId(id, saved.getUpdatedAt());
+        eventPublisher.publishEvent(new ContentChangedEvent(Template.class, id));
+        return saved;
     }
     
     @Override
@@ -74,7 +98,9 @@ public class TemplateServiceImpl implements TemplateService {
         Template template = templateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Template not found with id: " + id));
         
+        // No article can use a deleted template (template_id references it), so none is touched
         templateRepository.delete(template);
+        eventPublisher.publishEvent(new ContentChangedEvent(Template.class, id));
     }
     
     @Override
@@ -1,13 +1,20 @@
 package com.canvamedium.service.impl;
 
+import com.canvamedium.event.UserAccountChangedEvent;
 import com.canvamedium.model.User;
 import com.canvamedium.model.User.Role;
 import com.canvamedium.repository.UserRepository;
 import com.canvamedium.service.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -15,8 +22,10 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -24,48 +33,79 @@ import java.util.stream.Collectors;
 
 /**
  * Implementation of the UserService interface.
+ * Read methods inherit the class-level read-only transaction.
+ * <p>
+ * The details loaded for authentication are cached for a short time, so that token refreshes
+ * and repeated logins do not query the database each time. Changes made here evict the user
+ * at once; changes made by other instances show after at most the cache TTL. Changes to the
+ * password, roles or enabled state publish a {@link UserAccountChangedEvent}, which revokes
+ * the user's sessions in opaque token mode.
  */
 @Service
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final Cache<String, UserDetails> userDetailsCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Constructor with dependencies injection.
      *
      * @param userRepository  The user repository
      * @param passwordEncoder The password encoder
+     * @param eventPublisher  The publisher for account change events
+     * @param meterRegistry   The registry for the user details cache metrics
+     * @param userCacheTtl    How long the details loaded for authentication are cached
+     * @param userCacheSize   The maximum number of cached user details
      */
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository,
+                           PasswordEncoder passwordEncoder,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.auth.user-cache.ttl:30s}") Duration userCacheTtl,
+                           @Value("${app.auth.user-cache.maximum-size:10000}") long userCacheSize) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
+        this.userDetailsCache = Caffeine.newBuilder()
+                .expireAfterWrite(userCacheTtl)
+                .maximumSize(userCacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, "auth.user-details");
     }
     
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // A cache hit needs no connection
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        User user;
+        UserDetails userDetails = userDetailsCache.get(usernameOrEmail, this::loadUserDetails);
         
-        // Try to find by email first
-        Optional<User> userOptional = userRepository.findByEmail(usernameOrEmail);
-        
-        // If not found by email, try by username
-        if (userOptional.isEmpty()) {
-            logger.debug("User not found by email '{}', trying username", usernameOrEmail);
-            userOptional = userRepository.findByUsername(usernameOrEmail);
-        }
+        // Hand out a copy: the authentication manager erases the password of the user it returns
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).build();
+    }
+    
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        evictUserDetails(user.getUsername());
+        logger.info("Rehashed the password of user {} with the configured cost", user.getUsername());
         
-        // If still not found, throw exception
-        if (userOptional.isEmpty()) {
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+    
+    private UserDetails loadUserDetails(String usernameOrEmail) {
+        User user = findByUsernameOrEmail(usernameOrEmail).orElseThrow(() -> {
             logger.warn("User not found with email or username: {}", usernameOrEmail);
-            throw new UsernameNotFoundException("User not found with email or username: " + usernameOrEmail);
-        }
-        
-        user = userOptional.get();
-        logger.debug("User found: username={}, email={}", user.getUsername(), user.getEmail());
+            return new UsernameNotFoundException("User not found with email or username: " + usernameOrEmail);
+        });
         
         List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority(role.name()))
@@ -97,6 +137,17 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmail(email);
     }
     
+    @Override
+    public Optional<User> findByUsernameOrEmail(String usernameOrEmail) {
+        List<User> users = userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail);
+        
+        // One user's username may be another's email; the email match wins
+        return users.stream()
+                .filter(user -> usernameOrEmail.equals(user.getEmail()))
+                .findFirst()
+                .or(() -> users.stream().findFirst());
+    }
+    
     @Override
     @Transactional
     public User registerUser(User user) {
@@ -155,6 +206,7 @@ public class UserServiceImpl implements UserService {
         // Encrypt and set new password
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setUpdatedAt(LocalDateTime.now());
+        accountChanged(user.getUsername());
         
         return userRepository.save(user);
     }
@@ -171,6 +223,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + id));
         
         userRepository.delete(user);
+        accountChanged(user.getUsername());
     }
     
     @Override
@@ -181,6 +234,7 @@ public class UserServiceImpl implements UserService {
         
         user.setEnabled(enabled);
         user.setUpdatedAt(LocalDateTime.now());
+        accountChanged(user.getUsername());
         
         return userRepository.save(user);
     }
@@ -205,6 +259,7 @@ public class UserServiceImpl implements UserService {
         
         user.addRole(role);
         user.setUpdatedAt(LocalDateTime.now());
+        accountChanged(user.getUsername());
         
         return userRepository.save(user);
     }
@@ -222,6 +277,7 @@ public class UserServiceImpl implements UserService {
         
         user.removeRole(role);
         user.setUpdatedAt(LocalDateTime.now());
+        accountChanged(user.getUsername());
         
         return userRepository.save(user);
     }
@@ -229,20 +285,13 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void recordLogin(String usernameOrEmail) {
-        // Try to find the user by email first, then by username if not found
-        Optional<User> userOptional = userRepository.findByEmail(usernameOrEmail);
+        // Update in place: the user loaded during authentication is read-only in the
+        // current session, so modifying that instance would never be flushed
+        int updated = userRepository.updateLastLoginAt(usernameOrEmail, LocalDateTime.now());
         
-        if (userOptional.isEmpty()) {
-            userOptional = userRepository.findByUsername(usernameOrEmail);
-        }
-        
-        if (userOptional.isEmpty()) {
+        if (updated == 0) {
             throw new UsernameNotFoundException("User not found with email or username: " + usernameOrEmail);
         }
-        
-        User user = userOptional.get();
-        user.updateLastLogin();
-        userRepository.save(user);
     }
     
     @Override
@@ -261,7 +310,30 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
+    @Transactional
     public User saveUser(User user) {
+        accountChanged(user.getUsername());
         return userRepository.save(user);
     }
+    
+    /**
+     * Drop the cached authentication details of a user and tell listeners that the account
+     * has changed.
+     *
+     * @param username The username of the user
+     */
+    private void accountChanged(String username) {
+        evictUserDetails(username);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(username));
+    }
+    
+    /**
+     * Drop the cached authentication details of a user, under whichever login name (username
+     * or email) they were loaded. Scans the cache, which is fine for the rare account changes.
+     *
+     * @param username The username of the user
+     */
+    private void evictUserDetails(String username) {
+        userDetailsCache.asMap().values().removeIf(details -> details.getUsername().equals(username));
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.canvamedium.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Merges concurrent single-key lookups into batched ones, in the manner of a DataLoader.
+ * <p>
+ * The first lookup after a dispatch opens a batch; all lookups within the following
+ * window (or until the batch is full) join it, and the batch function loads their keys at
+ * once, e.g. with a single {@code WHERE id IN (...)} query. Concurrent lookups of the same
+ * key share one result.
+ * <p>
+ * Batches are loaded on a small pool of the loader's own threads, so that a slow batch does
+ * not hold up the next one; once all of them are busy and their queue is full, a batch is
+ * loaded on the thread that closed it. A {@link #get} while no batch is open or loading has
+ * nothing to be merged with and is loaded on the caller's thread right away, without waiting
+ * for the window. Callers of {@link #get} wait at most the loader's timeout. Callers must not
+ * hold a resource the batch function needs (such as a pooled connection) while they wait.
+ * <p>
+ * The sizes of the dispatched batches are published as the {@code batch.loader.size}
+ * distribution summary, tagged with the loader name.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+    
+    private final Function<Collection<K>, Map<K, V>> batchFunction;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    private final ScheduledExecutorService timer;
+    private final ThreadPoolExecutor dispatcher;
+    private final DistributionSummary batchSizes;
+    private Map<K, CompletableFuture<Optional<V>>> pending = new LinkedHashMap<>();
+    private int loading;
+    
+    /**
+     * Create a batch loader.
+     *
+     * @param name          The name of the loader, used for its thread and metrics
+     * @param batchFunction Loads the values of a batch of keys; keys without a value are left out
+     * @param window        How long a batch stays open for more keys
+     * @param maxBatchSize  The number of keys after which a batch is dispatched right away
+     * @param threads       The number of threads loading batches
+     * @param timeout       How long {@link #get} waits for a value
+     * @param meterRegistry The registry for the batch size metrics
+     */
+    public BatchLoader(String name, Function<Collection<K>, Map<K, V>> batchFunction, Duration window,
+                       int maxBatchSize, int threads, Duration timeout, MeterRegistry meterRegistry) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The maximum batch size must be at least 1");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("A batch loader needs at least 1 thread");
+        }
+        this.batchFunction = batchFunction;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-" + name + "-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "batch-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.batchSizes = DistributionSummary.builder("batch.loader.size")
+                .description("Number of keys loaded per batch")
+                .tag("loader", name)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Look up the value of a key in the next batch.
+     *
+     * @param key The key
+     * @return A future completed with the value, or empty if the batch had none for the key
+     */
+    public CompletableFuture<Optional<V>> load(K key) {
+        CompletableFuture<Optional<V>> result;
+        Map<K, CompletableFuture<Optional<V>>> full = null;
+        synchronized (this) {
+            result = pending.get(key);
+            if (result != null) {
+                return result;
+            }
+            result = new CompletableFuture<>();
+            pending.put(key, result);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new LinkedHashMap<>();
+                loading++;
+            } else if (pending.size() == 1) {
+                timer.schedule(this::dispatchPending, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            Map<K, CompletableFuture<Optional<V>>> batch = full;
+            dispatcher.execute(() -> dispatch(batch));
+        }
+        return result;
+    }
+    
+    /**
+     * Look up the value of a key and wait for it: in the next batch, or right away on this
+     * thread if no batch is open or loading.
+     *
+     * @param key The key
+     * @return The value, or empty if the batch had none for the key
+     * @throws IllegalStateException if the value was not loaded within the timeout
+     * @throws RuntimeException the exception thrown by the batch function
+     */
+    public Optional<V> get(K key) {
+        CompletableFuture<Optional<V>> result = null;
+        Map<K, CompletableFuture<Optional<V>>> alone = null;
+        synchronized (this) {
+            if (pending.isEmpty() && loading == 0) {
+                result = new CompletableFuture<>();
+                alone = Map.of(key, result);
+                loading++;
+            }
+        }
+        if (alone != null) {
+            dispatch(alone);
+        } else {
+            result = load(key);
+        }
+        try {
+            return result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("No value for " + key + " within " + timeout.toMillis() + " ms", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+    
+    private void dispatchPending() {
+        Map<K, CompletableFuture<Optional<V>>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            loading++;
+        }
+        dispatcher.execute(() -> dispatch(batch));
+    }
+    
+    private void dispatch(Map<K, CompletableFuture<Optional<V>>> batch) {
+        batchSizes.record(batch.size());
+        try {
+            Map<K, V> values = batchFunction.apply(batch.keySet());
+            batch.forEach((key, result) -> result.complete(Optional.ofNullable(values.get(key))));
+        } catch (RuntimeException e) {
+            batch.values().forEach(result -> result.completeExceptionally(e));
+        } finally {
+            synchronized (this) {
+                loading--;
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.canvamedium.util;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Applies JSON Patch documents (RFC 6902) to Jackson trees.
+ * <p>
+ * A patch is an array of operations ({@code add}, {@code remove}, {@code replace},
+ * {@code move}, {@code copy}, {@code test}) addressed by JSON Pointers, which lets
+ * clients send only the blocks of an article's content that actually changed.
+ * Operations are applied to a copy of the target, so a failing patch leaves the
+ * original document untouched.
+ */
+public final class JsonPatch {
+    
+    private JsonPatch() {
+    }
+    
+    /**
+     * Apply a JSON Patch to a document.
+     *
+     * @param patch  The patch, an array of operation objects
+     * @param target The document to patch; it is not modified
+     * @return The patched copy of the document
+     * @throws IllegalArgumentException if the patch is malformed, addresses a missing location,
+     *                                  or a {@code test} operation fails
+     */
+    public static JsonNode apply(JsonNode patch, JsonNode target) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("JSON patch must be an array of operations");
+        }
+        
+        JsonNode document = target.deepCopy();
+        for (JsonNode operation : patch) {
+            document = applyOperation(operation, document);
+        }
+        return document;
+    }
+    
+    private static JsonNode applyOperation(JsonNode operation, JsonNode document) {
+        String op = requiredText(operation, "op");
+        JsonPointer path = pointer(requiredText(operation, "path"));
+        
+        switch (op) {
+            case "add":
+                return add(document, path, requiredValue(operation));
+            case "remove":
+                return remove(document, path);
+            case "replace":
+                if (path.matches()) {
+                    return requiredValue(operation).deepCopy();
+                }
+                return add(remove(document, path), path, requiredValue(operation));
+            case "move": {
+                JsonPointer from = pointer(requiredText(operation, "from"));
+                if (!from.equals(path) && path.toString().startsWith(from + "/")) {
+                    throw new IllegalArgumentException("Cannot move " + from + " into one of its children");
+                }
+                JsonNode value = existing(document, from);
+                return add(remove(document, from), path, value);
+            }
+            case "copy": {
+                JsonPointer from = pointer(requiredText(operation, "from"));
+                return add(document, path, existing(document, from).deepCopy());
+            }
+            case "test":
+                if (!existing(document, path).equals(requiredValue(operation))) {
+                    throw new IllegalArgumentException("Test failed for path " + path);
+                }
+                return document;
+            default:
+                throw new IllegalArgumentException("Unsupported JSON patch operation: " + op);
+        }
+    }
+    
+    private static JsonNode add(JsonNode document, JsonPointer path, JsonNode value) {
+        if (path.matches()) {
+            return value.deepCopy();
+        }
+        
+        JsonNode parent = existing(document, path.head());
+        String property = path.last().getMatchingProperty();
+        
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(property, value.deepCopy());
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            if ("-".equals(property)) {
+                array.add(value.deepCopy());
+            } else {
+                int index = arrayIndex(path, array.size());
+                array.insert(index, value.deepCopy());
+            }
+        } else {
+            throw new IllegalArgumentException("Parent of " + path + " is not a container");
+        }
+        return document;
+    }
+    
+    private static JsonNode remove(JsonNode document, JsonPointer path) {
+        existing(document, path);
+        if (path.matches()) {
+            throw new IllegalArgumentException("Cannot remove the document root");
+        }
+        
+        JsonNode parent = document.at(path.head());
+        if (parent.isObject()) {
+            ((ObjectNode) parent).remove(path.last().getMatchingProperty());
+        } else {
+            ((ArrayNode) parent).remove(arrayIndex(path, parent.size() - 1));
+        }
+        return document;
+    }
+    
+    private static JsonNode existing(JsonNode document, JsonPointer path) {
+        JsonNode node = document.at(path);
+        if (node.isMissingNode()) {
+            throw new IllegalArgumentException("No value at path " + path);
+        }
+        return node;
+    }
+    
+    private static int arrayIndex(JsonPointer path, int maxIndex) {
+        int index = path.last().getMatchingIndex();
+        if (index < 0 || index > maxIndex) {
+            throw new IllegalArgumentException("Array index out of bounds at path " + path);
+        }
+        return index;
+    }
+    
+    private static JsonPointer pointer(String expression) {
+        try {
+            return JsonPointer.compile(expression);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid JSON pointer: " + expression, e);
+        }
+    }
+    
+    private static String requiredText(JsonNode operation, String field) {
+        JsonNode value = operation.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("JSON patch operation is missing '" + field + "'");
+        }
+        return value.asText();
+    }
+    
+    private static JsonNode requiredValue(JsonNode operation) {
+        JsonNode value = operation.get("value");
+        if (value == null) {
+            throw new IllegalArgumentException("JSON patch operation is missing 'value'");
+        }
+        return value;
+    }
+}
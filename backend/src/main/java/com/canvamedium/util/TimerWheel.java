@@ -0,0 +1,154 @@
+package com.canvamedium.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel: keeps items until their deadline at O(1) cost per insert and per
+ * tick, however many are waiting.
+ * <p>
+ * Time is divided into ticks. Level 0 has one slot per tick for the next {@code wheelSize}
+ * ticks; each further level has slots {@code wheelSize} times as wide, so {@code levels} levels
+ * cover {@code wheelSize^levels} ticks. An item goes into the lowest level whose span covers its
+ * deadline. When the wheel reaches the start of a higher-level slot, that slot's items are
+ * cascaded into the lower levels; items further away than the top level covers wait in its last
+ * slot and are cascaded again until they fit. Deadlines are rounded up to the next tick, so an
+ * item expires no earlier than its deadline and at most one tick (plus the caller's advance
+ * interval) later.
+ * <p>
+ * Not thread-safe: schedule and advance from one thread.
+ *
+ * @param <T> The item type
+ */
+public class TimerWheel<T> {
+    
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+    
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelSpans;
+    private final ArrayDeque<Entry<T>>[][] slots;
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+    
+    /**
+     * Create a timer wheel.
+     *
+     * @param tickMillis  The length of a tick in milliseconds
+     * @param wheelSize   The number of slots per level
+     * @param levels      The number of levels
+     * @param startMillis The current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis < 1 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("The tick must be at least 1 ms, with at least 2 slots and 1 level");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelSpans = new long[levels + 1];
+        levelSpans[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            levelSpans[level] = Math.multiplyExact(levelSpans[level - 1], wheelSize);
+        }
+        this.slots = new ArrayDeque[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots[level][slot] = new ArrayDeque<>();
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+    
+    /**
+     * Add an item that expires at the given time. Items whose deadline has passed expire at the
+     * next advance.
+     *
+     * @param item           The item
+     * @param deadlineMillis The deadline in milliseconds
+     */
+    public void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        insert(new Entry<>(item, deadlineTick));
+        size++;
+    }
+    
+    /**
+     * Advance the wheel to the given time and remove the items that have expired by then.
+     *
+     * @param nowMillis The current time in milliseconds
+     * @return The expired items, in the order of their deadline ticks
+     */
+    public List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the top so that items landing in a lower slot of this tick are seen
+            for (int level = slots.length - 1; level >= 1; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    ArrayDeque<Entry<T>> slot = slots[level][slotIndex(currentTick, level)];
+                    List<Entry<T>> cascaded = new ArrayList<>(slot);
+                    slot.clear();
+                    cascaded.forEach(this::insert);
+                }
+            }
+            ArrayDeque<Entry<T>> slot = slots[0][slotIndex(currentTick, 0)];
+            for (Entry<T> entry : slot) {
+                due.add(entry.item());
+            }
+            slot.clear();
+            expired.addAll(due);
+            due.clear();
+        }
+        size -= expired.size();
+        return expired;
+    }
+    
+    /**
+     * Remove all items.
+     */
+    public void clear() {
+        for (ArrayDeque<Entry<T>>[] level : slots) {
+            for (ArrayDeque<Entry<T>> slot : level) {
+                slot.clear();
+            }
+        }
+        due.clear();
+        size = 0;
+    }
+    
+    /**
+     * Get the number of items waiting, including those that have expired but not been returned.
+     *
+     * @return The number of items
+     */
+    public int size() {
+        return size;
+    }
+    
+    private void insert(Entry<T> entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0) {
+            due.add(entry.item());
+            return;
+        }
+        int top = slots.length - 1;
+        for (int level = 0; level <= top; level++) {
+            if (delta < levelSpans[level + 1]) {
+                slots[level][slotIndex(entry.deadlineTick(), level)].add(entry);
+                return;
+            }
+        }
+        // Beyond the span of the wheel: park in the furthest top-level slot and cascade again later
+        slots[top][slotIndex(currentTick + levelSpans[top + 1] - 1, top)].add(entry);
+    }
+    
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick / levelSpans[level]) % wheelSize);
+    }
+}
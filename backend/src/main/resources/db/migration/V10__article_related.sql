@@ -0,0 +1,13 @@
+-- Related articles, precomputed by RelatedArticleIndex: for each published article, the published
+-- articles most similar to it by shared tags and categories, with their similarity. Reading the
+-- list of an article is a range scan of the primary key; the related_id index finds the lists an
+-- article appears in when it is archived or deleted. No foreign keys, as the article primary key
+-- includes the partitioning status.
+CREATE TABLE article_related (
+    article_id BIGINT NOT NULL,
+    related_id BIGINT NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (article_id, related_id)
+);
+
+CREATE INDEX idx_article_related_related_id ON article_related (related_id);
@@ -0,0 +1,4 @@
+-- ArticleOutboxEventRepository.findPending: an event is only due once no earlier event of its
+-- article is undelivered, which is looked up per article among the undelivered rows
+CREATE INDEX idx_article_event_outbox_undelivered_article ON article_event_outbox (article_id, id)
+    WHERE status IN ('PENDING', 'IN_FLIGHT');
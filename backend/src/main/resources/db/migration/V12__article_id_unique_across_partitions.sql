@@ -0,0 +1,24 @@
+-- The primary key of the partitioned article table is (id, status) (see V5), so the database
+-- itself would accept the same id in two partitions. Ids must only ever come from article_id_seq,
+-- the default of article.id that the IDENTITY generation of Article relies on; never insert an
+-- article with an explicit id. This trigger enforces it for rows that do, e.g. a data fix or an
+-- import.
+--
+-- The check runs for every row that enters a partition, including the row movement of an update
+-- of the status, which has already deleted the old row when the new one is inserted. Inserts of
+-- the same id are serialized on a transaction-level advisory lock keyed by the id, so that two
+-- concurrent inserts into different partitions cannot both pass the check.
+
+CREATE FUNCTION article_check_unique_id() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('article.id'), hashtext(NEW.id::text));
+    IF EXISTS (SELECT 1 FROM article WHERE id = NEW.id) THEN
+        RAISE EXCEPTION 'duplicate article id %', NEW.id
+            USING ERRCODE = 'unique_violation', CONSTRAINT = 'article_pkey';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER article_unique_id BEFORE INSERT ON article
+    FOR EACH ROW EXECUTE FUNCTION article_check_unique_id();
@@ -0,0 +1,12 @@
+-- Progress of the rebuilds that walk the articles in ID order (see RebuildProgress), e.g. of the
+-- related article lists by RelatedArticleIndex. A rebuild is complete once completed_at is set;
+-- until then the instance holding its lease resumes after last_id. The related article lists
+-- may have been left partly built, which the presence of rows in article_related cannot tell,
+-- so they are rebuilt once more.
+CREATE TABLE rebuild_progress (
+    name VARCHAR(50) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    completed_at TIMESTAMP
+);
+
+INSERT INTO rebuild_progress (name, last_id) VALUES ('related-articles-rebuild', 0);
@@ -0,0 +1,44 @@
+-- Foreign keys for the article join tables again. They were dropped in V5, as article(id) is no
+-- longer unique on its own once the table is partitioned by status. article_id holds one row per
+-- article id, outside the partitions, and the join tables reference it with ON DELETE CASCADE, so
+-- tag and category links cannot outlive their article even when it is deleted by SQL.
+--
+-- A row is registered when an article is inserted. Moving the article to another partition (an
+-- update of its status) inserts it again, so an id that is already registered is kept. The move
+-- also fires the AFTER DELETE trigger of the old row, but AFTER triggers run at the end of the
+-- statement, when the moved row is back in the table: the id is only dropped when no article
+-- row is left with it.
+
+CREATE TABLE article_id (
+    id BIGINT PRIMARY KEY
+);
+
+INSERT INTO article_id (id) SELECT DISTINCT id FROM article;
+
+-- Links to articles deleted while there was no foreign key
+DELETE FROM article_tags WHERE article_id NOT IN (SELECT id FROM article_id);
+DELETE FROM article_categories WHERE article_id NOT IN (SELECT id FROM article_id);
+
+ALTER TABLE article_tags ADD CONSTRAINT article_tags_article_id_fkey
+    FOREIGN KEY (article_id) REFERENCES article_id(id) ON DELETE CASCADE;
+ALTER TABLE article_categories ADD CONSTRAINT article_categories_article_id_fkey
+    FOREIGN KEY (article_id) REFERENCES article_id(id) ON DELETE CASCADE;
+
+CREATE FUNCTION article_register_id() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO article_id (id) VALUES (NEW.id) ON CONFLICT (id) DO NOTHING;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION article_unregister_id() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM article_id WHERE id = OLD.id AND NOT EXISTS (SELECT 1 FROM article WHERE id = OLD.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER article_register_id BEFORE INSERT ON article
+    FOR EACH ROW EXECUTE FUNCTION article_register_id();
+CREATE TRIGGER article_unregister_id AFTER DELETE ON article
+    FOR EACH ROW EXECUTE FUNCTION article_unregister_id();
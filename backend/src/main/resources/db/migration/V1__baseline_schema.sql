@@ -0,0 +1,96 @@
+-- Baseline schema for CanvaMedium.
+-- Mirrors the JPA entity mappings; Hibernate validates against it on startup.
+
+-- Users and roles
+CREATE TABLE users (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    password VARCHAR(100) NOT NULL,
+    full_name VARCHAR(100) NOT NULL,
+    bio VARCHAR(255),
+    profile_image_url VARCHAR(255),
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    email_verified BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_login_at TIMESTAMP
+);
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    role VARCHAR(20) NOT NULL,
+    PRIMARY KEY (user_id, role)
+);
+
+-- Templates
+CREATE TABLE template (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description VARCHAR(255),
+    layout JSONB NOT NULL,
+    version INTEGER DEFAULT 1,
+    thumbnail_url VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Articles
+CREATE TABLE article (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(200) NOT NULL,
+    content JSONB NOT NULL,
+    preview_text VARCHAR(500),
+    thumbnail_url VARCHAR(255),
+    template_id BIGINT REFERENCES template(id),
+    user_id BIGINT REFERENCES users(id),
+    status VARCHAR(20) NOT NULL DEFAULT 'DRAFT',
+    featured BOOLEAN NOT NULL DEFAULT FALSE,
+    published_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Categories and tags
+CREATE TABLE categories (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE,
+    description VARCHAR(255),
+    slug VARCHAR(255) NOT NULL UNIQUE,
+    icon VARCHAR(255),
+    color VARCHAR(255),
+    is_featured BOOLEAN DEFAULT FALSE,
+    parent_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE tags (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE,
+    slug VARCHAR(255) NOT NULL UNIQUE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE article_categories (
+    article_id BIGINT NOT NULL REFERENCES article(id) ON DELETE CASCADE,
+    category_id BIGINT NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    PRIMARY KEY (article_id, category_id)
+);
+
+CREATE TABLE article_tags (
+    article_id BIGINT NOT NULL REFERENCES article(id) ON DELETE CASCADE,
+    tag_id BIGINT NOT NULL REFERENCES tags(id) ON DELETE CASCADE,
+    PRIMARY KEY (article_id, tag_id)
+);
+
+-- Simple content items
+CREATE TABLE contents (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255),
+    description VARCHAR(255),
+    content VARCHAR(255),
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
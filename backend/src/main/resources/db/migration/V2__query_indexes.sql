@@ -0,0 +1,31 @@
+-- Indexes backing the repository queries.
+-- Unique constraints on users, tags and categories already index username, email, name and slug.
+
+-- ArticleRepository
+-- findByStatusOrderByPublishedAtDesc / findByStatus
+CREATE INDEX idx_article_status_published_at ON article (status, published_at DESC);
+-- findByFeaturedAndStatus: only featured articles are ever looked up this way
+CREATE INDEX idx_article_featured_published_at ON article (status, published_at DESC) WHERE featured;
+-- findByTemplate / findByStatusAndTemplate / searchArticles template filter
+CREATE INDEX idx_article_template_status ON article (template_id, status);
+-- findAllByOrderByCreatedAtDesc / findByStatusOrderByCreatedAtDesc
+CREATE INDEX idx_article_created_at ON article (created_at DESC);
+CREATE INDEX idx_article_updated_at ON article (updated_at DESC);
+CREATE INDEX idx_article_user_id ON article (user_id);
+
+-- Join tables: the primary keys lead with article_id, these serve the reverse lookups
+-- (TagRepository.findTagsByPopularity, CategoryRepository.findCategoriesByPopularity, Article tag/category filters)
+CREATE INDEX idx_article_tags_tag_id ON article_tags (tag_id, article_id);
+CREATE INDEX idx_article_categories_category_id ON article_categories (category_id, article_id);
+
+-- TagRepository / CategoryRepository: existsByNameIgnoreCase compares upper(name)
+CREATE INDEX idx_tags_upper_name ON tags (UPPER(name));
+CREATE INDEX idx_categories_upper_name ON categories (UPPER(name));
+
+-- CategoryRepository: findByParentId / findByParentIdIsNull / findByFeaturedTrue
+CREATE INDEX idx_categories_parent_id ON categories (parent_id);
+CREATE INDEX idx_categories_featured ON categories (id) WHERE is_featured;
+
+-- TemplateRepository: findAllByOrderByCreatedAtDesc / findByName
+CREATE INDEX idx_template_created_at ON template (created_at DESC);
+CREATE INDEX idx_template_name ON template (name);
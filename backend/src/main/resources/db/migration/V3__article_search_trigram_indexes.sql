@@ -0,0 +1,10 @@
+-- Trigram indexes for the infix (LIKE '%term%') article searches, which a btree cannot serve.
+-- pg_trgm ships with PostgreSQL contrib and is a trusted extension from PostgreSQL 13.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ArticleRepository.searchArticles compares LOWER(title) / LOWER(preview_text)
+CREATE INDEX idx_article_title_lower_trgm ON article USING gin (LOWER(title) gin_trgm_ops);
+CREATE INDEX idx_article_preview_lower_trgm ON article USING gin (LOWER(preview_text) gin_trgm_ops);
+
+-- Derived ...ContainingIgnoreCase queries compare UPPER(title)
+CREATE INDEX idx_article_title_upper_trgm ON article USING gin (UPPER(title) gin_trgm_ops);
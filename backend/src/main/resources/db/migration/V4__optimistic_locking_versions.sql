@@ -0,0 +1,6 @@
+-- Optimistic locking: Article and Template carry a @Version column that Hibernate
+-- checks and increments on every UPDATE.
+ALTER TABLE article ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+UPDATE template SET version = 1 WHERE version IS NULL;
+ALTER TABLE template ALTER COLUMN version SET NOT NULL;
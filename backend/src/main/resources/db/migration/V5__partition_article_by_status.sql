@@ -0,0 +1,65 @@
+-- Partition article by status. Feed queries always filter on status, so they are pruned to a
+-- single partition and only walk that partition's (small) indexes; archived articles live in
+-- their own table that can be detached, moved or dropped without touching the hot data:
+--
+--   ALTER TABLE article DETACH PARTITION article_archived CONCURRENTLY;
+--   CREATE TABLE article_archived_new PARTITION OF article FOR VALUES IN ('ARCHIVED');
+--
+-- Publishing or archiving an article moves its row to another partition (UPDATE row movement).
+--
+-- A unique constraint on a partitioned table has to include the partition key, so the primary
+-- key becomes (id, status) and ids stay unique through the shared sequence. The join tables can
+-- no longer reference article(id); their rows are removed by Hibernate together with the article
+-- (Article owns both associations). No delete trigger is used instead: moving a row between
+-- partitions fires DELETE triggers and would drop the tags of every published article.
+
+ALTER TABLE article_categories DROP CONSTRAINT article_categories_article_id_fkey;
+ALTER TABLE article_tags DROP CONSTRAINT article_tags_article_id_fkey;
+
+ALTER TABLE article RENAME TO article_unpartitioned;
+ALTER TABLE article_unpartitioned RENAME CONSTRAINT article_pkey TO article_unpartitioned_pkey;
+
+CREATE TABLE article (
+    id BIGINT NOT NULL DEFAULT nextval('article_id_seq'),
+    title VARCHAR(200) NOT NULL,
+    content JSONB NOT NULL,
+    preview_text VARCHAR(500),
+    thumbnail_url VARCHAR(255),
+    template_id BIGINT REFERENCES template(id),
+    user_id BIGINT REFERENCES users(id),
+    status VARCHAR(20) NOT NULL DEFAULT 'DRAFT',
+    featured BOOLEAN NOT NULL DEFAULT FALSE,
+    published_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id, status)
+) PARTITION BY LIST (status);
+
+CREATE TABLE article_draft PARTITION OF article FOR VALUES IN ('DRAFT');
+CREATE TABLE article_published PARTITION OF article FOR VALUES IN ('PUBLISHED');
+CREATE TABLE article_archived PARTITION OF article FOR VALUES IN ('ARCHIVED');
+
+INSERT INTO article (id, title, content, preview_text, thumbnail_url, template_id, user_id, status,
+                     featured, published_at, created_at, updated_at, version)
+SELECT id, title, content, preview_text, thumbnail_url, template_id, user_id, status,
+       featured, published_at, created_at, updated_at, version
+FROM article_unpartitioned;
+
+ALTER SEQUENCE article_id_seq OWNED BY article.id;
+DROP TABLE article_unpartitioned;
+
+-- Indexes on the parent are created on every partition
+CREATE INDEX idx_article_template_status ON article (template_id, status);
+CREATE INDEX idx_article_created_at ON article (created_at DESC);
+CREATE INDEX idx_article_updated_at ON article (updated_at DESC);
+CREATE INDEX idx_article_user_id ON article (user_id);
+CREATE INDEX idx_article_title_lower_trgm ON article USING gin (LOWER(title) gin_trgm_ops);
+CREATE INDEX idx_article_preview_lower_trgm ON article USING gin (LOWER(preview_text) gin_trgm_ops);
+CREATE INDEX idx_article_title_upper_trgm ON article USING gin (UPPER(title) gin_trgm_ops);
+
+-- Feed indexes only exist where feeds read: findByStatusOrderByPublishedAtDesc / findByFeaturedAndStatus
+CREATE INDEX idx_article_published_published_at ON article_published (published_at DESC);
+CREATE INDEX idx_article_published_featured ON article_published (published_at DESC) WHERE featured;
+
+ANALYZE article;
@@ -0,0 +1,15 @@
+-- Opaque access and refresh tokens (app.auth.token-mode=opaque with
+-- app.auth.session-store.persistent=true). Tokens are stored as SHA-256 hashes;
+-- rows of one login share a family, which is revoked as a whole.
+CREATE TABLE auth_session (
+    token_hash VARCHAR(64) PRIMARY KEY,
+    kind VARCHAR(10) NOT NULL,
+    family_id VARCHAR(32) NOT NULL,
+    username VARCHAR(50) NOT NULL,
+    roles VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_auth_session_family ON auth_session (family_id);
+CREATE INDEX idx_auth_session_username ON auth_session (username);
+CREATE INDEX idx_auth_session_expires_at ON auth_session (expires_at);
@@ -0,0 +1,22 @@
+-- Transactional outbox of article lifecycle events (see ArticleEventBus). A row is written in
+-- the transaction that publishes, archives, features or deletes the article, and delivered to
+-- the listeners after commit. Delivered rows are kept for app.events.retention, then purged.
+-- No foreign key to article: events of deleted articles must still be delivered.
+CREATE TABLE article_event_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    article_id BIGINT NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    next_attempt_at TIMESTAMP,
+    dispatched_at TIMESTAMP,
+    last_error VARCHAR(500)
+);
+
+-- ArticleOutboxEventRepository.findUndelivered: the dispatcher reads the undelivered rows in id
+-- order; the index stays small since delivered rows drop out of it
+CREATE INDEX idx_article_event_outbox_undelivered ON article_event_outbox (id)
+    WHERE status IN ('PENDING', 'IN_FLIGHT');
+-- ArticleOutboxEventRepository.deleteDispatchedBefore
+CREATE INDEX idx_article_event_outbox_dispatched_at ON article_event_outbox (dispatched_at);
@@ -0,0 +1,17 @@
+-- Scheduled publishing (embargoes). Only drafts are scheduled and the scheduler always filters on
+-- status = 'DRAFT', so the partial index lives on the draft partition only and holds just the
+-- scheduled rows.
+ALTER TABLE article ADD COLUMN scheduled_publish_at TIMESTAMP;
+
+CREATE INDEX idx_article_draft_scheduled_publish_at ON article_draft (scheduled_publish_at)
+    WHERE scheduled_publish_at IS NOT NULL;
+
+-- Leases electing the one instance that runs a cluster-wide task, e.g. the publishing scheduler.
+-- The holder renews its row before expires_at; others take it over with a conditional UPDATE.
+CREATE TABLE leader_lease (
+    name VARCHAR(50) PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO leader_lease (name, owner, expires_at) VALUES ('scheduled-publisher', '', TIMESTAMP '1970-01-01 00:00:00');
@@ -0,0 +1,8 @@
+-- Article views, counted in memory and added in batches by ArticleViewCounter. trending_score is
+-- the log2 of the views weighted by 2^((time - epoch) / half-life), so sorting on it ranks
+-- articles by their time-decayed views without ever rewriting the scores of articles that are no
+-- longer read. Indexes on the parent are created on every partition.
+ALTER TABLE article ADD COLUMN view_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE article ADD COLUMN trending_score DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_article_trending_score ON article (trending_score DESC);
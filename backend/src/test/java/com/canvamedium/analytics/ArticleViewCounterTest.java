@@ -0,0 +1,168 @@
+package com.canvamedium.analytics;
+
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.repository.ArticleRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ArticleViewCounter against an embedded database, flushing explicitly with chosen
+ * times instead of waiting for the scheduled flushes.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ArticleViewCounterTest {
+
+    private static final Duration HALF_LIFE = Duration.ofHours(24);
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry registry;
+    private ArticleViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        counter = new ArticleViewCounter(jdbcTemplate, registry, Duration.ofHours(1), HALF_LIFE, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        counter.close();
+        articleRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentViewsShouldAllBeWrittenExactlyOnce() throws Exception {
+        List<Article> articles = articleRepository.saveAll(List.of(
+                published("First"), published("Second"), published("Third")));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        counter.record(articles.get(i % 3).getId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        counter.flush(now);
+        counter.flush(now);
+
+        assertEquals(2_672, viewCount(articles.get(0)));
+        assertEquals(2_664, viewCount(articles.get(1)));
+        assertEquals(2_664, viewCount(articles.get(2)));
+        assertEquals(8_000, registry.get("article.views.flushed").counter().count());
+    }
+
+    @Test
+    void recentViewsShouldOutrankMoreOlderViews() {
+        Article old = articleRepository.save(published("Old favourite"));
+        Article recent = articleRepository.save(published("Trending now"));
+        LocalDateTime now = LocalDateTime.now();
+
+        recordViews(old, 100);
+        counter.flush(now.minus(HALF_LIFE.multipliedBy(5)));
+        recordViews(recent, 10);
+        counter.flush(now);
+
+        // 100 views five half-lives ago weigh 100 / 32 ~ 3 views now
+        assertTrue(trendingScore(recent) > trendingScore(old));
+        List<Article> popular = articleRepository.findByStatus(Status.PUBLISHED,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "trendingScore"))).getContent();
+        assertEquals(List.of(recent.getId(), old.getId()), popular.stream().map(Article::getId).toList());
+    }
+
+    @Test
+    void viewsAtDifferentTimesShouldAddUpToTheirDecayedSum() {
+        Article article = articleRepository.save(published("Steady"));
+        LocalDateTime now = LocalDateTime.now();
+
+        recordViews(article, 8);
+        counter.flush(now.minus(HALF_LIFE));
+        recordViews(article, 4);
+        counter.flush(now);
+
+        // 8 views a half-life ago count as 4 now, so the score is that of 8 views now
+        double halfLives = Duration.between(ArticleViewCounter.TRENDING_EPOCH, now).toMillis()
+                / (double) HALF_LIFE.toMillis();
+        assertEquals(halfLives + 3, trendingScore(article), 1e-6);
+        assertEquals(12, viewCount(article));
+    }
+
+    @Test
+    void viewsOfDeletedArticlesShouldBeDroppedWithoutFailingTheFlush() {
+        Article kept = articleRepository.save(published("Kept"));
+        Article deleted = articleRepository.save(published("Deleted"));
+        recordViews(kept, 3);
+        recordViews(deleted, 3);
+        articleRepository.deleteById(deleted.getId());
+
+        counter.flush(LocalDateTime.now());
+
+        assertEquals(3, viewCount(kept));
+    }
+
+    private void recordViews(Article article, int views) {
+        for (int i = 0; i < views; i++) {
+            counter.record(article.getId());
+        }
+    }
+
+    private long viewCount(Article article) {
+        return jdbcTemplate.queryForObject("SELECT view_count FROM article WHERE id = ?", Long.class, article.getId());
+    }
+
+    private double trendingScore(Article article) {
+        return jdbcTemplate.queryForObject("SELECT trending_score FROM article WHERE id = ?", Double.class,
+                article.getId());
+    }
+
+    private static Article published(String title) {
+        return new Article(title, new ObjectMapper().createObjectNode().put("type", "container"),
+                "Preview", null, null, Status.PUBLISHED);
+    }
+}
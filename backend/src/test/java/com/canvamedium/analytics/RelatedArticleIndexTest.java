@@ -0,0 +1,274 @@
+package com.canvamedium.analytics;
+
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Category;
+import com.canvamedium.model.RebuildProgress;
+import com.canvamedium.model.Tag;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.repository.CategoryRepository;
+import com.canvamedium.repository.LeaderLeaseRepository;
+import com.canvamedium.repository.RebuildProgressRepository;
+import com.canvamedium.repository.RelatedArticleRepository;
+import com.canvamedium.repository.TagRepository;
+import com.canvamedium.scheduling.LeaderElection;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the RelatedArticleIndex against an embedded database, calling the event handling
+ * directly instead of going through the event bus.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RelatedArticleIndexTest {
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private RelatedArticleRepository relatedArticleRepository;
+
+    @Autowired
+    private RebuildProgressRepository rebuildProgressRepository;
+
+    @Autowired
+    private LeaderLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<RelatedArticleIndex> indexes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RelatedArticleIndex index : indexes) {
+            index.close();
+        }
+        relatedArticleRepository.deleteAllInBatch();
+        rebuildProgressRepository.deleteAllInBatch();
+        articleRepository.deleteAll();
+        tagRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void publishedArticlesShouldBeRelatedBySharedTagsAndCategories() {
+        RelatedArticleIndex index = newIndex(10);
+        Tag java = tag("java");
+        Tag spring = tag("spring");
+        Category backend = category("backend");
+
+        Article first = publish(index, List.of(java, spring), List.of(backend));
+        Article unrelated = publish(index, List.of(tag("kotlin")), List.of());
+        Article partly = publish(index, List.of(java, tag("jvm")), List.of());
+        Article same = publish(index, List.of(java, spring), List.of(backend));
+
+        // Published before its neighbours, so its list was filled in by their publication
+        assertEquals(List.of(same.getId(), partly.getId()), index.getRelatedIds(first.getId()));
+        assertEquals(List.of(first.getId(), partly.getId()), index.getRelatedIds(same.getId()));
+        // Equally similar to both: the newest first
+        assertEquals(List.of(same.getId(), first.getId()), index.getRelatedIds(partly.getId()));
+        assertEquals(List.of(), index.getRelatedIds(unrelated.getId()));
+    }
+
+    @Test
+    void listsShouldKeepOnlyTheMostSimilarNeighbours() {
+        RelatedArticleIndex index = newIndex(2);
+        Tag one = tag("one");
+        Tag two = tag("two");
+        Tag three = tag("three");
+
+        Article article = publish(index, List.of(one, two, three), List.of());
+        Article weak = publish(index, List.of(one), List.of());
+        Article medium = publish(index, List.of(one, two), List.of());
+        assertEquals(List.of(medium.getId(), weak.getId()), index.getRelatedIds(article.getId()));
+
+        Article strong = publish(index, List.of(one, two, three), List.of());
+        assertEquals(List.of(strong.getId(), medium.getId()), index.getRelatedIds(article.getId()));
+        assertEquals(List.of(article.getId(), medium.getId()), index.getRelatedIds(strong.getId()));
+    }
+
+    @Test
+    void archivedAndDeletedArticlesShouldBeRemovedFromAllLists() {
+        RelatedArticleIndex index = newIndex(1);
+        Tag java = tag("java");
+        Tag spring = tag("spring");
+
+        Article first = publish(index, List.of(java, spring), List.of());
+        Article second = publish(index, List.of(java), List.of());
+        Article third = publish(index, List.of(java, spring), List.of());
+        assertEquals(List.of(third.getId()), index.getRelatedIds(first.getId()));
+
+        third.setStatus(Status.ARCHIVED);
+        articleRepository.save(third);
+        index.onArticleEvent(event(third, ArticleLifecycleEvent.Type.ARCHIVED));
+
+        // The list it was in is recomputed with the next best article
+        assertEquals(List.of(second.getId()), index.getRelatedIds(first.getId()));
+        assertEquals(List.of(), index.getRelatedIds(third.getId()));
+
+        articleRepository.deleteById(second.getId());
+        index.onArticleEvent(event(second, ArticleLifecycleEvent.Type.DELETED));
+        assertEquals(List.of(), index.getRelatedIds(first.getId()));
+        assertEquals(0, relatedArticleRepository.findArticleIdsByRelatedId(second.getId()).size());
+    }
+
+    @Test
+    void unpublishedAndRetaggedArticlesShouldBeUpdatedInAllLists() {
+        RelatedArticleIndex index = newIndex(2);
+        Tag java = tag("java");
+        Tag spring = tag("spring");
+
+        Article first = publish(index, List.of(java, spring), List.of());
+        Article second = publish(index, List.of(java), List.of());
+        Article third = publish(index, List.of(java, spring), List.of());
+        assertEquals(List.of(third.getId(), second.getId()), index.getRelatedIds(first.getId()));
+
+        third.setStatus(Status.DRAFT);
+        articleRepository.save(third);
+        index.onArticleEvent(event(third, ArticleLifecycleEvent.Type.UNPUBLISHED));
+        assertEquals(List.of(second.getId()), index.getRelatedIds(first.getId()));
+        assertEquals(List.of(), index.getRelatedIds(third.getId()));
+
+        second.getTags().clear();
+        second.addTag(tag("kotlin"));
+        articleRepository.save(second);
+        index.onArticleEvent(event(second, ArticleLifecycleEvent.Type.TAGS_CHANGED));
+        assertEquals(List.of(), index.getRelatedIds(first.getId()));
+        assertEquals(List.of(), index.getRelatedIds(second.getId()));
+    }
+
+    @Test
+    void anInterruptedRebuildShouldResumeAndCompleteOnce() {
+        RelatedArticleIndex index = newIndex(3);
+        Tag java = tag("java");
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            articles.add(publish(index, List.of(java), List.of()));
+        }
+        relatedArticleRepository.deleteAllInBatch();
+        // Interrupted after the first two articles, leaving lists behind
+        RebuildProgress progress = new RebuildProgress(RelatedArticleIndex.REBUILD_LEASE);
+        progress.advance(articles.get(1).getId());
+        rebuildProgressRepository.save(progress);
+
+        index.rebuildIfIncomplete();
+
+        assertEquals(List.of(), index.getRelatedIds(articles.get(1).getId()));
+        assertEquals(3, index.getRelatedIds(articles.get(2).getId()).size());
+        assertEquals(3, index.getRelatedIds(articles.get(3).getId()).size());
+        RebuildProgress recorded = rebuildProgressRepository.findById(RelatedArticleIndex.REBUILD_LEASE).orElseThrow();
+        assertTrue(recorded.isCompleted());
+        assertEquals(articles.get(3).getId(), recorded.getLastId());
+
+        // Complete, so not rebuilt again even though there are articles without lists
+        index.rebuildIfIncomplete();
+        assertEquals(List.of(), index.getRelatedIds(articles.get(0).getId()));
+    }
+
+    @Test
+    void incrementalUpdatesShouldGiveTheSameListsAsARebuild() {
+        RelatedArticleIndex index = newIndex(3);
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tags.add(tag("tag-" + i));
+        }
+        List<Category> categories = List.of(category("first"), category("second"));
+
+        Random random = new Random(7);
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            List<Tag> articleTags = new ArrayList<>();
+            for (Tag tag : tags) {
+                if (random.nextInt(4) == 0) {
+                    articleTags.add(tag);
+                }
+            }
+            Article article = publish(index, articleTags, List.of(categories.get(random.nextInt(2))));
+            articles.add(article);
+            if (i % 10 == 9) {
+                // Republishing is handled like a first publication
+                index.onArticleEvent(event(articles.get(i / 2), ArticleLifecycleEvent.Type.PUBLISHED));
+            }
+        }
+        Map<Long, List<Long>> incremental = lists(index, articles);
+
+        relatedArticleRepository.deleteAllInBatch();
+        index.rebuild();
+
+        assertEquals(incremental, lists(index, articles));
+        assertTrue(incremental.values().stream().allMatch(list -> list.size() == 3));
+    }
+
+    private RelatedArticleIndex newIndex(int neighbours) {
+        RelatedArticleIndex index = new RelatedArticleIndex(relatedArticleRepository, articleRepository,
+                rebuildProgressRepository, new LeaderElection(leaseRepository), transactionManager, new SimpleMeterRegistry(),
+                neighbours, 100, false);
+        indexes.add(index);
+        return index;
+    }
+
+    private Article publish(RelatedArticleIndex index, List<Tag> tags, List<Category> categories) {
+        Article article = new Article("Article", new ObjectMapper().createObjectNode().put("type", "container"),
+                "Preview", null, null, Status.PUBLISHED);
+        tags.forEach(article::addTag);
+        categories.forEach(article::addCategory);
+        Article saved = articleRepository.save(article);
+        index.onArticleEvent(event(saved, ArticleLifecycleEvent.Type.PUBLISHED));
+        return saved;
+    }
+
+    private Tag tag(String name) {
+        return tagRepository.save(new Tag(name, name));
+    }
+
+    private Category category(String name) {
+        return categoryRepository.save(new Category(name, name));
+    }
+
+    private static Map<Long, List<Long>> lists(RelatedArticleIndex index, List<Article> articles) {
+        Map<Long, List<Long>> lists = new HashMap<>();
+        for (Article article : articles) {
+            lists.put(article.getId(), index.getRelatedIds(article.getId()));
+        }
+        return lists;
+    }
+
+    private static ArticleLifecycleEvent event(Article article, ArticleLifecycleEvent.Type type) {
+        return new ArticleLifecycleEvent(0, article.getId(), type, LocalDateTime.now());
+    }
+}
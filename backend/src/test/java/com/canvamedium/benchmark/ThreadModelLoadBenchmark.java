@@ -0,0 +1,135 @@
+package com.canvamedium.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Closed-loop load test for comparing Tomcat on platform threads with the virtual thread
+ * mode ({@code app.threads.virtual.enabled}). Keeps {@code benchmark.concurrency} requests in
+ * flight against a running instance for {@code benchmark.duration-seconds} and reports the
+ * throughput and latency percentiles.
+ * <p>
+ * Run it once against an instance started normally and once against one started on Java 21
+ * with {@code --app.threads.virtual.enabled=true}:
+ * <pre>
+ * mvn test -Dtest=ThreadModelLoadBenchmark \
+ *     -Dbenchmark.base-url=http://localhost:8080 \
+ *     -Dbenchmark.username=editor -Dbenchmark.password=secret \
+ *     -Dbenchmark.concurrency=800 -Dbenchmark.duration-seconds=30
+ * </pre>
+ * With more requests in flight than Tomcat's 200 threads, platform threads queue the rest in
+ * the connector; virtual threads accept them all and the queue moves to the connection pool
+ * ({@code spring.datasource.hikari.maximum-pool-size}), so compare the tail latencies too.
+ */
+@EnabledIfSystemProperty(named = "benchmark.base-url", matches = ".+")
+public class ThreadModelLoadBenchmark {
+
+    private static final List<String> PATHS = List.of(
+            "/api/articles?page=0&size=10",
+            "/api/articles/1",
+            "/api/templates?page=0&size=10",
+            "/api/articles/search?query=a");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void throughputAndLatencyAtHighConcurrency() throws Exception {
+        String baseUrl = System.getProperty("benchmark.base-url");
+        int concurrency = Integer.getInteger("benchmark.concurrency", 400);
+        Duration duration = Duration.ofSeconds(Integer.getInteger("benchmark.duration-seconds", 20));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String authorization = login(client, baseUrl);
+
+        List<HttpRequest> requests = PATHS.stream()
+                .map(path -> {
+                    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                            .timeout(Duration.ofSeconds(60));
+                    if (authorization != null) {
+                        builder.header("Authorization", authorization);
+                    }
+                    return builder.GET().build();
+                })
+                .toList();
+
+        // Warm up the JIT, the connection pools and the caches
+        run(client, requests, concurrency, Duration.ofSeconds(5), new ConcurrentLinkedQueue<>(), new AtomicLong());
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long elapsed = run(client, requests, concurrency, duration, latencies, errors);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("concurrency %d, %d requests in %.1f s: %.0f req/s, %d errors%n",
+                concurrency, sorted.length, elapsed / 1e9, sorted.length / (elapsed / 1e9), errors.get());
+        System.out.printf("latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Keep {@code concurrency} requests in flight, cycling through the requests, until the
+     * duration has passed.
+     *
+     * @return The elapsed time in nanoseconds, including the completion of the last requests
+     */
+    private long run(HttpClient client, List<HttpRequest> requests, int concurrency, Duration duration,
+                     ConcurrentLinkedQueue<Long> latencies, AtomicLong errors) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        for (int i = 0; System.nanoTime() < deadline; i++) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(requests.get(i % requests.size()), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies.add(System.nanoTime() - sent);
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.tryAcquire(concurrency, 2, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    private String login(HttpClient client, String baseUrl) throws Exception {
+        String username = System.getProperty("benchmark.username");
+        if (username == null) {
+            return null;
+        }
+        String credentials = objectMapper.createObjectNode()
+                .put("username", username)
+                .put("password", System.getProperty("benchmark.password", ""))
+                .toString();
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode(), "Login failed: " + login.body());
+        JsonNode tokens = objectMapper.readTree(login.body());
+        return "Bearer " + (tokens.has("accessToken") ? tokens.get("accessToken") : tokens.get("token")).asText();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+}
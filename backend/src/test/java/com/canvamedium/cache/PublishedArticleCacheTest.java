@@ -0,0 +1,118 @@
+package com.canvamedium.cache;
+
+import com.canvamedium.cache.PublishedArticleCache.SerializedArticle;
+import com.canvamedium.event.ContentChangedEvent;
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Tag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishedArticleCacheTest {
+
+    private ObjectMapper objectMapper;
+    private PublishedArticleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        cache = new PublishedArticleCache(objectMapper, new SimpleMeterRegistry(), DataSize.ofMegabytes(1),
+                Duration.ofMinutes(1));
+    }
+
+    @Test
+    void putShouldCachePublishedArticlesByIdAndVersion() throws Exception {
+        Article article = article(1L, 2L, Status.PUBLISHED, "Short");
+
+        SerializedArticle serialized = cache.put(article, cache.generation());
+
+        assertEquals("Short", objectMapper.readTree(serialized.json()).get("title").asText());
+        assertNull(serialized.gzip());
+        assertSame(serialized, cache.get(1L, 2L).orElseThrow());
+        assertTrue(cache.get(1L, 3L).isEmpty());
+    }
+
+    @Test
+    void putShouldNotCacheDrafts() {
+        SerializedArticle serialized = cache.put(article(1L, 0L, Status.DRAFT, "Draft"), cache.generation());
+
+        assertNotNull(serialized.json());
+        assertTrue(cache.get(1L, 0L).isEmpty());
+    }
+
+    @Test
+    void largeBodiesShouldAlsoBeKeptCompressed() throws Exception {
+        SerializedArticle serialized = cache.put(article(1L, 1L, Status.PUBLISHED, "x".repeat(10_000)),
+                cache.generation());
+
+        assertNotNull(serialized.gzip());
+        assertTrue(serialized.gzip().length < serialized.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(serialized.gzip()))) {
+            assertArrayEquals(serialized.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void articleChangeShouldDropOnlyThatArticle() {
+        cache.put(article(1L, 1L, Status.PUBLISHED, "One"), cache.generation());
+        cache.put(article(2L, 1L, Status.PUBLISHED, "Two"), cache.generation());
+
+        cache.onContentChanged(new ContentChangedEvent(Article.class, 1L));
+
+        assertTrue(cache.get(1L, 1L).isEmpty());
+        assertTrue(cache.get(2L, 1L).isPresent());
+    }
+
+    @Test
+    void draftChangeShouldKeepTheCachedArticles() {
+        long generation = cache.generation();
+        cache.onContentChanged(new ContentChangedEvent(Article.class, 2L, false));
+
+        cache.put(article(1L, 1L, Status.PUBLISHED, "One"), generation);
+
+        assertTrue(cache.get(1L, 1L).isPresent());
+    }
+
+    @Test
+    void articleLoadedBeforeAChangeShouldNotBeKept() {
+        long generation = cache.generation();
+        // The change is committed and invalidated while the article is being loaded
+        cache.onContentChanged(new ContentChangedEvent(Tag.class, 5L));
+
+        SerializedArticle serialized = cache.put(article(1L, 1L, Status.PUBLISHED, "One"), generation);
+
+        assertNotNull(serialized.json());
+        assertTrue(cache.get(1L, 1L).isEmpty());
+    }
+
+    @Test
+    void tagChangeShouldDropAllArticles() {
+        cache.put(article(1L, 1L, Status.PUBLISHED, "One"), cache.generation());
+        cache.put(article(2L, 1L, Status.PUBLISHED, "Two"), cache.generation());
+
+        cache.onContentChanged(new ContentChangedEvent(Tag.class, 5L));
+
+        assertTrue(cache.get(1L, 1L).isEmpty());
+        assertTrue(cache.get(2L, 1L).isEmpty());
+    }
+
+    private Article article(Long id, Long version, Status status, String title) {
+        Article article = new Article(title, objectMapper.createObjectNode().put("body", title), "Preview", null, null, status);
+        article.setId(id);
+        ReflectionTestUtils.setField(article, "version", version);
+        article.setUpdatedAt(LocalDateTime.now());
+        return article;
+    }
+}
@@ -0,0 +1,158 @@
+package com.canvamedium.cache;
+
+import com.canvamedium.event.ContentChangedEvent;
+import com.canvamedium.model.Article;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ResponseCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache responseCache;
+    private ExecutorService executor;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        responseCache = new ResponseCache(new ObjectMapper(), mock(PlatformTransactionManager.class),
+                meterRegistry, Duration.ofMinutes(1), DataSize.ofKilobytes(100));
+        executor = Executors.newFixedThreadPool(8);
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getShouldServeRepeatedRequestsFromTheCache() {
+        ResponseEntity<byte[]> first = get(0);
+        ResponseEntity<byte[]> second = get(0);
+        get(1);
+
+        assertEquals("{\"page\":0}", new String(second.getBody(), StandardCharsets.UTF_8));
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(2, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(2, gets("miss"));
+        assertEquals(2, meterRegistry.get("response.cache.load").tag("cache", ResponseCache.PUBLISHED_ARTICLES)
+                .timer().count());
+    }
+
+    @Test
+    void concurrentMissesShouldTriggerASingleLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<ResponseEntity<byte[]>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(() -> responseCache.get(ResponseCache.PUBLISHED_ARTICLES,
+                    () -> blockingLoad(release), "same-key")));
+        }
+
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<ResponseEntity<byte[]>> response : responses) {
+            assertEquals("{\"loaded\":true}", new String(response.get(5, TimeUnit.SECONDS).getBody(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void contentChangeShouldInvalidateAllRegions() {
+        get(0);
+        responseCache.get(ResponseCache.POPULAR_TAGS, () -> Map.of("tags", loads.incrementAndGet()));
+
+        responseCache.onContentChanged(new ContentChangedEvent(Article.class, 1L));
+        get(0);
+        ResponseEntity<byte[]> tags = responseCache.get(ResponseCache.POPULAR_TAGS,
+                () -> Map.of("tags", loads.incrementAndGet()));
+
+        assertEquals(4, loads.get());
+        assertEquals("{\"tags\":4}", new String(tags.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void draftChangeShouldKeepTheCachedResponses() {
+        get(0);
+
+        responseCache.onContentChanged(new ContentChangedEvent(Article.class, 1L, false));
+        get(0);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loadStartedBeforeAChangeShouldNotBeServedAfterIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<ResponseEntity<byte[]>> staleLoad = executor.submit(() -> responseCache.get(
+                ResponseCache.FEATURED_ARTICLES, () -> blockingLoad(release), "key"));
+
+        Thread.sleep(100);
+        responseCache.invalidateAll();
+        release.countDown();
+        staleLoad.get(5, TimeUnit.SECONDS);
+
+        responseCache.get(ResponseCache.FEATURED_ARTICLES, () -> Map.of("loaded", loads.incrementAndGet()), "key");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        assertThrows(IllegalStateException.class, () -> responseCache.get(ResponseCache.TOP_LEVEL_CATEGORIES, () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("database down");
+        }));
+
+        responseCache.get(ResponseCache.TOP_LEVEL_CATEGORIES, () -> List.of(loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void unknownRegionShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> responseCache.get("unknown", List::of));
+    }
+
+    private ResponseEntity<byte[]> get(int page) {
+        return responseCache.get(ResponseCache.PUBLISHED_ARTICLES, () -> {
+            loads.incrementAndGet();
+            return Map.of("page", page);
+        }, page);
+    }
+
+    private Map<String, Boolean> blockingLoad(CountDownLatch release) {
+        loads.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Map.of("loaded", true);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", ResponseCache.PUBLISHED_ARTICLES)
+                .tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,45 @@
+package com.canvamedium.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TraceFileExporter class.
+ */
+public class TraceFileExporterTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void exportedSpansShouldBeAppendedAsOneOtlpJsonRequestPerLine() throws Exception {
+        Path file = tempDirectory.resolve("traces.jsonl");
+        TraceFileExporter exporter = new TraceFileExporter(file);
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+
+        Span first = tracerProvider.get("test").spanBuilder("first").startSpan();
+        first.end();
+        Span second = tracerProvider.get("test").spanBuilder("second").startSpan();
+        second.end();
+        tracerProvider.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        JsonNode span = new ObjectMapper().readTree(lines.get(0)).at("/resourceSpans/0/scopeSpans/0/spans/0");
+        assertEquals("first", span.get("name").asText());
+        assertEquals(first.getSpanContext().getTraceId(), span.get("traceId").asText());
+    }
+}
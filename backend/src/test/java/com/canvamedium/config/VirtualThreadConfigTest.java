@@ -0,0 +1,51 @@
+package com.canvamedium.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadConfigTest {
+
+    @Test
+    void executorShouldRunTasksOnNamedVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor("test-vt-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertEquals("test-vt-0", thread.getName());
+            assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void executorShouldFailFastBeforeJava21() {
+        assumeTrue(Runtime.version().feature() < 21, "only older JVMs lack virtual threads");
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> VirtualThreadConfig.newVirtualThreadPerTaskExecutor("test-vt-"));
+        assertTrue(exception.getMessage().contains("Java 21"));
+    }
+
+    @Test
+    void pinningMonitorShouldStartAndStop() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(20));
+
+        monitor.start();
+        assertTrue(monitor.isRunning());
+        monitor.stop();
+
+        assertFalse(monitor.isRunning());
+        assertEquals(0, meterRegistry.get("jvm.threads.virtual.pinned").counter().count());
+    }
+}
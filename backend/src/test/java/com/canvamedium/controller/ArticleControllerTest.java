@@ -1,8 +1,19 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.analytics.ArticleViewCounter;
+import com.canvamedium.analytics.RelatedArticleIndex;
+import com.canvamedium.cache.PublishedArticleCache;
+import com.canvamedium.cache.PublishedArticleCache.SerializedArticle;
+import com.canvamedium.cache.ResponseCache;
 import com.canvamedium.model.Article;
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import com.canvamedium.service.ArticleService;
+import com.canvamedium.security.JwtUtils;
+import com.canvamedium.security.SessionTokenStore;
+import com.canvamedium.service.TemplateService;
+import com.canvamedium.service.UserService;
+import com.canvamedium.util.BatchLoader;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
@@ -10,28 +21,44 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(ArticleController.class)
+@WebMvcTest(controllers = ArticleController.class, properties = "app.articles.stream.max-concurrent=1")
+@AutoConfigureMockMvc(addFilters = false) // Disable security filters for testing
 public class ArticleControllerTest {
 
     @Autowired
@@ -40,6 +67,34 @@ public class ArticleControllerTest {
     @MockBean
     private ArticleService articleService;
 
+    @MockBean
+    private TemplateService templateService;
+
+    @MockBean
+    private ResponseCache responseCache;
+
+    @MockBean
+    private PublishedArticleCache publishedArticleCache;
+
+    @MockBean
+    private BatchLoader<Long, Revision> articleRevisionLoader;
+
+    @MockBean
+    private ArticleViewCounter articleViewCounter;
+
+    @MockBean
+    private RelatedArticleIndex relatedArticleIndex;
+
+    // Dependencies of the security filters, which are disabled
+    @MockBean
+    private JwtUtils jwtUtils;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private SessionTokenStore sessionTokenStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -123,28 +178,248 @@ public class ArticleControllerTest {
                 .andExpect(jsonPath("$.totalItems", is(2)));
     }
 
+    @Test
+    @DisplayName("GET /api/articles?sort=popularity,desc - sorted by trending score")
+    void getAllArticles_withPopularitySort_shouldSortByTrendingScore() throws Exception {
+        // Arrange
+        when(articleService.getAllArticles(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(article2, article1)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles")
+                        .param("sort", "popularity,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.articles", hasSize(2)));
+        verify(articleService).getAllArticles(argThat((Pageable pageable) ->
+                Sort.by(Sort.Direction.DESC, "trendingScore").equals(pageable.getSort())));
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/published?size=100000 - rejected, not cached")
+    void getPublishedArticles_withHugePageSize_shouldBeRejected() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/published")
+                        .param("size", "100000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['getPublishedArticles.size']").exists());
+        mockMvc.perform(get("/api/articles/featured")
+                        .param("size", "0"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(responseCache);
+    }
+
     @Test
     @DisplayName("GET /api/articles/{id} - success")
     void getArticleById_withValidId_shouldReturnArticle() throws Exception {
         // Arrange
+        ReflectionTestUtils.setField(article1, "version", 2L);
+        when(articleRevisionLoader.get(1L))
+                .thenReturn(Optional.of(new Revision(2L, article1.getUpdatedAt())));
         when(articleService.getArticleById(1L)).thenReturn(Optional.of(article1));
 
         // Act & Assert
         mockMvc.perform(get("/api/articles/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(header().exists("Last-Modified"))
                 .andExpect(jsonPath("$.title", is("First Article")))
                 .andExpect(jsonPath("$.id", is(1)));
+        // Drafts are not counted as views
+        verify(articleViewCounter, never()).record(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/{id} - cached published article")
+    void getArticleById_withCachedVersion_shouldReturnSerializedBodyWithoutLoading() throws Exception {
+        // Arrange
+        byte[] json = objectMapper.writeValueAsBytes(article1);
+        byte[] gzip = {31, -117, 8, 0};
+        when(articleRevisionLoader.get(1L))
+                .thenReturn(Optional.of(new Revision(3L, article1.getUpdatedAt())));
+        when(publishedArticleCache.get(1L, 3L))
+                .thenReturn(Optional.of(new SerializedArticle(json, gzip, 3L, article1.getUpdatedAt())));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.title", is("First Article")));
+        mockMvc.perform(get("/api/articles/1").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"3-gzip\""))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andExpect(content().bytes(gzip));
+        verify(articleService, never()).getArticleById(anyLong());
+        verify(articleViewCounter, times(2)).record(1L);
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/published/stream - newline-delimited JSON")
+    void streamPublishedArticles_shouldWriteOneArticlePerLine() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            Consumer<Article> action = invocation.getArgument(0);
+            action.accept(article1);
+            action.accept(article2);
+            return 2L;
+        }).when(articleService).forEachPublishedArticle(any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/articles/published/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("First Article", objectMapper.readTree(lines[0]).get("title").asText());
+        assertEquals("Second Article", objectMapper.readTree(lines[1]).get("title").asText());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/featured/stream - too many streams in progress")
+    void streamFeaturedArticles_whileAnotherStreamIsWritten_shouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        CountDownLatch reading = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            reading.await(10, TimeUnit.SECONDS);
+            return 0L;
+        }).when(articleService).forEachPublishedArticle(any());
+        MvcResult first = mockMvc.perform(get("/api/articles/published/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/featured/stream"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        verify(articleService, never()).forEachFeaturedArticle(any());
+
+        // The permit is given back once the first stream has been written
+        reading.countDown();
+        mockMvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+        MvcResult next = mockMvc.perform(get("/api/articles/featured/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(next)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/search/stream - sort key that can be null")
+    void streamSearchResults_byPublicationDateOfAnyStatus_shouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/search/stream").param("sortBy", "publishedAt"))
+                .andExpect(status().isBadRequest());
+        verify(articleService, never()).forEachSearchResult(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/search/stream - unknown template")
+    void streamSearchResults_withUnknownTemplate_shouldReturnNotFoundBeforeStreaming() throws Exception {
+        // Arrange
+        when(templateService.getTemplateById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/search/stream").param("templateId", "99"))
+                .andExpect(status().isNotFound());
+        verify(articleService, never()).forEachSearchResult(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/{id} - not modified")
+    void getArticleById_withCurrentETag_shouldReturnNotModifiedWithoutLoading() throws Exception {
+        // Arrange
+        when(articleRevisionLoader.get(1L))
+                .thenReturn(Optional.of(new Revision(2L, LocalDateTime.now())));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(content().string(""));
+        // If-None-Match compares weakly, also with the ETag of the compressed body
+        mockMvc.perform(get("/api/articles/1").header("If-None-Match", "\"1\", W/\"2-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2-gzip\""));
+        verify(articleService, never()).getArticleById(anyLong());
+        verify(articleViewCounter, never()).record(anyLong());
     }
 
     @Test
     @DisplayName("GET /api/articles/{id} - not found")
     void getArticleById_withInvalidId_shouldReturnNotFound() throws Exception {
         // Arrange
-        when(articleService.getArticleById(anyLong())).thenReturn(Optional.empty());
+        when(articleRevisionLoader.get(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         mockMvc.perform(get("/api/articles/999"))
                 .andExpect(status().isNotFound());
+        verify(articleViewCounter, never()).record(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/{id}/related - published related articles, most similar first")
+    void getRelatedArticles_shouldReturnPublishedArticlesInRankOrder() throws Exception {
+        // Arrange
+        article2.setStatus(Article.Status.PUBLISHED);
+        when(articleRevisionLoader.get(1L)).thenReturn(Optional.of(new Revision(0L, article1.getUpdatedAt())));
+        when(relatedArticleIndex.getRelatedIds(1L)).thenReturn(List.of(3L, 2L));
+        // Article 3 was archived since the lists were last updated
+        when(articleService.getArticlesByIds(List.of(3L, 2L), Article.Status.PUBLISHED)).thenReturn(List.of(article2));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/1/related"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.articles", hasSize(1)))
+                .andExpect(jsonPath("$.articles[0].id", is(2)));
+    }
+
+    @Test
+    @DisplayName("GET /api/articles/{id}/related - not found")
+    void getRelatedArticles_withInvalidId_shouldReturnNotFound() throws Exception {
+        // Arrange
+        when(articleRevisionLoader.get(anyLong())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles/999/related"))
+                .andExpect(status().isNotFound());
+        verify(relatedArticleIndex, never()).getRelatedIds(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /api/articles?ids= - articles in request order and missing ids")
+    void getArticlesByIds_shouldKeepRequestOrderAndReportMissingIds() throws Exception {
+        // Arrange
+        when(articleService.getArticlesByIds(List.of(2L, 7L, 1L))).thenReturn(List.of(article2, article1));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/articles").param("ids", "2,7,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.articles", hasSize(2)))
+                .andExpect(jsonPath("$.articles[0].title", is("Second Article")))
+                .andExpect(jsonPath("$.articles[1].title", is("First Article")))
+                .andExpect(jsonPath("$.missing", contains(7)));
+    }
+
+    @Test
+    @DisplayName("POST /api/articles/batch-get - too many ids")
+    void batchGetArticles_withTooManyIds_shouldReturnBadRequest() throws Exception {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= ArticleController.MAX_BATCH_IDS + 1; id++) {
+            ids.add(id);
+        }
+
+        // Act & Assert
+        mockMvc.perform(post("/api/articles/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("ids", ids))))
+                .andExpect(status().isBadRequest());
+        verify(articleService, never()).getArticlesByIds(any());
     }
 
     @Test
@@ -167,7 +442,7 @@ public class ArticleControllerTest {
     void updateArticle_withValidData_shouldReturnUpdatedArticle() throws Exception {
         // Arrange
         Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
-        when(articleService.updateArticle(eq(1L), any(Article.class))).thenReturn(updatedArticle);
+        when(articleService.updateArticle(eq(1L), any(Article.class), isNull())).thenReturn(updatedArticle);
 
         // Act & Assert
         mockMvc.perform(put("/api/articles/1")
@@ -177,12 +452,48 @@ public class ArticleControllerTest {
                 .andExpect(jsonPath("$.title", is("Updated Article")));
     }
 
+    @Test
+    @DisplayName("PUT /api/articles/{id} - strong If-Match, version in the body ignored")
+    void updateArticle_withStrongIfMatch_shouldPassTheETagVersionOnly() throws Exception {
+        // Arrange
+        Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
+        when(articleService.updateArticle(eq(1L), any(Article.class), eq(3L))).thenReturn(updatedArticle);
+        String body = objectMapper.createObjectNode()
+                .put("title", "Updated Article")
+                .put("previewText", "Updated preview")
+                .put("version", 7)
+                .set("content", contentJson).toString();
+
+        // Act & Assert
+        mockMvc.perform(put("/api/articles/1")
+                        .header("If-Match", "\"3-gzip\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+        verify(articleService).updateArticle(eq(1L), argThat((Article article) -> article.getVersion() == null), eq(3L));
+    }
+
+    @Test
+    @DisplayName("PUT /api/articles/{id} - weak If-Match never matches")
+    void updateArticle_withWeakIfMatch_shouldReturnPreconditionFailed() throws Exception {
+        // Arrange
+        Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/articles/1")
+                        .header("If-Match", "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedArticle)))
+                .andExpect(status().isPreconditionFailed());
+        verify(articleService, never()).updateArticle(anyLong(), any(Article.class), any());
+    }
+
     @Test
     @DisplayName("PUT /api/articles/{id} - not found")
     void updateArticle_withInvalidId_shouldReturnNotFound() throws Exception {
         // Arrange
         Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
-        when(articleService.updateArticle(eq(999L), any(Article.class)))
+        when(articleService.updateArticle(eq(999L), any(Article.class), isNull()))
                 .thenThrow(new EntityNotFoundException("Article not found with id: 999"));
 
         // Act & Assert
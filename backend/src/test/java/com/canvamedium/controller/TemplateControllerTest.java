@@ -1,7 +1,11 @@
 package com.canvamedium.controller;
 
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
+import com.canvamedium.security.JwtUtils;
+import com.canvamedium.security.SessionTokenStore;
 import com.canvamedium.service.TemplateService;
+import com.canvamedium.service.UserService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
@@ -9,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
@@ -31,6 +36,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(TemplateController.class)
+@AutoConfigureMockMvc(addFilters = false) // Disable security filters for testing
 public class TemplateControllerTest {
 
     @Autowired
@@ -39,6 +45,16 @@ public class TemplateControllerTest {
     @MockBean
     private TemplateService templateService;
 
+    // Dependencies of the security filters, which are disabled
+    @MockBean
+    private JwtUtils jwtUtils;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private SessionTokenStore sessionTokenStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -100,20 +116,35 @@ public class TemplateControllerTest {
     @DisplayName("GET /api/templates/{id} - success")
     void getTemplateById_withValidId_shouldReturnTemplate() throws Exception {
         // Arrange
+        when(templateService.getTemplateRevision(1L))
+                .thenReturn(Optional.of(new Revision(1L, template1.getUpdatedAt())));
         when(templateService.getTemplateById(1L)).thenReturn(Optional.of(template1));
 
         // Act & Assert
         mockMvc.perform(get("/api/templates/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
                 .andExpect(jsonPath("$.name", is("Basic Template")))
                 .andExpect(jsonPath("$.id", is(1)));
     }
 
+    @Test
+    @DisplayName("GET /api/templates/{id} - not modified")
+    void getTemplateById_withCurrentETag_shouldReturnNotModified() throws Exception {
+        // Arrange
+        when(templateService.getTemplateRevision(1L))
+                .thenReturn(Optional.of(new Revision(1L, LocalDateTime.now())));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/templates/1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     @DisplayName("GET /api/templates/{id} - not found")
     void getTemplateById_withInvalidId_shouldReturnNotFound() throws Exception {
         // Arrange
-        when(templateService.getTemplateById(anyLong())).thenReturn(Optional.empty());
+        when(templateService.getTemplateRevision(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         mockMvc.perform(get("/api/templates/999"))
@@ -0,0 +1,251 @@
+package com.canvamedium.event;
+
+import com.canvamedium.event.ArticleLifecycleEvent.Type;
+import com.canvamedium.model.ArticleOutboxEvent;
+import com.canvamedium.repository.ArticleOutboxEventRepository;
+import com.canvamedium.repository.LeaderLeaseRepository;
+import com.canvamedium.scheduling.LeaderElection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ArticleEventBus outbox and delivery against an embedded database.
+ */
+@DataJpaTest
+@Import({ArticleEventBus.class, LeaderElection.class, ArticleEventBusTest.Listeners.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "app.events.threads=2",
+        "app.events.poll-interval=100ms",
+        "app.events.max-attempts=3",
+        "app.events.retry-backoff=50ms"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ArticleEventBusTest {
+
+    @TestConfiguration
+    static class Listeners {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /**
+     * Records the events it gets and fails a configured number of times per event.
+     */
+    static class RecordingListener implements ArticleEventListener {
+
+        final List<ArticleLifecycleEvent> events = new CopyOnWriteArrayList<>();
+        final Map<Long, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+        volatile int failuresPerEvent;
+
+        @Override
+        public void onArticleEvent(ArticleLifecycleEvent event) {
+            AtomicInteger left = failuresLeft.computeIfAbsent(event.sequence(), sequence -> new AtomicInteger(failuresPerEvent));
+            if (left.getAndDecrement() > 0) {
+                throw new IllegalStateException("Listener failure for event " + event.sequence());
+            }
+            events.add(event);
+        }
+    }
+
+    @Autowired
+    private ArticleEventBus bus;
+
+    @Autowired
+    private ArticleOutboxEventRepository repository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LeaderLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        awaitTrue(() -> repository.countUndelivered() == 0);
+        repository.deleteAll();
+        listener.events.clear();
+        listener.failuresLeft.clear();
+        listener.failuresPerEvent = 0;
+    }
+
+    @Test
+    void committedEventsShouldBeDeliveredInOrderPerArticle() {
+        transaction.executeWithoutResult(status -> {
+            bus.append(1L, Type.PUBLISHED);
+            bus.append(2L, Type.PUBLISHED);
+            bus.append(1L, Type.FEATURED);
+        });
+        transaction.executeWithoutResult(status -> bus.append(1L, Type.ARCHIVED));
+
+        awaitTrue(() -> listener.events.size() == 4);
+        assertEquals(List.of(Type.PUBLISHED, Type.FEATURED, Type.ARCHIVED), typesOf(1L));
+        assertEquals(List.of(Type.PUBLISHED), typesOf(2L));
+        awaitTrue(() -> repository.findAll().stream()
+                .allMatch(event -> event.getStatus() == ArticleOutboxEvent.Status.DISPATCHED && event.getDispatchedAt() != null));
+        awaitTrue(() -> meterRegistry.get("article.events.lag").timer().count() >= 4);
+    }
+
+    @Test
+    void rolledBackEventsShouldNotBeDelivered() throws Exception {
+        transaction.executeWithoutResult(status -> {
+            bus.append(3L, Type.DELETED);
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> bus.append(4L, Type.DELETED));
+
+        awaitTrue(() -> listener.events.size() == 1);
+        Thread.sleep(300);
+        assertEquals(List.of(4L), listener.events.stream().map(ArticleLifecycleEvent::articleId).toList());
+    }
+
+    @Test
+    void appendShouldRequireATransaction() {
+        assertThrows(IllegalTransactionStateException.class, () -> bus.append(5L, Type.PUBLISHED));
+    }
+
+    @Test
+    void failedDeliveryShouldBeRetriedBeforeLaterEventsOfTheArticle() {
+        listener.failuresPerEvent = 2;
+        transaction.executeWithoutResult(status -> {
+            bus.append(6L, Type.PUBLISHED);
+            bus.append(6L, Type.ARCHIVED);
+        });
+
+        awaitTrue(() -> listener.events.size() == 2);
+        assertEquals(List.of(Type.PUBLISHED, Type.ARCHIVED), typesOf(6L));
+        assertTrue(meterRegistry.get("article.events.retries").counter().count() >= 4);
+        awaitTrue(() -> repository.findAll().stream().allMatch(event -> event.getDispatchedAt() != null));
+        assertTrue(repository.findAll().stream().allMatch(event -> event.getAttempts() == 2));
+    }
+
+    @Test
+    void eventShouldBeGivenUpOnAfterMaxAttempts() {
+        listener.failuresPerEvent = 3;
+        transaction.executeWithoutResult(status -> bus.append(7L, Type.PUBLISHED));
+        awaitTrue(() -> repository.findAll().stream().anyMatch(event -> event.getStatus() == ArticleOutboxEvent.Status.FAILED));
+
+        listener.failuresPerEvent = 0;
+        transaction.executeWithoutResult(status -> bus.append(7L, Type.ARCHIVED));
+        awaitTrue(() -> listener.events.size() == 1);
+        assertEquals(List.of(Type.ARCHIVED), typesOf(7L));
+        ArticleOutboxEvent failed = repository.findAll().stream()
+                .filter(event -> event.getType() == Type.PUBLISHED)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3, failed.getAttempts());
+        assertTrue(failed.getLastError().contains("Listener failure"));
+        assertEquals(1, meterRegistry.get("article.events.failed").counter().count());
+    }
+
+    @Test
+    void findPendingShouldOnlyReturnTheDueHeadEventOfEachArticle() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ArticleOutboxEvent> events = transaction.execute(status -> {
+            // Not delivered by the running dispatcher: the head waits an hour for its retry
+            ArticleOutboxEvent head = repository.save(new ArticleOutboxEvent(8L, Type.PUBLISHED, now));
+            ArticleOutboxEvent next = repository.save(new ArticleOutboxEvent(8L, Type.ARCHIVED, now));
+            repository.markRetry(head.getId(), 1, now.plusHours(1), "Listener failure");
+            return List.of(head, next);
+        });
+        try {
+            assertEquals(List.of(), repository.findPending(now, PageRequest.of(0, 10)));
+            assertEquals(List.of(events.get(0).getId()), repository.findPending(now.plusHours(2), PageRequest.of(0, 10))
+                    .stream().map(ArticleOutboxEvent::getId).toList());
+        } finally {
+            repository.deleteAll(events);
+        }
+    }
+
+    private List<Type> typesOf(Long articleId) {
+        return listener.events.stream()
+                .filter(event -> event.articleId().equals(articleId))
+                .map(ArticleLifecycleEvent::type)
+                .toList();
+    }
+
+    @Test
+    void onlyTheLeaseHolderShouldDeliverEvents() throws Exception {
+        RecordingListener otherListener = new RecordingListener();
+        StaticListableBeanFactory otherBeans = new StaticListableBeanFactory(Map.of("listener", otherListener));
+        try (ArticleEventBus other = new ArticleEventBus(repository, otherBeans.getBeanProvider(ArticleEventListener.class),
+                new SimpleMeterRegistry(), new LeaderElection(leaseRepository), true, Duration.ofSeconds(30),
+                2, 100, Duration.ofMillis(100), 100, 3, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofDays(1))) {
+            other.start();
+            awaitTrue(() -> bus.isLeader());
+
+            transaction.executeWithoutResult(status -> {
+                bus.append(1L, Type.PUBLISHED);
+                bus.append(1L, Type.FEATURED);
+            });
+            awaitTrue(() -> listener.events.size() == 2);
+            Thread.sleep(300);
+
+            assertFalse(other.isLeader());
+            assertEquals(List.of(), otherListener.events);
+            assertEquals(List.of(Type.PUBLISHED, Type.FEATURED), listener.events.stream().map(ArticleLifecycleEvent::type).toList());
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.canvamedium.integration;
 
+import com.canvamedium.monitoring.QueryInspector;
+import org.junit.jupiter.api.AfterEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * Base class for integration tests.
  * Uses SpringBootTest to start a real server on a random port.
+ * Fails tests whose requests run more SQL statements than the endpoint's query budget.
  */
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -20,6 +27,15 @@ public abstract class IntegrationTestBase {
     @Autowired
     protected TestRestTemplate restTemplate;
 
+    @Autowired
+    private QueryInspector queryInspector;
+
+    @AfterEach
+    void checkQueryBudgets() {
+        List<String> violations = queryInspector.drainBudgetViolations();
+        assertTrue(violations.isEmpty(), () -> String.join("\n", violations));
+    }
+
     /**
      * Constructs a URL for the given path based on the server port.
      * 
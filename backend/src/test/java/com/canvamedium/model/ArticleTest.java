@@ -132,4 +132,24 @@ public class ArticleTest {
         assertNotNull(draftCopy.getUpdatedAt());
         assertNull(draftCopy.getPublishedAt());
     }
-} 
\ No newline at end of file
+    
+    @Test
+    void articleWithTagsAndCategoriesShouldSerializeWithoutTheirArticles() throws Exception {
+        Tag tag = new Tag("Java", "java");
+        Category category = new Category("Backend", "backend");
+        article.addTag(tag);
+        article.addCategory(category);
+        // Both sides linked, as when the associations are loaded from the database
+        tag.getArticles().add(article);
+        category.getArticles().add(article);
+        
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(article));
+        
+        assertEquals("Test Article", json.get("title").asText());
+        assertEquals("java", json.get("tags").get(0).get("slug").asText());
+        assertFalse(json.get("tags").get(0).has("articles"));
+        assertEquals("backend", json.get("categories").get(0).get("slug").asText());
+        assertFalse(json.get("categories").get(0).has("articles"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.canvamedium.monitoring;
+
+import com.canvamedium.monitoring.JfrProfiler.AllocationSummary;
+import com.canvamedium.monitoring.JfrProfiler.Mode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JfrProfiler class.
+ */
+public class JfrProfilerTest {
+
+    private static final String TEST_FRAMES = JfrProfilerTest.class.getName();
+
+    private JfrProfiler profiler;
+    private volatile boolean working;
+    private Thread worker;
+    private Path recording;
+
+    @BeforeEach
+    void setUp() {
+        profiler = new JfrProfiler(Duration.ofSeconds(10), Duration.ofMillis(10), 1000, "com.canvamedium");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        working = false;
+        if (worker != null) {
+            worker.join();
+        }
+        if (recording != null) {
+            Files.deleteIfExists(recording);
+        }
+    }
+
+    @Test
+    void collapsedCpuStacksShouldStartAtTheFocusFrame() throws Exception {
+        startWorker();
+        recording = profiler.record(Duration.ofSeconds(1));
+
+        String stacks = profiler.collapse(recording, Mode.CPU, TEST_FRAMES);
+        assertFalse(stacks.isEmpty());
+        for (String line : stacks.split("\n")) {
+            assertTrue(line.startsWith(TEST_FRAMES), line);
+            assertTrue(line.matches(".+ \\d+"), line);
+        }
+        assertTrue(stacks.contains(TEST_FRAMES + "$$Lambda.run;" + TEST_FRAMES + ".allocateDocuments"), stacks);
+    }
+
+    @Test
+    void collapsedStacksWithoutFocusShouldStartAtTheRoot() throws Exception {
+        startWorker();
+        recording = profiler.record(Duration.ofSeconds(1));
+
+        String stacks = profiler.collapse(recording, Mode.ALLOCATION, "");
+        assertTrue(stacks.lines().anyMatch(line -> line.startsWith("java.lang.Thread.run;")
+                && line.contains(TEST_FRAMES + ".allocateDocuments")));
+    }
+
+    @Test
+    void allocationSitesShouldBeSummarizedUnderTheEntryFrames() throws Exception {
+        startWorker();
+        recording = profiler.record(Duration.ofSeconds(1));
+
+        AllocationSummary summary = profiler.allocationSites(recording, List.of(TEST_FRAMES + ".allocateDocuments"), 5);
+        assertTrue(summary.matchedBytes() > 0);
+        assertTrue(summary.matchedBytes() <= summary.totalBytes());
+        assertFalse(summary.sites().isEmpty());
+        assertTrue(summary.sites().size() <= 5);
+        assertTrue(summary.sites().stream().allMatch(site -> site.applicationFrame().startsWith(TEST_FRAMES)));
+        double share = summary.sites().stream().mapToDouble(JfrProfiler.AllocationSite::share).sum();
+        assertTrue(share > 0 && share <= 1.0001, "share " + share);
+        for (int i = 1; i < summary.sites().size(); i++) {
+            assertTrue(summary.sites().get(i - 1).bytes() >= summary.sites().get(i).bytes());
+        }
+    }
+
+    @Test
+    void recordShouldRejectInvalidDurationsAndConcurrentRecordings() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> profiler.record(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> profiler.record(Duration.ofSeconds(11)));
+
+        CompletableFuture<Path> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return profiler.record(Duration.ofSeconds(2));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(500);
+        assertThrows(IllegalStateException.class, () -> profiler.record(Duration.ofSeconds(1)));
+        recording = first.get(10, TimeUnit.SECONDS);
+        assertTrue(Files.size(recording) > 0);
+    }
+
+    private void startWorker() {
+        working = true;
+        worker = new Thread(this::allocateDocuments, "profiled-worker");
+        worker.start();
+    }
+
+    private void allocateDocuments() {
+        List<String> documents = new ArrayList<>();
+        while (working) {
+            StringBuilder document = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                document.append("block-").append(i).append(';');
+            }
+            documents.add(document.toString());
+            if (documents.size() > 1000) {
+                documents.clear();
+            }
+        }
+    }
+}
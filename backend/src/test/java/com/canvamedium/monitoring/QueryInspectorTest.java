@@ -0,0 +1,134 @@
+package com.canvamedium.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QueryInspector class.
+ */
+public class QueryInspectorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryInspector inspector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inspector = new QueryInspector(meterRegistry, 3, Duration.ofSeconds(10), true, true);
+    }
+
+    @Test
+    void statementsShouldBeCountedPerRequestByRoute() throws Exception {
+        perform("listArticles", 2);
+        perform("listArticles", 4);
+
+        DistributionSummary summary = meterRegistry.get("http.server.requests.queries")
+                .tag("method", "GET")
+                .tag("uri", "/api/articles")
+                .summary();
+        assertEquals(2, summary.count());
+        assertEquals(6, summary.totalAmount());
+    }
+
+    @Test
+    void requestOverItsBudgetShouldBeRecordedInTestMode() throws Exception {
+        perform("listArticles", 2);
+        assertTrue(inspector.drainBudgetViolations().isEmpty());
+
+        perform("listArticles", 3);
+        List<String> violations = inspector.drainBudgetViolations();
+        assertEquals(1, violations.size());
+        assertTrue(violations.get(0).startsWith("GET /api/articles ran more than its budget of 2 statements"));
+        assertTrue(inspector.drainBudgetViolations().isEmpty());
+    }
+
+    @Test
+    void methodBudgetShouldTakePrecedenceOverClassBudget() throws Exception {
+        perform("getArticle", 4);
+        perform("getArticle", 5);
+
+        assertEquals(1, inspector.drainBudgetViolations().size());
+    }
+
+    @Test
+    void statementsOutsideRequestsShouldNotBeCounted() {
+        inspector.afterQuery(new ExecutionInfo(), List.of(new QueryInfo("SELECT 1")));
+
+        assertTrue(meterRegistry.find("http.server.requests.queries").summaries().isEmpty());
+    }
+
+    @Test
+    void explainingSlowQueriesShouldNotRunTheQueryAgainThroughTheListener() throws Exception {
+        QueryInspector slowInspector = new QueryInspector(meterRegistry, 3, Duration.ZERO, true, true);
+        AtomicInteger executed = new AtomicInteger();
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-inspector;DB_CLOSE_DELAY=-1");
+        DataSource dataSource = ProxyDataSourceBuilder.create(h2)
+                .listener(slowInspector)
+                .afterQuery((execInfo, queryInfoList) -> executed.incrementAndGet())
+                .build();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS article (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT title FROM article WHERE id = ?")) {
+                statement.setLong(1, 1L);
+                try (ResultSet rows = statement.executeQuery()) {
+                    assertFalse(rows.next());
+                }
+            }
+        }
+
+        assertEquals(2, executed.get());
+    }
+
+    private void perform(String handlerMethod, int statements) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/articles");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/articles");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(new BudgetedController(), BudgetedController.class.getMethod(handlerMethod)));
+        MockFilterChain chain = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest req, jakarta.servlet.ServletResponse res) {
+                for (int i = 0; i < statements; i++) {
+                    inspector.afterQuery(new ExecutionInfo(), List.of(new QueryInfo("SELECT * FROM article WHERE id = ?")));
+                }
+            }
+        };
+        inspector.doFilter(request, new MockHttpServletResponse(), chain);
+    }
+
+    @QueryBudget(2)
+    static class BudgetedController {
+
+        public void listArticles() {
+        }
+
+        @QueryBudget(4)
+        public void getArticle() {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.canvamedium.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations on PostgreSQL and checks the article table partitioned by status
+ * (V5): ids stay unique across partitions (V12) and tag links follow their article through
+ * partition moves and deletes (V14). The other tests use H2 without the migrations, so this one
+ * needs a PostgreSQL server, given as the JDBC URL of any of its databases:
+ * <pre>
+ * mvn test -Dtest=ArticlePartitionMigrationTest -Dtest.postgres.url=jdbc:postgresql://localhost:5432/postgres \
+ *     -Dtest.postgres.username=postgres -Dtest.postgres.password=postgres
+ * </pre>
+ * The migrations run on a scratch database, which is dropped afterwards.
+ */
+@EnabledIfSystemProperty(named = "test.postgres.url", matches = ".+")
+public class ArticlePartitionMigrationTest {
+
+    private static final String DATABASE = "canvamedium_migration_test";
+
+    private static String serverUrl;
+    private static String url;
+    private static String username;
+    private static String password;
+
+    private long tagId;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        serverUrl = System.getProperty("test.postgres.url");
+        username = System.getProperty("test.postgres.username", "postgres");
+        password = System.getProperty("test.postgres.password", "postgres");
+        url = serverUrl.substring(0, serverUrl.lastIndexOf('/') + 1) + DATABASE;
+
+        try (Connection connection = DriverManager.getConnection(serverUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+            statement.execute("CREATE DATABASE " + DATABASE);
+        }
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+    }
+
+    @AfterAll
+    static void dropDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(serverUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE + " WITH (FORCE)");
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        tagId = queryLong("INSERT INTO tags (name, slug) VALUES ('Tag " + System.nanoTime() + "', 'tag-"
+                + System.nanoTime() + "') RETURNING id");
+    }
+
+    @Test
+    @DisplayName("Publishing moves the article to its partition and keeps its id and tags")
+    void publishing_shouldKeepIdAndTags() throws SQLException {
+        long id = insertTaggedDraft();
+
+        update("UPDATE article SET status = 'PUBLISHED' WHERE id = " + id);
+
+        assertEquals(1, queryLong("SELECT count(*) FROM article_published WHERE id = " + id));
+        assertEquals(0, queryLong("SELECT count(*) FROM article_draft WHERE id = " + id));
+        assertEquals(1, queryLong("SELECT count(*) FROM article_tags WHERE article_id = " + id));
+        assertEquals(1, queryLong("SELECT count(*) FROM article_id WHERE id = " + id));
+    }
+
+    @Test
+    @DisplayName("An id already used in another partition is rejected")
+    void insertWithIdOfAnotherPartition_shouldBeRejected() throws SQLException {
+        long id = insertTaggedDraft();
+
+        SQLException e = assertThrows(SQLException.class, () -> update(
+                "INSERT INTO article (id, title, content, status) VALUES (" + id + ", 'Copy', '{}', 'ARCHIVED')"));
+        assertEquals("23505", e.getSQLState());
+        assertEquals(1, queryLong("SELECT count(*) FROM article WHERE id = " + id));
+    }
+
+    @Test
+    @DisplayName("Deleting an article removes its tag links")
+    void delete_shouldRemoveTagLinks() throws SQLException {
+        long id = insertTaggedDraft();
+        update("UPDATE article SET status = 'ARCHIVED' WHERE id = " + id);
+
+        update("DELETE FROM article WHERE id = " + id);
+
+        assertEquals(0, queryLong("SELECT count(*) FROM article_tags WHERE article_id = " + id));
+        assertEquals(0, queryLong("SELECT count(*) FROM article_id WHERE id = " + id));
+    }
+
+    @Test
+    @DisplayName("A tag link to an unknown article is rejected")
+    void linkToUnknownArticle_shouldBeRejected() {
+        SQLException e = assertThrows(SQLException.class, () -> update(
+                "INSERT INTO article_tags (article_id, tag_id) VALUES (-1, " + tagId + ")"));
+        assertEquals("23503", e.getSQLState());
+    }
+
+    private long insertTaggedDraft() throws SQLException {
+        long id = queryLong("INSERT INTO article (title, content) VALUES ('Draft', '{}') RETURNING id");
+        update("INSERT INTO article_tags (article_id, tag_id) VALUES (" + id + ", " + tagId + ")");
+        return id;
+    }
+
+    private static long queryLong(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(result.next());
+            return result.getLong(1);
+        }
+    }
+
+    private static void update(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+}
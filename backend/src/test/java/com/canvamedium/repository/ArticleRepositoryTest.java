@@ -0,0 +1,126 @@
+package com.canvamedium.repository;
+
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
+import com.canvamedium.model.Template;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the status-qualified lookups and bulk touches of the ArticleRepository against an embedded database.
+ * On PostgreSQL these read only the partition of the status (see V5__partition_article_by_status).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ArticleRepositoryTest {
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private TemplateRepository templateRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Article draft;
+    private Article published;
+    private Article archived;
+
+    @BeforeEach
+    void setUp() {
+        draft = save(Status.DRAFT);
+        published = save(Status.PUBLISHED);
+        archived = save(Status.ARCHIVED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        articleRepository.deleteAll();
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Find by ID and status - only the article with that status")
+    void findByIdAndStatus_shouldOnlyFindTheArticleWithThatStatus() {
+        assertEquals(draft.getId(), articleRepository.findByIdAndStatus(draft.getId(), Status.DRAFT)
+                .orElseThrow().getId());
+        assertTrue(articleRepository.findByIdAndStatus(draft.getId(), Status.PUBLISHED).isEmpty());
+        assertTrue(articleRepository.findByIdAndStatus(-1L, Status.DRAFT).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Find by IDs and status - other statuses and unknown IDs left out")
+    void findByIdInAndStatus_shouldLeaveOutOtherStatuses() {
+        List<Article> found = articleRepository.findByIdInAndStatus(
+                List.of(draft.getId(), published.getId(), archived.getId(), -1L), Status.PUBLISHED);
+
+        assertEquals(Set.of(published.getId()), found.stream().map(Article::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("Exists by ID and status - follows status changes")
+    void existsByIdAndStatus_shouldFollowStatusChanges() {
+        assertTrue(articleRepository.existsByIdAndStatus(published.getId(), Status.PUBLISHED));
+        assertFalse(articleRepository.existsByIdAndStatus(archived.getId(), Status.PUBLISHED));
+
+        published.archive();
+        articleRepository.save(published);
+
+        assertFalse(articleRepository.existsByIdAndStatus(published.getId(), Status.PUBLISHED));
+        assertTrue(articleRepository.existsByIdAndStatus(published.getId(), Status.ARCHIVED));
+        assertEquals(Status.ARCHIVED, articleRepository.findStatusById(published.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Touch by template - update time set, version kept for If-Match")
+    void touchByTemplateId_shouldSetUpdateTimeAndKeepVersion() {
+        Template template = templateRepository.save(
+                new Template("Layout", new ObjectMapper().createObjectNode().put("type", "container")));
+        Article withTemplate = articleRepository.save(new Article("Templated article",
+                new ObjectMapper().createObjectNode().put("type", "container"), "Preview", null, template,
+                Status.PUBLISHED));
+        LocalDateTime touchedAt = LocalDateTime.now().plusMinutes(1).truncatedTo(ChronoUnit.MILLIS);
+
+        assertEquals(Integer.valueOf(1), transactionTemplate.execute(status ->
+                articleRepository.touchByTemplateId(template.getId(), touchedAt)));
+
+        Revision revision = articleRepository.findRevisionById(withTemplate.getId()).orElseThrow();
+        assertEquals(withTemplate.getVersion(), revision.version());
+        assertEquals(touchedAt, revision.updatedAt());
+        assertEquals(published.getVersion(),
+                articleRepository.findRevisionById(published.getId()).orElseThrow().version());
+    }
+
+    private Article save(Status status) {
+        return articleRepository.save(new Article(status + " article",
+                new ObjectMapper().createObjectNode().put("type", "container"), "Preview", null, null, status));
+    }
+}
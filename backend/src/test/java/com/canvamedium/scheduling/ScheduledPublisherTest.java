@@ -0,0 +1,197 @@
+package com.canvamedium.scheduling;
+
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.event.ArticlePublicationScheduledEvent;
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.repository.LeaderLeaseRepository;
+import com.canvamedium.service.ArticleService;
+import com.canvamedium.service.impl.ArticleServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ScheduledPublisher against an embedded database, with publishers created per test
+ * so that restarts and several instances can be simulated.
+ */
+@DataJpaTest
+@Import(ArticleServiceImpl.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ScheduledPublisherTest {
+
+    @Autowired
+    private ArticleService articleService;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private LeaderLeaseRepository leaseRepository;
+
+    @MockBean
+    private ArticleEventBus articleEventBus;
+
+    private final List<ScheduledPublisher> publishers = new ArrayList<>();
+    private final List<SimpleMeterRegistry> registries = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (ScheduledPublisher publisher : publishers) {
+            publisher.close();
+        }
+        articleRepository.deleteAllInBatch();
+        leaseRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void scheduledDraftShouldBePublishedAtItsTimeAndNotBefore() throws Exception {
+        ScheduledPublisher publisher = startPublisher(Duration.ofSeconds(30));
+        awaitTrue(publisher::isLeader);
+        Article draft = articleRepository.save(draft("Embargoed"));
+
+        LocalDateTime publishAt = LocalDateTime.now().plusSeconds(1);
+        articleService.schedulePublication(draft.getId(), publishAt);
+        publisher.onPublicationScheduled(new ArticlePublicationScheduledEvent(draft.getId(), publishAt));
+
+        Thread.sleep(500);
+        assertEquals(Status.DRAFT, articleRepository.findById(draft.getId()).orElseThrow().getStatus());
+        awaitTrue(() -> articleRepository.findById(draft.getId()).orElseThrow().getStatus() == Status.PUBLISHED);
+
+        Article published = articleRepository.findById(draft.getId()).orElseThrow();
+        assertNull(published.getScheduledPublishAt());
+        assertFalse(published.getPublishedAt().isBefore(publishAt));
+        assertEquals(1, registries.get(0).get("articles.scheduled.published").counter().count());
+    }
+
+    @Test
+    void overdueDraftsShouldBePublishedInBatchesWhenAPublisherStarts() {
+        List<Article> drafts = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            Article draft = draft("Overdue " + i);
+            draft.setScheduledPublishAt(LocalDateTime.now().minusMinutes(5));
+            drafts.add(draft);
+        }
+        Article unscheduled = draft("Not scheduled");
+        drafts.add(unscheduled);
+        articleRepository.saveAll(drafts);
+
+        startPublisher(Duration.ofSeconds(30));
+
+        awaitTrue(() -> articleRepository.findByStatusOrderByCreatedAtDesc(Status.PUBLISHED).size() == 250);
+        assertEquals(Status.DRAFT, articleRepository.findById(unscheduled.getId()).orElseThrow().getStatus());
+        assertEquals(250, registries.get(0).get("articles.scheduled.published").counter().count());
+    }
+
+    @Test
+    void unscheduledAndRescheduledDraftsShouldNotBePublishedAtTheOldTime() throws Exception {
+        ScheduledPublisher publisher = startPublisher(Duration.ofSeconds(30));
+        awaitTrue(publisher::isLeader);
+        Article cancelled = articleRepository.save(draft("Cancelled"));
+        Article postponed = articleRepository.save(draft("Postponed"));
+
+        LocalDateTime publishAt = LocalDateTime.now().plus(Duration.ofMillis(500));
+        for (Article article : List.of(cancelled, postponed)) {
+            articleService.schedulePublication(article.getId(), publishAt);
+            publisher.onPublicationScheduled(new ArticlePublicationScheduledEvent(article.getId(), publishAt));
+        }
+        articleService.cancelScheduledPublication(cancelled.getId());
+        LocalDateTime later = LocalDateTime.now().plusSeconds(2);
+        articleService.schedulePublication(postponed.getId(), later);
+        publisher.onPublicationScheduled(new ArticlePublicationScheduledEvent(postponed.getId(), later));
+
+        Thread.sleep(1000);
+        assertEquals(Status.DRAFT, articleRepository.findById(cancelled.getId()).orElseThrow().getStatus());
+        assertEquals(Status.DRAFT, articleRepository.findById(postponed.getId()).orElseThrow().getStatus());
+        awaitTrue(() -> articleRepository.findById(postponed.getId()).orElseThrow().getStatus() == Status.PUBLISHED);
+        assertEquals(Status.DRAFT, articleRepository.findById(cancelled.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void onlyTheLeaderShouldPublishAndAnotherInstanceShouldTakeOverWhenItStops() throws Exception {
+        ScheduledPublisher first = startPublisher(Duration.ofSeconds(3));
+        awaitTrue(first::isLeader);
+        ScheduledPublisher second = startPublisher(Duration.ofSeconds(3));
+        Thread.sleep(2000);
+        assertFalse(second.isLeader());
+
+        first.close();
+        awaitTrue(second::isLeader);
+
+        Article draft = draft("Taken over");
+        draft.setScheduledPublishAt(LocalDateTime.now().plus(Duration.ofMillis(300)));
+        articleRepository.save(draft);
+        // Scheduled on another instance: picked up by the refresh
+        awaitTrue(() -> articleRepository.findById(draft.getId()).orElseThrow().getStatus() == Status.PUBLISHED);
+        assertEquals(0, registries.get(0).get("articles.scheduled.published").counter().count());
+        assertEquals(1, registries.get(1).get("articles.scheduled.published").counter().count());
+    }
+
+    @Test
+    void schedulingShouldRequireADraftAndAFutureTime() {
+        Article draft = articleRepository.save(draft("Draft"));
+        Article published = draft("Published");
+        published.setStatus(Status.PUBLISHED);
+        articleRepository.save(published);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> articleService.schedulePublication(draft.getId(), LocalDateTime.now().minusSeconds(1)));
+        assertThrows(IllegalStateException.class,
+                () -> articleService.schedulePublication(published.getId(), LocalDateTime.now().plusHours(1)));
+    }
+
+    private ScheduledPublisher startPublisher(Duration leaseDuration) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ScheduledPublisher publisher = new ScheduledPublisher(articleService, articleRepository,
+                new LeaderElection(leaseRepository), registry, true, Duration.ofMillis(20), Duration.ofMinutes(10),
+                Duration.ofMillis(100), leaseDuration, 100, 100000);
+        registries.add(registry);
+        publishers.add(publisher);
+        publisher.start();
+        return publisher;
+    }
+
+    private static Article draft(String title) {
+        return new Article(title, new ObjectMapper().createObjectNode().put("type", "container"),
+                "Preview", null, null, Status.DRAFT);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.canvamedium.security;
+
+import com.canvamedium.security.RateLimitFilter.Rule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RateLimitFilter class.
+ */
+public class RateLimitFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry, true, List.of(
+                new Rule("auth", new AntPathRequestMatcher("/api/auth/**", "POST"), new RateLimit(2, Duration.ofMinutes(1)), true),
+                new Rule("default", new AntPathRequestMatcher("/**"), new RateLimit(1, Duration.ofSeconds(10)), false)),
+                1000, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void requestsBeyondTheLimitShouldGet429WithRetryAfter() throws Exception {
+        assertEquals(200, perform(post("/api/auth/login", "10.0.0.1")).getStatus());
+        assertEquals(200, perform(post("/api/auth/login", "10.0.0.1")).getStatus());
+
+        MockHttpServletResponse rejected = perform(post("/api/auth/login", "10.0.0.1"));
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("30", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"status\":429"));
+        assertEquals(1.0, meterRegistry.get("rate-limit.rejected").tag("rule", "auth").counter().count());
+        assertEquals(200, perform(post("/api/auth/login", "10.0.0.2")).getStatus());
+    }
+
+    @Test
+    void bucketShouldRefillAfterRetryAfter() throws Exception {
+        assertEquals(200, perform(get("/api/articles", "10.0.0.1")).getStatus());
+        assertEquals(429, perform(get("/api/articles", "10.0.0.1")).getStatus());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(200, perform(get("/api/articles", "10.0.0.1")).getStatus());
+    }
+
+    @Test
+    void authenticatedClientsShouldBeLimitedPerUserAcrossAddresses() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        assertEquals(200, perform(get("/api/articles", "10.0.0.1")).getStatus());
+        assertEquals(429, perform(get("/api/articles", "10.0.0.2")).getStatus());
+
+        SecurityContextHolder.clearContext();
+        assertEquals(200, perform(get("/api/articles", "10.0.0.1")).getStatus());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String path, String remoteAddress) {
+        return request("GET", path, remoteAddress);
+    }
+
+    private static MockHttpServletRequest post(String path, String remoteAddress) {
+        return request("POST", path, remoteAddress);
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+}
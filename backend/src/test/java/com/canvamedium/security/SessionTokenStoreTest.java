@@ -0,0 +1,249 @@
+package com.canvamedium.security;
+
+import com.canvamedium.event.UserAccountChangedEvent;
+import com.canvamedium.model.AuthSession;
+import com.canvamedium.repository.AuthSessionRepository;
+import com.canvamedium.security.SessionTokenStore.Session;
+import com.canvamedium.security.SessionTokenStore.Tokens;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the SessionTokenStore class.
+ */
+public class SessionTokenStoreTest {
+
+    private static final List<GrantedAuthority> USER = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<GrantedAuthority> EDITOR = List.of(
+            new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_EDITOR"));
+
+    private final TestClock clock = new TestClock();
+    private SessionTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void issuedAccessTokenShouldAuthenticateWithTheUsersRoles() {
+        Tokens tokens = store.issue("alice", USER);
+
+        Optional<Session> session = store.authenticate(tokens.accessToken());
+
+        assertTrue(session.isPresent());
+        assertEquals("alice", session.get().username());
+        assertEquals(USER, session.get().authorities());
+        assertEquals(43, tokens.accessToken().length());
+        assertEquals(clock.instant().plus(Duration.ofMinutes(15)), tokens.expiresAt());
+        assertTrue(store.authenticate(tokens.refreshToken()).isEmpty());
+        assertTrue(store.authenticate("unknown").isEmpty());
+    }
+
+    @Test
+    void expiredAccessTokenShouldNotAuthenticateButRefreshTokenShouldStillRotate() {
+        Tokens tokens = store.issue("alice", USER);
+
+        clock.advance(Duration.ofMinutes(16));
+
+        assertTrue(store.authenticate(tokens.accessToken()).isEmpty());
+        assertTrue(store.rotate(tokens.refreshToken(), username -> USER).isPresent());
+    }
+
+    @Test
+    void rotateShouldIssueANewPairWithCurrentRolesAndRetireTheOldTokens() {
+        Tokens tokens = store.issue("alice", USER);
+
+        Tokens rotated = store.rotate(tokens.refreshToken(), username -> EDITOR).orElseThrow();
+
+        assertEquals(EDITOR, store.authenticate(rotated.accessToken()).orElseThrow().authorities());
+        assertTrue(store.authenticate(tokens.accessToken()).isEmpty());
+        assertNotEquals(tokens.refreshToken(), rotated.refreshToken());
+    }
+
+    @Test
+    void reusingAnExchangedRefreshTokenShouldRevokeTheWholeFamily() {
+        Tokens tokens = store.issue("alice", USER);
+        Tokens rotated = store.rotate(tokens.refreshToken(), username -> USER).orElseThrow();
+
+        assertTrue(store.rotate(tokens.refreshToken(), username -> USER).isEmpty());
+
+        assertTrue(store.authenticate(rotated.accessToken()).isEmpty());
+        assertTrue(store.rotate(rotated.refreshToken(), username -> USER).isEmpty());
+    }
+
+    @Test
+    void revokeShouldEndOnlyThatSession() {
+        Tokens laptop = store.issue("alice", USER);
+        Tokens phone = store.issue("alice", USER);
+
+        assertTrue(store.revoke(laptop.accessToken()));
+
+        assertTrue(store.authenticate(laptop.accessToken()).isEmpty());
+        assertTrue(store.rotate(laptop.refreshToken(), username -> USER).isEmpty());
+        assertTrue(store.authenticate(phone.accessToken()).isPresent());
+        assertFalse(store.revoke(laptop.accessToken()));
+    }
+
+    @Test
+    void accountChangeShouldRevokeAllSessionsOfThatUser() {
+        Tokens laptop = store.issue("alice", USER);
+        Tokens phone = store.issue("alice", USER);
+        Tokens other = store.issue("bob", USER);
+
+        store.onUserAccountChanged(new UserAccountChangedEvent("alice"));
+
+        assertTrue(store.authenticate(laptop.accessToken()).isEmpty());
+        assertTrue(store.authenticate(phone.accessToken()).isEmpty());
+        assertTrue(store.authenticate(other.accessToken()).isPresent());
+    }
+
+    @Test
+    void persistentStoreShouldStoreHashesAndServeTokensAfterARestart() {
+        Map<String, AuthSession> table = new ConcurrentHashMap<>();
+        AuthSessionRepository repository = mock(AuthSessionRepository.class);
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            Collection<AuthSession> rows = invocation.getArgument(0);
+            rows.forEach(row -> table.put(row.getId(), row));
+            return List.copyOf(rows);
+        });
+        when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.getArgument(0))));
+        store.close();
+        store = newStore(repository);
+
+        Tokens tokens = store.issue("alice", EDITOR);
+        SessionTokenStore restarted = newStore(repository);
+        try {
+            Session session = restarted.authenticate(tokens.accessToken()).orElseThrow();
+
+            assertEquals("alice", session.username());
+            assertEquals(EDITOR, session.authorities());
+            assertEquals(2, table.size());
+            assertFalse(table.containsKey(tokens.accessToken()));
+            assertEquals(64, table.keySet().iterator().next().length());
+
+            restarted.revoke(tokens.accessToken());
+            verify(repository).deleteByFamily(session.familyId());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void instancesSharingTheTableShouldDetectReuseAndSeeRevocationsWithinTheRecheckInterval() {
+        AuthSessionRepository repository = tableRepository(new ConcurrentHashMap<>());
+        store.close();
+        store = newStore(repository);
+        SessionTokenStore other = newStore(repository);
+        try {
+            Tokens tokens = store.issue("alice", USER);
+            // The other instance has read the refresh token before it is exchanged here
+            assertTrue(other.authenticate(tokens.refreshToken()).isEmpty());
+            Tokens rotated = store.rotate(tokens.refreshToken(), username -> USER).orElseThrow();
+
+            // Exchanging it again on the other instance is reuse and revokes the family
+            assertTrue(other.rotate(tokens.refreshToken(), username -> USER).isEmpty());
+            assertTrue(other.authenticate(rotated.accessToken()).isEmpty());
+
+            // The first instance still trusts its copy, until it looks the token up again
+            assertTrue(store.authenticate(rotated.accessToken()).isPresent());
+            clock.advance(Duration.ofMinutes(1).plusSeconds(1));
+            assertTrue(store.authenticate(rotated.accessToken()).isEmpty());
+            assertTrue(store.rotate(rotated.refreshToken(), username -> USER).isEmpty());
+        } finally {
+            other.close();
+        }
+    }
+
+    private SessionTokenStore newStore(AuthSessionRepository repository) {
+        return new SessionTokenStore(repository, Duration.ofMinutes(15), Duration.ofDays(7), Duration.ofMinutes(1),
+                clock, () -> TimeUnit.MILLISECONDS.toNanos(clock.millis()));
+    }
+
+    /**
+     * A repository backed by a map, with the conditional updates and deletes of the real one.
+     */
+    private static AuthSessionRepository tableRepository(Map<String, AuthSession> table) {
+        AuthSessionRepository repository = mock(AuthSessionRepository.class);
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            Collection<AuthSession> rows = invocation.getArgument(0);
+            rows.forEach(row -> table.put(row.getId(), row));
+            return List.copyOf(rows);
+        });
+        when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.getArgument(0))));
+        when(repository.existsById(anyString())).thenAnswer(invocation -> table.containsKey(invocation.getArgument(0)));
+        when(repository.updateKind(anyString(), any(), any())).thenAnswer(invocation -> {
+            AuthSession.Kind expected = invocation.getArgument(1);
+            AuthSession.Kind kind = invocation.getArgument(2);
+            AuthSession row = table.get((String) invocation.getArgument(0));
+            if (row == null || row.getKind() != expected) {
+                return 0;
+            }
+            return table.replace(row.getId(), row, new AuthSession(row.getId(), kind, row.getFamilyId(),
+                    row.getUsername(), row.getRoles(), row.getExpiresAt())) ? 1 : 0;
+        });
+        when(repository.deleteByFamily(anyString())).thenAnswer(invocation -> {
+            String familyId = invocation.getArgument(0);
+            return table.values().removeIf(row -> row.getFamilyId().equals(familyId)) ? 1 : 0;
+        });
+        when(repository.deleteByFamilyAndKind(anyString(), any())).thenAnswer(invocation -> {
+            String familyId = invocation.getArgument(0);
+            AuthSession.Kind kind = invocation.getArgument(1);
+            return table.values().removeIf(row -> row.getFamilyId().equals(familyId) && row.getKind() == kind) ? 1 : 0;
+        });
+        return repository;
+    }
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static class TestClock extends Clock {
+
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
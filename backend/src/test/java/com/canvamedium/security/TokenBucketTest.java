@@ -0,0 +1,72 @@
+package com.canvamedium.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TokenBucket class.
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void fullBucketShouldAllowABurstOfItsCapacity() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(3, Duration.ofSeconds(3)), 0);
+
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(SECOND, bucket.tryConsume(0));
+    }
+
+    @Test
+    void tokensShouldRefillOverThePeriod() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(2, Duration.ofSeconds(2)), 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+
+        assertEquals(SECOND / 2, bucket.tryConsume(SECOND / 2));
+        assertEquals(0, bucket.tryConsume(SECOND));
+        assertTrue(bucket.tryConsume(SECOND) > 0);
+        assertEquals(0, bucket.tryConsume(10 * SECOND));
+        assertEquals(0, bucket.tryConsume(10 * SECOND));
+        assertTrue(bucket.tryConsume(10 * SECOND) > 0);
+    }
+
+    @Test
+    void concurrentConsumersShouldNeverTakeMoreThanTheCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1000, Duration.ofDays(1)), 0);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryConsume(0) == 0) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, taken.get());
+    }
+
+    @Test
+    void parseShouldReadCapacityAndPeriod() {
+        assertEquals(new RateLimit(10, Duration.ofMinutes(1)), RateLimit.parse("10/1m"));
+        assertEquals(new RateLimit(600, Duration.ofSeconds(60)), RateLimit.parse("600 / 60s"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("10"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("0/1m"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.canvamedium.service;
+
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.model.Article;
+import com.canvamedium.model.Article.Status;
+import com.canvamedium.repository.ArticleRepository;
+import com.canvamedium.service.impl.ArticleServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the read-only transaction handling of the article read paths against
+ * an embedded database. The allocations of read-only and read-write page loads are
+ * compared by ArticlePageQueryBenchmark instead, as they depend on JIT and GC state.
+ */
+@DataJpaTest
+@Import(ArticleServiceImpl.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ArticleReadOnlyTransactionTest {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int BLOCKS_PER_ARTICLE = 30;
+
+    @Autowired
+    private ArticleService articleService;
+
+    @MockBean
+    private ArticleEventBus articleEventBus;
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ObjectNode content = objectMapper.createObjectNode();
+            content.put("type", "container");
+            ArrayNode elements = content.putArray("elements");
+            for (int j = 0; j < BLOCKS_PER_ARTICLE; j++) {
+                ObjectNode block = elements.addObject();
+                block.put("id", "block-" + j);
+                block.put("type", "TEXT");
+                block.put("text", "Paragraph " + j + " of article " + i + " with enough text to resemble a real block.");
+            }
+            articles.add(new Article("Article " + i, content, "Preview " + i, null, null, Status.PUBLISHED));
+        }
+        articleRepository.saveAll(articles);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        articleRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Read paths load articles without flushing the session")
+    void readPaths_shouldNotFlush() {
+        Page<Article> published = articleService.getPublishedArticles(PageRequest.of(0, PAGE_SIZE));
+        Page<Article> all = articleService.getAllArticles(PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, published.getContent().size());
+        assertEquals(PAGE_SIZE, all.getContent().size());
+        assertEquals(0, statistics.getFlushCount());
+    }
+}
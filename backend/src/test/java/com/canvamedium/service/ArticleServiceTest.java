@@ -1,13 +1,18 @@
 package com.canvamedium.service;
 
+import com.canvamedium.event.ArticleEventBus;
+import com.canvamedium.event.ArticleLifecycleEvent;
+import com.canvamedium.event.ContentChangedEvent;
 import com.canvamedium.model.Article;
 import com.canvamedium.model.Article.Status;
+import com.canvamedium.model.Revision;
 import com.canvamedium.model.Template;
 import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.TemplateRepository;
 import com.canvamedium.service.impl.ArticleServiceImpl;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,18 +21,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -41,6 +59,18 @@ public class ArticleServiceTest {
     @Mock
     private TemplateRepository templateRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ArticleEventBus articleEventBus;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ArticleServiceImpl articleService;
 
@@ -183,6 +213,7 @@ public class ArticleServiceTest {
         assertNotNull(result.getUpdatedAt());
         assertNull(result.getPublishedAt());
         verify(articleRepository).save(newDraftArticle);
+        verifyNoInteractions(articleEventBus);
     }
 
     @Test
@@ -203,6 +234,22 @@ public class ArticleServiceTest {
         assertEquals("Updated preview", result.getPreviewText());
     }
 
+    @Test
+    @DisplayName("Update article - back to draft appends an UNPUBLISHED event")
+    void updateArticle_fromPublishedToDraft_shouldAppendUnpublishedEvent() {
+        // Arrange
+        Article details = new Article("First Article", contentJson, "Preview", "thumbnail1.jpg", null, Status.DRAFT);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1));
+        when(articleRepository.save(any(Article.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Article result = articleService.updateArticle(1L, details);
+
+        // Assert
+        assertEquals(Status.DRAFT, result.getStatus());
+        verify(articleEventBus).append(1L, ArticleLifecycleEvent.Type.UNPUBLISHED);
+    }
+
     @Test
     @DisplayName("Update article - article not found")
     void updateArticle_withInvalidArticleId_shouldThrowException() {
@@ -233,6 +280,130 @@ public class ArticleServiceTest {
         });
     }
     
+    @Test
+    @DisplayName("Update article - stale version")
+    void updateArticle_withStaleVersion_shouldThrowOptimisticLockingFailure() {
+        // Arrange
+        ReflectionTestUtils.setField(article1, "version", 3L);
+        Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> 
+                articleService.updateArticle(1L, updatedArticle, 2L));
+        verify(articleRepository, never()).save(any(Article.class));
+        assertEquals("First Article", article1.getTitle());
+    }
+    
+    @Test
+    @DisplayName("Update article - matching version")
+    void updateArticle_withMatchingVersion_shouldUpdateFields() {
+        // Arrange
+        ReflectionTestUtils.setField(article1, "version", 3L);
+        Article updatedArticle = new Article("Updated Article", contentJson, "Updated preview", "updated.jpg", template);
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1));
+        when(templateRepository.findById(1L)).thenReturn(Optional.of(template));
+        when(articleRepository.save(any(Article.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Article result = articleService.updateArticle(1L, updatedArticle, 3L);
+
+        // Assert
+        assertEquals("Updated Article", result.getTitle());
+    }
+    
+    @Test
+    @DisplayName("Patch article - replaces only the addressed content block")
+    void patchArticle_withReplaceOperation_shouldUpdateSingleBlock() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(article1, "version", 1L);
+        article1.setContent(objectMapper.readTree(
+                "{\"elements\":[{\"id\":\"a\",\"text\":\"one\"},{\"id\":\"b\",\"text\":\"two\"}]}"));
+        JsonNode patch = objectMapper.readTree(
+                "[{\"op\":\"test\",\"path\":\"/content/elements/1/id\",\"value\":\"b\"},"
+                + "{\"op\":\"replace\",\"path\":\"/content/elements/1/text\",\"value\":\"changed\"},"
+                + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Patched Title\"}]");
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1));
+        when(articleRepository.saveAndFlush(any(Article.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Article result = articleService.patchArticle(1L, patch, 1L);
+
+        // Assert
+        assertEquals("Patched Title", result.getTitle());
+        assertEquals("one", result.getContent().at("/elements/0/text").asText());
+        assertEquals("changed", result.getContent().at("/elements/1/text").asText());
+        assertEquals("Preview text for first article", result.getPreviewText());
+    }
+    
+    @Test
+    @DisplayName("Patch article - failed test operation")
+    void patchArticle_withFailingTestOperation_shouldThrowAndLeaveArticleUnchanged() throws Exception {
+        // Arrange
+        JsonNode patch = objectMapper.readTree(
+                "[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Someone else's title\"},"
+                + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Patched Title\"}]");
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> articleService.patchArticle(1L, patch, null));
+        assertEquals("First Article", article1.getTitle());
+        verify(articleRepository, never()).saveAndFlush(any(Article.class));
+    }
+    
+    @Test
+    @DisplayName("Update article block - success")
+    void updateArticleBlock_withMatchingBlock_shouldReturnNewVersion() throws Exception {
+        // Arrange
+        JsonNode changes = objectMapper.readTree("{\"text\":\"changed\"}");
+        when(articleRepository.updateContentBlock(eq(1L), eq("b"), eq("{\"text\":\"changed\"}"), eq(3L), any()))
+                .thenReturn(1);
+        when(articleRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act
+        Long version = articleService.updateArticleBlock(1L, "b", changes, 3L);
+
+        // Assert
+        assertEquals(4L, version);
+        verify(articleRepository, never()).findById(anyLong());
+    }
+    
+    @Test
+    @DisplayName("Update article block - stale version")
+    void updateArticleBlock_withStaleVersion_shouldThrowOptimisticLockingFailure() throws Exception {
+        // Arrange
+        JsonNode changes = objectMapper.readTree("{\"text\":\"changed\"}");
+        when(articleRepository.updateContentBlock(eq(1L), eq("b"), anyString(), eq(3L), any())).thenReturn(0);
+        when(articleRepository.findVersionById(1L)).thenReturn(Optional.of(5L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> 
+                articleService.updateArticleBlock(1L, "b", changes, 3L));
+    }
+    
+    @Test
+    @DisplayName("Update article block - block not found")
+    void updateArticleBlock_withUnknownBlock_shouldThrowEntityNotFound() throws Exception {
+        // Arrange
+        JsonNode changes = objectMapper.readTree("{\"text\":\"changed\"}");
+        when(articleRepository.updateContentBlock(eq(1L), eq("missing"), anyString(), isNull(), any())).thenReturn(0);
+        when(articleRepository.findVersionById(1L)).thenReturn(Optional.of(5L));
+
+        // Act & Assert
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> 
+                articleService.updateArticleBlock(1L, "missing", changes, null));
+        assertTrue(exception.getMessage().contains("Block missing"));
+    }
+    
+    @Test
+    @DisplayName("Update article block - changes must be an object")
+    void updateArticleBlock_withNonObjectChanges_shouldThrowIllegalArgument() throws Exception {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> 
+                articleService.updateArticleBlock(1L, "b", objectMapper.readTree("[1]"), null));
+        verifyNoInteractions(articleRepository);
+    }
+    
     @Test
     @DisplayName("Update article status - success")
     void updateArticle_withStatusChange_shouldUpdateStatusAndDates() {
@@ -263,6 +434,7 @@ public class ArticleServiceTest {
         // Act & Assert
         assertDoesNotThrow(() -> articleService.deleteArticle(1L));
         verify(articleRepository).delete(article1);
+        verify(articleEventBus).append(1L, ArticleLifecycleEvent.Type.DELETED);
     }
 
     @Test
@@ -329,7 +501,7 @@ public class ArticleServiceTest {
     @DisplayName("Publish article - success")
     void publishArticle_withDraftArticle_shouldChangeStatusAndSetPublishedAt() {
         // Arrange
-        when(articleRepository.findById(3L)).thenReturn(Optional.of(draftArticle));
+        when(articleRepository.findByIdAndStatus(3L, Status.DRAFT)).thenReturn(Optional.of(draftArticle));
         when(articleRepository.save(any(Article.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -338,13 +510,16 @@ public class ArticleServiceTest {
         // Assert
         assertEquals(Status.PUBLISHED, result.getStatus());
         assertNotNull(result.getPublishedAt());
+        verify(eventPublisher).publishEvent(new ContentChangedEvent(Article.class, draftArticle.getId()));
+        verify(articleEventBus).append(3L, ArticleLifecycleEvent.Type.PUBLISHED);
     }
     
     @Test
     @DisplayName("Publish article - not found")
     void publishArticle_withInvalidId_shouldThrowException() {
         // Arrange
-        when(articleRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(articleRepository.findByIdAndStatus(999L, Status.DRAFT)).thenReturn(Optional.empty());
+        when(articleRepository.findStatusById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> {
@@ -356,12 +531,16 @@ public class ArticleServiceTest {
     @DisplayName("Publish article - already published")
     void publishArticle_withAlreadyPublishedArticle_shouldThrowException() {
         // Arrange
-        when(articleRepository.findById(1L)).thenReturn(Optional.of(article1)); // article1 is already published
+        when(articleRepository.findByIdAndStatus(1L, Status.DRAFT)).thenReturn(Optional.empty());
+        when(articleRepository.findStatusById(1L)).thenReturn(Optional.of(Status.PUBLISHED));
 
         // Act & Assert
-        assertThrows(IllegalStateException.class, () -> {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
             articleService.publishArticle(1L);
         });
+        assertEquals("Only draft articles can be published. Current status: PUBLISHED", exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+        verifyNoInteractions(articleEventBus);
     }
     
     @Test
@@ -376,6 +555,7 @@ public class ArticleServiceTest {
 
         // Assert
         assertEquals(Status.ARCHIVED, result.getStatus());
+        verify(eventPublisher).publishEvent(new ContentChangedEvent(Article.class, article1.getId()));
     }
     
     @Test
@@ -435,6 +615,84 @@ public class ArticleServiceTest {
         assertEquals(Status.PUBLISHED, result.getContent().get(1).getStatus());
     }
     
+    @Test
+    @DisplayName("Get articles by IDs - request order, duplicates and unknown IDs dropped")
+    void getArticlesByIds_shouldReturnFoundArticlesInRequestOrder() {
+        // Arrange
+        when(articleRepository.findAllById(List.of(2L, 9L, 1L, 2L))).thenReturn(List.of(article1, article2));
+
+        // Act
+        List<Article> result = articleService.getArticlesByIds(List.of(2L, 9L, 1L, 2L));
+
+        // Assert
+        assertEquals(List.of(article2, article1), result);
+    }
+    
+    @Test
+    @DisplayName("Get articles by IDs and status - one status-qualified query, request order")
+    void getArticlesByIdsAndStatus_shouldQueryOnlyThatStatus() {
+        // Arrange
+        when(articleRepository.findByIdInAndStatus(List.of(2L, 9L, 1L), Status.PUBLISHED))
+                .thenReturn(List.of(article1, article2));
+
+        // Act
+        List<Article> result = articleService.getArticlesByIds(List.of(2L, 9L, 1L), Status.PUBLISHED);
+
+        // Assert
+        assertEquals(List.of(article2, article1), result);
+        verify(articleRepository, never()).findAllById(any());
+    }
+    
+    @Test
+    @DisplayName("Get article revisions - one query for all IDs")
+    void getArticleRevisions_shouldMapRowsById() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.now();
+        when(articleRepository.findRevisionsByIdIn(Set.of(1L, 2L, 3L)))
+                .thenReturn(List.of(new Object[]{1L, 4L, updatedAt}, new Object[]{3L, 0L, updatedAt}));
+
+        // Act
+        Map<Long, Revision> result = articleService.getArticleRevisions(Set.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(Map.of(1L, new Revision(4L, updatedAt), 3L, new Revision(0L, updatedAt)), result);
+    }
+    
+    @Test
+    @DisplayName("Stream published articles - read chunk by chunk, each article passed on and detached")
+    void forEachPublishedArticle_shouldReadChunksAfterTheLastArticleAndDetachThem() {
+        // Arrange
+        ScrollPosition afterFirst = ScrollPosition.forward(Map.of("id", 1L));
+        when(articleRepository.findFirst100ByStatusOrderByPublishedAtDesc(Status.PUBLISHED, ScrollPosition.keyset()))
+                .thenReturn(Window.from(List.of(article1), index -> afterFirst, true));
+        when(articleRepository.findFirst100ByStatusOrderByPublishedAtDesc(Status.PUBLISHED, afterFirst))
+                .thenReturn(Window.from(List.of(article2), index -> ScrollPosition.forward(Map.of("id", 2L)), false));
+        List<Article> received = new ArrayList<>();
+
+        // Act
+        long count = articleService.forEachPublishedArticle(received::add);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals(Arrays.asList(article1, article2), received);
+        verify(entityManager).detach(article1);
+        verify(entityManager).detach(article2);
+        // One short transaction per chunk
+        verify(transactionManager, times(2)).commit(any());
+    }
+    
+    @Test
+    @DisplayName("Stream search results - unknown template")
+    void forEachSearchResult_withUnknownTemplate_shouldThrowException() {
+        // Arrange
+        when(templateRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class, () ->
+                articleService.forEachSearchResult(null, null, 99L, null, Sort.by("updatedAt"), article -> { }));
+        verify(articleRepository, never()).findBy(any(Specification.class), any());
+    }
+    
     @Test
     @DisplayName("Get draft articles - success")
     void getDraftArticles_shouldReturnDraftArticles() {
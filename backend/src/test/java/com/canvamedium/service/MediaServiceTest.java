@@ -1,10 +1,11 @@
 package com.canvamedium.service;
 
 import com.canvamedium.service.impl.MediaServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -12,10 +13,14 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,7 +32,7 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 public class MediaServiceTest {
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
     private MediaServiceImpl mediaService;
 
     private Path tempDirectory;
@@ -36,6 +41,8 @@ public class MediaServiceTest {
     public void setUp() throws IOException {
         // Create a temporary directory for testing
         tempDirectory = Files.createTempDirectory("media-test");
+        meterRegistry = new SimpleMeterRegistry();
+        mediaService = new MediaServiceImpl(meterRegistry, ObservationRegistry.NOOP);
         
         // Set the upload path and base URL using reflection
         ReflectionTestUtils.setField(mediaService, "uploadPath", tempDirectory.toString());
@@ -97,6 +104,55 @@ public class MediaServiceTest {
         Files.deleteIfExists(storedFilePath);
     }
 
+    @Test
+    public void testStoreCompressibleFileWritesGzipVariant() throws IOException {
+        // Create a text-based file large enough to be worth compressing
+        byte[] svg = ("<svg xmlns=\"http://www.w3.org/2000/svg\">"
+                + "<rect width=\"10\" height=\"10\"/>".repeat(200) + "</svg>").getBytes();
+        MockMultipartFile mockFile = new MockMultipartFile("test-file", "logo.svg", "image/svg+xml", svg);
+
+        // Store the file
+        String fileUrl = mediaService.storeFile(mockFile);
+        String filename = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+
+        // Verify the compressed variant exists and holds the same content
+        Path gzipPath = Paths.get(tempDirectory.toString(), filename + ".gz");
+        assertTrue(Files.exists(gzipPath));
+        assertTrue(Files.size(gzipPath) < svg.length);
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(gzipPath))) {
+            assertArrayEquals(svg, in.readAllBytes());
+        }
+
+        // Deleting the file also deletes its compressed variant
+        assertTrue(mediaService.deleteFile(filename));
+        assertFalse(Files.exists(gzipPath));
+    }
+
+    @Test
+    public void testStoreImageDoesNotWriteGzipVariant() throws IOException {
+        MockMultipartFile mockFile = new MockMultipartFile("test-file", "photo.jpg", "image/jpeg", new byte[4096]);
+
+        String fileUrl = mediaService.storeFile(mockFile);
+        String filename = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+
+        assertFalse(Files.exists(Paths.get(tempDirectory.toString(), filename + ".gz")));
+    }
+
+    @Test
+    public void testStoreFileWithThumbnailCountsThumbnailsAndBytes() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 450, BufferedImage.TYPE_INT_RGB), "png", png);
+        MockMultipartFile mockFile = new MockMultipartFile("test-file", "photo.png", "image/png", png.toByteArray());
+
+        String[] urls = mediaService.storeFileWithThumbnail(mockFile);
+        Path thumbnailPath = Paths.get(tempDirectory.toString(), urls[1].substring(urls[1].lastIndexOf('/') + 1));
+
+        assertEquals(1, meterRegistry.get("media.thumbnails.generated").counter().count());
+        assertEquals(png.size(), meterRegistry.get("media.stored.bytes").tag("variant", "original").counter().count());
+        assertEquals(Files.size(thumbnailPath), meterRegistry.get("media.stored.bytes").tag("variant", "thumbnail").counter().count());
+        assertEquals(0, meterRegistry.get("media.stored.bytes").tag("variant", "gzip").counter().count());
+    }
+
     @Test
     public void testDeleteFile() throws IOException {
         // Create a test file
@@ -1,6 +1,8 @@
 package com.canvamedium.service;
 
+import com.canvamedium.event.ContentChangedEvent;
 import com.canvamedium.model.Template;
+import com.canvamedium.repository.ArticleRepository;
 import com.canvamedium.repository.TemplateRepository;
 import com.canvamedium.service.impl.TemplateServiceImpl;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -13,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -25,6 +28,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +38,12 @@ public class TemplateServiceTest {
     @Mock
     private TemplateRepository templateRepository;
 
+    @Mock
+    private ArticleRepository articleRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TemplateServiceImpl templateService;
 
@@ -151,6 +161,9 @@ public class TemplateServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("Updated Template", result.getName());
+        // The articles using the template embed it
+        verify(articleRepository).touchByTemplateId(eq(1L), any());
+        verify(eventPublisher).publishEvent(new ContentChangedEvent(Template.class, 1L));
     }
 
     @Test
@@ -175,6 +188,9 @@ public class TemplateServiceTest {
         // Act & Assert
         assertDoesNotThrow(() -> templateService.deleteTemplate(1L));
         verify(templateRepository).delete(template1);
+        // No article can still use a template that can be deleted
+        verify(articleRepository, never()).touchByTemplateId(anyLong(), any(LocalDateTime.class));
+        verify(eventPublisher).publishEvent(new ContentChangedEvent(Template.class, 1L));
     }
 
     @Test
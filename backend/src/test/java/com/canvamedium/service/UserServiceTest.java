@@ -1,8 +1,10 @@
 package com.canvamedium.service;
 
+import com.canvamedium.event.UserAccountChangedEvent;
 import com.canvamedium.model.User;
 import com.canvamedium.repository.UserRepository;
 import com.canvamedium.service.impl.UserServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,12 +12,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,13 +42,17 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private UserService userService;
 
     private User testUser;
 
     @BeforeEach
     void setUp() {
-        userService = new UserServiceImpl(userRepository, passwordEncoder);
+        userService = new UserServiceImpl(userRepository, passwordEncoder, eventPublisher, new SimpleMeterRegistry(),
+                Duration.ofSeconds(30), 100);
         
         // Create a test user
         testUser = new User("testuser", "test@example.com", "password123", "Test User");
@@ -54,7 +64,7 @@ public class UserServiceTest {
     @Test
     void loadUserByUsername_WithExistingUsername_ShouldReturnUserDetails() {
         // Arrange
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(List.of(testUser));
 
         // Act
         UserDetails userDetails = userService.loadUserByUsername("testuser");
@@ -64,19 +74,85 @@ public class UserServiceTest {
         assertEquals("testuser", userDetails.getUsername());
         assertEquals(testUser.getPassword(), userDetails.getPassword());
         assertTrue(userDetails.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findByUsernameOrEmail("testuser", "testuser");
     }
 
     @Test
     void loadUserByUsername_WithNonExistingUsername_ShouldThrowException() {
         // Arrange
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(List.of());
 
         // Act & Assert
         assertThrows(UsernameNotFoundException.class, () -> {
             userService.loadUserByUsername("nonexistentuser");
         });
-        verify(userRepository).findByUsername("nonexistentuser");
+        verify(userRepository).findByUsernameOrEmail("nonexistentuser", "nonexistentuser");
+    }
+
+    @Test
+    void loadUserByUsername_Repeatedly_ShouldQueryOnceAndReturnIndependentCopies() {
+        // Arrange
+        when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(List.of(testUser));
+
+        // Act: the authentication manager erases the credentials of the user it returns
+        ((CredentialsContainer) userService.loadUserByUsername("testuser")).eraseCredentials();
+        UserDetails userDetails = userService.loadUserByUsername("testuser");
+
+        // Assert
+        assertEquals(testUser.getPassword(), userDetails.getPassword());
+        verify(userRepository, times(1)).findByUsernameOrEmail("testuser", "testuser");
+    }
+
+    @Test
+    void findByUsernameOrEmail_WithMatchOnBothColumns_ShouldPreferTheEmailMatch() {
+        // Arrange
+        User other = new User("test@example.com", "other@example.com", "password123", "Other User");
+        when(userRepository.findByUsernameOrEmail("test@example.com", "test@example.com"))
+                .thenReturn(List.of(other, testUser));
+
+        // Act
+        Optional<User> result = userService.findByUsernameOrEmail("test@example.com");
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals("testuser", result.get().getUsername());
+    }
+
+    @Test
+    void changePassword_ShouldEvictCachedUserDetails() {
+        // Arrange
+        when(userRepository.findByUsernameOrEmail("test@example.com", "test@example.com")).thenReturn(List.of(testUser));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("password123", "password123")).thenReturn(true);
+        when(passwordEncoder.encode("newPassword1")).thenReturn("encoded_new_password");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        userService.loadUserByUsername("test@example.com");
+
+        // Act
+        userService.changePassword(1L, "password123", "newPassword1");
+        UserDetails userDetails = userService.loadUserByUsername("test@example.com");
+
+        // Assert
+        assertEquals("encoded_new_password", userDetails.getPassword());
+        verify(userRepository, times(2)).findByUsernameOrEmail("test@example.com", "test@example.com");
+        verify(eventPublisher).publishEvent(new UserAccountChangedEvent("testuser"));
+    }
+
+    @Test
+    void updatePassword_ShouldStoreTheNewHashAndEvictCachedUserDetails() {
+        // Arrange
+        when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(List.of(testUser));
+        UserDetails userDetails = userService.loadUserByUsername("testuser");
+
+        // Act
+        UserDetails updated = userService.updatePassword(userDetails, "rehashed_password");
+        userService.loadUserByUsername("testuser");
+
+        // Assert
+        assertEquals("rehashed_password", updated.getPassword());
+        assertEquals("testuser", updated.getUsername());
+        verify(userRepository).updatePassword("testuser", "rehashed_password");
+        verify(userRepository, times(2)).findByUsernameOrEmail("testuser", "testuser");
     }
 
     @Test
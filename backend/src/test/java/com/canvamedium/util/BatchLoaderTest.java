@@ -0,0 +1,127 @@
+package com.canvamedium.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLoaderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BatchLoader<Long, String> loader;
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+    }
+
+    @Test
+    void lookupsWithinTheWindowShouldBeLoadedInOneBatch() {
+        loader = new BatchLoader<>("test", evenKeys(), Duration.ofMillis(50), 100, 2, TIMEOUT, meterRegistry);
+
+        CompletableFuture<Optional<String>> one = loader.load(1L);
+        CompletableFuture<Optional<String>> two = loader.load(2L);
+        CompletableFuture<Optional<String>> twoAgain = loader.load(2L);
+
+        assertEquals(Optional.empty(), one.join());
+        assertEquals(Optional.of("value-2"), two.join());
+        assertSame(two, twoAgain);
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+        assertEquals(2.0, meterRegistry.get("batch.loader.size").tag("loader", "test").summary().totalAmount());
+    }
+
+    @Test
+    void fullBatchShouldBeDispatchedWithoutWaitingForTheWindow() {
+        loader = new BatchLoader<>("test", evenKeys(), Duration.ofMinutes(1), 2, 2, TIMEOUT, meterRegistry);
+
+        CompletableFuture<Optional<String>> first = loader.load(2L);
+        CompletableFuture<Optional<String>> second = loader.load(4L);
+
+        assertEquals(Optional.of("value-4"), second.join());
+        assertEquals(Optional.of("value-2"), first.join());
+        assertEquals(List.of(List.of(2L, 4L)), batches);
+    }
+
+    @Test
+    void failureShouldBePassedToEveryLookupOfTheBatch() {
+        loader = new BatchLoader<>("test", keys -> {
+            throw new IllegalStateException("database down");
+        }, Duration.ofMillis(1), 100, 2, TIMEOUT, meterRegistry);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> loader.get(1L));
+
+        assertEquals("database down", exception.getMessage());
+    }
+
+    @Test
+    void lookupWithNothingToMergeWithShouldBeLoadedOnTheCallersThread() {
+        Thread caller = Thread.currentThread();
+        List<Thread> loadedOn = new CopyOnWriteArrayList<>();
+        Function<Collection<Long>, Map<Long, String>> evenKeys = evenKeys();
+        loader = new BatchLoader<>("test", keys -> {
+            loadedOn.add(Thread.currentThread());
+            return evenKeys.apply(keys);
+        }, Duration.ofMinutes(1), 100, 2, TIMEOUT, meterRegistry);
+
+        assertEquals(Optional.of("value-2"), loader.get(2L));
+
+        assertEquals(List.of(caller), loadedOn);
+        assertEquals(List.of(List.of(2L)), batches);
+    }
+
+    @Test
+    void slowBatchShouldNotHoldUpTheNextOneAndWaitingForItShouldTimeOut() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowReleased = new CountDownLatch(1);
+        Function<Collection<Long>, Map<Long, String>> evenKeys = evenKeys();
+        loader = new BatchLoader<>("test", keys -> {
+            if (keys.contains(1L)) {
+                slowStarted.countDown();
+                try {
+                    slowReleased.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return evenKeys.apply(keys);
+        }, Duration.ofMillis(1), 100, 2, Duration.ofMillis(200), meterRegistry);
+
+        CompletableFuture<Optional<String>> slow = loader.load(1L);
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        // Batched while the slow batch is loading, and loaded on the other thread
+        assertEquals(Optional.of("value-2"), loader.get(2L));
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> loader.get(1L));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+
+        slowReleased.countDown();
+        assertEquals(Optional.empty(), slow.join());
+    }
+
+    private Function<Collection<Long>, Map<Long, String>> evenKeys() {
+        return keys -> {
+            batches.add(new ArrayList<>(keys));
+            return keys.stream()
+                    .filter(key -> key % 2 == 0)
+                    .collect(Collectors.toMap(key -> key, key -> "value-" + key));
+        };
+    }
+}
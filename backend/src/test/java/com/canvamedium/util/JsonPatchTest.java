@@ -0,0 +1,87 @@
+package com.canvamedium.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonPatchTest {
+
+    private ObjectMapper objectMapper;
+    private JsonNode document;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        document = json("{\"title\":\"Title\",\"content\":{\"elements\":["
+                + "{\"id\":\"a\",\"text\":\"one\"},{\"id\":\"b\",\"text\":\"two\"}]}}");
+    }
+
+    @Test
+    void addShouldInsertIntoArrayAtIndexAndAppendWithDash() throws Exception {
+        JsonNode result = JsonPatch.apply(json("["
+                + "{\"op\":\"add\",\"path\":\"/content/elements/1\",\"value\":{\"id\":\"x\"}},"
+                + "{\"op\":\"add\",\"path\":\"/content/elements/-\",\"value\":{\"id\":\"z\"}}]"), document);
+
+        assertEquals(json("[{\"id\":\"a\",\"text\":\"one\"},{\"id\":\"x\"},{\"id\":\"b\",\"text\":\"two\"},{\"id\":\"z\"}]"),
+                result.at("/content/elements"));
+    }
+
+    @Test
+    void removeAndReplaceShouldChangeOnlyTheAddressedValues() throws Exception {
+        JsonNode result = JsonPatch.apply(json("["
+                + "{\"op\":\"remove\",\"path\":\"/content/elements/0\"},"
+                + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"New\"}]"), document);
+
+        assertEquals("New", result.get("title").asText());
+        assertEquals(1, result.at("/content/elements").size());
+        assertEquals("b", result.at("/content/elements/0/id").asText());
+    }
+
+    @Test
+    void moveAndCopyShouldRelocateValues() throws Exception {
+        JsonNode result = JsonPatch.apply(json("["
+                + "{\"op\":\"move\",\"from\":\"/content/elements/1\",\"path\":\"/content/elements/0\"},"
+                + "{\"op\":\"copy\",\"from\":\"/title\",\"path\":\"/previewText\"}]"), document);
+
+        assertEquals("b", result.at("/content/elements/0/id").asText());
+        assertEquals("a", result.at("/content/elements/1/id").asText());
+        assertEquals("Title", result.get("previewText").asText());
+    }
+
+    @Test
+    void applyShouldNotModifyTheTarget() throws Exception {
+        JsonNode original = document.deepCopy();
+
+        JsonPatch.apply(json("[{\"op\":\"replace\",\"path\":\"/content/elements/0/text\",\"value\":\"x\"}]"), document);
+
+        assertEquals(original, document);
+    }
+
+    @Test
+    void failedTestOperationShouldThrow() throws Exception {
+        JsonNode patch = json("[{\"op\":\"test\",\"path\":\"/content/elements/0/text\",\"value\":\"stale\"}]");
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPatch.apply(patch, document));
+    }
+
+    @Test
+    void invalidOperationsShouldThrow() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(json("{\"op\":\"add\"}"), document));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(json("[{\"op\":\"replace\",\"path\":\"/missing\",\"value\":1}]"), document));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(json("[{\"op\":\"add\",\"path\":\"/content/elements/5\",\"value\":1}]"), document));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(json("[{\"op\":\"move\",\"from\":\"/content\",\"path\":\"/content/elements/0\"}]"), document));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(json("[{\"op\":\"frobnicate\",\"path\":\"/title\"}]"), document));
+    }
+
+    private JsonNode json(String value) throws Exception {
+        return objectMapper.readTree(value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.canvamedium.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void itemsShouldExpireAtTheFirstAdvancePastTheirDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 2, START);
+        wheel.schedule("a", START + 25);
+        wheel.schedule("b", START + 30);
+
+        assertEquals(List.of(), wheel.advance(START + 20));
+        assertEquals(List.of(), wheel.advance(START + 29));
+        assertEquals(List.of("a", "b"), wheel.advance(START + 30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueItemsShouldExpireAtTheNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 2, START);
+        wheel.schedule("late", START - 5000);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("late"), wheel.advance(START));
+    }
+
+    @Test
+    void itemsBeyondTheSpanOfTheWheelShouldBeCascadedUntilTheyExpire() {
+        // 8 slots x 2 levels cover 64 ticks of 10 ms
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 2, START);
+        wheel.schedule("far", START + 5_000);
+        wheel.schedule("near", START + 70);
+
+        assertEquals(List.of("near"), wheel.advance(START + 4_000));
+        assertEquals(List.of(), wheel.advance(START + 4_990));
+        assertEquals(List.of("far"), wheel.advance(START + 5_000));
+    }
+
+    @Test
+    void randomDeadlinesShouldExpireInOrderAndNeverEarly() {
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 16, 3, START);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = START + random.nextInt(200_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = START; now <= START + 200_000; now += 1 + random.nextInt(50)) {
+            for (Long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now, "expired early: " + deadline + " at " + now);
+                assertTrue(deadline > now - 60, "expired late: " + deadline + " at " + now);
+                expired.add(deadline);
+            }
+        }
+        expired.addAll(wheel.advance(START + 200_010));
+
+        assertEquals(deadlines.size(), expired.size());
+        for (int i = 1; i < expired.size(); i++) {
+            assertTrue((expired.get(i - 1) + 9) / 10 <= (expired.get(i) + 9) / 10, "out of order at " + i);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void clearShouldDropAllItems() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 2, START);
+        wheel.schedule("a", START + 20);
+        wheel.schedule("b", START - 20);
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(START + 100));
+    }
+}